@@ -0,0 +1,94 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.IntBuffer;
+import ahuber.hubble.utils.HashedTimerWheel;
+import ahuber.hubble.utils.PacingClock;
+import ahuber.hubble.utils.VirtualClock;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contains a benchmark that paces many satellites at once with the delays of the original project, either in real
+ * time on a {@link HashedTimerWheel} or in virtual time on a {@link VirtualClock}, and reports how long they took,
+ * how much time passed on the clock, how late their values were, and how many platform threads the JVM needed.
+ * <p>
+ * Usage: {@code PacingBenchmark [satellites] [real|virtual] [values] [threads]}, e.g., {@code PacingBenchmark 5000
+ * real 20 2}. By default, 1,000 satellites produce 20 values each in real time, with the tasks of the timer wheel
+ * running on 2 threads.
+ */
+public class PacingBenchmark {
+    private static final int DEFAULT_SATELLITES = 1000;
+    private static final int DEFAULT_VALUES = 20;
+    private static final int DEFAULT_THREADS = 2;
+    private static final long POLL_MILLISECONDS = 50;
+
+    public static void main(String[] args) throws InterruptedException {
+        int satelliteCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SATELLITES;
+        boolean virtual = args.length > 1 && args[1].equalsIgnoreCase("virtual");
+        int values = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_VALUES;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_THREADS;
+
+        System.out.printf("Pacing %,d satellites that produce %,d values each in %s time...\n", satelliteCount,
+                values, virtual ? "virtual" : "real");
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        threadBean.resetPeakThreadCount();
+        long startNanos = System.nanoTime();
+        List<Satellite> satellites;
+
+        if (virtual) {
+            VirtualClock clock = new VirtualClock();
+            satellites = startSatellites(clock, satelliteCount, values);
+            clock.runUntil(() -> isDone(satellites, values));
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+            try (HashedTimerWheel wheel = new HashedTimerWheel(HashedTimerWheel.DEFAULT_TICK,
+                    HashedTimerWheel.DEFAULT_BUCKETS, executor)) {
+                satellites = startSatellites(wheel, satelliteCount, values);
+
+                while (!isDone(satellites, values)) {
+                    TimeUnit.MILLISECONDS.sleep(POLL_MILLISECONDS);
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        satellites.forEach(Satellite::stop);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        double clockSeconds = satellites.stream().mapToLong(Satellite::getElapsedNanos).max().orElse(0) / 1e9;
+        double meanLateness = satellites.stream().mapToDouble(Satellite::getMeanLatenessNanos).average().orElse(0);
+        long maxLateness = satellites.stream().mapToLong(Satellite::getMaxLatenessNanos).max().orElse(0);
+        System.out.printf("%,d values in %.3f s (%.3f s on the clock): %,.0f values/s\n",
+                (long) satelliteCount * values, seconds, clockSeconds, satelliteCount * values / seconds);
+        System.out.printf("Lateness: %.3f ms on average, %.3f ms at most\n", meanLateness / 1e6, maxLateness / 1e6);
+        System.out.printf("Peak platform threads: %,d\n", threadBean.getPeakThreadCount());
+    }
+
+    @NotNull
+    private static List<Satellite> startSatellites(@NotNull PacingClock clock, int satelliteCount, int values) {
+        List<Satellite> satellites = new ArrayList<>(satelliteCount);
+
+        for (int index = 0; index < satelliteCount; index++) {
+            // The buffer is large enough that the satellite never waits for space
+            Satellite satellite = new Satellite(new IntBuffer(values + 1), clock, Satellite.DEFAULT_MIN_DELAY,
+                    Satellite.DEFAULT_MAX_DELAY, (long) index);
+            satellites.add(satellite);
+            satellite.start();
+        }
+
+        return satellites;
+    }
+
+    private static boolean isDone(@NotNull List<Satellite> satellites, int values) {
+        return satellites.stream().allMatch(satellite -> satellite.getEmittedCount() >= values);
+    }
+}
@@ -0,0 +1,77 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.IntBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Contains a benchmark that measures how fast a {@link Satellite} produces a frame of N<sup>2</sup> values and adds it
+ * to its buffer, one value at a time and a chunk at a time, and how fast the frame is then taken out of the buffer.
+ * <p>
+ * Usage: {@code SatelliteBenchmark [i] [rounds] [parallelism]}, e.g., {@code SatelliteBenchmark 11 10 4}. By default,
+ * 5 frames with <i>i</i> = 11 (N = 2048) are produced in each mode, and the chunks are produced on every core.
+ */
+public class SatelliteBenchmark {
+    private static final int DEFAULT_I = 11;
+    private static final int DEFAULT_ROUNDS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        int i = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_I;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int frameLength = 1 << (2 * i);
+
+        System.out.printf("Producing %d frames with i = %d (%,d values each)...\n", rounds, i, frameLength);
+        run("One value at a time", frameLength, rounds, 1, 1);
+        run("Chunks on one thread", frameLength, rounds, Satellite.DEFAULT_CHUNK_LENGTH, 1);
+
+        if (parallelism > 1) {
+            run(String.format("Chunks on %d threads", parallelism), frameLength, rounds,
+                    Satellite.DEFAULT_CHUNK_LENGTH, parallelism);
+        }
+    }
+
+    private static void run(@NotNull String description, int frameLength, int rounds, int chunkLength,
+            int parallelism) throws InterruptedException {
+        long produceNanos = 0;
+        long takeNanos = 0;
+
+        // The first round warms up the JIT compiler and is not measured
+        for (int round = 0; round <= rounds; round++) {
+            IntBuffer buffer = new IntBuffer(frameLength * 2);
+            CountDownLatch frameReady = new CountDownLatch(1);
+
+            // The buffer only hands out size() - 1 values, so the frame is ready once it holds one more
+            buffer.registerObserver(collection -> {
+                if (collection.size() > frameLength) {
+                    frameReady.countDown();
+                }
+            });
+
+            Thread satelliteThread = new Thread(new Satellite(buffer, chunkLength, parallelism), "Satellite");
+            long start = System.nanoTime();
+            satelliteThread.start();
+            frameReady.await();
+            long produced = System.nanoTime();
+            int[] frame = buffer.take(frameLength);
+            long taken = System.nanoTime();
+            satelliteThread.interrupt();
+            satelliteThread.join();
+
+            if (frame.length != frameLength) {
+                throw new IllegalStateException(String.format("Took %d values instead of %d.", frame.length,
+                        frameLength));
+            }
+
+            if (round > 0) {
+                produceNanos += produced - start;
+                takeNanos += taken - produced;
+            }
+        }
+
+        double bytes = (double) frameLength * rounds * Integer.BYTES;
+        System.out.printf("%s: produced at %,.0f MB/s, taken at %,.0f MB/s\n", description,
+                bytes / produceNanos * 1e3, bytes / takeNanos * 1e3);
+    }
+}
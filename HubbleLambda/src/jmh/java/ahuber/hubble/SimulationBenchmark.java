@@ -0,0 +1,130 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.ArrayUtils;
+import ahuber.hubble.adt.IntArrayWrapper;
+import ahuber.hubble.adt.IntBuffer;
+import ahuber.hubble.sort.Sorters;
+import ahuber.hubble.utils.ExecutionMode;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contains a benchmark that runs many small simulations at the same time in one JVM, each with its own
+ * {@link Satellite}, {@link Receiver}, and {@link Processor}, and reports how long they took and how many platform
+ * threads the JVM needed. The frames are sorted locally with the default algorithm instead of on an EMR cluster.
+ * <p>
+ * Usage: {@code SimulationBenchmark [simulations] [platform|virtual] [i]}, e.g., {@code SimulationBenchmark 2000
+ * virtual 8}. By default, 1,000 simulations with <i>i</i> = 8 run on platform threads. Each simulation holds on to a
+ * buffer of 2 &times; 4<sup><i>i</i></sup> values, so thousands of simulations need a large heap, e.g.,
+ * {@code -Xmx4g}. Virtual threads require Java 21 or later.
+ */
+public class SimulationBenchmark {
+    private static final int DEFAULT_SIMULATIONS = 1000;
+    private static final int DEFAULT_I = 8;
+    private static final int THRESHOLD = 10;
+    private static final long TIMEOUT_MINUTES = 30;
+
+    public static void main(String[] args) throws InterruptedException {
+        int simulations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIMULATIONS;
+        ExecutionMode mode = args.length > 1 ? ExecutionMode.valueOf(args[1].toUpperCase(Locale.ROOT)) :
+                ExecutionMode.PLATFORM;
+        int i = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_I;
+        int frameLength = 1 << (2 * i);
+
+        if (!mode.isSupported()) {
+            System.out.printf("%s threads are not supported by Java %s.\n", mode, System.getProperty("java.version"));
+            return;
+        }
+
+        System.out.printf("Running %,d simulations with i = %d (%,d values each) on %s threads...\n", simulations, i,
+                frameLength, mode);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        Executor executor = mode.newExecutor("Simulation");
+        CountDownLatch finished = new CountDownLatch(simulations);
+        AtomicInteger failures = new AtomicInteger();
+        long startNanos = System.nanoTime();
+
+        for (int simulation = 0; simulation < simulations; simulation++) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        runSimulation(mode, frameLength);
+                    } catch (Throwable e) {
+                        // e.g., an OutOfMemoryError when no more native threads can be created
+                        failures.incrementAndGet();
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            } catch (Throwable e) {
+                failures.incrementAndGet();
+                finished.countDown();
+            }
+        }
+
+        if (!finished.await(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            System.out.printf("Timed out after %d minutes.\n", TIMEOUT_MINUTES);
+        }
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%,d simulations (%,d failed) in %.3f s: %.1f simulations/s, %,.0f values/s\n",
+                simulations, failures.get(), seconds, simulations / seconds,
+                (double) (simulations - failures.get()) * frameLength / seconds);
+        System.out.printf("Peak platform threads: %,d\n", threads.getPeakThreadCount());
+    }
+
+    private static void runSimulation(@NotNull ExecutionMode mode, int frameLength) throws InterruptedException {
+        IntBuffer buffer = new IntBuffer(frameLength * 2);
+        Satellite satellite = new Satellite(buffer);
+        SortingProcessor processor = new SortingProcessor();
+        Receiver receiver = new Receiver(buffer, processor, frameLength, null, mode);
+        Thread satelliteThread = mode.newThread(satellite, "Satellite");
+        Thread receiverThread = mode.newThread(receiver, "Receiver");
+
+        satelliteThread.start();
+        receiverThread.start();
+
+        try {
+            receiverThread.join();
+        } finally {
+            satelliteThread.interrupt();
+            receiverThread.interrupt();
+        }
+
+        int[] sorted = processor.getResult().orElseThrow(() -> new IllegalStateException("No frame was sorted."));
+
+        if (!ArrayUtils.isSorted(sorted)) {
+            throw new IllegalStateException("The frame was not sorted.");
+        }
+    }
+
+    /**
+     * Sorts the frame on the common {@link java.util.concurrent.ForkJoinPool}, whatever the execution mode.
+     */
+    private static class SortingProcessor implements Processor<IntArrayWrapper, int[]> {
+        private volatile int[] result;
+
+        @Override
+        public void onReceived(@NotNull IntArrayWrapper data) {
+            int[] array = data.getArray();
+            Sorters.get(null).sort(array, THRESHOLD);
+            result = array;
+        }
+
+        @NotNull
+        @Override
+        public Optional<int[]> getResult() {
+            return Optional.ofNullable(result);
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package ahuber.hubble;
 
 import ahuber.hubble.aws.App;
+import ahuber.hubble.aws.JobType;
+import ahuber.hubble.aws.SatelliteConfiguration;
 import ahuber.hubble.aws.SparkJobConfiguration;
-import ahuber.hubble.sort.MergeSortInt;
-import ahuber.hubble.utils.SatelliteImageWriter;
+import ahuber.hubble.sort.Sorters;
+import ahuber.hubble.stats.FrameStatistics;
+import ahuber.hubble.stats.FrameSummary;
+import ahuber.hubble.utils.ExecutionMode;
+import ahuber.hubble.utils.ImageFormat;
 import ahuber.hubble.utils.Utils;
+import com.amazonaws.jmespath.ObjectMapperSingleton;
 import org.javatuples.Pair;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Contains a driver program that executes what
@@ -19,7 +29,13 @@ import java.util.Optional;
 public class Driver {
     private static final boolean LAUNCH_EMR_CLUSTER = false;
 
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // With a directory, e.g., lambda-inputs, run every configuration in it at the same time
+        if (args.length > 0) {
+            runAll(new File(args[0]));
+            return;
+        }
+
         App app = new App();
         Pair<Long, Optional<SparkJobConfiguration>> pair = app.process(LAUNCH_EMR_CLUSTER,
                 "ahuber-satellite-configs", "java/input_i10_j1.json");
@@ -39,21 +55,72 @@ public class Driver {
 
     }
 
+    private static void runAll(File directory) throws IOException, InterruptedException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+
+        if (files == null) {
+            throw new IOException(String.format("Unable to list the files in %s", directory.getAbsolutePath()));
+        }
+
+        Arrays.sort(files);
+        List<SatelliteConfiguration> configurations = new ArrayList<>();
+
+        for (File file : files) {
+            configurations.add(ObjectMapperSingleton.getObjectMapper().readValue(file, SatelliteConfiguration.class));
+        }
+
+        // The simulations share one worker pool for sorting while collecting, and each one waits on its own thread
+        ExecutorService sortExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        App app = new App(sortExecutor);
+        SimulationScheduler scheduler = new SimulationScheduler(ExecutionMode.PLATFORM.newExecutor("Simulation"),
+                configuration -> app.simulate(LAUNCH_EMR_CLUSTER, configuration));
+
+        try {
+            scheduler.runAll(configurations);
+        } finally {
+            sortExecutor.shutdownNow();
+        }
+
+        System.out.println(scheduler.getReport());
+    }
+
     private static long process(SparkJobConfiguration configuration) throws IOException {
         long startMillis = System.currentTimeMillis();
         int[] data = configuration.getData();
-        MergeSortInt.sort(data, configuration.getThreshold());
-        BufferedImage image = SatelliteImageWriter.writeGreyscaleImage(data);
-        File outputFile = new File(String.format("%s.jpg", configuration.getSatelliteName()));
+
+        if (configuration.getJobType() == JobType.STATS_ONLY) {
+            FrameSummary summary = FrameStatistics.summarize(data, ForkJoinPool.commonPool());
+            System.out.println(ObjectMapperSingleton.getObjectMapper().writeValueAsString(summary));
+            return System.currentTimeMillis() - startMillis;
+        }
+
+        // A histogram job renders the image from the counts, so the data is neither sorted nor needed at all
+        long[] histogram = configuration.getJobType() != JobType.HISTOGRAM ? null :
+                configuration.getHistogram() != null ? configuration.getHistogram() :
+                FrameStatistics.histogram(data, ForkJoinPool.commonPool());
+
+        if (histogram == null) {
+            Sorters.get(configuration.getAlgorithm()).sort(data, configuration.getThreshold());
+        }
+
+        ImageFormat imageFormat = configuration.getImageFormat();
+        File outputFile = new File(String.format("%s.%s", configuration.getSatelliteName(),
+                imageFormat.getExtension()));
         String outputAbsolutePath = outputFile.getAbsolutePath();
 
-        if (ImageIO.write(image, "jpg",outputFile)) {
-            System.out.printf("Image was successfully written to %s\n", outputAbsolutePath);
-        } else {
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            if (histogram != null) {
+                imageFormat.encode(histogram, outputStream);
+            } else {
+                imageFormat.encode(data, outputStream);
+            }
+        } catch (IOException e) {
             String message = String.format("Image was unable to be written to %s", outputAbsolutePath);
-            throw new IOException(message);
+            throw new IOException(message, e);
         }
 
+        System.out.printf("Image was successfully written to %s\n", outputAbsolutePath);
+
         if (Desktop.isDesktopSupported()) {
             System.out.printf("Opening file %s\n", outputAbsolutePath);
             Desktop desktop = Desktop.getDesktop();
@@ -0,0 +1,369 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.IntArrayWrapper;
+import ahuber.hubble.aws.LocalizedS3ObjectId;
+import ahuber.hubble.aws.PipelineConfiguration;
+import ahuber.hubble.aws.S3Helpers;
+import ahuber.hubble.aws.SparkJobConfiguration;
+import ahuber.hubble.sort.SortCancelledException;
+import ahuber.hubble.sort.SortControl;
+import ahuber.hubble.sort.Sorters;
+import ahuber.hubble.utils.DeadlinePlanner;
+import ahuber.hubble.utils.ExecutionMode;
+import ahuber.hubble.utils.ImageFormat;
+import ahuber.hubble.utils.Logger;
+import ahuber.hubble.utils.SatelliteImageWriter;
+import ahuber.hubble.utils.ThroughputModel;
+import ahuber.hubble.utils.Utils;
+import org.javatuples.Pair;
+import org.javatuples.Triplet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Processes the frames produced by our {@linkplain Satellite Hubble Space Telescope} inside the AWS Lambda function,
+ * without an EMR cluster, using a pipeline of {@link PipelineStage}s: each frame is sorted, rendered as a greyscale
+ * image, encoded in its {@link ImageFormat}, and uploaded to Amazon S3. Formats other than {@link ImageFormat#JPEG}
+ * are encoded straight from the values, so their render stage only downscales the frame, if at all. Because every
+ * stage has its own threads and a bounded queue in front of it, the next frame can be collected while one frame is
+ * sorted and another one is encoded and uploaded.
+ * <p>
+ * Like {@link SatelliteProcessor}, {@link #run()} returns once all the frames have been processed, i.e., once the
+ * {@link Receiver} has {@linkplain #onCompleted() completed} and every stage has finished.
+ * <p>
+ * The sort, render, and encode stages are CPU-bound and always run on platform threads. Only the upload stage, which
+ * mostly waits on Amazon S3, follows the {@link ExecutionMode} of the pipeline.
+ * <p>
+ * A pipeline with a {@link DeadlinePlanner} plans each frame as it arrives, taking the frames that are still in the
+ * pipeline into account, and records how long each stage took so that the estimates of the planner improve as the
+ * frames go by. A frame that would not be finished before the deadline is sorted with a faster algorithm, rendered
+ * as a downscaled image, or handed to a {@link SatelliteProcessor}, which launches an EMR cluster to process it. A sort
+ * that is still running once the time left for the pipeline has run out is stopped, and its frame is handed off as
+ * well. {@link #run()} stops waiting for the pipeline at the deadline.
+ */
+public class FramePipeline implements Processor<IntArrayWrapper, SparkJobConfiguration>, Runnable {
+
+    /**
+     * How often {@link #run()} checks whether the pipeline is still making progress, in milliseconds.
+     */
+    private static final long POLL_MILLIS = 1000;
+
+    @NotNull private final Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier;
+    @Nullable private final DeadlinePlanner planner;
+    @Nullable private final SatelliteProcessor handOff;
+    @NotNull private final Logger logger;
+    @NotNull private final PipelineStage<Pair<SparkJobConfiguration, Integer>, Pair<SparkJobConfiguration, Integer>>
+            sortStage;
+    @NotNull private final PipelineStage<Pair<SparkJobConfiguration, Integer>, RenderedFrame> renderStage;
+    @NotNull private final PipelineStage<RenderedFrame, Triplet<String, ImageFormat, byte[]>> encodeStage;
+    @NotNull private final PipelineStage<Triplet<String, ImageFormat, byte[]>, LocalizedS3ObjectId> uploadStage;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong switched = new AtomicLong();
+    private final AtomicLong downscaled = new AtomicLong();
+    private final AtomicLong handedOff = new AtomicLong();
+
+    /**
+     * Creates a new {@link FramePipeline}
+     * @param configurationSupplier A function that returns a {@link SparkJobConfiguration} for each frame, which
+     *                              determines the name under which the frame's image is uploaded and the algorithm
+     *                              and threshold that sort it.
+     * @param configuration The number of threads of each stage and the capacity of their queues.
+     * @param executionMode The kind of thread that uploads the images.
+     * @throws NullPointerException If {@code configurationSupplier}, {@code configuration}, or {@code executionMode}
+     * is {@code null}
+     */
+    public FramePipeline(@NotNull Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier,
+            @NotNull PipelineConfiguration configuration, @NotNull ExecutionMode executionMode) {
+        this(configurationSupplier, configuration, executionMode, null, null);
+    }
+
+    /**
+     * Creates a new {@link FramePipeline} that plans each frame so that it is finished before a deadline.
+     * @param configurationSupplier A function that returns a {@link SparkJobConfiguration} for each frame, which
+     *                              determines the name under which the frame's image is uploaded and the algorithm
+     *                              and threshold that sort it.
+     * @param configuration The number of threads of each stage and the capacity of their queues.
+     * @param executionMode The kind of thread that uploads the images.
+     * @param planner The {@link DeadlinePlanner} that plans each frame, or {@code null} to process every frame as
+     *                requested.
+     * @param handOff The {@link SatelliteProcessor} that receives the frames that the planner hands off, or
+     *                {@code null} to process them in the pipeline after all, as fast as possible.
+     * @throws NullPointerException If {@code configurationSupplier}, {@code configuration}, or {@code executionMode}
+     * is {@code null}
+     */
+    public FramePipeline(@NotNull Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier,
+            @NotNull PipelineConfiguration configuration, @NotNull ExecutionMode executionMode,
+            @Nullable DeadlinePlanner planner, @Nullable SatelliteProcessor handOff) {
+        this(configurationSupplier, configuration, executionMode, planner, handOff, Utils.getLogger(null));
+    }
+
+    /**
+     * Creates a new {@link FramePipeline} that plans each frame so that it is finished before a deadline, and that
+     * logs its progress and the frames it cannot process.
+     * @param configurationSupplier A function that returns a {@link SparkJobConfiguration} for each frame, which
+     *                              determines the name under which the frame's image is uploaded and the algorithm
+     *                              and threshold that sort it.
+     * @param configuration The number of threads of each stage and the capacity of their queues.
+     * @param executionMode The kind of thread that uploads the images.
+     * @param planner The {@link DeadlinePlanner} that plans each frame, or {@code null} to process every frame as
+     *                requested.
+     * @param handOff The {@link SatelliteProcessor} that receives the frames that the planner hands off, or
+     *                {@code null} to process them in the pipeline after all, as fast as possible.
+     * @param logger The {@link Logger} that progress and errors are logged to.
+     * @throws NullPointerException If {@code configurationSupplier}, {@code configuration}, {@code executionMode}, or
+     * {@code logger} is {@code null}
+     */
+    public FramePipeline(@NotNull Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier,
+            @NotNull PipelineConfiguration configuration, @NotNull ExecutionMode executionMode,
+            @Nullable DeadlinePlanner planner, @Nullable SatelliteProcessor handOff, @NotNull Logger logger) {
+        this.planner = planner;
+        this.handOff = handOff;
+        this.logger = Objects.requireNonNull(logger, "'logger' cannot be null.");
+        this.configurationSupplier = Objects.requireNonNull(configurationSupplier,
+                "'configurationSupplier' cannot be null.");
+        Objects.requireNonNull(configuration, "'configuration' cannot be null.");
+        int capacity = configuration.getQueueCapacity();
+
+        // The stages are created from the last to the first, since each one hands its output to the next
+        uploadStage = new PipelineStage<>("upload", configuration.getUploadThreads(), capacity, this::upload, null,
+                executionMode, logger);
+        encodeStage = new PipelineStage<>("encode", configuration.getEncodeThreads(), capacity, this::encode,
+                uploadStage, ExecutionMode.PLATFORM, logger);
+        renderStage = new PipelineStage<>("render", configuration.getRenderThreads(), capacity, this::render,
+                encodeStage, ExecutionMode.PLATFORM, logger);
+        sortStage = new PipelineStage<>("sort", configuration.getSortThreads(), capacity, this::sort, renderStage,
+                ExecutionMode.PLATFORM, logger);
+    }
+
+    @Override
+    public void run() {
+        List<PipelineStage<?, ?>> stages = getStages();
+        stages.forEach(PipelineStage::start);
+
+        // Frames that are still in the pipeline at the deadline would not be finished anyway
+        Duration remaining = planner == null ? null : planner.getRemaining();
+        long deadlineNanos = remaining == null ? 0 : System.nanoTime() + remaining.toNanos();
+
+        try {
+            while (!uploadStage.awaitCompletion(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (remaining != null && System.nanoTime() - deadlineNanos >= 0) {
+                    logger.logLine("The deadline passed before the pipeline finished:\n%s", getReport());
+                    stages.forEach(PipelineStage::shutdownNow);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stages.forEach(PipelineStage::shutdownNow);
+        } finally {
+            // The sort stage may hand off frames until it has finished
+            if (handOff != null) {
+                handOff.onCompleted();
+            }
+        }
+    }
+
+    @Override
+    public void onReceived(@NotNull IntArrayWrapper data) {
+        SparkJobConfiguration configuration = configurationSupplier.apply(data);
+
+        if (planner == null) {
+            accepted.incrementAndGet();
+            sortStage.onReceived(new Pair<>(configuration, 1));
+            return;
+        }
+
+        DeadlinePlanner.Plan plan = planner.planFrame(configuration.getAlgorithm(), configuration.getData().length,
+                configuration.getThreshold(), (int) getFramesInPipeline());
+
+        if (plan.isHandOff() && handOff != null) {
+            logger.logLine("%s is handed off to meet the deadline: %s", configuration.getSatelliteName(), plan);
+            handedOff.incrementAndGet();
+            handOff.process(configuration);
+            return;
+        }
+
+        if (!plan.getAlgorithm().equals(configuration.getAlgorithm())) {
+            switched.incrementAndGet();
+            configuration = configuration.toBuilder().algorithm(plan.getAlgorithm()).build();
+        }
+
+        if (plan.getScale() > 1) {
+            downscaled.incrementAndGet();
+        }
+
+        accepted.incrementAndGet();
+        sortStage.onReceived(new Pair<>(configuration, plan.getScale()));
+    }
+
+    @Override
+    public void onCompleted() {
+        sortStage.onCompleted();
+    }
+
+    /**
+     * Gets the {@link SparkJobConfiguration} of the most recently sorted frame, whose data is sorted.
+     * @return The {@link SparkJobConfiguration} or {@link Optional#empty()} if no frame has been sorted yet.
+     */
+    @NotNull
+    @Override
+    public Optional<SparkJobConfiguration> getResult() {
+        Optional<SparkJobConfiguration> result = sortStage.getResult().map(Pair::getValue0);
+        return result.isPresent() || handOff == null ? result : handOff.getResult();
+    }
+
+    /**
+     * Gets the stages of the pipeline in the order the frames pass through them.
+     * @return The stages.
+     */
+    @NotNull
+    public List<PipelineStage<?, ?>> getStages() {
+        return Arrays.asList(sortStage, renderStage, encodeStage, uploadStage);
+    }
+
+    /**
+     * Gets a report of the utilization of each stage that names the stage that is the bottleneck of the pipeline,
+     * i.e., the stage whose threads were busy for the largest fraction of the time.
+     * @return The report.
+     */
+    @NotNull
+    public String getReport() {
+        List<PipelineStage<?, ?>> stages = getStages();
+        String bottleneck = stages.stream()
+                .max(Comparator.comparingDouble(PipelineStage::getUtilization))
+                .map(PipelineStage::getName)
+                .orElse("none");
+        String plans = planner == null ? "" : String.format("\n\tDeadline: %,d frame(s) with a faster sort, %,d " +
+                "downscaled, %,d handed off", switched.get(), downscaled.get(), handedOff.get());
+        return stages.stream()
+                .map(stage -> "\t" + stage)
+                .collect(Collectors.joining("\n", "Pipeline stages:\n", "\n\tBottleneck: " + bottleneck + plans));
+    }
+
+    private long getFramesInPipeline() {
+        long finished = uploadStage.getProcessed() + getStages().stream().mapToLong(PipelineStage::getFailed).sum();
+        return Math.max(0, accepted.get() - finished);
+    }
+
+    @Nullable
+    private Pair<SparkJobConfiguration, Integer> sort(@NotNull Pair<SparkJobConfiguration, Integer> frame) {
+        SparkJobConfiguration configuration = frame.getValue0();
+        int[] data = configuration.getData();
+        long start = System.nanoTime();
+
+        // The sort stops once only the time to hand the frame off is left, unless there is no one to hand it to
+        SortControl control = planner == null || handOff == null ? SortControl.none() :
+                new SortControl(planner.getAvailable(), null);
+
+        try {
+            Sorters.get(configuration.getAlgorithm()).sort(data, configuration.getThreshold(), control);
+        } catch (SortCancelledException e) {
+            // The data still contains the same values, so the EMR cluster can sort it from where it is
+            logger.logLine("%s %s is handed off to meet the deadline.", e.getMessage(),
+                    configuration.getSatelliteName());
+            accepted.decrementAndGet();
+            handedOff.incrementAndGet();
+            Objects.requireNonNull(handOff).process(configuration);
+            return null;
+        }
+
+        if (planner != null) {
+            planner.getModel().recordSort(configuration.getAlgorithm(), data.length, configuration.getThreshold(),
+                    System.nanoTime() - start);
+        }
+
+        return frame;
+    }
+
+    @NotNull
+    private RenderedFrame render(@NotNull Pair<SparkJobConfiguration, Integer> frame) {
+        SparkJobConfiguration configuration = frame.getValue0();
+        int scale = frame.getValue1();
+        long start = System.nanoTime();
+        RenderedFrame rendered;
+
+        if (configuration.getImageFormat() == ImageFormat.JPEG) {
+            rendered = new RenderedFrame(configuration,
+                    SatelliteImageWriter.writeGreyscaleImage(configuration.getData(), scale), null);
+        } else {
+            rendered = new RenderedFrame(configuration, null, scale == 1 ? configuration.getData() :
+                    SatelliteImageWriter.downscale(configuration.getData(), scale));
+        }
+
+        int values = configuration.getData().length;
+        record(ThroughputModel.Stage.RENDER, scale == 1 ? values : values + rendered.pixels, start);
+        return rendered;
+    }
+
+    @NotNull
+    private Triplet<String, ImageFormat, byte[]> encode(@NotNull RenderedFrame frame) throws IOException {
+        String name = frame.configuration.getSatelliteName();
+        ImageFormat format = frame.configuration.getImageFormat();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+
+        if (frame.image == null) {
+            format.encode(Objects.requireNonNull(frame.values), outputStream);
+        } else if (!ImageIO.write(frame.image, "jpg", outputStream)) {
+            throw new IOException(String.format("No JPEG writer is available to encode %s", name));
+        }
+
+        if (planner != null) {
+            planner.getModel().recordEncoding(frame.pixels, outputStream.size(), System.nanoTime() - start);
+        }
+
+        return new Triplet<>(name, format, outputStream.toByteArray());
+    }
+
+    @NotNull
+    private LocalizedS3ObjectId upload(@NotNull Triplet<String, ImageFormat, byte[]> image) {
+        LocalizedS3ObjectId location = S3Helpers.createImageId(image.getValue0(), image.getValue1());
+        long start = System.nanoTime();
+        S3Helpers.upload(new ByteArrayInputStream(image.getValue2()), location, image.getValue1().getContentType());
+        record(ThroughputModel.Stage.UPLOAD, image.getValue2().length, start);
+        logger.logLine("The image was successfully uploaded to %s", location);
+        return location;
+    }
+
+    private void record(@NotNull ThroughputModel.Stage stage, long values, long startNanos) {
+        if (planner != null) {
+            planner.getModel().record(stage, values, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * A frame on its way from the render stage to the encode stage: either the rendered image of a JPEG image, or
+     * the values, downscaled if need be, that the other formats are encoded from.
+     */
+    private static class RenderedFrame {
+        @NotNull private final SparkJobConfiguration configuration;
+        @Nullable private final BufferedImage image;
+        @Nullable private final int[] values;
+        private final long pixels;
+
+        RenderedFrame(@NotNull SparkJobConfiguration configuration, @Nullable BufferedImage image,
+                @Nullable int[] values) {
+            this.configuration = configuration;
+            this.image = image;
+            this.values = values;
+            this.pixels = image != null ? (long) image.getWidth() * image.getHeight() :
+                    values != null ? values.length : 0;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.IntBuffer;
+import ahuber.hubble.adt.SizeObserver;
+import ahuber.hubble.utils.Flow;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the values that a {@link FrameSource}, such as a {@link Satellite}, puts in an {@link IntBuffer} to a
+ * {@link Flow.Subscriber}, either as whole frames or as chunks of each frame. Unlike a {@link Receiver}, which hands
+ * every frame to its {@link Processor} as soon as it has been collected, a {@link FramePublisher} only takes values
+ * out of the {@link IntBuffer} once the {@link Flow.Subscriber} has {@linkplain Flow.Subscription#request(long)
+ * requested} another item. A {@link Flow.Subscriber} that falls behind therefore lets the {@link IntBuffer} fill up,
+ * after which the {@link FrameSource} waits or drops values according to its
+ * {@linkplain ahuber.hubble.adt.OverflowPolicy overflow policy}.
+ * <p>
+ * The items are published from one task on the {@link Executor} of the {@link FramePublisher}, so they never overlap,
+ * and the stream completes once the frame or duration limit is reached. If the task is interrupted first, the stream
+ * fails with the {@link InterruptedException} instead. A {@link FramePublisher} supports one {@link Flow.Subscriber},
+ * since the values are taken out of the {@link IntBuffer} as they are published; several consumers of the same values
+ * should read from an {@link ahuber.hubble.adt.BroadcastRing} instead.
+ */
+public class FramePublisher implements Flow.Publisher<int[]>, SizeObserver<IntBuffer> {
+    @NotNull private final IntBuffer buffer;
+    private final int frameLength;
+    private final int chunkLength;
+    private final int frameLimit;
+    @Nullable private final Duration durationLimit;
+    @NotNull private final Executor executor;
+    @NotNull private final Semaphore semaphore = new Semaphore(0);
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicLong published = new AtomicLong();
+    private volatile int required;
+
+    /**
+     * Creates a new {@link FramePublisher} that publishes whole frames.
+     * @param buffer The {@link IntBuffer} that the {@link FrameSource} puts its values in.
+     * @param frameLength The number of values in each frame.
+     * @param frameLimit The number of frames after which the stream completes.
+     * @param durationLimit The time after which no more frames are started, or {@code null} if the duration of the
+     *                      stream is not limited. A frame that has started when the time runs out is still completed.
+     * @param executor The {@link Executor} that runs the task that publishes the items.
+     * @throws IllegalArgumentException If {@code frameLength} or {@code frameLimit} is less than one.
+     * @throws NullPointerException If {@code buffer} or {@code executor} is {@code null}
+     */
+    public FramePublisher(@NotNull IntBuffer buffer, int frameLength, int frameLimit, @Nullable Duration durationLimit,
+            @NotNull Executor executor) {
+        this(buffer, frameLength, frameLength, frameLimit, durationLimit, executor);
+    }
+
+    /**
+     * Creates a new {@link FramePublisher} that publishes each frame in chunks, e.g., to sort the chunks while the
+     * rest of the frame is still being collected.
+     * @param buffer The {@link IntBuffer} that the {@link FrameSource} puts its values in.
+     * @param frameLength The number of values in each frame.
+     * @param chunkLength The number of values in each chunk. The last chunk of a frame is shorter if this does not
+     *                    divide {@code frameLength}, and a chunk never holds values of two frames.
+     * @param frameLimit The number of frames after which the stream completes.
+     * @param durationLimit The time after which no more frames are started, or {@code null} if the duration of the
+     *                      stream is not limited. A frame that has started when the time runs out is still completed.
+     * @param executor The {@link Executor} that runs the task that publishes the items.
+     * @throws IllegalArgumentException If {@code frameLength}, {@code chunkLength}, or {@code frameLimit} is less
+     * than one, or if {@code chunkLength} is greater than {@code frameLength}.
+     * @throws NullPointerException If {@code buffer} or {@code executor} is {@code null}
+     */
+    public FramePublisher(@NotNull IntBuffer buffer, int frameLength, int chunkLength, int frameLimit,
+            @Nullable Duration durationLimit, @NotNull Executor executor) {
+        this.buffer = Objects.requireNonNull(buffer, "'buffer' cannot be null.");
+        this.executor = Objects.requireNonNull(executor, "'executor' cannot be null.");
+
+        if (frameLength < 1) {
+            String message = String.format("The frame length cannot be less than 1. (frameLength: %d)", frameLength);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (chunkLength < 1 || chunkLength > frameLength) {
+            String message = String.format("The chunk length must be in the range [1, frameLength]. (chunkLength: " +
+                    "%d, frameLength: %d)", chunkLength, frameLength);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (frameLimit < 1) {
+            String message = String.format("The frame limit cannot be less than 1. (frameLimit: %d)", frameLimit);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.frameLength = frameLength;
+        this.chunkLength = chunkLength;
+        this.frameLimit = frameLimit;
+        this.durationLimit = durationLimit;
+    }
+
+    /**
+     * Gets the number of items that have been published.
+     * @return The number of items.
+     */
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    @Override
+    public void subscribe(@NotNull Flow.Subscriber<? super int[]> subscriber) {
+        Objects.requireNonNull(subscriber, "'subscriber' cannot be null.");
+        PublisherSubscription subscription = new PublisherSubscription(subscriber);
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscription.cancelled = true;
+            subscriber.onSubscribe(subscription);
+            subscriber.onError(new IllegalStateException("A FramePublisher only supports one subscriber."));
+            return;
+        }
+
+        try {
+            executor.execute(subscription::publish);
+        } catch (RejectedExecutionException e) {
+            subscription.cancelled = true;
+            subscriber.onSubscribe(subscription);
+            subscriber.onError(e);
+        }
+    }
+
+    @Override
+    public void sizeChanged(@NotNull IntBuffer collection) {
+        if (collection.size() >= required) {
+            signal();
+        }
+    }
+
+    private void signal() {
+        // A single permit is enough to wake up the publishing task, and more would pile up on every addition
+        if (semaphore.availablePermits() == 0) {
+            semaphore.release();
+        }
+    }
+
+    private class PublisherSubscription implements Flow.Subscription {
+        @NotNull private final Flow.Subscriber<? super int[]> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        @Nullable private volatile Throwable error;
+        private volatile boolean cancelled;
+
+        PublisherSubscription(@NotNull Flow.Subscriber<? super int[]> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // The error is signalled by the publishing task, so that it does not overlap with an item
+                error = new IllegalArgumentException(String.format("The number of items requested must be positive." +
+                        " (n: %d)", n));
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            signal();
+        }
+
+        private void publish() {
+            buffer.registerObserver(FramePublisher.this);
+
+            try {
+                subscriber.onSubscribe(this);
+                long startNanos = System.nanoTime();
+
+                for (int frame = 0; frame < frameLimit; frame++) {
+                    if (durationLimit != null && System.nanoTime() - startNanos >= durationLimit.toNanos()) {
+                        break;
+                    }
+
+                    for (int taken = 0; taken < frameLength; ) {
+                        int length = Math.min(chunkLength, frameLength - taken);
+
+                        if (!awaitItem(length)) {
+                            return;
+                        }
+
+                        int[] item = buffer.take(length);
+                        demand.decrementAndGet();
+                        published.incrementAndGet();
+                        subscriber.onNext(item);
+                        taken += item.length;
+                    }
+                }
+
+                subscriber.onComplete();
+            } catch (InterruptedException e) {
+                // The thread was interrupted, e.g., because the simulation is over, so the stream ends early. The
+                // flag is restored once the subscriber has been told, so that it can still finish its work.
+                if (!cancelled) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                cancelled = true;
+                subscriber.onError(e);
+            } finally {
+                buffer.unregisterObserver(FramePublisher.this);
+            }
+        }
+
+        private boolean awaitItem(int length) throws InterruptedException {
+            // IntBuffer.take() always leaves at least one value behind, so wait for one more value than is needed
+            required = length + 1;
+
+            // The semaphore may have been released more than once since the last item, so check every condition
+            // again after acquiring it
+            while (!cancelled && error == null && (demand.get() == 0 || buffer.size() <= length)) {
+                semaphore.acquire();
+            }
+
+            Throwable failure = error;
+
+            if (failure != null && !cancelled) {
+                cancelled = true;
+                subscriber.onError(failure);
+            }
+
+            return !cancelled;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.BufferWriter;
+import ahuber.hubble.adt.IntBuffer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents an object that produces the values of one frame after another and puts them in an {@link IntBuffer}
+ * when it is run, until its thread is interrupted.
+ */
+public interface FrameSource extends Runnable {
+
+    /**
+     * Gets the {@link IntBuffer} into which this {@link FrameSource} puts its values.
+     * @return The {@link IntBuffer}
+     */
+    @NotNull
+    IntBuffer getBuffer();
+
+    /**
+     * Gets the {@link BufferWriter} with which this {@link FrameSource} puts its values in its {@link IntBuffer}
+     * @return The {@link BufferWriter}
+     */
+    @NotNull
+    BufferWriter getWriter();
+}
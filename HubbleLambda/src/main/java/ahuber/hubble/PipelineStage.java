@@ -0,0 +1,368 @@
+package ahuber.hubble;
+
+import ahuber.hubble.utils.ExecutionMode;
+import ahuber.hubble.utils.Logger;
+import ahuber.hubble.utils.Utils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One stage of a pipeline, in which a fixed number of threads take items from a bounded queue, transform them, and
+ * hand the results to the next stage. Because each stage has its own threads, the stages of a pipeline work on
+ * different items at the same time, e.g., one frame is sorted while the previous one is encoded.
+ * <p>
+ * A {@link PipelineStage} is a {@link Processor}, so it can receive its items from a {@link Receiver} or from the
+ * previous {@link PipelineStage}. {@link #onReceived(Object)} blocks while the queue is full, which slows the previous
+ * stage down to the pace of this one. Once {@link #onCompleted()} has been invoked, the stage finishes the items in its
+ * queue and then notifies the next stage that it has completed as well.
+ * <p>
+ * If a stage has more than one thread, the items may leave it in a different order than they arrived in.
+ * @param <T_INPUT> The type of items the stage receives.
+ * @param <T_OUTPUT> The type of items the stage hands to the next stage.
+ */
+public class PipelineStage<T_INPUT, T_OUTPUT> implements Processor<T_INPUT, T_OUTPUT> {
+
+    /**
+     * Marks the end of the items in the queue.
+     */
+    private static final Object END_OF_STREAM = new Object();
+
+    @NotNull private final String name;
+    private final int threads;
+    private final int queueCapacity;
+    @NotNull private final BlockingQueue<Object> queue;
+    @NotNull private final StageFunction<T_INPUT, T_OUTPUT> function;
+    @Nullable private final Processor<T_OUTPUT, ?> next;
+    @NotNull private final ExecutionMode executionMode;
+    @NotNull private final Logger logger;
+    @NotNull private final List<Thread> workers = new ArrayList<>();
+    @NotNull private final CountDownLatch completed = new CountDownLatch(1);
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private volatile long startNanos;
+    private volatile long endNanos;
+    @Nullable private volatile T_OUTPUT result;
+
+    /**
+     * Creates a new {@link PipelineStage}. The stage does not process any items until it is {@linkplain #start()
+     * started}.
+     * @param name The name of the stage, which is used to name its threads and in its {@linkplain #toString() report}
+     * @param threads The number of threads that process the items.
+     * @param queueCapacity The number of items that may wait in the queue of the stage.
+     * @param function The function that transforms each item.
+     * @param next The {@link Processor} that receives the transformed items, or {@code null} if they are discarded,
+     *             e.g., in the last stage of a pipeline.
+     * @throws IllegalArgumentException If {@code threads} or {@code queueCapacity} is less than 1.
+     * @throws NullPointerException If {@code name} or {@code function} is {@code null}
+     */
+    public PipelineStage(@NotNull String name, int threads, int queueCapacity,
+            @NotNull StageFunction<T_INPUT, T_OUTPUT> function, @Nullable Processor<T_OUTPUT, ?> next) {
+        this(name, threads, queueCapacity, function, next, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * Creates a new {@link PipelineStage} whose threads are of the given kind. The stage does not process any items
+     * until it is {@linkplain #start() started}.
+     * @param name The name of the stage, which is used to name its threads and in its {@linkplain #toString() report}
+     * @param threads The number of threads that process the items.
+     * @param queueCapacity The number of items that may wait in the queue of the stage.
+     * @param function The function that transforms each item.
+     * @param next The {@link Processor} that receives the transformed items, or {@code null} if they are discarded,
+     *             e.g., in the last stage of a pipeline.
+     * @param executionMode The kind of thread that processes the items. {@link ExecutionMode#VIRTUAL} threads only
+     *                      suit stages that spend most of their time blocked, e.g., an upload.
+     * @throws IllegalArgumentException If {@code threads} or {@code queueCapacity} is less than 1.
+     * @throws NullPointerException If {@code name}, {@code function}, or {@code executionMode} is {@code null}
+     */
+    public PipelineStage(@NotNull String name, int threads, int queueCapacity,
+            @NotNull StageFunction<T_INPUT, T_OUTPUT> function, @Nullable Processor<T_OUTPUT, ?> next,
+            @NotNull ExecutionMode executionMode) {
+        this(name, threads, queueCapacity, function, next, executionMode, Utils.getLogger(null));
+    }
+
+    /**
+     * Creates a new {@link PipelineStage} whose threads are of the given kind and that logs the items it cannot
+     * process. The stage does not process any items until it is {@linkplain #start() started}.
+     * @param name The name of the stage, which is used to name its threads and in its {@linkplain #toString() report}
+     * @param threads The number of threads that process the items.
+     * @param queueCapacity The number of items that may wait in the queue of the stage.
+     * @param function The function that transforms each item.
+     * @param next The {@link Processor} that receives the transformed items, or {@code null} if they are discarded,
+     *             e.g., in the last stage of a pipeline.
+     * @param executionMode The kind of thread that processes the items. {@link ExecutionMode#VIRTUAL} threads only
+     *                      suit stages that spend most of their time blocked, e.g., an upload.
+     * @param logger The {@link Logger} that the items that cannot be processed are logged to.
+     * @throws IllegalArgumentException If {@code threads} or {@code queueCapacity} is less than 1.
+     * @throws NullPointerException If {@code name}, {@code function}, {@code executionMode}, or {@code logger} is
+     * {@code null}
+     */
+    public PipelineStage(@NotNull String name, int threads, int queueCapacity,
+            @NotNull StageFunction<T_INPUT, T_OUTPUT> function, @Nullable Processor<T_OUTPUT, ?> next,
+            @NotNull ExecutionMode executionMode, @NotNull Logger logger) {
+        if (threads < 1) {
+            String message = String.format("The number of threads cannot be less than 1. (threads: %d)", threads);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (queueCapacity < 1) {
+            String message = String.format("The queue capacity cannot be less than 1. (queueCapacity: %d)",
+                    queueCapacity);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.name = Objects.requireNonNull(name, "'name' cannot be null.");
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.function = Objects.requireNonNull(function, "'function' cannot be null.");
+        this.next = next;
+        this.executionMode = Objects.requireNonNull(executionMode, "'executionMode' cannot be null.");
+        this.logger = Objects.requireNonNull(logger, "'logger' cannot be null.");
+    }
+
+    /**
+     * Starts the threads of the stage.
+     * @throws IllegalStateException If the stage has already been started.
+     */
+    public synchronized void start() {
+        if (!workers.isEmpty()) {
+            throw new IllegalStateException(String.format("The %s stage has already been started.", name));
+        }
+
+        startNanos = System.nanoTime();
+        runningWorkers.set(threads);
+
+        for (int i = 0; i < threads; i++) {
+            Thread worker = executionMode.newThread(this::work, String.format("%s-%d", name, i + 1));
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Waits until the stage has processed every item it received before it was {@linkplain #onCompleted() completed},
+     * or until its threads have stopped for any other reason, e.g., because they were {@linkplain #shutdownNow()
+     * interrupted}.
+     * @param timeout The longest time to wait.
+     * @param unit The unit of {@code timeout}
+     * @return {@code true} if the stage has finished, or {@code false} if the time ran out first.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     * @throws NullPointerException If {@code unit} is {@code null}
+     */
+    public boolean awaitCompletion(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        return completed.await(timeout, Objects.requireNonNull(unit, "'unit' cannot be null."));
+    }
+
+    /**
+     * Interrupts the threads of the stage, which stop without processing the items that remain in the queue.
+     */
+    public synchronized void shutdownNow() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    @Override
+    public void onReceived(@NotNull T_INPUT data) {
+        Objects.requireNonNull(data, "'data' cannot be null.");
+
+        try {
+            queue.put(data);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("Interrupted while waiting to enter the %s stage.", name), e);
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        try {
+            queue.put(END_OF_STREAM);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("Interrupted while completing the %s stage.", name), e);
+        }
+    }
+
+    /**
+     * Gets the output of the most recently processed item.
+     * @return The output or {@link Optional#empty()} if no item has been processed yet.
+     */
+    @NotNull
+    @Override
+    public Optional<T_OUTPUT> getResult() {
+        return Optional.ofNullable(result);
+    }
+
+    /**
+     * Gets the name of the stage.
+     * @return The name.
+     */
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of items that the stage has processed successfully.
+     * @return The number of items.
+     */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * Gets the number of items that could not be processed because the function of the stage threw an exception.
+     * @return The number of items.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Gets the fraction of the time since the stage was started that its threads spent transforming items. A stage
+     * whose utilization is close to 1 is the bottleneck of its pipeline.
+     * @return A value between 0 and 1.
+     */
+    public double getUtilization() {
+        return fractionOfThreadTime(busyNanos.get());
+    }
+
+    /**
+     * Gets the fraction of the time since the stage was started that its threads spent waiting for the next stage to
+     * accept their output, i.e., the time the stage was held up by a slower stage after it.
+     * @return A value between 0 and 1.
+     */
+    public double getBlockedFraction() {
+        return fractionOfThreadTime(blockedNanos.get());
+    }
+
+    private double fractionOfThreadTime(long nanos) {
+        long start = startNanos;
+
+        if (start == 0) {
+            return 0;
+        }
+
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return end <= start ? 0 : Math.min(1, (double) nanos / ((end - start) * threads));
+    }
+
+    private void work() {
+        try {
+            while (true) {
+                Object item = queue.take();
+
+                if (item == END_OF_STREAM) {
+                    // Leave the marker for the other threads of this stage
+                    queue.put(item);
+                    break;
+                }
+
+                process(item);
+            }
+        } catch (InterruptedException e) {
+            // Stop because this thread was interrupted, but keep the flag so that completing the next stage does not
+            // block either
+            Thread.currentThread().interrupt();
+        } finally {
+            // The last thread to stop completes the stage, however it stopped
+            if (runningWorkers.decrementAndGet() == 0) {
+                complete();
+            }
+        }
+    }
+
+    private void complete() {
+        endNanos = System.nanoTime();
+        queue.remove(END_OF_STREAM);
+
+        try {
+            if (next != null) {
+                next.onCompleted();
+            }
+        } catch (RuntimeException e) {
+            logger.logError(String.format("The %s stage could not complete the next stage.", name), e);
+        } finally {
+            completed.countDown();
+        }
+    }
+
+    private void process(Object item) throws InterruptedException {
+        @SuppressWarnings("unchecked")
+        T_INPUT input = (T_INPUT) item;
+        long start = System.nanoTime();
+        T_OUTPUT output;
+
+        try {
+            output = function.apply(input);
+        } catch (InterruptedException e) {
+            // The stage is being shut down, so the item is abandoned rather than failed
+            throw e;
+        } catch (Exception e) {
+            // An item that cannot be processed does not stop the pipeline
+            failed.incrementAndGet();
+            busyNanos.addAndGet(System.nanoTime() - start);
+            logger.logError(String.format("The %s stage could not process an item.", name), e);
+            return;
+        }
+
+        long transformed = System.nanoTime();
+        busyNanos.addAndGet(transformed - start);
+
+        if (next != null && output != null) {
+            try {
+                next.onReceived(output);
+            } catch (IllegalStateException e) {
+                // The next stage gives up waiting for room in its queue when this thread is interrupted
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException(e.getMessage());
+                }
+
+                throw e;
+            }
+
+            blockedNanos.addAndGet(System.nanoTime() - transformed);
+        }
+
+        result = output;
+        processed.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d thread(s), %,d processed, %,d failed, %.1f%% busy, %.1f%% blocked, %d/%d queued",
+                name, threads, getProcessed(), getFailed(), getUtilization() * 100, getBlockedFraction() * 100,
+                queue.size(), queueCapacity);
+    }
+
+    /**
+     * A function that transforms the items of a {@link PipelineStage}
+     * @param <T_INPUT> The type of items the stage receives.
+     * @param <T_OUTPUT> The type of items the stage hands to the next stage.
+     */
+    @FunctionalInterface
+    public interface StageFunction<T_INPUT, T_OUTPUT> {
+
+        /**
+         * Transforms an item.
+         * @param input The item.
+         * @return The transformed item, or {@code null} if nothing should be handed to the next stage.
+         * @throws Exception If the item cannot be transformed. The item is then skipped.
+         */
+        @Nullable
+        T_OUTPUT apply(@NotNull T_INPUT input) throws Exception;
+    }
+}
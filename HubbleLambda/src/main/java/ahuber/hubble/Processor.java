@@ -10,11 +10,21 @@ import java.util.Optional;
  */
 public interface Processor<T_INPUT, T_RESULT> {
     /**
-     * A method that is invoked when the data has become available for processing.
+     * A method that is invoked when the data has become available for processing. When a {@link Receiver} processes
+     * several frames in parallel, this method is invoked concurrently from different threads, and the frames may
+     * arrive out of order.
      * @param data The data
      */
     void onReceived(@NotNull T_INPUT data);
 
+    /**
+     * A method that is invoked once the last data has been received, i.e., after {@link #onReceived(Object)} has been
+     * invoked for the only item or, when the data arrives as a stream, for each item in the stream. The default
+     * implementation does nothing.
+     */
+    default void onCompleted() {
+    }
+
     /**
      * Gets the result from this {@link Processor}
      * @return The result from this {@link Processor} or {@link Optional#empty()} if the result is not available yet.
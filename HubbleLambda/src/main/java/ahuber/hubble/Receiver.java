@@ -3,19 +3,62 @@ package ahuber.hubble;
 import ahuber.hubble.adt.IntArrayWrapper;
 import ahuber.hubble.adt.IntBuffer;
 import ahuber.hubble.adt.SizeObserver;
+import ahuber.hubble.sort.IncrementalSortInt;
+import ahuber.hubble.sort.SortCancelledException;
+import ahuber.hubble.utils.ExecutionMode;
+import ahuber.hubble.utils.Logger;
+import ahuber.hubble.utils.ThroughputMeter;
+import ahuber.hubble.utils.Utils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * An object that waits for enough data to be processed in an {@link IntBuffer} and sends the data to a
  * {@link Processor} when enough data is present.
+ * <p>
+ * If the {@link Receiver} is created with an {@link IncrementalSortInt}, it takes the data out of the
+ * {@link IntBuffer} in {@linkplain IncrementalSortInt#getChunkLength() chunks} as soon as each chunk is available, so
+ * that the chunks are sorted while the rest of the data is still being collected. The {@link Processor} then receives
+ * the data already sorted, unless the sort was stopped by its {@link ahuber.hubble.sort.SortControl}, in which case it
+ * receives the data unsorted (see {@link IntArrayWrapper#isSorted()}).
+ * <p>
+ * Each frame is {@linkplain #dispatch(IntArrayWrapper) dispatched} to the {@link Processor} on an {@link Executor},
+ * so that the next frame is collected while the previous ones are processed. At most a fixed number of frames are in
+ * flight, i.e., dispatched but not yet processed, at a time. Once that many frames are in flight, the
+ * {@link Receiver} stops taking data, which in turn blocks the {@link Satellite} when the {@link IntBuffer} fills up.
+ * If the {@link Executor} has more than one thread, several frames are processed in parallel, so the
+ * {@link Processor} may receive them concurrently and out of order.
+ * <p>
+ * In streaming mode, the {@link Receiver} keeps taking frames of data out of the {@link IntBuffer} until its frame or
+ * duration limit is reached. Once every frame has been processed, the {@link Processor} is
+ * {@linkplain Processor#onCompleted() notified}, as it is after the only frame outside of streaming mode.
  */
 public class Receiver implements SizeObserver<IntBuffer>, Runnable {
+
     @NotNull private final IntBuffer buffer;
     @NotNull private final Processor<IntArrayWrapper, ?> processor;
+    @Nullable private final Supplier<IncrementalSortInt> incrementalSorts;
     @NotNull private Semaphore semaphore = new Semaphore(1);
     private final int threshold;
+    private final boolean streaming;
+    private final int frameLimit;
+    @Nullable private final Duration durationLimit;
+    @NotNull private final Executor executor;
+    private final int maxInFlight;
+    @NotNull private final Semaphore inFlight;
+    @NotNull private final Logger logger;
+    private final AtomicLong processed = new AtomicLong();
+    @NotNull private volatile ThroughputMeter throughput = new ThroughputMeter();
+    private volatile int required;
 
     /**
      * Creates a new {@link Receiver} object.
@@ -26,14 +69,153 @@ public class Receiver implements SizeObserver<IntBuffer>, Runnable {
      * @throws IllegalArgumentException If {@code threshold} is less than one.
      */
     public Receiver(@NotNull IntBuffer buffer, @NotNull Processor<IntArrayWrapper, ?> processor, int threshold) {
+        this(buffer, processor, threshold, null);
+    }
+
+    /**
+     * Creates a new {@link Receiver} object that sorts the data while it is being collected.
+     * @param buffer The {@link IntBuffer} that this {@link Receiver} will observe.
+     * @param processor The {@link Processor} that will receive the sorted data when all of it has been collected.
+     * @param threshold The amount of items that need to be collected before the data is sent off to the
+     *                  {@link Processor}
+     * @param incrementalSort The {@link IncrementalSortInt} that sorts each chunk of data as it arrives, or
+     *                        {@code null} if the data should be sent to the {@link Processor} as it was collected.
+     * @throws IllegalArgumentException If {@code threshold} is less than one.
+     */
+    public Receiver(@NotNull IntBuffer buffer, @NotNull Processor<IntArrayWrapper, ?> processor, int threshold,
+            @Nullable IncrementalSortInt incrementalSort) {
+        this(buffer, processor, threshold, incrementalSort, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * Creates a new {@link Receiver} object that sorts the data while it is being collected and hands it to the
+     * {@link Processor} on a thread of the given kind.
+     * @param buffer The {@link IntBuffer} that this {@link Receiver} will observe.
+     * @param processor The {@link Processor} that will receive the sorted data when all of it has been collected.
+     * @param threshold The amount of items that need to be collected before the data is sent off to the
+     *                  {@link Processor}
+     * @param incrementalSort The {@link IncrementalSortInt} that sorts each chunk of data as it arrives, or
+     *                        {@code null} if the data should be sent to the {@link Processor} as it was collected.
+     * @param executionMode The kind of thread on which the data is handed to the {@link Processor}
+     * @throws IllegalArgumentException If {@code threshold} is less than one.
+     * @throws NullPointerException If {@code executionMode} is {@code null}
+     */
+    public Receiver(@NotNull IntBuffer buffer, @NotNull Processor<IntArrayWrapper, ?> processor, int threshold,
+            @Nullable IncrementalSortInt incrementalSort, @NotNull ExecutionMode executionMode) {
+        this(buffer, processor, threshold, incrementalSort, executionMode, Utils.getLogger(null));
+    }
+
+    /**
+     * Creates a new {@link Receiver} object that sorts the data while it is being collected, hands it to the
+     * {@link Processor} on a thread of the given kind, and logs the frames that cannot be processed.
+     * @param buffer The {@link IntBuffer} that this {@link Receiver} will observe.
+     * @param processor The {@link Processor} that will receive the sorted data when all of it has been collected.
+     * @param threshold The amount of items that need to be collected before the data is sent off to the
+     *                  {@link Processor}
+     * @param incrementalSort The {@link IncrementalSortInt} that sorts each chunk of data as it arrives, or
+     *                        {@code null} if the data should be sent to the {@link Processor} as it was collected.
+     * @param executionMode The kind of thread on which the data is handed to the {@link Processor}
+     * @param logger The {@link Logger} that progress and errors are logged to.
+     * @throws IllegalArgumentException If {@code threshold} is less than one.
+     * @throws NullPointerException If {@code executionMode} or {@code logger} is {@code null}
+     */
+    public Receiver(@NotNull IntBuffer buffer, @NotNull Processor<IntArrayWrapper, ?> processor, int threshold,
+            @Nullable IncrementalSortInt incrementalSort, @NotNull ExecutionMode executionMode,
+            @NotNull Logger logger) {
+        this(buffer, processor, threshold, incrementalSort == null ? null : () -> incrementalSort, false, 1, null,
+                Objects.requireNonNull(executionMode, "'executionMode' cannot be null.").newExecutor("Processor"), 1,
+                logger);
+    }
+
+    /**
+     * Creates a new {@link Receiver} object that runs in streaming mode, sending one frame after another to the
+     * {@link Processor} until either limit is reached. The {@link Processor} is
+     * {@linkplain Processor#onCompleted() notified} once it has processed the last frame.
+     * @param buffer The {@link IntBuffer} that this {@link Receiver} will observe.
+     * @param processor The {@link Processor} that will receive each frame.
+     * @param threshold The amount of items in each frame.
+     * @param incrementalSorts A function that returns a new {@link IncrementalSortInt} for each frame, which sorts the
+     *                         frame while it is being collected, or {@code null} if the frames should be sent to the
+     *                         {@link Processor} as they were collected.
+     * @param frameLimit The number of frames after which the stream ends.
+     * @param durationLimit The time after which no more frames are started, or {@code null} if the duration of the
+     *                      stream is not limited. A frame that has started when the time runs out is still completed.
+     * @param executor The {@link Executor} on which the frames are handed to the {@link Processor}. The
+     *                 {@link Receiver} does not shut it down.
+     * @param maxInFlight The number of frames that may be dispatched to the {@link Processor} but not yet processed
+     *                    before the {@link Receiver} stops taking data out of the {@link IntBuffer}
+     * @throws IllegalArgumentException If {@code threshold}, {@code frameLimit}, or {@code maxInFlight} is less than
+     * one.
+     * @throws NullPointerException If {@code executor} is {@code null}
+     */
+    public Receiver(@NotNull IntBuffer buffer, @NotNull Processor<IntArrayWrapper, ?> processor, int threshold,
+            @Nullable Supplier<IncrementalSortInt> incrementalSorts, int frameLimit, @Nullable Duration durationLimit,
+            @NotNull Executor executor, int maxInFlight) {
+        this(buffer, processor, threshold, incrementalSorts, frameLimit, durationLimit, executor, maxInFlight,
+                Utils.getLogger(null));
+    }
+
+    /**
+     * Creates a new {@link Receiver} object that runs in streaming mode, sending one frame after another to the
+     * {@link Processor} until either limit is reached, and that logs the progress of the stream and the frames that
+     * cannot be processed. The {@link Processor} is {@linkplain Processor#onCompleted() notified} once it has
+     * processed the last frame.
+     * @param buffer The {@link IntBuffer} that this {@link Receiver} will observe.
+     * @param processor The {@link Processor} that will receive each frame.
+     * @param threshold The amount of items in each frame.
+     * @param incrementalSorts A function that returns a new {@link IncrementalSortInt} for each frame, which sorts the
+     *                         frame while it is being collected, or {@code null} if the frames should be sent to the
+     *                         {@link Processor} as they were collected.
+     * @param frameLimit The number of frames after which the stream ends.
+     * @param durationLimit The time after which no more frames are started, or {@code null} if the duration of the
+     *                      stream is not limited. A frame that has started when the time runs out is still completed.
+     * @param executor The {@link Executor} on which the frames are handed to the {@link Processor}. The
+     *                 {@link Receiver} does not shut it down.
+     * @param maxInFlight The number of frames that may be dispatched to the {@link Processor} but not yet processed
+     *                    before the {@link Receiver} stops taking data out of the {@link IntBuffer}
+     * @param logger The {@link Logger} that progress and errors are logged to.
+     * @throws IllegalArgumentException If {@code threshold}, {@code frameLimit}, or {@code maxInFlight} is less than
+     * one.
+     * @throws NullPointerException If {@code executor} or {@code logger} is {@code null}
+     */
+    public Receiver(@NotNull IntBuffer buffer, @NotNull Processor<IntArrayWrapper, ?> processor, int threshold,
+            @Nullable Supplier<IncrementalSortInt> incrementalSorts, int frameLimit, @Nullable Duration durationLimit,
+            @NotNull Executor executor, int maxInFlight, @NotNull Logger logger) {
+        this(buffer, processor, threshold, incrementalSorts, true, frameLimit, durationLimit, executor, maxInFlight,
+                logger);
+    }
+
+    private Receiver(@NotNull IntBuffer buffer, @NotNull Processor<IntArrayWrapper, ?> processor, int threshold,
+            @Nullable Supplier<IncrementalSortInt> incrementalSorts, boolean streaming, int frameLimit,
+            @Nullable Duration durationLimit, @NotNull Executor executor, int maxInFlight, @NotNull Logger logger) {
         this.processor = processor;
+        this.incrementalSorts = incrementalSorts;
+        this.executor = Objects.requireNonNull(executor, "'executor' cannot be null.");
+        this.logger = Objects.requireNonNull(logger, "'logger' cannot be null.");
 
         if (threshold < 1) {
             throw new IllegalArgumentException(String.format("The threshold cannot be null. Threshold: %d", threshold));
         }
 
+        if (frameLimit < 1) {
+            String message = String.format("The frame limit cannot be less than 1. (frameLimit: %d)", frameLimit);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (maxInFlight < 1) {
+            String message = String.format("The number of frames in flight cannot be less than 1. (maxInFlight: %d)",
+                    maxInFlight);
+            throw new IllegalArgumentException(message);
+        }
+
         this.buffer = buffer;
         this.threshold = threshold;
+        this.streaming = streaming;
+        this.frameLimit = frameLimit;
+        this.durationLimit = durationLimit;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.required = threshold;
 
         // Register this as an observer of the buffer
         this.buffer.registerObserver(this);
@@ -43,26 +225,81 @@ public class Receiver implements SizeObserver<IntBuffer>, Runnable {
         semaphore.acquireUninterruptibly();
     }
 
-    @Override
-    public void run() {
+    /**
+     * Gets the throughput of the frames that have been dispatched to the {@link Processor} since the {@link Receiver}
+     * started running. Outside of streaming mode, this is at most one frame.
+     * @return The {@link ThroughputMeter} of the frames.
+     */
+    @NotNull
+    public ThroughputMeter getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Gets the number of frames that have been dispatched to the {@link Processor} but not processed yet.
+     * @return The number of frames.
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Hands a frame to the {@link Processor} on the {@link Executor} of this {@link Receiver}, after waiting until
+     * fewer than the maximum number of frames are in flight.
+     * @param frame The frame.
+     * @return A {@link CompletableFuture} that completes once the {@link Processor} has processed the frame, or
+     * completes exceptionally with the exception that the {@link Processor} threw.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     * @throws NullPointerException If {@code frame} is {@code null}
+     * @throws RejectedExecutionException If the {@link Executor} does not accept the frame.
+     */
+    @NotNull
+    public CompletableFuture<Void> dispatch(@NotNull IntArrayWrapper frame) throws InterruptedException {
+        Objects.requireNonNull(frame, "'frame' cannot be null.");
+
+        // Blocks while too many frames are in flight, so the Satellite is slowed down to the pace of the Processor
+        inFlight.acquire();
+        CompletableFuture<Void> future;
+
         try {
-            // Immediately try to acquire a semaphore. The semaphore will be acquired when enough data has become
-            // available in the IntBuffer
-            semaphore.acquire();
+            // Count the frame before the Processor receives it, since the Receiver may be interrupted as soon as the
+            // Processor is done
+            throughput.record(frame.length());
+            future = CompletableFuture.runAsync(() -> processor.onReceived(frame), executor);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
 
-            // Release the semaphore so we "clean up after ourselves."
-            semaphore.release();
+        return future.whenComplete((ignored, error) -> {
+            long count = processed.incrementAndGet();
+
+            if (error != null) {
+                // A frame that cannot be processed does not end the stream
+                logger.logError(String.format("Frame %d could not be processed.", count), error);
+            } else if (streaming) {
+                logger.logLine("Processed frame %d. Throughput: %s", count, throughput);
+            }
+
+            inFlight.release();
+        });
+    }
 
-            // Take the first "threshold" values
-            int[] values = buffer.take(threshold);
+    @Override
+    public void run() {
+        try {
+            throughput = new ThroughputMeter();
 
-            // Place the values in an IntArrayWrapper before sending them to the Processor in a background thread
-            IntArrayWrapper wrapper = new IntArrayWrapper(values);
-            Thread processingThread = new Thread(() -> processor.onReceived(wrapper),"Processor");
+            if (streaming) {
+                stream();
+            } else {
+                dispatch(receiveFrame());
+            }
 
-            // Start the thread and wait for it to end
-            processingThread.start();
-            processingThread.join();
+            // Wait until every frame has been processed before notifying the Processor
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+            processor.onCompleted();
         } catch (InterruptedException ignored) {
             // Ignore
         } catch (Exception exception) {
@@ -74,11 +311,83 @@ public class Receiver implements SizeObserver<IntBuffer>, Runnable {
         }
     }
 
+    private void stream() throws InterruptedException {
+        long startNanos = System.nanoTime();
+
+        for (int frame = 0; frame < frameLimit; frame++) {
+            if (durationLimit != null && System.nanoTime() - startNanos >= durationLimit.toNanos()) {
+                break;
+            }
+
+            dispatch(receiveFrame());
+        }
+    }
+
+    @NotNull
+    private IntArrayWrapper receiveFrame() throws InterruptedException {
+        IncrementalSortInt incrementalSort = incrementalSorts == null ? null : incrementalSorts.get();
+
+        if (incrementalSort == null) {
+            return new IntArrayWrapper(receive());
+        }
+
+        // The Processor learns from the sort whether the frame is sorted, so it never has to check the values
+        int[] frame = receiveSorted(incrementalSort);
+        return new IntArrayWrapper(frame, incrementalSort.isSorted());
+    }
+
+    @NotNull
+    private int[] receive() throws InterruptedException {
+        // IntBuffer.take() always leaves at least one value behind, so wait for one more value than is needed.
+        required = threshold + 1;
+
+        // Wait until enough data has become available in the IntBuffer. The semaphore may have been released more
+        // than once since the last frame was taken, so check the size of the buffer again after acquiring it.
+        while (buffer.size() <= threshold) {
+            semaphore.acquire();
+        }
+
+        // Take the first "threshold" values
+        return buffer.take(threshold);
+    }
+
+    @NotNull
+    private int[] receiveSorted(@NotNull IncrementalSortInt incrementalSort) throws InterruptedException {
+        int received = 0;
+
+        while (received < threshold) {
+            int needed = Math.min(incrementalSort.getChunkLength(), threshold - received);
+
+            // IntBuffer.take() always leaves at least one value behind, so wait for one more value than is needed.
+            required = needed + 1;
+
+            // Wait until the next chunk is available. The semaphore may have been released more than once since the
+            // last chunk was taken, so check the size of the buffer again after acquiring it.
+            while (buffer.size() <= needed) {
+                semaphore.acquire();
+            }
+
+            // Hand the chunk off to be sorted in the background while the next one is being collected
+            int[] chunk = buffer.take(needed);
+            incrementalSort.add(chunk);
+            received += chunk.length;
+        }
+
+        // Only the merge of the sorted chunks remains
+        try {
+            return incrementalSort.finish();
+        } catch (SortCancelledException e) {
+            logger.logLine("%s Sending the data on unsorted.", e.getMessage());
+            return incrementalSort.abandon();
+        }
+    }
+
     @Override
     public void sizeChanged(@NotNull IntBuffer collection) {
-        if (collection.size() >= threshold) {
-            // Release the semaphore that was acquired in the constructor, thereby letting the run()
-            // method continue in its execution so it can alert the receiver.
+        // Release the semaphore that was acquired in the constructor, thereby letting the run() method continue in
+        // its execution so it can alert the receiver. At most one permit is held, so a burst of additions cannot wake
+        // the receiver once per value after the buffer has already been drained.
+        if (collection.size() >= required && semaphore.availablePermits() == 0) {
             semaphore.release();
         }
     }
@@ -0,0 +1,272 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.BufferWriter;
+import ahuber.hubble.adt.IntBuffer;
+import ahuber.hubble.adt.SizeObserver;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A {@link FrameSource} that replays the frames of a recording, so that the same data can be sorted and rendered on
+ * every run.
+ * <p>
+ * A recording starts with a header of four 32-bit integers: the magic number {@code HUBF}, the version of the
+ * format, the number of values in each frame, and the number of frames. The values of the frames follow as unsigned
+ * 16-bit integers, all in big-endian byte order. The frames are memory-mapped one at a time and added to the buffer
+ * in chunks, and the recording starts over at the first frame once the last frame has been replayed, so a stream can
+ * run for longer than the recording.
+ */
+public class RecordedFrameSource implements FrameSource {
+
+    /**
+     * The magic number that every recording starts with, which reads {@code HUBF} in ASCII.
+     */
+    private static final int MAGIC = 0x48554246;
+
+    /**
+     * The version of the format of the recordings that are written and understood.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The number of bytes in the header of a recording.
+     */
+    private static final int HEADER_LENGTH = 4 * Integer.BYTES;
+
+    /**
+     * The largest number of values that are added to the buffer with one {@link IntBuffer#addChunk(int[], int, int)}
+     */
+    private static final int CHUNK_LENGTH = Satellite.DEFAULT_CHUNK_LENGTH;
+
+    @NotNull private final BufferWriter writer;
+    @NotNull private final Path file;
+    private final int frameLength;
+    private final int frameCount;
+
+    /**
+     * Creates a new {@link RecordedFrameSource} that replays the provided recording into the provided
+     * {@link IntBuffer}
+     * @param buffer The {@link IntBuffer} into which to place the values of the frames.
+     * @param file The path of the recording.
+     * @throws IOException If the recording cannot be read or is not a recording.
+     * @throws NullPointerException If {@code buffer} or {@code file} is {@code null}
+     */
+    public RecordedFrameSource(@NotNull IntBuffer buffer, @NotNull Path file) throws IOException {
+        this(new BufferWriter(Objects.requireNonNull(buffer, "'buffer' cannot be null.")), file);
+    }
+
+    /**
+     * Creates a new {@link RecordedFrameSource} that replays the provided recording with the provided
+     * {@link BufferWriter}, which deals with values that do not fit according to its
+     * {@link ahuber.hubble.adt.OverflowPolicy}
+     * @param writer The {@link BufferWriter} that places the values of the frames in its {@link IntBuffer}
+     * @param file The path of the recording.
+     * @throws IOException If the recording cannot be read or is not a recording.
+     * @throws NullPointerException If {@code writer} or {@code file} is {@code null}
+     */
+    public RecordedFrameSource(@NotNull BufferWriter writer, @NotNull Path file) throws IOException {
+        this.writer = Objects.requireNonNull(writer, "'writer' cannot be null.");
+        this.file = Objects.requireNonNull(file, "'file' cannot be null.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading until the whole header has been read or the file ends
+            }
+
+            header.flip();
+
+            if (header.remaining() < HEADER_LENGTH || header.getInt() != MAGIC) {
+                throw new IOException(String.format("%s is not a recording.", file));
+            }
+
+            int version = header.getInt();
+
+            if (version != VERSION) {
+                throw new IOException(String.format("%s is a recording of version %d, but only version %d is " +
+                        "supported.", file, version, VERSION));
+            }
+
+            frameLength = header.getInt();
+            frameCount = header.getInt();
+
+            if (frameLength < 1 || frameCount < 1 ||
+                    channel.size() < HEADER_LENGTH + (long) frameLength * frameCount * Short.BYTES) {
+                throw new IOException(String.format("%s is truncated or empty. (frameLength: %d, frameCount: %d)",
+                        file, frameLength, frameCount));
+            }
+        }
+    }
+
+    /**
+     * Writes a recording of the first {@code frameCount} frames that the provided {@link FrameSource} produces. The
+     * {@link FrameSource} is run on a thread of its own until all the frames have been written.
+     * @param source The {@link FrameSource}, whose {@link IntBuffer} must be able to hold more than one frame.
+     * @param file The path of the recording, which is replaced if it exists.
+     * @param frameLength The number of values in each frame.
+     * @param frameCount The number of frames to write.
+     * @throws IOException If the recording cannot be written.
+     * @throws InterruptedException If the current thread is interrupted while waiting for a frame.
+     * @throws IllegalArgumentException If {@code frameLength} or {@code frameCount} is less than 1, or if the buffer
+     * of {@code source} cannot hold more than one frame.
+     * @throws NullPointerException If {@code source} or {@code file} is {@code null}
+     */
+    public static void record(@NotNull FrameSource source, @NotNull Path file, int frameLength, int frameCount)
+            throws IOException, InterruptedException {
+        Objects.requireNonNull(source, "'source' cannot be null.");
+        Objects.requireNonNull(file, "'file' cannot be null.");
+        IntBuffer buffer = source.getBuffer();
+
+        if (frameLength < 1 || frameLength >= buffer.capacity()) {
+            String message = String.format("The frame length must be at least 1 and less than the capacity of the " +
+                    "buffer. (frameLength: %d, capacity: %d)", frameLength, buffer.capacity());
+            throw new IllegalArgumentException(message);
+        }
+
+        if (frameCount < 1) {
+            String message = String.format("The frame count cannot be less than 1. (frameCount: %d)", frameCount);
+            throw new IllegalArgumentException(message);
+        }
+
+        // The buffer only hands out size() - 1 values, so a frame is ready once the buffer holds one more value
+        Semaphore sizeChanged = new Semaphore(0);
+        SizeObserver<IntBuffer> observer = collection -> sizeChanged.release();
+        buffer.registerObserver(observer);
+        Thread thread = new Thread(source, "Recording");
+        thread.start();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).putInt(VERSION).putInt(frameLength).putInt(frameCount).flip();
+            write(channel, header);
+            ByteBuffer bytes = ByteBuffer.allocateDirect(frameLength * Short.BYTES);
+            ShortBuffer values = bytes.asShortBuffer();
+
+            for (int frame = 0; frame < frameCount; frame++) {
+                while (buffer.size() <= frameLength) {
+                    sizeChanged.drainPermits();
+
+                    if (buffer.size() <= frameLength) {
+                        sizeChanged.acquire();
+                    }
+                }
+
+                values.clear();
+
+                for (int value : buffer.take(frameLength)) {
+                    values.put((short) value);
+                }
+
+                bytes.clear();
+                write(channel, bytes);
+            }
+        } finally {
+            thread.interrupt();
+            thread.join();
+            buffer.unregisterObserver(observer);
+        }
+    }
+
+    /**
+     * Writes a recording of frames that a seeded {@link Satellite} produces.
+     * <p>
+     * Usage: {@code RecordedFrameSource <file> <i> <frames> <seed>}, e.g., {@code RecordedFrameSource frames.bin 11 10
+     * 42} writes ten frames of N<sup>2</sup> = 4,194,304 values each to {@code frames.bin}
+     * @param args The command-line arguments.
+     * @throws Exception If the recording cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.out.println("Usage: RecordedFrameSource <file> <i> <frames> <seed>");
+            return;
+        }
+
+        Path file = Paths.get(args[0]);
+        int frameLength = 1 << (2 * Integer.parseInt(args[1]));
+        int frameCount = Integer.parseInt(args[2]);
+        long seed = Long.parseLong(args[3]);
+        Satellite satellite = new Satellite(new IntBuffer(frameLength * 2), Satellite.DEFAULT_CHUNK_LENGTH,
+                Runtime.getRuntime().availableProcessors(), seed);
+        record(satellite, file, frameLength, frameCount);
+        System.out.printf("Wrote %,d frames of %,d values to %s\n", frameCount, frameLength, file);
+    }
+
+    /**
+     * Gets the number of values in each frame of the recording.
+     * @return The number of values.
+     */
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    /**
+     * Gets the number of frames in the recording.
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @NotNull
+    @Override
+    public IntBuffer getBuffer() {
+        return writer.getBuffer();
+    }
+
+    @NotNull
+    @Override
+    public BufferWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Replays the frames of the recording until the thread is interrupted.
+     */
+    @Override
+    public void run() {
+        long frameBytes = (long) frameLength * Short.BYTES;
+        short[] values = new short[Math.min(CHUNK_LENGTH, frameLength)];
+        int[] chunk = new int[values.length];
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            //noinspection InfiniteLoopStatement
+            for (int frame = 0; ; frame = (frame + 1) % frameCount) {
+                ShortBuffer frameValues = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_LENGTH + frame * frameBytes, frameBytes).asShortBuffer();
+
+                while (frameValues.hasRemaining()) {
+                    int length = Math.min(values.length, frameValues.remaining());
+                    frameValues.get(values, 0, length);
+
+                    for (int index = 0; index < length; index++) {
+                        chunk[index] = values[index] & 0xFFFF;
+                    }
+
+                    writer.write(chunk, 0, length);
+                }
+            }
+        } catch (InterruptedException | ClosedByInterruptException ignored) {
+            // Exit method because this thread was interrupted
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Unable to replay %s", file), e);
+        }
+    }
+
+    private static void write(@NotNull FileChannel channel, @NotNull ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
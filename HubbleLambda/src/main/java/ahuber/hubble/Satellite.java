@@ -1,34 +1,309 @@
 package ahuber.hubble;
 
+import ahuber.hubble.adt.BufferWriter;
 import ahuber.hubble.adt.IntBuffer;
 import ahuber.hubble.adt.SizeObserver;
+import ahuber.hubble.utils.PacingClock;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.Objects;
 import java.util.Random;
-import java.util.concurrent.Semaphore;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 /**
  * A class representing the Hubble Space Telescope, which in this instance produces random integer data that is
  * placed inside of an {@link IntBuffer}.
+ * <p>
+ * By default, the values are produced and added to the buffer one at a time. In bulk mode, the values are produced
+ * a chunk at a time, each slice of the chunk by its own {@link SplittableRandom} (on the common
+ * {@link java.util.concurrent.ForkJoinPool} if the parallelism is greater than 1), and every chunk is added to the
+ * buffer with a single {@link IntBuffer#addChunk(int[], int, int)}.
+ * <p>
+ * A satellite that is created with a seed produces the same values on every run for the same chunk length, whatever
+ * its parallelism.
+ * <p>
+ * In paced mode, the values are produced one at a time after a random delay, like the satellite of the original
+ * project, which waited <i>randint(10, 200)</i> milliseconds between values. The delays are kept by a
+ * {@link PacingClock} instead of a sleeping thread: a {@link ahuber.hubble.utils.HashedTimerWheel} paces thousands of
+ * satellites in real time on a few threads, and a {@link ahuber.hubble.utils.VirtualClock} runs them at CPU speed
+ * while still telling how long they would have taken. A paced satellite is started with {@link #start()}, or by
+ * running it on a thread of its own, and reports the simulated time it took and how late its values were.
+ * <p>
+ * In every mode, the values are written by a {@link BufferWriter}, whose {@link ahuber.hubble.adt.OverflowPolicy}
+ * decides whether the satellite waits for space in a full buffer or loses values instead.
  */
-public class Satellite implements SizeObserver<IntBuffer>, Runnable {
+public class Satellite implements SizeObserver<IntBuffer>, FrameSource {
+
+    /**
+     * The number of values in a chunk that is usually large enough for the values to be produced and added to the
+     * buffer at memory bandwidth, and small enough to stay in the L2 cache of a core.
+     */
+    public static final int DEFAULT_CHUNK_LENGTH = 1 << 15;
+
+    /**
+     * The shortest delay between two values in paced mode by default, which is the shortest delay of the original
+     * project.
+     */
+    public static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis(10);
+
+    /**
+     * The longest delay between two values in paced mode by default, which is the longest delay of the original
+     * project.
+     */
+    public static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(200);
+
+    /**
+     * The largest value that is produced.
+     */
+    private static final int MAX_VALUE = 4096;
+
+    /**
+     * The number of values in a slice of a chunk, which is the smallest number of values that is worth producing on
+     * its own thread.
+     */
+    private static final int SLICE_LENGTH = 1 << 12;
+
     @NotNull private final IntBuffer buffer;
-    @NotNull private final Semaphore semaphore = new Semaphore(1);
-    @NotNull private final Random random = new Random();
+    @NotNull private final BufferWriter writer;
+    @NotNull private final Random random;
+    private final int chunkLength;
+    private final int parallelism;
+    @NotNull private final SplittableRandom[] slices;
+    @Nullable private final PacingClock clock;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    @NotNull private final AtomicBoolean waitingForSpace = new AtomicBoolean();
+    @NotNull private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong totalLatenessNanos = new AtomicLong();
+    private final AtomicLong maxLatenessNanos = new AtomicLong();
+    private volatile long startNanos;
+    private volatile long lastEmissionNanos;
+
+    // The value that is waiting to be added to the buffer in paced mode and the time at which it was due. Only one
+    // task of a paced satellite is scheduled at a time, so these need no synchronization of their own.
+    private int pendingValue;
+    private long pendingDueNanos;
 
     /**
-     * Creates a new Hubble Space Telescope that puts random integer data in the provided {@link IntBuffer}
+     * Creates a new Hubble Space Telescope that puts random integer data in the provided {@link IntBuffer} one value
+     * at a time.
      * @param buffer The {@link IntBuffer} into which to place the random integer data.
      */
     public Satellite(@NotNull IntBuffer buffer) {
-        this.buffer = buffer;
+        this(buffer, 1, 1, null);
+    }
+
+    /**
+     * Creates a new Hubble Space Telescope that puts random integer data in the provided {@link IntBuffer} a chunk at
+     * a time.
+     * @param buffer The {@link IntBuffer} into which to place the random integer data.
+     * @param chunkLength The number of values in each chunk, e.g., {@link #DEFAULT_CHUNK_LENGTH}. If this is 1, the
+     *                    values are produced and added to the buffer one at a time.
+     * @param parallelism The largest number of threads that produce the slices of a chunk.
+     * @throws IllegalArgumentException If {@code chunkLength} or {@code parallelism} is less than 1.
+     */
+    public Satellite(@NotNull IntBuffer buffer, int chunkLength, int parallelism) {
+        this(buffer, chunkLength, parallelism, null);
+    }
+
+    /**
+     * Creates a new Hubble Space Telescope that puts random integer data in the provided {@link IntBuffer} a chunk at
+     * a time.
+     * @param buffer The {@link IntBuffer} into which to place the random integer data.
+     * @param chunkLength The number of values in each chunk, e.g., {@link #DEFAULT_CHUNK_LENGTH}. If this is 1, the
+     *                    values are produced and added to the buffer one at a time.
+     * @param parallelism The largest number of threads that produce the slices of a chunk.
+     * @param seed The seed of the random integer data, or {@code null} to produce different data on every run.
+     * @throws IllegalArgumentException If {@code chunkLength} or {@code parallelism} is less than 1.
+     */
+    public Satellite(@NotNull IntBuffer buffer, int chunkLength, int parallelism, @Nullable Long seed) {
+        this(new BufferWriter(buffer), chunkLength, parallelism, seed);
+    }
+
+    /**
+     * Creates a new Hubble Space Telescope that puts random integer data in the {@link IntBuffer} of the provided
+     * {@link BufferWriter} a chunk at a time, which deals with data that does not fit according to its
+     * {@link ahuber.hubble.adt.OverflowPolicy}
+     * @param writer The {@link BufferWriter} that places the random integer data in its {@link IntBuffer}
+     * @param chunkLength The number of values in each chunk, e.g., {@link #DEFAULT_CHUNK_LENGTH}. If this is 1, the
+     *                    values are produced and added to the buffer one at a time.
+     * @param parallelism The largest number of threads that produce the slices of a chunk.
+     * @param seed The seed of the random integer data, or {@code null} to produce different data on every run.
+     * @throws NullPointerException If {@code writer} is {@code null}
+     * @throws IllegalArgumentException If {@code chunkLength} or {@code parallelism} is less than 1.
+     */
+    public Satellite(@NotNull BufferWriter writer, int chunkLength, int parallelism, @Nullable Long seed) {
+        this(writer, chunkLength, parallelism, seed, null, 0, 0);
+    }
+
+    /**
+     * Creates a new Hubble Space Telescope that puts random integer data in the provided {@link IntBuffer} one value
+     * at a time, after a random delay that is kept by the provided {@link PacingClock}
+     * @param buffer The {@link IntBuffer} into which to place the random integer data.
+     * @param clock The {@link PacingClock} that keeps the delays.
+     * @param minDelay The shortest delay between two values, e.g., {@link #DEFAULT_MIN_DELAY}
+     * @param maxDelay The longest delay between two values, e.g., {@link #DEFAULT_MAX_DELAY}
+     * @param seed The seed of the random integer data and delays, or {@code null} to produce different data on every
+     *             run.
+     * @throws NullPointerException If {@code clock}, {@code minDelay}, or {@code maxDelay} is {@code null}
+     * @throws IllegalArgumentException If {@code minDelay} is negative or greater than {@code maxDelay}
+     */
+    public Satellite(@NotNull IntBuffer buffer, @NotNull PacingClock clock, @NotNull Duration minDelay,
+            @NotNull Duration maxDelay, @Nullable Long seed) {
+        this(new BufferWriter(buffer), clock, minDelay, maxDelay, seed);
+    }
+
+    /**
+     * Creates a new Hubble Space Telescope that puts random integer data in the {@link IntBuffer} of the provided
+     * {@link BufferWriter} one value at a time, after a random delay that is kept by the provided
+     * {@link PacingClock}. Unless the {@link ahuber.hubble.adt.OverflowPolicy} of the {@link BufferWriter} is
+     * {@link ahuber.hubble.adt.OverflowPolicy#BLOCK}, a value that does not fit is dealt with right away and the next
+     * value stays on schedule.
+     * @param writer The {@link BufferWriter} that places the random integer data in its {@link IntBuffer}
+     * @param clock The {@link PacingClock} that keeps the delays.
+     * @param minDelay The shortest delay between two values, e.g., {@link #DEFAULT_MIN_DELAY}
+     * @param maxDelay The longest delay between two values, e.g., {@link #DEFAULT_MAX_DELAY}
+     * @param seed The seed of the random integer data and delays, or {@code null} to produce different data on every
+     *             run.
+     * @throws NullPointerException If {@code writer}, {@code clock}, {@code minDelay}, or {@code maxDelay} is
+     * {@code null}
+     * @throws IllegalArgumentException If {@code minDelay} is negative or greater than {@code maxDelay}
+     */
+    public Satellite(@NotNull BufferWriter writer, @NotNull PacingClock clock, @NotNull Duration minDelay,
+            @NotNull Duration maxDelay, @Nullable Long seed) {
+        this(writer, 1, 1, seed, Objects.requireNonNull(clock, "'clock' cannot be null."),
+                Objects.requireNonNull(minDelay, "'minDelay' cannot be null.").toNanos(),
+                Objects.requireNonNull(maxDelay, "'maxDelay' cannot be null.").toNanos());
+    }
+
+    private Satellite(@NotNull BufferWriter writer, int chunkLength, int parallelism, @Nullable Long seed,
+            @Nullable PacingClock clock, long minDelayNanos, long maxDelayNanos) {
+        if (minDelayNanos < 0 || minDelayNanos > maxDelayNanos) {
+            String message = String.format("The delays must satisfy 0 <= minDelay <= maxDelay. (minDelay: %d ns, " +
+                    "maxDelay: %d ns)", minDelayNanos, maxDelayNanos);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (chunkLength < 1) {
+            String message = String.format("The chunk length cannot be less than 1. (chunkLength: %d)", chunkLength);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (parallelism < 1) {
+            String message = String.format("The parallelism cannot be less than 1. (parallelism: %d)", parallelism);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.writer = Objects.requireNonNull(writer, "'writer' cannot be null.");
+        this.buffer = writer.getBuffer();
+        this.chunkLength = chunkLength;
+        this.parallelism = parallelism;
+        this.random = seed == null ? new Random() : new Random(seed);
+        this.clock = clock;
+        this.minDelayNanos = minDelayNanos;
+        this.maxDelayNanos = maxDelayNanos;
+
+        // Each slice has its own stream split off the same root, so the slices never contend with each other. The
+        // number of slices only depends on the chunk length, so a seed produces the same data whatever the
+        // parallelism.
+        int sliceCount = Math.max(1, chunkLength / SLICE_LENGTH);
+        SplittableRandom root = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+        this.slices = new SplittableRandom[sliceCount];
+
+        for (int slice = 0; slice < sliceCount; slice++) {
+            slices[slice] = root.split();
+        }
+
+        // Register this as an observer of the buffer so that a paced satellite is resumed when space becomes available
+        if (clock != null) {
+            this.buffer.registerObserver(this);
+        }
+    }
+
+    @NotNull
+    @Override
+    public IntBuffer getBuffer() {
+        return buffer;
+    }
+
+    @NotNull
+    @Override
+    public BufferWriter getWriter() {
+        return writer;
     }
 
     @Override
     public void sizeChanged(IntBuffer collection) {
-        // Release the semaphore so we can alert the run() method that space may be available in the buffer to
-        // add more items.
-        semaphore.release();
+        // A paced satellite whose value did not fit is resumed by its clock once space may be available
+        if (clock != null && waitingForSpace.compareAndSet(true, false)) {
+            clock.schedule(0, this::offerPendingValue);
+        }
+    }
+
+    /**
+     * Starts producing values in paced mode without a thread of its own; the tasks of the satellite run on the
+     * threads of its {@link PacingClock}. The satellite keeps producing values until {@link #stop()} is called.
+     * @throws IllegalStateException If the satellite is not in paced mode.
+     */
+    public void start() {
+        if (clock == null) {
+            throw new IllegalStateException("Only a paced satellite can be started without a thread of its own.");
+        }
+
+        startNanos = clock.nanoTime();
+        lastEmissionNanos = startNanos;
+        scheduleNextValue();
+    }
+
+    /**
+     * Stops producing values in paced mode. A value that is due already may still be added to the buffer.
+     */
+    public void stop() {
+        stopped.countDown();
+    }
+
+    /**
+     * Gets the number of values that have been added to the buffer in paced mode.
+     * @return The number of values.
+     */
+    public long getEmittedCount() {
+        return emitted.get();
+    }
+
+    /**
+     * Gets the time that passed on the {@link PacingClock} between the start of the satellite and the last value that
+     * was added to the buffer in paced mode, which is simulated time if the clock is a
+     * {@link ahuber.hubble.utils.VirtualClock}
+     * @return The time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return lastEmissionNanos - startNanos;
+    }
+
+    /**
+     * Gets the mean time by which the values were late in paced mode, i.e., the time between when a value was due and
+     * when it was added to the buffer, which includes the time it waited for space in the buffer.
+     * @return The time in nanoseconds.
+     */
+    public double getMeanLatenessNanos() {
+        long count = emitted.get();
+        return count == 0 ? 0 : (double) totalLatenessNanos.get() / count;
+    }
+
+    /**
+     * Gets the longest time by which a value was late in paced mode.
+     * @return The time in nanoseconds.
+     * @see #getMeanLatenessNanos()
+     */
+    public long getMaxLatenessNanos() {
+        return maxLatenessNanos.get();
     }
 
     /**
@@ -37,31 +312,101 @@ public class Satellite implements SizeObserver<IntBuffer>, Runnable {
     @Override
     public void run() {
         try {
-            //noinspection InfiniteLoopStatement
-            while (true) {
-                int number = random.nextInt(4097);
-                boolean successful;
-
-                do {
-                    successful = buffer.add(number);
-
-                    if (successful) {
-                        continue;
-                    }
-
-                    // If we were not successful, wait until the size of the collection changes and try again.
-                    // We wait by acquiring a semaphore a first time and then a second time. The semaphore is released
-                    // in sizeChanged(IntBuffer), which enables the semaphore to be acquired that second time.
-                    semaphore.acquire();
-                    semaphore.acquire();
-
-                    // Now that we have the semaphore, release it so we "clean up after ourselves," and try again.
-                    semaphore.release();
-                } while(!successful);
+            if (clock != null) {
+                runPaced();
+            } else if (chunkLength > 1) {
+                runChunks();
+            } else {
+                runValues();
             }
-
         } catch (InterruptedException ignored) {
             // Exit method because this thread was interrupted
         }
     }
+
+    private void runPaced() throws InterruptedException {
+        // The clock produces the values, so the thread only has to wait until it is interrupted
+        try {
+            start();
+            stopped.await();
+        } finally {
+            stop();
+        }
+    }
+
+    private void scheduleNextValue() {
+        long delay = minDelayNanos + (long) (random.nextDouble() * (maxDelayNanos - minDelayNanos));
+        long dueNanos = clock.nanoTime() + delay;
+
+        clock.schedule(delay, () -> {
+            pendingValue = random.nextInt(MAX_VALUE + 1);
+            pendingDueNanos = dueNanos;
+            offerPendingValue();
+        });
+    }
+
+    private void offerPendingValue() {
+        if (stopped.getCount() == 0) {
+            return;
+        }
+
+        while (!writer.offer(pendingValue)) {
+            // Wait for sizeChanged() to resume the satellite. If space became available before the flag was set, no
+            // one resumes it, so try again right away instead.
+            waitingForSpace.set(true);
+
+            if (buffer.isFull() || !waitingForSpace.compareAndSet(true, false)) {
+                return;
+            }
+        }
+
+        long now = clock.nanoTime();
+        long lateness = Math.max(0, now - pendingDueNanos);
+        totalLatenessNanos.addAndGet(lateness);
+        maxLatenessNanos.accumulateAndGet(lateness, Math::max);
+        lastEmissionNanos = now;
+        emitted.incrementAndGet();
+        scheduleNextValue();
+    }
+
+    private void runValues() throws InterruptedException {
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            // The writer waits for space or deals with a value that does not fit according to its policy
+            writer.write(random.nextInt(MAX_VALUE + 1));
+        }
+    }
+
+    private void runChunks() throws InterruptedException {
+        int[] chunk = new int[chunkLength];
+
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            fill(chunk);
+            writer.write(chunk, 0, chunk.length);
+        }
+    }
+
+    private void fill(@NotNull int[] chunk) throws InterruptedException {
+        // Each task produces a contiguous group of slices
+        int tasks = Math.min(parallelism, slices.length);
+        IntStream taskIndices = IntStream.range(0, tasks);
+
+        (tasks > 1 ? taskIndices.parallel() : taskIndices).forEach(task -> {
+            for (int slice = slices.length * task / tasks; slice < slices.length * (task + 1) / tasks; slice++) {
+                fill(chunk, (int) ((long) chunk.length * slice / slices.length),
+                        (int) ((long) chunk.length * (slice + 1) / slices.length), slices[slice]);
+            }
+        });
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private static void fill(@NotNull int[] chunk, int from, int to, @NotNull SplittableRandom random) {
+        for (int index = from; index < to; index++) {
+            chunk[index] = random.nextInt(MAX_VALUE + 1);
+        }
+    }
 }
@@ -2,9 +2,16 @@ package ahuber.hubble;
 
 import ahuber.hubble.adt.ArrayUtils;
 import ahuber.hubble.adt.IntArrayWrapper;
+import ahuber.hubble.aws.JobType;
 import ahuber.hubble.aws.LocalizedS3ObjectId;
 import ahuber.hubble.aws.S3Helpers;
 import ahuber.hubble.aws.SparkJobConfiguration;
+import ahuber.hubble.stats.FrameStatistics;
+import ahuber.hubble.stats.FrameSummary;
+import ahuber.hubble.utils.Flow;
+import ahuber.hubble.utils.ImageFormat;
+import ahuber.hubble.utils.Logger;
+import ahuber.hubble.utils.TilePyramid;
 import ahuber.hubble.utils.Utils;
 import com.amazonaws.auth.EnvironmentVariableCredentialsProvider;
 import com.amazonaws.jmespath.ObjectMapperSingleton;
@@ -21,23 +28,36 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Semaphore;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
  * An object that processes data that is produced by our {@linkplain Satellite Hubble Space Telescope}.
+ * <p>
+ * Besides receiving frames from a {@link Receiver}, a {@link SatelliteProcessor} can
+ * {@linkplain FramePublisher#subscribe(Flow.Subscriber) subscribe} to a {@link FramePublisher} that publishes whole
+ * frames. It then requests one frame at a time, and only requests the next one once it has processed the last, so
+ * that the frames are taken out of the buffer at the pace at which they are processed.
  */
-public class SatelliteProcessor implements Processor<IntArrayWrapper, SparkJobConfiguration>, Runnable {
+public class SatelliteProcessor implements Processor<IntArrayWrapper, SparkJobConfiguration>, Runnable,
+        Flow.Subscriber<int[]> {
 
     private static final String TERMINATE_CLUSTER_ACTION = "TERMINATE_CLUSTER";
+    private static final String CONTINUE_ACTION = "CONTINUE";
+    private static final int FRAMES_PER_STEP = 16;
+    private static final int MAX_FRAME_STEPS = 254;
 
     private final Semaphore semaphore = new Semaphore(1);
     private final Regions emrRegion;
     private final boolean launchEmrCluster;
+    private final boolean streaming;
 
     @NotNull
     private final String satelliteName;
@@ -52,9 +72,15 @@ public class SatelliteProcessor implements Processor<IntArrayWrapper, SparkJobCo
     @NotNull
     private final String sparkJobClass;
     @NotNull
-    private final Function<int[], SparkJobConfiguration> configurationSupplier;
+    private final Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier;
+    @NotNull
+    private final Logger logger;
+    @NotNull
+    private final List<LocalizedS3ObjectId> streamedConfigLocations = new ArrayList<>();
+    @Nullable
+    private volatile SparkJobConfiguration configuration;
     @Nullable
-    private SparkJobConfiguration configuration;
+    private volatile Flow.Subscription subscription;
 
     /**
      * Creates a new {@link SatelliteProcessor}
@@ -72,12 +98,50 @@ public class SatelliteProcessor implements Processor<IntArrayWrapper, SparkJobCo
      * @param sparkJobJarArgs        Additional arguments to pass to the executable JAR that will run on the EMR
      *                               cluster.
      */
-    public SatelliteProcessor(boolean launchEmrCluster, Function<int[], SparkJobConfiguration> configurationSupplier,
-            String satelliteName, Regions emrRegion, LocalizedS3ObjectId logFolderLocation,
-            LocalizedS3ObjectId sparkJobConfigLocation,
+    public SatelliteProcessor(boolean launchEmrCluster,
+            Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier, String satelliteName,
+            Regions emrRegion, LocalizedS3ObjectId logFolderLocation, LocalizedS3ObjectId sparkJobConfigLocation,
+            LocalizedS3ObjectId sparkJobJarLocation, String sparkJobClass, String... sparkJobJarArgs) {
+        this(launchEmrCluster, false, Utils.getLogger(null), configurationSupplier, satelliteName, emrRegion,
+                logFolderLocation, sparkJobConfigLocation, sparkJobJarLocation, sparkJobClass, sparkJobJarArgs);
+    }
+
+    /**
+     * Creates a new {@link SatelliteProcessor} that optionally processes a stream of frames.
+     * <p>
+     * In streaming mode, the {@link SatelliteProcessor} processes every frame it receives and {@link #run()} only
+     * returns once the stream has {@linkplain #onCompleted() completed}. Each frame is stored in Amazon S3 under the
+     * {@linkplain SparkJobConfiguration#getSatelliteName() satellite name} of the {@link SparkJobConfiguration} that
+     * {@code configurationSupplier} returns for it, so the supplier should give each frame a name of its own. Rather
+     * than launching an EMR cluster for every frame, the {@link SparkJobConfiguration} of each frame is uploaded as it
+     * arrives, and a single EMR cluster is launched for all of them once the stream has completed. Each of its steps
+     * processes several frames, and any of the {@code sparkJobJarArgs} that refer to {@code sparkJobConfigLocation} are
+     * replaced by the locations of those frames' {@link SparkJobConfiguration}s.
+     *
+     * @param launchEmrCluster A boolean value indicating whether the EMR cluster should launched.
+     * @param streaming A boolean value indicating whether the {@link SatelliteProcessor} receives a stream of frames
+     *                  rather than a single frame.
+     * @param logger The {@link Logger} that progress and errors are logged to.
+     * @param configurationSupplier  A function that returns a {@link SparkJobConfiguration} containing the specified
+     * @param emrRegion              The AWS region where the EMR cluster will be created.
+     * @param logFolderLocation      The location where logs for the EMR cluster will be stored.
+     * @param sparkJobConfigLocation The location where the {@link SparkJobConfiguration} serialized as JSON will be
+     *                               stored in S3 for consumption by the Spark Job.
+     * @param sparkJobJarLocation    The location of the executable JAR that will run on the EMR cluster to process the
+     *                               data.
+     * @param sparkJobClass          The class containing the entry point of the executable JAR that will run on the EMR
+     *                               cluster to process the data.
+     * @param sparkJobJarArgs        Additional arguments to pass to the executable JAR that will run on the EMR
+     *                               cluster.
+     */
+    public SatelliteProcessor(boolean launchEmrCluster, boolean streaming, Logger logger,
+            Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier, String satelliteName,
+            Regions emrRegion, LocalizedS3ObjectId logFolderLocation, LocalizedS3ObjectId sparkJobConfigLocation,
             LocalizedS3ObjectId sparkJobJarLocation, String sparkJobClass, String... sparkJobJarArgs) {
 
         this.launchEmrCluster = launchEmrCluster;
+        this.streaming = streaming;
+        this.logger = Objects.requireNonNull(logger, "'logger' cannot be null.");
         this.configurationSupplier = Objects.requireNonNull(configurationSupplier,
                 "'configurationSupplier' cannot be null.");
         this.satelliteName = Objects.requireNonNull(satelliteName, "'satelliteName' cannot be null.");
@@ -112,79 +176,248 @@ public class SatelliteProcessor implements Processor<IntArrayWrapper, SparkJobCo
     @Override
     public void onReceived(@NotNull IntArrayWrapper data) {
         // Get the data and upload it to Amazon S3 for processing.
-        int[] array = data.getArray();
-        configuration = configurationSupplier.apply(array);
+        process(configurationSupplier.apply(data));
+    }
+
+    /**
+     * Processes a frame whose {@link SparkJobConfiguration} has already been created, e.g., a frame that a
+     * {@link FramePipeline} hands off because it would not be finished before the deadline.
+     * @param configuration The {@link SparkJobConfiguration} of the frame, which contains its data.
+     * @throws NullPointerException If {@code configuration} is {@code null}
+     */
+    public void process(@NotNull SparkJobConfiguration configuration) {
+        Objects.requireNonNull(configuration, "'configuration' cannot be null.");
+
+        if (configuration.getJobType() == JobType.HISTOGRAM && configuration.getHistogram() == null) {
+            // The image is rendered from the counts alone, so only they are kept instead of all of the data.
+            configuration = configuration.toBuilder()
+                    .histogram(FrameStatistics.histogram(configuration.getData(), ForkJoinPool.commonPool()))
+                    .data(new int[0])
+                    .build();
+        }
+
+        int[] array = configuration.getData();
+        this.configuration = configuration;
 
         if (!launchEmrCluster) {
-            semaphore.release();
+            releaseAfterFrame();
+            return;
+        }
+
+        // Each frame of a stream is stored under its own name so that the frames do not overwrite each other
+        String frameName = streaming ? configuration.getSatelliteName() : satelliteName;
+
+        if (configuration.getJobType() == JobType.STATS_ONLY) {
+            // Rank queries do not need the data to be sorted, so answer them here instead of launching a cluster.
+            uploadFrameSummaryToAmazonS3(FrameStatistics.summarize(array, ForkJoinPool.commonPool()), frameName);
+            releaseAfterFrame();
             return;
         }
 
+        long[] histogram = configuration.getHistogram();
+
+        if (histogram != null) {
+            // Each run of equal values is drawn with a single fill, so the image is rendered here as quickly as the
+            // Spark job would render it, without launching a cluster.
+            uploadHistogramImagesToAmazonS3(histogram, configuration.getImageFormat(), frameName);
+            releaseAfterFrame();
+            return;
+        }
+
+        LocalizedS3ObjectId configLocation = streaming ? S3Helpers.createSparkJobConfigId(frameName) :
+                sparkJobConfigLocation;
+
         try {
-            uploadSparkJobConfigurationToAmazonS3(configuration, sparkJobConfigLocation);
+            uploadSparkJobConfigurationToAmazonS3(configuration, configLocation);
         } catch (IOException e) {
-            String message = String.format("Unable to load SparkJobConfiguration at %s", sparkJobConfigLocation);
+            String message = String.format("Unable to load SparkJobConfiguration at %s", configLocation);
             throw new RuntimeException(message, e);
         }
 
-        System.out.println("SparkJobConfiguration was successfully converted to JSON and uploaded to Amazon S3.");
+        logger.logLine("SparkJobConfiguration was successfully converted to JSON and uploaded to Amazon S3.");
+
+        if (streaming) {
+            // The frame is processed along with the rest of the stream once the stream has completed
+            synchronized (streamedConfigLocations) {
+                streamedConfigLocations.add(configLocation);
+            }
+
+            return;
+        }
 
-        RunJobFlowResult runJobFlowResult = startHadoopCluster(emrRegion, logFolderLocation, sparkJobJarLocation,
-                sparkJobClass, sparkJobJarArgs);
-        System.out.printf("An Amazon ECR request was submitted and approved. Job Flow ID is %s\n",
+        StepConfig step = createSparkStep("Process Data", TERMINATE_CLUSTER_ACTION, sparkJobJarArgs);
+        RunJobFlowResult runJobFlowResult = startHadoopCluster(frameName, emrRegion, logFolderLocation, step);
+        logger.logLine("An Amazon ECR request was submitted and approved. Job Flow ID is %s",
                 runJobFlowResult.getJobFlowId());
 
-        semaphore.release();
+        releaseAfterFrame();
+    }
+
+    @Override
+    public void onCompleted() {
+        List<LocalizedS3ObjectId> configLocations;
+
+        synchronized (streamedConfigLocations) {
+            configLocations = new ArrayList<>(streamedConfigLocations);
+            streamedConfigLocations.clear();
+        }
+
+        try {
+            if (!configLocations.isEmpty()) {
+                processStream(configLocations);
+            }
+        } catch (RuntimeException e) {
+            logger.logError("The frames of the stream could not be processed.", e);
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    @Override
+    public void onSubscribe(@NotNull Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription, "'subscription' cannot be null.");
+
+        if (this.subscription != null) {
+            // Frames from two publishers would be processed as if they were one stream
+            subscription.cancel();
+            return;
+        }
+
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(@NotNull int[] frame) {
+        Flow.Subscription current = subscription;
+
+        try {
+            onReceived(new IntArrayWrapper(frame));
+        } catch (RuntimeException e) {
+            // A frame that cannot be processed does not end the stream
+            logger.logError("A frame could not be processed.", e);
+        }
+
+        if (current != null) {
+            current.request(1);
+        }
+    }
+
+    @Override
+    public void onError(@NotNull Throwable throwable) {
+        logger.logError("The stream of frames failed.", throwable);
+        onCompleted();
+    }
+
+    @Override
+    public void onComplete() {
+        onCompleted();
+    }
+
+    private void releaseAfterFrame() {
+        // A stream is only finished once the Receiver signals that it has completed
+        if (!streaming) {
+            semaphore.release();
+        }
     }
 
     /**
-     * Starts the Hadoop Cluster
+     * Launches a single EMR cluster that processes all of the frames of a stream. Each step processes up to
+     * {@value #FRAMES_PER_STEP} frames in one Spark application, or more if the stream would otherwise need more than
+     * {@value #MAX_FRAME_STEPS} steps, and a step that fails does not stop the steps after it.
      *
-     * @param emrRegion             The region where the Hadoop Cluster is located.
-     * @param logLocationId         The location of the folder where logs for the Hadoop job be stored.
-     * @param sparkJobJarLocationId The location of the JAR on Amazon S3 containing the code that will be executed
-     *                              during the Spark Job.
-     * @param sparkJobClass         The fully-qualified class name containing the entry point of the Spark job.
-     * @param sparkJobJarArgs       Additional arguments that will be passed to {@code sparkJobJarLocationId}
-     * @return A {@link RunJobFlowResult} containing additional information pertaining to the request made to start
-     * the Hadoop Cluster.
+     * @param configLocations The locations of the {@link SparkJobConfiguration}s of the frames, in the order in which
+     *                        they were processed.
      */
-    private RunJobFlowResult startHadoopCluster(Regions emrRegion, LocalizedS3ObjectId logLocationId,
-            LocalizedS3ObjectId sparkJobJarLocationId, String sparkJobClass, String... sparkJobJarArgs) {
+    private void processStream(@NotNull List<LocalizedS3ObjectId> configLocations) {
+        int stepCount = Math.min(MAX_FRAME_STEPS, (configLocations.size() + FRAMES_PER_STEP - 1) / FRAMES_PER_STEP);
+        int framesPerStep = (configLocations.size() + stepCount - 1) / stepCount;
+        List<StepConfig> steps = new ArrayList<>();
+
+        for (int start = 0; start < configLocations.size(); start += framesPerStep) {
+            List<LocalizedS3ObjectId> frames = configLocations.subList(start,
+                    Math.min(configLocations.size(), start + framesPerStep));
+            String name = String.format("Process Frames %d-%d", start, start + frames.size() - 1);
+            steps.add(createSparkStep(name, CONTINUE_ACTION, createStreamJarArgs(frames)));
+        }
 
-        AmazonElasticMapReduce emr = AmazonElasticMapReduceClientBuilder.standard()
-                .withCredentials(new EnvironmentVariableCredentialsProvider())
-                .withRegion(emrRegion)
-                .build();
+        RunJobFlowResult runJobFlowResult = startHadoopCluster(satelliteName, emrRegion, logFolderLocation,
+                steps.toArray(new StepConfig[0]));
+        logger.logLine("An Amazon ECR request for %d frames was submitted and approved. Job Flow ID is %s",
+                configLocations.size(), runJobFlowResult.getJobFlowId());
+    }
+
+    /**
+     * Creates the arguments of the executable JAR for a step that processes several frames of a stream, i.e.,
+     * {@code sparkJobJarArgs} with the location of the {@link SparkJobConfiguration} of the session replaced by the
+     * locations of the frames' {@link SparkJobConfiguration}s.
+     *
+     * @param configLocations The locations of the {@link SparkJobConfiguration}s of the frames.
+     * @return The arguments.
+     */
+    @NotNull
+    private String[] createStreamJarArgs(@NotNull List<LocalizedS3ObjectId> configLocations) {
+        return Arrays.stream(sparkJobJarArgs)
+                .flatMap(arg -> !arg.equals(sparkJobConfigLocation.getStringUri()) ? Stream.of(arg) :
+                        configLocations.stream().map(LocalizedS3ObjectId::getStringUri))
+                .toArray(String[]::new);
+    }
 
+    /**
+     * Creates a step that runs the executable JAR as a Spark job.
+     *
+     * @param name             The name of the step.
+     * @param actionOnFailure  What to do with the Hadoop Cluster if the step fails.
+     * @param sparkJobJarArgs  Additional arguments that will be passed to the executable JAR.
+     * @return The step.
+     */
+    @NotNull
+    private StepConfig createSparkStep(String name, String actionOnFailure, String... sparkJobJarArgs) {
         String[] commandRunnerArgs = Utils.arrayOf("spark-submit", "--deploy-mode", "cluster",
                 "--executor-memory", "1g", "--conf", "spark.driver.memoryOverhead=4096", "--conf",
                 "spark.executor.memoryOverhead=4096", "--class", sparkJobClass,
-                sparkJobJarLocationId.getStringUri());
+                sparkJobJarLocation.getStringUri());
         String[] allArgs = ArrayUtils.combine(String[]::new, commandRunnerArgs, sparkJobJarArgs);
 
         HadoopJarStepConfig hadoopJarStep = new HadoopJarStepConfig()
                 .withJar("command-runner.jar")
-                .withArgs(allArgs)
-                .withArgs(sparkJobJarArgs);
+                .withArgs(allArgs);
 
-        StepConfig customJarStep = new StepConfig()
-                .withName("Process Data")
-                .withActionOnFailure(TERMINATE_CLUSTER_ACTION)
+        return new StepConfig()
+                .withName(name)
+                .withActionOnFailure(actionOnFailure)
                 .withHadoopJarStep(hadoopJarStep);
+    }
 
-        StepConfig[] steps = prefaceStepsWithEnableDebugStep(customJarStep);
+    /**
+     * Starts the Hadoop Cluster
+     *
+     * @param name          The name of the Hadoop Cluster.
+     * @param emrRegion     The region where the Hadoop Cluster is located.
+     * @param logLocationId The location of the folder where logs for the Hadoop job be stored.
+     * @param jobSteps      The steps that the Hadoop Cluster runs before it terminates.
+     * @return A {@link RunJobFlowResult} containing additional information pertaining to the request made to start
+     * the Hadoop Cluster.
+     */
+    private RunJobFlowResult startHadoopCluster(String name, Regions emrRegion, LocalizedS3ObjectId logLocationId,
+            StepConfig... jobSteps) {
+
+        AmazonElasticMapReduce emr = AmazonElasticMapReduceClientBuilder.standard()
+                .withCredentials(new EnvironmentVariableCredentialsProvider())
+                .withRegion(emrRegion)
+                .build();
+
+        StepConfig[] steps = prefaceStepsWithEnableDebugStep(jobSteps);
         Application sparkApplication = new Application().withName("Spark");
 
         JobFlowInstancesConfig instancesConfig = new JobFlowInstancesConfig()
                 .withInstanceCount(3)
-                .withKeepJobFlowAliveWhenNoSteps(true)
                 .withMasterInstanceType("m5.xlarge")
                 .withSlaveInstanceType("m5.xlarge")
                 .withKeepJobFlowAliveWhenNoSteps(false);
 
         RunJobFlowRequest request = new RunJobFlowRequest()
-                .withName(satelliteName)
+                .withName(name)
                 .withReleaseLabel("emr-5.27.0")
                 .withSteps(steps)
                 .withApplications(sparkApplication)
@@ -225,6 +458,61 @@ public class SatelliteProcessor implements Processor<IntArrayWrapper, SparkJobCo
         return Stream.concat(Arrays.stream(Utils.arrayOf(enableDebugging)), stepsStream).toArray(StepConfig[]::new);
     }
 
+    /**
+     * Renders the image of a frame from its histogram and uploads it to Amazon S3 at the
+     * {@linkplain S3Helpers#createImageId(String, ImageFormat) location for the satellite's image}, as the Spark job
+     * would. A frame of at least {@value ImageFormat#TILED_IMAGE_VALUES} values is also uploaded as a
+     * {@link TilePyramid}, and a JPEG image of at least {@value ImageFormat#STREAMING_IMAGE_VALUES} values is written
+     * as a PNG image instead.
+     *
+     * @param histogram The {@linkplain FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @param format The requested {@link ImageFormat}.
+     * @param name The name of the satellite, or of the frame when processing a stream of frames.
+     * @see ImageFormat#forValues(long)
+     */
+    private void uploadHistogramImagesToAmazonS3(@NotNull long[] histogram, @NotNull ImageFormat format,
+            @NotNull String name) {
+        long values = FrameStatistics.count(histogram);
+        ImageFormat imageFormat = format.forValues(values);
+        LocalizedS3ObjectId location = S3Helpers.createImageId(name, imageFormat);
+
+        try {
+            if (values >= ImageFormat.TILED_IMAGE_VALUES) {
+                TilePyramid.write(histogram, S3Helpers.createTileSink(S3Helpers.createTilePyramidId(name)));
+            }
+
+            S3Helpers.uploadImage(histogram, imageFormat, location);
+        } catch (IOException e) {
+            String message = String.format("Unable to upload the image rendered from the histogram to %s", location);
+            throw new RuntimeException(message, e);
+        }
+
+        logger.logLine("The image was rendered from the histogram and uploaded to Amazon S3.");
+    }
+
+    /**
+     * Uploads the provided {@link FrameSummary} to Amazon S3 as JSON at the
+     * {@linkplain S3Helpers#createStatisticsId(String) location for the satellite's statistics}.
+     *
+     * @param summary The {@link FrameSummary} to upload.
+     * @param name The name of the satellite, or of the frame when processing a stream of frames.
+     */
+    private void uploadFrameSummaryToAmazonS3(@NotNull FrameSummary summary, @NotNull String name) {
+        LocalizedS3ObjectId location = S3Helpers.createStatisticsId(name);
+
+        try {
+            String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(summary);
+            S3Helpers.uploadJson(json, location);
+        } catch (IOException e) {
+            String message = String.format("Unable to upload the %s to %s", FrameSummary.class.getSimpleName(),
+                    location);
+            throw new RuntimeException(message, e);
+        }
+
+        logger.logLine("%s was successfully converted to JSON and uploaded to Amazon S3.",
+                FrameSummary.class.getSimpleName());
+    }
+
     /**
      * Uploads the provided {@link SparkJobConfiguration} to Amazon S3 as JSON
      *
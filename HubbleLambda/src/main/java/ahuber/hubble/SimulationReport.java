@@ -0,0 +1,74 @@
+package ahuber.hubble;
+
+import ahuber.hubble.aws.SatelliteConfiguration;
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The outcome of one simulation that was run by a {@link SimulationScheduler}
+ */
+@Value
+public class SimulationReport {
+
+    /**
+     * Gets the {@link SatelliteConfiguration} of the simulation.
+     */
+    @NotNull private final SatelliteConfiguration configuration;
+
+    /**
+     * Gets the estimated number of bytes that the simulation needed on the heap, which was reserved while it ran.
+     */
+    private final long footprintBytes;
+
+    /**
+     * Gets the number of milliseconds from when the simulation was submitted until it was admitted, i.e., until
+     * enough memory was available and every simulation submitted before it had been admitted.
+     */
+    private final long waitMilliseconds;
+
+    /**
+     * Gets the number of milliseconds that the simulation ran for once it was admitted.
+     */
+    private final long elapsedMilliseconds;
+
+    /**
+     * Gets the number of frames that the simulation produced.
+     */
+    private final long frames;
+
+    /**
+     * Gets the number of values in the frames that the simulation produced.
+     */
+    private final long samples;
+
+    /**
+     * Gets the exception that ended the simulation, or {@code null} if it completed successfully.
+     */
+    @Nullable private final Throwable error;
+
+    /**
+     * Checks whether the simulation completed successfully.
+     * @return {@code true} if the simulation completed successfully, {@code false} otherwise.
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    /**
+     * Gets the number of values that the simulation produced per second while it ran.
+     * @return The number of values per second.
+     */
+    public double getSamplesPerSecond() {
+        return elapsedMilliseconds <= 0 ? 0 : samples * 1000.0 / elapsedMilliseconds;
+    }
+
+    @Override
+    public String toString() {
+        String outcome = error == null ? String.format("%,.0f samples/s", getSamplesPerSecond()) :
+                String.format("failed: %s", error);
+        return String.format("i = %d, j = %d: %,d frames (%,d samples) in %,d ms after waiting %,d ms for %,d KiB, %s",
+                configuration.getI(), configuration.getJ(), frames, samples, elapsedMilliseconds, waitMilliseconds,
+                footprintBytes >> 10, outcome);
+    }
+}
@@ -0,0 +1,359 @@
+package ahuber.hubble;
+
+import ahuber.hubble.aws.PipelineConfiguration;
+import ahuber.hubble.aws.SatelliteConfiguration;
+import ahuber.hubble.utils.Logger;
+import ahuber.hubble.utils.ThroughputMeter;
+import ahuber.hubble.utils.Utils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs many simulations in one JVM at the same time, e.g., the whole grid of configurations in {@code lambda-inputs}.
+ * <p>
+ * Each simulation is admitted only once its {@linkplain #estimateFootprint(SatelliteConfiguration) estimated memory
+ * footprint} fits in the memory budget of the scheduler, so that a handful of simulations with a large <i>i</i> do not
+ * run out of heap while many small ones still run side by side. Simulations are admitted in the order they were
+ * {@linkplain #submit(SatelliteConfiguration) submitted}, however the threads of the {@link Executor} are scheduled, so
+ * a large simulation is not overtaken indefinitely by smaller ones; a simulation that is larger than the whole budget
+ * runs on its own.
+ * <p>
+ * The simulations run on the {@link Executor} of the scheduler and wait on it until they are admitted, so the
+ * {@link Executor} should be able to run as many tasks at once as there are simulations, e.g., one returned by
+ * {@link ahuber.hubble.utils.ExecutionMode#newExecutor(String)}. Any worker pools that the simulations sort on are
+ * shared through the {@link Simulation} itself.
+ */
+public class SimulationScheduler {
+
+    /**
+     * The fraction of the maximum heap size that is used as the memory budget by default.
+     */
+    public static final double DEFAULT_HEAP_FRACTION = 0.5;
+
+    /**
+     * The number of frames besides the buffer of 2&middot;<i>N</i><sup>2</sup> values that every simulation holds on
+     * to: the frame that is taken out of the buffer and the scratch space that it is sorted with.
+     */
+    private static final int FRAME_COPIES = 2;
+
+    /**
+     * The number of frames that are being processed or wait to be processed in streaming mode.
+     */
+    private static final int STREAM_IN_FLIGHT_FRAMES = 4;
+
+    /**
+     * The number of stages of a {@link FramePipeline}, each of which has its own queue of frames.
+     */
+    private static final int PIPELINE_STAGES = 4;
+
+    private final long memoryBudget;
+    private final int budgetKibibytes;
+    @NotNull private final Executor executor;
+    @NotNull private final Simulation simulation;
+    @NotNull private final Logger logger;
+    @NotNull private final Deque<Admission> admissions = new ArrayDeque<>();
+    private int availableKibibytes;
+    @NotNull private final ThroughputMeter throughput = new ThroughputMeter();
+    @NotNull private final List<SimulationReport> reports = new ArrayList<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakRunning = new AtomicInteger();
+
+    /**
+     * Creates a new {@link SimulationScheduler} whose memory budget is {@link #DEFAULT_HEAP_FRACTION} of the maximum
+     * heap size.
+     * @param executor The {@link Executor} that runs the simulations.
+     * @param simulation The function that runs each simulation.
+     * @throws NullPointerException If {@code executor} or {@code simulation} is {@code null}
+     */
+    public SimulationScheduler(@NotNull Executor executor, @NotNull Simulation simulation) {
+        this((long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_FRACTION), executor, simulation);
+    }
+
+    /**
+     * Creates a new {@link SimulationScheduler}
+     * @param memoryBudget The number of bytes that the simulations that run at the same time may need in total.
+     * @param executor The {@link Executor} that runs the simulations.
+     * @param simulation The function that runs each simulation.
+     * @throws IllegalArgumentException If {@code memoryBudget} is less than 1 KiB.
+     * @throws NullPointerException If {@code executor} or {@code simulation} is {@code null}
+     */
+    public SimulationScheduler(long memoryBudget, @NotNull Executor executor, @NotNull Simulation simulation) {
+        this(memoryBudget, executor, simulation, Utils.getLogger(null));
+    }
+
+    /**
+     * Creates a new {@link SimulationScheduler} that logs each simulation as it ends.
+     * @param memoryBudget The number of bytes that the simulations that run at the same time may need in total.
+     * @param executor The {@link Executor} that runs the simulations.
+     * @param simulation The function that runs each simulation.
+     * @param logger The {@link Logger} that the report of each simulation is logged to.
+     * @throws IllegalArgumentException If {@code memoryBudget} is less than 1 KiB.
+     * @throws NullPointerException If {@code executor}, {@code simulation}, or {@code logger} is {@code null}
+     */
+    public SimulationScheduler(long memoryBudget, @NotNull Executor executor, @NotNull Simulation simulation,
+            @NotNull Logger logger) {
+        if (memoryBudget < 1024) {
+            String message = String.format("The memory budget cannot be less than 1 KiB. (memoryBudget: %d)",
+                    memoryBudget);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.memoryBudget = memoryBudget;
+        this.budgetKibibytes = (int) Math.min(Integer.MAX_VALUE, memoryBudget >> 10);
+        this.availableKibibytes = budgetKibibytes;
+        this.executor = Objects.requireNonNull(executor, "'executor' cannot be null.");
+        this.simulation = Objects.requireNonNull(simulation, "'simulation' cannot be null.");
+        this.logger = Objects.requireNonNull(logger, "'logger' cannot be null.");
+    }
+
+    /**
+     * Estimates the number of bytes that a simulation needs on the heap: its buffer of 2&middot;<i>N</i><sup>2</sup>
+     * values, the frame that is taken out of the buffer and the scratch space it is sorted with, and, depending on
+     * the configuration, the frames in flight in a stream or of each stage of a {@link FramePipeline}.
+     * @param configuration The {@link SatelliteConfiguration} of the simulation.
+     * @return The estimated number of bytes.
+     * @throws NullPointerException If {@code configuration} is {@code null}
+     */
+    public static long estimateFootprint(@NotNull SatelliteConfiguration configuration) {
+        Objects.requireNonNull(configuration, "'configuration' cannot be null.");
+        long frameLength = getFrameLength(configuration);
+        long frames = 2 + FRAME_COPIES;
+
+        if (configuration.getFrameCount() != null || configuration.getDurationSeconds() != null) {
+            frames += STREAM_IN_FLIGHT_FRAMES;
+        }
+
+        PipelineConfiguration pipeline = configuration.getPipeline();
+
+        if (pipeline != null) {
+            frames += (long) PIPELINE_STAGES * pipeline.getQueueCapacity();
+        }
+
+        return frames * frameLength * Integer.BYTES;
+    }
+
+    /**
+     * Gets the number of bytes that the simulations that run at the same time may need in total.
+     * @return The number of bytes.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Gets the largest number of simulations that have run at the same time.
+     * @return The number of simulations.
+     */
+    public int getPeakRunning() {
+        return peakRunning.get();
+    }
+
+    /**
+     * Gets the aggregate throughput of the simulations that have completed successfully since the scheduler was
+     * created.
+     * @return The {@link ThroughputMeter}
+     */
+    @NotNull
+    public ThroughputMeter getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Submits a simulation, which runs once enough memory is available and every simulation that was submitted before
+     * it has been admitted.
+     * @param configuration The {@link SatelliteConfiguration} of the simulation.
+     * @return A {@link CompletableFuture} that completes with the {@link SimulationReport} of the simulation once it
+     * has ended, whether it completed successfully or not.
+     * @throws NullPointerException If {@code configuration} is {@code null}
+     */
+    @NotNull
+    public CompletableFuture<SimulationReport> submit(@NotNull SatelliteConfiguration configuration) {
+        Objects.requireNonNull(configuration, "'configuration' cannot be null.");
+        long footprint = estimateFootprint(configuration);
+
+        // A simulation that is larger than the whole budget runs once all other simulations have finished
+        int kibibytes = (int) Math.max(1, Math.min(budgetKibibytes, (footprint + 1023) >> 10));
+
+        // The simulation joins the queue on the submitting thread, not once the executor gets round to it
+        Admission admission = new Admission(kibibytes);
+
+        synchronized (admissions) {
+            admissions.addLast(admission);
+            admit();
+        }
+
+        return CompletableFuture.supplyAsync(() -> run(configuration, footprint, admission), executor);
+    }
+
+    /**
+     * Runs all the provided simulations and waits until they have ended.
+     * @param configurations The {@link SatelliteConfiguration}s of the simulations.
+     * @return The {@link SimulationReport}s of the simulations in the order of {@code configurations}
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     * @throws NullPointerException If {@code configurations} or any of its elements is {@code null}
+     */
+    @NotNull
+    public List<SimulationReport> runAll(@NotNull Collection<SatelliteConfiguration> configurations)
+            throws InterruptedException {
+        Objects.requireNonNull(configurations, "'configurations' cannot be null.");
+        List<CompletableFuture<SimulationReport>> futures = configurations.stream()
+                .map(this::submit)
+                .collect(Collectors.toList());
+        List<SimulationReport> results = new ArrayList<>(futures.size());
+
+        for (CompletableFuture<SimulationReport> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                // run() reports failures instead of throwing them, so this only happens if the executor failed
+                throw new IllegalStateException("A simulation could not be run.", e.getCause());
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Gets a report of every simulation that has ended so far, followed by their aggregate throughput.
+     * @return The report.
+     */
+    @NotNull
+    public String getReport() {
+        List<SimulationReport> snapshot;
+
+        synchronized (reports) {
+            snapshot = new ArrayList<>(reports);
+        }
+
+        long failed = snapshot.stream().filter(report -> !report.isSuccessful()).count();
+        String summary = String.format("\n\tTotal: %s, %d failed, at most %d running at once within %,d MiB",
+                throughput, failed, getPeakRunning(), memoryBudget >> 20);
+        return snapshot.stream()
+                .map(report -> "\t" + report)
+                .collect(Collectors.joining("\n", "Simulations:\n", summary));
+    }
+
+    @NotNull
+    private SimulationReport run(@NotNull SatelliteConfiguration configuration, long footprint,
+            @NotNull Admission admission) {
+        try {
+            admission.admitted.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(admission);
+            return record(new SimulationReport(configuration, footprint,
+                    System.currentTimeMillis() - admission.submitMillis, 0, 0, 0, e));
+        }
+
+        long start = System.currentTimeMillis();
+        long waitMilliseconds = start - admission.submitMillis;
+        peakRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+        try {
+            long frames = simulation.run(configuration);
+            long elapsedMilliseconds = System.currentTimeMillis() - start;
+            long frameLength = getFrameLength(configuration);
+
+            for (long frame = 0; frame < frames; frame++) {
+                throughput.record(frameLength);
+            }
+
+            return record(new SimulationReport(configuration, footprint, waitMilliseconds, elapsedMilliseconds,
+                    frames, frames * frameLength, null));
+        } catch (Exception | OutOfMemoryError e) {
+            // A simulation that fails does not stop the others
+            return record(new SimulationReport(configuration, footprint, waitMilliseconds,
+                    System.currentTimeMillis() - start, 0, 0, e));
+        } finally {
+            running.decrementAndGet();
+            release(admission);
+        }
+    }
+
+    /**
+     * Admits the simulations at the head of the queue for as long as the next one fits in the memory that is left.
+     * The caller must hold the lock of {@link #admissions}.
+     */
+    private void admit() {
+        Admission next;
+
+        while ((next = admissions.peekFirst()) != null && next.kibibytes <= availableKibibytes) {
+            admissions.removeFirst();
+            availableKibibytes -= next.kibibytes;
+            next.admitted.countDown();
+        }
+    }
+
+    private void release(@NotNull Admission admission) {
+        synchronized (admissions) {
+            availableKibibytes += admission.kibibytes;
+            admit();
+        }
+    }
+
+    private void cancel(@NotNull Admission admission) {
+        synchronized (admissions) {
+            // A simulation that was admitted just as it was interrupted gives its memory back
+            if (!admissions.remove(admission)) {
+                availableKibibytes += admission.kibibytes;
+            }
+
+            admit();
+        }
+    }
+
+    @NotNull
+    private SimulationReport record(@NotNull SimulationReport report) {
+        synchronized (reports) {
+            reports.add(report);
+        }
+
+        logger.logLine("Simulation finished: %s", report);
+        return report;
+    }
+
+    private static long getFrameLength(@NotNull SatelliteConfiguration configuration) {
+        // N = 2^i, and each frame holds N^2 values
+        return (long) Math.pow(4, configuration.getI());
+    }
+
+    /**
+     * A place in the queue of simulations that wait for memory.
+     */
+    private static class Admission {
+        private final int kibibytes;
+        private final long submitMillis = System.currentTimeMillis();
+        private final CountDownLatch admitted = new CountDownLatch(1);
+
+        Admission(int kibibytes) {
+            this.kibibytes = kibibytes;
+        }
+    }
+
+    /**
+     * A function that runs one simulation.
+     */
+    @FunctionalInterface
+    public interface Simulation {
+
+        /**
+         * Runs a simulation and waits until it has ended.
+         * @param configuration The {@link SatelliteConfiguration} of the simulation.
+         * @return The number of frames that the simulation produced.
+         * @throws Exception If the simulation fails.
+         */
+        long run(@NotNull SatelliteConfiguration configuration) throws Exception;
+    }
+}
@@ -1,10 +1,26 @@
 package ahuber.hubble.aws;
 
+import ahuber.hubble.FramePipeline;
+import ahuber.hubble.FramePublisher;
+import ahuber.hubble.FrameSource;
+import ahuber.hubble.Processor;
 import ahuber.hubble.Receiver;
+import ahuber.hubble.RecordedFrameSource;
 import ahuber.hubble.Satellite;
 import ahuber.hubble.SatelliteProcessor;
+import ahuber.hubble.adt.BufferWriter;
+import ahuber.hubble.adt.IntArrayWrapper;
 import ahuber.hubble.adt.IntBuffer;
+import ahuber.hubble.adt.OverflowPolicy;
+import ahuber.hubble.sort.IncrementalSortInt;
+import ahuber.hubble.sort.SortControl;
+import ahuber.hubble.sort.Sorter;
+import ahuber.hubble.sort.Sorters;
+import ahuber.hubble.utils.DeadlinePlanner;
+import ahuber.hubble.utils.ExecutionMode;
+import ahuber.hubble.utils.HashedTimerWheel;
 import ahuber.hubble.utils.Logger;
+import ahuber.hubble.utils.ThroughputModel;
 import ahuber.hubble.utils.Utils;
 import com.amazonaws.jmespath.ObjectMapperSingleton;
 import com.amazonaws.regions.Regions;
@@ -15,20 +31,31 @@ import com.amazonaws.services.s3.event.S3EventNotification;
 import com.amazonaws.services.s3.model.S3Object;
 import lombok.Value;
 import org.javatuples.Pair;
+import org.javatuples.Triplet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * The AWS Lambda function that responds to an S3 event for a JSON file being uploaded to an S3 bucket that can be
@@ -39,6 +66,62 @@ public class App implements RequestHandler<S3Event, String> {
     private static final Regions EMR_REGION = Regions.US_EAST_1;
     private static final String SPARK_JOB_CLASS = "ahuber.hubble.spark.SparkDriver";
 
+    /**
+     * The time that is kept back from the sort while the data is collected, so that the data can still be uploaded
+     * and the EMR cluster launched before the Lambda function times out.
+     */
+    private static final Duration POST_SORT_MARGIN = Duration.ofSeconds(30);
+
+    /**
+     * The number of frames that may wait for a processor thread in streaming mode before the receiver stops taking
+     * data.
+     */
+    private static final int STREAM_QUEUE_CAPACITY = 2;
+
+    /**
+     * The number of frames that are processed in parallel in streaming mode.
+     */
+    private static final int STREAM_PROCESSOR_THREADS = 2;
+
+    /**
+     * The number of values with which the throughput of each stage is calibrated.
+     */
+    private static final int CALIBRATION_SAMPLE_LENGTH = 1 << 16;
+
+    /**
+     * The threshold with which the sorts are calibrated. It is kept small whatever the threshold of the simulation,
+     * since an insertion sort of tens of thousands of values would take most of the time of the Lambda function.
+     */
+    private static final int CALIBRATION_THRESHOLD = 16;
+
+    /**
+     * The throughput of each stage, which is shared by all the simulations in the JVM, so that the frames of one
+     * simulation improve the estimates for the next one, e.g., on a warm AWS Lambda function.
+     */
+    private static final ThroughputModel THROUGHPUT_MODEL = new ThroughputModel();
+    private static final AtomicBoolean CALIBRATED = new AtomicBoolean();
+
+    @Nullable private final ExecutorService sharedSortExecutor;
+
+    /**
+     * Creates a new {@link App} that creates a worker pool for each simulation that sorts the data while it is being
+     * collected. This is the constructor that AWS Lambda uses.
+     */
+    public App() {
+        this(null);
+    }
+
+    /**
+     * Creates a new {@link App} whose simulations share a worker pool to sort the data while it is being collected,
+     * e.g., when a {@link ahuber.hubble.SimulationScheduler} runs many simulations at the same time.
+     * @param sharedSortExecutor The {@link ExecutorService} that sorts the chunks of every simulation, or
+     *                           {@code null} to create a worker pool for each simulation. A shared
+     *                           {@link ExecutorService} is not shut down by the {@link App}
+     */
+    public App(@Nullable ExecutorService sharedSortExecutor) {
+        this.sharedSortExecutor = sharedSortExecutor;
+    }
+
     @Override
     public String handleRequest(S3Event input, Context context) {
         Logger logger = Utils.getLogger(context);
@@ -65,7 +148,7 @@ public class App implements RequestHandler<S3Event, String> {
         String[] resultMapping = new String[records.size()];
         boolean[] errorMapping = new boolean[records.size()];
         Arrays.fill(errorMapping, true);
-        processRecords(records, resultMapping, errorMapping, logger);
+        processRecords(records, resultMapping, errorMapping, context, logger);
 
         // Construct output string
         String output = getOutput(resultMapping, errorMapping);
@@ -98,7 +181,22 @@ public class App implements RequestHandler<S3Event, String> {
      */
     public Pair<Long, Optional<SparkJobConfiguration>> process(boolean launchEmrCluster, @NotNull String bucket,
             @NotNull String key) throws IOException {
-        return processS3Entity(launchEmrCluster, bucket, key, Utils.getLogger(null));
+        return processS3Entity(launchEmrCluster, bucket, key, null, Utils.getLogger(null));
+    }
+
+    /**
+     * Runs a simulation with the provided {@link SatelliteConfiguration} without downloading it from Amazon S3 first,
+     * e.g., to run many simulations in one JVM with a {@link ahuber.hubble.SimulationScheduler}
+     *
+     * @param launchEmrCluster A boolean value indicating whether an EMR cluster should be launched in order to
+     *                         process the data produced by the satellite.
+     * @param configuration    The {@link SatelliteConfiguration} that determines how the simulation runs.
+     * @return The number of frames that the satellite produced and the receiver handed to the processor.
+     * @throws NullPointerException If {@code configuration} is {@code null}
+     */
+    public long simulate(boolean launchEmrCluster, @NotNull SatelliteConfiguration configuration) {
+        Objects.requireNonNull(configuration, "'configuration' cannot be null.");
+        return process(launchEmrCluster, configuration, null, Utils.getLogger(null)).getValue2();
     }
 
     @NotNull
@@ -124,7 +222,7 @@ public class App implements RequestHandler<S3Event, String> {
     }
 
     private void processRecords(@NotNull List<S3EventNotification.S3EventNotificationRecord> records,
-            String[] resultMapping, boolean[] errorMapping, Logger logger) {
+            String[] resultMapping, boolean[] errorMapping, @Nullable Context context, Logger logger) {
 
         for (int i = 0; i < records.size(); i++) {
             logger.logLine("Processing %s %d of %d",
@@ -161,7 +259,7 @@ public class App implements RequestHandler<S3Event, String> {
             }
 
             try {
-                long elapsedMilliseconds = processS3Entity(true, bucket, key, logger).getValue0();
+                long elapsedMilliseconds = processS3Entity(true, bucket, key, context, logger).getValue0();
                 resultMapping[i] = String.format("Satellite has been shut down. " +
                         "Satellite ran for %,d milliseconds", elapsedMilliseconds);
                 errorMapping[i] = false; // Indicate that this S3 Object was successfully processed.
@@ -223,12 +321,77 @@ public class App implements RequestHandler<S3Event, String> {
         return key;
     }
 
+    @NotNull
+    private FrameSource createFrameSource(@NotNull SatelliteConfiguration configuration, @NotNull IntBuffer buffer,
+            int frameLength) {
+        OverflowPolicy policy = configuration.getOverflowPolicy() == null ? OverflowPolicy.BLOCK :
+                configuration.getOverflowPolicy();
+        BufferWriter writer = new BufferWriter(buffer, policy, configuration.getSeed());
+
+        if (configuration.getRecording() == null && Boolean.TRUE.equals(configuration.getPaced())) {
+            return new Satellite(writer, PacingWheelHolder.WHEEL, Satellite.DEFAULT_MIN_DELAY,
+                    Satellite.DEFAULT_MAX_DELAY, configuration.getSeed());
+        }
+
+        if (configuration.getRecording() == null) {
+            // A simulation on its own produces its chunks on every core; simulations that share the JVM do not compete
+            int parallelism = sharedSortExecutor == null ? Runtime.getRuntime().availableProcessors() : 1;
+            return new Satellite(writer, Satellite.DEFAULT_CHUNK_LENGTH, parallelism, configuration.getSeed());
+        }
+
+        RecordedFrameSource recording;
+
+        try {
+            recording = new RecordedFrameSource(writer, Paths.get(configuration.getRecording()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (recording.getFrameLength() != frameLength) {
+            String message = String.format("The frames of the recording do not have N^2 values. (frameLength: %d, " +
+                    "N^2: %d)", recording.getFrameLength(), frameLength);
+            throw new IllegalArgumentException(message);
+        }
+
+        return recording;
+    }
+
+    @NotNull
+    private static DeadlinePlanner createPlanner(@Nullable Context context, boolean processInLambda,
+            @NotNull Logger logger) {
+        if (context == null) {
+            return new DeadlinePlanner(THROUGHPUT_MODEL, null, POST_SORT_MARGIN);
+        }
+
+        // Measure the throughput of the stages on this machine the first time the frames are processed in the
+        // function; later simulations keep refining it with the time that their stages took
+        if (processInLambda && CALIBRATED.compareAndSet(false, true)) {
+            long elapsed = Utils.timeMillis(() -> THROUGHPUT_MODEL.calibrate(CALIBRATION_SAMPLE_LENGTH,
+                    CALIBRATION_THRESHOLD, DeadlinePlanner.DEFAULT_CANDIDATES));
+            logger.logLine("Calibrated the throughput of each stage in %,d ms: %s", elapsed, THROUGHPUT_MODEL);
+        }
+
+        return new DeadlinePlanner(THROUGHPUT_MODEL, Duration.ofMillis(context.getRemainingTimeInMillis()),
+                POST_SORT_MARGIN);
+    }
+
+    @NotNull
+    private static SatelliteProcessor createSatelliteProcessor(boolean launchEmrCluster, boolean streaming,
+            @NotNull Logger logger, @NotNull Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier,
+            @NotNull S3SatelliteSessionConfig sessionConfig) {
+        return new SatelliteProcessor(launchEmrCluster, streaming, logger, configurationSupplier,
+                sessionConfig.getSatelliteName(), EMR_REGION, sessionConfig.getLogFolderId(),
+                sessionConfig.getSparkJobConfigId(), sessionConfig.getSparkJobJarId(), SPARK_JOB_CLASS,
+                sessionConfig.getSparkJobJarArgs());
+    }
+
     private static String createUnableToGetMessage(@NotNull Class<?> classObject) {
         return String.format("Unable to get %s", classObject.getSimpleName());
     }
 
     private Pair<Long, Optional<SparkJobConfiguration>> processS3Entity(boolean launchEmrCluster,
-            @NotNull String bucket, @NotNull String key, @NotNull Logger logger) throws IOException {
+            @NotNull String bucket, @NotNull String key, @Nullable Context context, @NotNull Logger logger)
+            throws IOException {
         // Download the content
         logger.logLine("Downloading S3 object located in bucket \"%s\" and that has key \"%s\"...", bucket, key);
 
@@ -241,12 +404,11 @@ public class App implements RequestHandler<S3Event, String> {
         // Convert JSON to Java object
         SatelliteConfiguration configuration = ObjectMapperSingleton.getObjectMapper()
                 .readValue(content, SatelliteConfiguration.class);
-        return process(launchEmrCluster, configuration, logger);
-
+        return process(launchEmrCluster, configuration, context, logger).removeFrom2();
     }
 
-    private Pair<Long, Optional<SparkJobConfiguration>> process(boolean launchEmrCluster,
-            @NotNull SatelliteConfiguration configuration, @NotNull Logger logger) {
+    private Triplet<Long, Optional<SparkJobConfiguration>, Long> process(boolean launchEmrCluster,
+            @NotNull SatelliteConfiguration configuration, @Nullable Context context, @NotNull Logger logger) {
 
         S3SatelliteSessionConfig sessionConfig =
                 new S3SatelliteSessionConfig(configuration.getI(), configuration.getJ());
@@ -257,26 +419,195 @@ public class App implements RequestHandler<S3Event, String> {
         int receiverThreshold = (int) Math.pow(n, 2);
         int bufferSize = receiverThreshold * 2;
 
-        logger.logLine("Running simulation: \"{%s}\"\n\tn = {%d}, t = {%d}, bufferSize = {%d}, " +
-                "receiverThreshold = {%d}", sessionConfig.getSatelliteName(), n, t, bufferSize, receiverThreshold);
+        Sorter sorter = Sorters.get(configuration.getAlgorithm());
+        JobType jobType = Utils.requireNonNullElse(configuration.getJobType(), JobType.SORT);
+
+        // The simulation produces one frame after another if the number of frames or the duration is limited
+        boolean streaming = configuration.getFrameCount() != null || configuration.getDurationSeconds() != null;
+
+        // Sort jobs with a pipeline configuration are processed inside the Lambda function instead of on EMR
+        PipelineConfiguration pipelineConfiguration = jobType == JobType.SORT ? configuration.getPipeline() : null;
+        DeadlinePlanner planner = createPlanner(context, pipelineConfiguration != null, logger);
+        pipelineConfiguration = planPipeline(pipelineConfiguration, planner, sorter, receiverThreshold, t, logger);
+        ExecutionMode executionMode = getExecutionMode(configuration, logger);
 
-        // Create the buffer, satellite, processor, and receiver
+        // With backpressure, the SatelliteProcessor requests each whole frame once it has processed the last one, so
+        // the frames cannot be sorted while they are collected. The pipeline has its own queues instead.
+        boolean backpressure = Boolean.TRUE.equals(configuration.getBackpressure());
+
+        if (backpressure && pipelineConfiguration != null) {
+            logger.logLine("Backpressure is not supported by the pipeline. The frames are handed to it as soon as " +
+                    "they have been collected instead.");
+            backpressure = false;
+        }
+
+        // Stats-only and histogram jobs never sort the data, so there is no point in sorting it while it is collected
+        Integer sortChunkLength = jobType == JobType.SORT && !backpressure ? configuration.getSortChunkLength() : null;
+
+        logger.logLine("Running simulation: \"{%s}\"\n\tn = {%d}, t = {%d}, bufferSize = {%d}, " +
+                "receiverThreshold = {%d}, algorithm = {%s}, sortChunkLength = {%s}, jobType = {%s}, " +
+                "frameCount = {%s}, durationSeconds = {%s}, pipeline = {%s}, executionMode = {%s}, seed = {%s}, " +
+                "recording = {%s}, overflowPolicy = {%s}, imageFormat = {%s}, paced = {%s}, backpressure = {%s}",
+                sessionConfig.getSatelliteName(), n, t, bufferSize, receiverThreshold, sorter.getName(),
+                sortChunkLength, jobType, configuration.getFrameCount(), configuration.getDurationSeconds(),
+                pipelineConfiguration, executionMode, configuration.getSeed(), configuration.getRecording(),
+                configuration.getOverflowPolicy(), configuration.getImageFormat(), configuration.getPaced(),
+                backpressure);
+
+        // Stop sorting while the data is collected early enough to hand the data to the EMR cluster unsorted
+        // instead, before the Lambda function times out
+        Duration sortBudget = context == null ? null :
+                Duration.ofMillis(context.getRemainingTimeInMillis()).minus(POST_SORT_MARGIN);
+        SortControl sortControl = new SortControl(sortBudget, null);
+        ExecutorService sortExecutor = sortChunkLength == null ? null : sharedSortExecutor != null ?
+                sharedSortExecutor : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        Supplier<IncrementalSortInt> incrementalSorts = sortExecutor == null ? null :
+                () -> new IncrementalSortInt(sortChunkLength, sorter, t, sortExecutor, sortControl);
+
+        // Create the buffer, satellite, processor, and receiver. The pipeline plans each frame again as it arrives,
+        // and hands the frames that would not be finished before the deadline to the SatelliteProcessor.
+        Function<IntArrayWrapper, SparkJobConfiguration> configurationSupplier =
+                createConfigurationSupplier(configuration, sessionConfig.getSatelliteName(), t, jobType, streaming);
         IntBuffer buffer = new IntBuffer(bufferSize);
-        Satellite satellite = new Satellite(buffer);
-        SatelliteProcessor processor = new SatelliteProcessor(launchEmrCluster,
-                array -> new SparkJobConfiguration(sessionConfig.getSatelliteName(), t, array),
-                sessionConfig.getSatelliteName(), EMR_REGION, sessionConfig.getLogFolderId(),
-                sessionConfig.getSparkJobConfigId(), sessionConfig.getSparkJobJarId(), SPARK_JOB_CLASS,
-                sessionConfig.getSparkJobJarArgs());
-        Receiver receiver = new Receiver(buffer, processor, receiverThreshold);
+        FrameSource satellite = createFrameSource(configuration, buffer, receiverThreshold);
+        SatelliteProcessor satelliteProcessor = createSatelliteProcessor(launchEmrCluster, streaming, logger,
+                configurationSupplier, sessionConfig);
+        FramePipeline pipeline = pipelineConfiguration == null ? null : new FramePipeline(configurationSupplier,
+                pipelineConfiguration, executionMode, planner, satelliteProcessor, logger);
+        Processor<IntArrayWrapper, SparkJobConfiguration> processor = pipeline != null ? pipeline : satelliteProcessor;
+        Runnable processorTask = pipeline != null ? pipeline : satelliteProcessor;
+
+        // A stream stops starting new frames when its duration or the time left to the Lambda function runs out
+        int frameLimit = !streaming ? 1 : Utils.requireNonNullElse(configuration.getFrameCount(), Integer.MAX_VALUE);
+        Duration durationLimit = !streaming ? null : getDurationLimit(configuration, sortBudget);
+
+        // The FramePublisher publishes the frames from the thread that would otherwise run the Receiver. A stream
+        // without backpressure reuses the same few processor threads for all of its frames.
+        FramePublisher publisher = !backpressure ? null :
+                new FramePublisher(buffer, receiverThreshold, frameLimit, durationLimit, Runnable::run);
+        ExecutorService processorExecutor = !streaming || backpressure ? null :
+                Executors.newFixedThreadPool(STREAM_PROCESSOR_THREADS, executionMode.newThreadFactory("Processor"));
+        Receiver receiver = backpressure ? null : processorExecutor != null ?
+                new Receiver(buffer, processor, receiverThreshold, incrementalSorts, frameLimit, durationLimit,
+                        processorExecutor, STREAM_PROCESSOR_THREADS + STREAM_QUEUE_CAPACITY, logger) :
+                new Receiver(buffer, processor, receiverThreshold,
+                        incrementalSorts == null ? null : incrementalSorts.get(), executionMode, logger);
+        Runnable receiverTask = publisher != null ? () -> publisher.subscribe(satelliteProcessor) : receiver;
+
+        long elapsedMilliseconds;
+
+        try {
+            elapsedMilliseconds = runThreads(executionMode, satellite, processorTask, receiverTask);
+        } finally {
+            if (sortExecutor != null && sortExecutor != sharedSortExecutor) {
+                sortExecutor.shutdownNow();
+            }
+
+            if (processorExecutor != null) {
+                processorExecutor.shutdownNow();
+            }
+        }
+
+        if (publisher != null) {
+            logger.logLine("Frames published: %,d", publisher.getPublishedCount());
+        } else if (streaming) {
+            logger.logLine("Stream finished: %s", receiver.getThroughput());
+        }
 
-        // Create the threads
-        Thread satelliteThread = new Thread(satellite, "Satellite");
-        Thread processorThread = new Thread(processor, "Processor");
-        Thread receiverThread = new Thread(receiver, "Receiver");
+        logger.logLine("Satellite writer: %s", satellite.getWriter());
+
+        if (pipeline != null) {
+            logger.logLine(pipeline.getReport());
+        }
+
+        long frames = publisher != null ? publisher.getPublishedCount() : receiver.getThroughput().getFrames();
+        return new Triplet<Long, Optional<SparkJobConfiguration>, Long>(elapsedMilliseconds, processor.getResult(),
+                frames);
+    }
+
+    /**
+     * Estimates the cost of each stage from N and T before the run, and drops the pipeline configuration so that the
+     * frames are handed to an EMR cluster from the start if not even a downscaled image would be finished before the
+     * Lambda function times out.
+     */
+    @Nullable
+    private static PipelineConfiguration planPipeline(@Nullable PipelineConfiguration pipelineConfiguration,
+            @NotNull DeadlinePlanner planner, @NotNull Sorter sorter, int receiverThreshold, int threshold,
+            @NotNull Logger logger) {
+        if (pipelineConfiguration == null) {
+            return null;
+        }
+
+        DeadlinePlanner.Plan plan = planner.planRun(sorter.getName(), receiverThreshold, threshold);
+        logger.logLine("Planned the run: %s", plan);
+
+        if (plan.isHandOff()) {
+            logger.logLine("The frames would not be processed before the deadline. Handing them to an EMR cluster " +
+                    "instead.");
+            return null;
+        }
+
+        return pipelineConfiguration;
+    }
+
+    @NotNull
+    private static ExecutionMode getExecutionMode(@NotNull SatelliteConfiguration configuration,
+            @NotNull Logger logger) {
+        // Virtual threads need Java 21 or later, so fall back to platform threads on an older runtime
+        ExecutionMode requestedMode = Utils.requireNonNullElse(configuration.getExecutionMode(),
+                ExecutionMode.PLATFORM);
+        ExecutionMode executionMode = requestedMode.orPlatform();
+
+        if (executionMode != requestedMode) {
+            logger.logLine("%s threads are not supported by Java %s. Using %s threads instead.", requestedMode,
+                    System.getProperty("java.version"), executionMode);
+        }
+
+        return executionMode;
+    }
+
+    @NotNull
+    private static Function<IntArrayWrapper, SparkJobConfiguration> createConfigurationSupplier(
+            @NotNull SatelliteConfiguration configuration, @NotNull String satelliteName, int threshold,
+            @NotNull JobType jobType, boolean streaming) {
+        // If the data was sorted while it was being collected, the EMR cluster only has to merge the sorted data.
+        // Each frame of a stream is named after the session and its position in the stream.
+        AtomicInteger frameIndex = new AtomicInteger();
+        return frame -> {
+            String sparkJobAlgorithm = frame.isSorted() ? Sorters.PRESORTED : configuration.getAlgorithm();
+            String name = !streaming ? satelliteName :
+                    String.format("%s_frame=%d", satelliteName, frameIndex.getAndIncrement());
+            return SparkJobConfiguration.builder(name, threshold)
+                    .algorithm(sparkJobAlgorithm)
+                    .jobType(jobType)
+                    .imageFormat(configuration.getImageFormat())
+                    .data(frame.getArray())
+                    .build();
+        };
+    }
+
+    @Nullable
+    private static Duration getDurationLimit(@NotNull SatelliteConfiguration configuration,
+            @Nullable Duration sortBudget) {
+        Duration durationLimit = configuration.getDurationSeconds() == null ? sortBudget :
+                Duration.ofSeconds(configuration.getDurationSeconds());
+
+        if (sortBudget != null && durationLimit.compareTo(sortBudget) > 0) {
+            durationLimit = sortBudget;
+        }
+
+        return durationLimit;
+    }
+
+    private static long runThreads(@NotNull ExecutionMode executionMode, @NotNull FrameSource satellite,
+            @NotNull Runnable processorTask, @NotNull Runnable receiverTask) {
+        // Create the threads. The sorts stay on the sort executor and the ForkJoinPool whatever the execution mode.
+        Thread satelliteThread = executionMode.newThread(satellite, "Satellite");
+        Thread processorThread = executionMode.newThread(processorTask, "Processor");
+        Thread receiverThread = executionMode.newThread(receiverTask, "Receiver");
 
         // Run the threads inside a timed block.
-        long elapsedMilliseconds = Utils.timeMillis(() -> {
+        return Utils.timeMillis(() -> {
             // Start the threads.
             satelliteThread.start();
             processorThread.start();
@@ -293,8 +624,14 @@ public class App implements RequestHandler<S3Event, String> {
             satelliteThread.interrupt();
             receiverThread.interrupt();
         });
+    }
 
-        return new Pair<Long, Optional<SparkJobConfiguration>>(elapsedMilliseconds, processor.getResult());
+    /**
+     * Holds the {@link HashedTimerWheel} that paces the satellites of the simulations in paced mode. It is only created
+     * once a simulation asks for paced mode, and its single thread is shared by all the simulations in the JVM.
+     */
+    private static class PacingWheelHolder {
+        private static final HashedTimerWheel WHEEL = new HashedTimerWheel();
     }
 
     @Value
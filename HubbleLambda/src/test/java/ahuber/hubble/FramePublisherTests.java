@@ -0,0 +1,258 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.IntBuffer;
+import ahuber.hubble.utils.Flow;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+public class FramePublisherTests {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Test
+    public void testPublishFrames() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            IntBuffer buffer = new IntBuffer(16);
+            FramePublisher publisher = new FramePublisher(buffer, 4, 3, null, executor);
+            RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+            publisher.subscribe(subscriber);
+
+            // IntBuffer.take() always leaves one value behind, so one more value than the three frames is needed
+            buffer.addAll(IntStream.range(0, 13).toArray());
+            Assert.assertTrue(subscriber.terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            Assert.assertTrue(subscriber.completed);
+            Assert.assertNull(subscriber.error);
+            List<int[]> items = subscriber.drain();
+            Assert.assertEquals(3, items.size());
+
+            for (int frame = 0; frame < items.size(); frame++) {
+                Assert.assertArrayEquals(IntStream.range(frame * 4, frame * 4 + 4).toArray(), items.get(frame));
+            }
+
+            Assert.assertEquals(3, publisher.getPublishedCount());
+            Assert.assertEquals(1, buffer.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPublishChunks() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            IntBuffer buffer = new IntBuffer(16);
+            FramePublisher publisher = new FramePublisher(buffer, 4, 3, 2, null, executor);
+            RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+            publisher.subscribe(subscriber);
+            buffer.addAll(IntStream.range(0, 9).toArray());
+            Assert.assertTrue(subscriber.terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            // A chunk never holds values of two frames, so the last chunk of each frame is shorter
+            Assert.assertTrue(subscriber.completed);
+            List<int[]> items = subscriber.drain();
+            Assert.assertArrayEquals(new int[] {0, 1, 2}, items.get(0));
+            Assert.assertArrayEquals(new int[] {3}, items.get(1));
+            Assert.assertArrayEquals(new int[] {4, 5, 6}, items.get(2));
+            Assert.assertArrayEquals(new int[] {7}, items.get(3));
+            Assert.assertEquals(4, items.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDemand() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            IntBuffer buffer = new IntBuffer(16);
+            FramePublisher publisher = new FramePublisher(buffer, 4, 3, null, executor);
+            RecordingSubscriber subscriber = new RecordingSubscriber(1);
+            publisher.subscribe(subscriber);
+            buffer.addAll(IntStream.range(0, 13).toArray());
+
+            // Only the frame that was requested is taken out of the buffer, however much data is waiting
+            Assert.assertNotNull(subscriber.items.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assert.assertNull(subscriber.items.poll(100, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(1, publisher.getPublishedCount());
+            Assert.assertEquals(9, buffer.size());
+
+            Flow.Subscription subscription = subscriber.subscription;
+            Assert.assertNotNull(subscription);
+            subscription.request(2);
+            Assert.assertTrue(subscriber.terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assert.assertTrue(subscriber.completed);
+            Assert.assertEquals(2, subscriber.drain().size());
+            Assert.assertEquals(3, publisher.getPublishedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            IntBuffer buffer = new IntBuffer(16);
+            FramePublisher publisher = new FramePublisher(buffer, 4, 3, null, executor);
+            RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+            publisher.subscribe(subscriber);
+            Assert.assertTrue(subscriber.subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            Flow.Subscription subscription = subscriber.subscription;
+            Assert.assertNotNull(subscription);
+            subscription.cancel();
+            buffer.addAll(IntStream.range(0, 13).toArray());
+
+            // A cancelled subscription receives no more signals, and the values stay in the buffer
+            Assert.assertNull(subscriber.items.poll(100, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(1, subscriber.terminated.getCount());
+            Assert.assertEquals(13, buffer.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInterrupted() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        IntBuffer buffer = new IntBuffer(16);
+        FramePublisher publisher = new FramePublisher(buffer, 4, 3, null, executor);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        Assert.assertTrue(subscriber.subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // The stream fails rather than ending without a signal if the task is interrupted while it waits for data
+        executor.shutdownNow();
+        Assert.assertTrue(subscriber.terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertFalse(subscriber.completed);
+        Assert.assertTrue(subscriber.error instanceof InterruptedException);
+    }
+
+    @Test
+    public void testInvalidRequest() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            FramePublisher publisher = new FramePublisher(new IntBuffer(16), 4, 3, null, executor);
+            RecordingSubscriber subscriber = new RecordingSubscriber(0);
+            publisher.subscribe(subscriber);
+            Assert.assertTrue(subscriber.subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            Flow.Subscription subscription = subscriber.subscription;
+            Assert.assertNotNull(subscription);
+            subscription.request(0);
+            Assert.assertTrue(subscriber.terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSecondSubscriber() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            FramePublisher publisher = new FramePublisher(new IntBuffer(16), 4, 3, null, executor);
+            publisher.subscribe(new RecordingSubscriber(Long.MAX_VALUE));
+
+            // The values are taken out of the buffer as they are published, so they cannot go to a second subscriber
+            RecordingSubscriber second = new RecordingSubscriber(Long.MAX_VALUE);
+            publisher.subscribe(second);
+            Assert.assertTrue(second.terminated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assert.assertEquals(0, second.subscribed.getCount());
+            Assert.assertTrue(second.error instanceof IllegalStateException);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        IntBuffer buffer = new IntBuffer(16);
+
+        try {
+            new FramePublisher(buffer, 0, 1, null, Runnable::run);
+            Assert.fail("The frame length cannot be less than 1.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        try {
+            new FramePublisher(buffer, 4, 5, 1, null, Runnable::run);
+            Assert.fail("A chunk cannot be longer than a frame.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        try {
+            new FramePublisher(buffer, 4, 0, null, Runnable::run);
+            Assert.fail("The frame limit cannot be less than 1.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<int[]> {
+        private final long initialRequest;
+        private final BlockingQueue<int[]> items = new LinkedBlockingQueue<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        @Nullable private volatile Flow.Subscription subscription;
+        @Nullable private volatile Throwable error;
+        private volatile boolean completed;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscribed.countDown();
+
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(int[] item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+
+        private List<int[]> drain() {
+            List<int[]> drained = new ArrayList<>();
+            items.drainTo(drained);
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package ahuber.hubble;
+
+import ahuber.hubble.adt.IntArrayWrapper;
+import ahuber.hubble.adt.IntBuffer;
+import ahuber.hubble.utils.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class ReceiverTests {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Test
+    public void testInFlightCap() throws Exception {
+        ExecutorService processorExecutor = Executors.newFixedThreadPool(4);
+        ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+
+        try {
+            BlockingProcessor processor = new BlockingProcessor();
+            Receiver receiver = new Receiver(new IntBuffer(16), processor, 4, null, 5, null, processorExecutor, 2,
+                    new RecordingLogger());
+
+            Future<List<CompletableFuture<Void>>> dispatched = dispatcher.submit(() -> {
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+                for (int frame = 0; frame < 5; frame++) {
+                    futures.add(receiver.dispatch(new IntArrayWrapper(new int[] {frame})));
+                }
+
+                return futures;
+            });
+
+            // The executor has threads to spare, but the third frame is not handed over until one of the first two
+            // has been processed
+            Assert.assertTrue(processor.entered.tryAcquire(2, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assert.assertFalse(processor.entered.tryAcquire(100, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(2, receiver.getInFlight());
+            Assert.assertFalse(dispatched.isDone());
+
+            processor.release.countDown();
+            List<CompletableFuture<Void>> futures = dispatched.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Assert.assertEquals(5, futures.size());
+
+            for (CompletableFuture<Void> future : futures) {
+                future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+
+            Assert.assertEquals(5, processor.received.get());
+            Assert.assertTrue(processor.peak.get() <= 2);
+            Assert.assertEquals(0, receiver.getInFlight());
+        } finally {
+            shutdownNow(dispatcher, processorExecutor);
+        }
+    }
+
+    @Test
+    public void testFailedFrame() throws InterruptedException, TimeoutException {
+        RecordingLogger logger = new RecordingLogger();
+        Processor<IntArrayWrapper, Void> processor = new Processor<IntArrayWrapper, Void>() {
+            @Override
+            public void onReceived(@NotNull IntArrayWrapper data) {
+                throw new IllegalStateException("Broken frame");
+            }
+
+            @NotNull
+            @Override
+            public Optional<Void> getResult() {
+                return Optional.empty();
+            }
+        };
+        Receiver receiver = new Receiver(new IntBuffer(16), processor, 4, null, 1, null, Runnable::run, 1, logger);
+
+        // A frame that cannot be processed is logged and frees its place, so the stream carries on
+        CompletableFuture<Void> future = receiver.dispatch(new IntArrayWrapper(new int[] {1}));
+
+        try {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Assert.fail("The future should complete with the exception that the processor threw.");
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+
+        Assert.assertEquals(0, receiver.getInFlight());
+        Assert.assertTrue(logger.text().contains("Frame 1 could not be processed."));
+        Assert.assertTrue(logger.text().contains("Broken frame"));
+    }
+
+    @Test
+    public void testStream() throws InterruptedException {
+        ExecutorService processorExecutor = Executors.newFixedThreadPool(2);
+        Thread thread = null;
+
+        try {
+            CountingProcessor processor = new CountingProcessor();
+            IntBuffer buffer = new IntBuffer(16);
+            RecordingLogger logger = new RecordingLogger();
+            Receiver receiver = new Receiver(buffer, processor, 4, null, 3, null, processorExecutor, 2, logger);
+            thread = new Thread(receiver);
+            thread.start();
+
+            // IntBuffer.take() always leaves one value behind, so one more value than the three frames is needed
+            for (int value : IntStream.range(0, 13).toArray()) {
+                buffer.add(value);
+            }
+
+            Assert.assertTrue(processor.completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Assert.assertEquals(3, processor.received.get());
+            Assert.assertEquals(3, receiver.getThroughput().getFrames());
+            Assert.assertTrue(logger.text().contains("Processed frame 3."));
+        } finally {
+            if (thread != null) {
+                thread.interrupt();
+                thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            }
+
+            processorExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        IntBuffer buffer = new IntBuffer(16);
+        CountingProcessor processor = new CountingProcessor();
+
+        try {
+            new Receiver(buffer, processor, 4, null, 1, null, Runnable::run, 0);
+            Assert.fail("The number of frames in flight cannot be less than 1.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        try {
+            new Receiver(buffer, processor, 4, null, 1, null, Runnable::run, 1, null);
+            Assert.fail("The logger cannot be null.");
+        } catch (NullPointerException expected) {
+            // Expected
+        }
+    }
+
+    private static void shutdownNow(ExecutorService... executors) {
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class BlockingProcessor implements Processor<IntArrayWrapper, Void> {
+        private final Semaphore entered = new Semaphore(0);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+        private final AtomicInteger received = new AtomicInteger();
+
+        @Override
+        public void onReceived(@NotNull IntArrayWrapper data) {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            entered.release();
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+                received.incrementAndGet();
+            }
+        }
+
+        @NotNull
+        @Override
+        public Optional<Void> getResult() {
+            return Optional.empty();
+        }
+    }
+
+    private static class CountingProcessor implements Processor<IntArrayWrapper, Void> {
+        private final AtomicInteger received = new AtomicInteger();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onReceived(@NotNull IntArrayWrapper data) {
+            received.incrementAndGet();
+        }
+
+        @Override
+        public void onCompleted() {
+            completed.countDown();
+        }
+
+        @NotNull
+        @Override
+        public Optional<Void> getResult() {
+            return Optional.empty();
+        }
+    }
+
+    private static class RecordingLogger implements Logger {
+        private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void log(String str) {
+            lines.add(str);
+        }
+
+        private String text() {
+            synchronized (lines) {
+                return String.join("", lines);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ahuber.hubble;
+
+import ahuber.hubble.aws.SatelliteConfiguration;
+import ahuber.hubble.utils.ExecutionMode;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SimulationSchedulerTests {
+
+    /**
+     * Room for two simulations where i = 5, each of which needs 16 KiB, but not for three.
+     */
+    private static final long MEMORY_BUDGET = 40 << 10;
+
+    @Test
+    public void testPeakWithinBudget() throws InterruptedException {
+        SatelliteConfiguration small = SatelliteConfiguration.builder(5, 1).build();
+        Assert.assertEquals(16 << 10, SimulationScheduler.estimateFootprint(small));
+        RecordingSimulation simulation = new RecordingSimulation();
+        SimulationScheduler scheduler = new SimulationScheduler(MEMORY_BUDGET,
+                ExecutionMode.PLATFORM.newExecutor("Simulation"), simulation, text -> { });
+
+        List<SimulationReport> reports = scheduler.runAll(Collections.nCopies(8, small));
+
+        Assert.assertEquals(8, reports.size());
+        Assert.assertTrue(reports.stream().allMatch(SimulationReport::isSuccessful));
+        Assert.assertTrue(simulation.peak.get() <= 2);
+        Assert.assertTrue(scheduler.getPeakRunning() <= 2);
+        Assert.assertEquals(8, scheduler.getThroughput().getFrames());
+    }
+
+    @Test
+    public void testOversizeRunsAlone() throws InterruptedException {
+        SatelliteConfiguration small = SatelliteConfiguration.builder(5, 1).build();
+        SatelliteConfiguration large = SatelliteConfiguration.builder(8, 1).build();
+        Assert.assertTrue(SimulationScheduler.estimateFootprint(large) > MEMORY_BUDGET);
+        RecordingSimulation simulation = new RecordingSimulation();
+        SimulationScheduler scheduler = new SimulationScheduler(MEMORY_BUDGET,
+                ExecutionMode.PLATFORM.newExecutor("Simulation"), simulation, text -> { });
+
+        // The last simulation would fit next to the first one, but it is not admitted ahead of the large one
+        List<SimulationReport> reports = scheduler.runAll(Arrays.asList(small, large, small));
+
+        Assert.assertTrue(reports.stream().allMatch(SimulationReport::isSuccessful));
+        Assert.assertEquals(Arrays.asList(5, 8, 5), simulation.started);
+        Assert.assertEquals(1, (int) simulation.runningAtStart.get(1));
+        Assert.assertEquals(1, simulation.peak.get());
+    }
+
+    @Test
+    public void testReportLogged() throws InterruptedException {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        SimulationScheduler scheduler = new SimulationScheduler(MEMORY_BUDGET,
+                ExecutionMode.PLATFORM.newExecutor("Simulation"), configuration -> {
+                    throw new IllegalStateException("Broken simulation");
+                }, lines::add);
+
+        // A simulation that fails is reported and logged rather than thrown
+        List<SimulationReport> reports = scheduler.runAll(Collections.singletonList(
+                SatelliteConfiguration.builder(5, 1).build()));
+
+        Assert.assertFalse(reports.get(0).isSuccessful());
+        Assert.assertEquals(1, lines.size());
+        Assert.assertTrue(lines.get(0).startsWith("Simulation finished: "));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        try {
+            new SimulationScheduler(1023, Runnable::run, configuration -> 1);
+            Assert.fail("The memory budget cannot be less than 1 KiB.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        try {
+            new SimulationScheduler(MEMORY_BUDGET, Runnable::run, configuration -> 1, null);
+            Assert.fail("The logger cannot be null.");
+        } catch (NullPointerException expected) {
+            // Expected
+        }
+    }
+
+    private static class RecordingSimulation implements SimulationScheduler.Simulation {
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger peak = new AtomicInteger();
+        private final List<Integer> started = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> runningAtStart = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public long run(@NotNull SatelliteConfiguration configuration) throws Exception {
+            int now = running.incrementAndGet();
+            peak.accumulateAndGet(now, Math::max);
+
+            synchronized (started) {
+                started.add(configuration.getI());
+                runningAtStart.add(now);
+            }
+
+            try {
+                // Long enough for the simulations that would fit at the same time to overlap
+                Thread.sleep(50);
+                return 1;
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
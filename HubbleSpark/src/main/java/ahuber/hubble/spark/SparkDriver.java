@@ -1,9 +1,15 @@
 package ahuber.hubble.spark;
 
+import ahuber.hubble.aws.JobType;
 import ahuber.hubble.aws.S3Helpers;
 import ahuber.hubble.aws.SparkJobConfiguration;
 import ahuber.hubble.sort.MergeSortInt;
+import ahuber.hubble.sort.Sorters;
+import ahuber.hubble.stats.FrameStatistics;
+import ahuber.hubble.stats.FrameSummary;
+import ahuber.hubble.utils.ImageFormat;
 import ahuber.hubble.utils.SatelliteImageWriter;
+import ahuber.hubble.utils.TilePyramid;
 import com.amazonaws.jmespath.ObjectMapperSingleton;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3URI;
@@ -16,62 +22,149 @@ import org.jetbrains.annotations.NotNull;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 public class SparkDriver {
 
     private static final Regions DEFAULT_REGION = Regions.US_EAST_1;
 
+    /**
+     * Processes one or more frames.
+     * @param args The S3 URIs of the {@link SparkJobConfiguration}s of the frames, e.g., all the frames of a stream,
+     *             optionally followed by the name of the region they are stored in. The frames are processed one
+     *             after another in the same {@link SparkSession}.
+     */
     public static void main(String[] args) {
-        try {
-            // Download the SparkJobConfiguration from S3 at the link provided in args.
-            SparkJobConfiguration jobConfiguration = extractSparkJobConfiguration(args);
+        if (Objects.requireNonNull(args, "'args' cannot be null.").length < 1) {
+            throw new RuntimeException("s3 URI for JSON configuration not specified.");
+        }
 
-            // Start a SparkSession and create a JavaSparkContext
-            SparkSession session = SparkSession.builder()
-                    .appName("Hubble_AWS_EMR")
-                    .getOrCreate();
-            JavaSparkContext context = new JavaSparkContext(session.sparkContext());
+        // Every argument but a trailing region is the URI of the configuration of one frame
+        boolean hasRegion = args.length >= 2 && !args[args.length - 1].startsWith("s3://");
+        Regions region = hasRegion ? Regions.fromName(args[args.length - 1]) : DEFAULT_REGION;
+        List<String> uris = Arrays.asList(args).subList(0, hasRegion ? args.length - 1 : args.length);
 
-            // Sort the data using the Hadoop cluster.
-            int[] sortedData = parallelMergeSort(context, jobConfiguration);
-            session.stop();
+        // Start a SparkSession and create a JavaSparkContext
+        SparkSession session = SparkSession.builder()
+                .appName("Hubble_AWS_EMR")
+                .getOrCreate();
+        JavaSparkContext context = new JavaSparkContext(session.sparkContext());
 
-            // Write the values to an image and upload it.
-            BufferedImage image = SatelliteImageWriter.writeGreyscaleImage(sortedData);
-            S3Helpers.uploadImage(image, Regions.US_EAST_1, "ahuber-satellite-images",
-                    String.format("java/%s.jpg", jobConfiguration.getSatelliteName()));
+        try {
+            for (String uri : uris) {
+                // Download the SparkJobConfiguration from S3 at the link provided in args.
+                process(context, extractSparkJobConfiguration(uri, region));
+            }
         } catch (IOException e) {
             throw new RuntimeException("An I/O error occurred.", e);
+        } finally {
+            session.stop();
         }
     }
 
+    private static void process(@NotNull JavaSparkContext context, @NotNull SparkJobConfiguration jobConfiguration)
+            throws IOException {
+        if (jobConfiguration.getJobType() == JobType.STATS_ONLY) {
+            // Summarize the data using the Hadoop cluster and upload the summary instead of an image.
+            FrameSummary summary = parallelSummarize(context, jobConfiguration);
+            String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(summary);
+            S3Helpers.uploadJson(json, S3Helpers.createStatisticsId(jobConfiguration.getSatelliteName()));
+            return;
+        }
+
+        if (jobConfiguration.getJobType() == JobType.HISTOGRAM) {
+            // Render the image from the counts, which the Lambda function normally sends instead of the data.
+            long[] histogram = jobConfiguration.getHistogram() != null ? jobConfiguration.getHistogram() :
+                    parallelHistogram(context, jobConfiguration);
+            uploadImages(histogram, jobConfiguration);
+            return;
+        }
+
+        // Sort the data using the Hadoop cluster.
+        int[] sortedData = parallelMergeSort(context, jobConfiguration);
+
+        // Upload the tiles of a large image, so that a viewer can zoom into it without downloading all of it.
+        if (sortedData.length >= ImageFormat.TILED_IMAGE_VALUES) {
+            TilePyramid.write(sortedData, S3Helpers.createTileSink(
+                    S3Helpers.createTilePyramidId(jobConfiguration.getSatelliteName())));
+        }
+
+        // Write the values to an image and upload it. A large JPEG image is written as a PNG image instead,
+        // which is streamed to a file, so that neither the image nor its encoded bytes have to fit in memory.
+        ImageFormat imageFormat = jobConfiguration.getImageFormat().forValues(sortedData.length);
+
+        if (imageFormat != ImageFormat.JPEG) {
+            S3Helpers.uploadImage(sortedData, imageFormat,
+                    S3Helpers.createImageId(jobConfiguration.getSatelliteName(), imageFormat));
+            return;
+        }
+
+        BufferedImage image = SatelliteImageWriter.writeGreyscaleImage(sortedData);
+        S3Helpers.uploadImage(image, Regions.US_EAST_1, "ahuber-satellite-images",
+                String.format("java/%s.jpg", jobConfiguration.getSatelliteName()));
+    }
+
     private static int[] parallelMergeSort(@NotNull JavaSparkContext context,
             @NotNull SparkJobConfiguration jobConfiguration) {
         int[] unsortedData = jobConfiguration.getData();
         int threshold = jobConfiguration.getThreshold();
+        String algorithm = jobConfiguration.getAlgorithm();
         int end = unsortedData.length;
         int middle = end / 2;
         int[] leftHalf = Arrays.copyOfRange(unsortedData, 0, middle);
         int[] rightHalf = Arrays.copyOfRange(unsortedData, middle, end);
         JavaRDD<int[]> dataSet = context.parallelize(Arrays.asList(leftHalf, rightHalf), 2);
-        System.out.printf("Threshold is %d, but array length is %d.\n", threshold, unsortedData.length);
+        System.out.printf("Threshold is %d, but array length is %d. Sorting with \"%s\".\n", threshold,
+                unsortedData.length, algorithm);
 
-        // Start map reduce
+        // Start map reduce. The sorter is looked up by name on each executor because it is not serializable.
         return dataSet.map(array -> {
-            MergeSortInt.sort(array, threshold);
+            Sorters.get(algorithm).sort(array, threshold);
             return array;
         }).reduce(MergeSortInt::merge);
     }
 
     @NotNull
-    private static SparkJobConfiguration extractSparkJobConfiguration(String[] args) throws IOException {
-        if (Objects.requireNonNull(args, "'args' cannot be null.").length < 1) {
-            throw new RuntimeException("s3 URI for JSON configuration not specified.");
+    private static FrameSummary parallelSummarize(@NotNull JavaSparkContext context,
+            @NotNull SparkJobConfiguration jobConfiguration) {
+        System.out.printf("Summarizing %d values.\n", jobConfiguration.getData().length);
+        return FrameStatistics.summarize(parallelHistogram(context, jobConfiguration));
+    }
+
+    @NotNull
+    private static long[] parallelHistogram(@NotNull JavaSparkContext context,
+            @NotNull SparkJobConfiguration jobConfiguration) {
+        int[] data = jobConfiguration.getData();
+        int middle = data.length / 2;
+        int[] leftHalf = Arrays.copyOfRange(data, 0, middle);
+        int[] rightHalf = Arrays.copyOfRange(data, middle, data.length);
+        JavaRDD<int[]> dataSet = context.parallelize(Arrays.asList(leftHalf, rightHalf), 2);
+
+        // Histograms add together, so each half is counted on its own executor and only the counts are reduced.
+        return dataSet.map(FrameStatistics::histogram).reduce(FrameStatistics::add);
+    }
+
+    private static void uploadImages(@NotNull long[] histogram, @NotNull SparkJobConfiguration jobConfiguration)
+            throws IOException {
+        String satelliteName = jobConfiguration.getSatelliteName();
+        long values = FrameStatistics.count(histogram);
+        System.out.printf("Rendering %d values from their histogram.\n", values);
+
+        if (values >= ImageFormat.TILED_IMAGE_VALUES) {
+            TilePyramid.write(histogram, S3Helpers.createTileSink(S3Helpers.createTilePyramidId(satelliteName)));
         }
 
-        AmazonS3URI uri = new AmazonS3URI(args[0]);
-        Regions region = args.length >= 2 ? Regions.fromName(args[1]) : DEFAULT_REGION;
+        // Like a sorted frame, a large JPEG image is written as a PNG image instead.
+        ImageFormat imageFormat = jobConfiguration.getImageFormat().forValues(values);
+
+        S3Helpers.uploadImage(histogram, imageFormat, S3Helpers.createImageId(satelliteName, imageFormat));
+    }
+
+    @NotNull
+    private static SparkJobConfiguration extractSparkJobConfiguration(@NotNull String uriString,
+            @NotNull Regions region) throws IOException {
+        AmazonS3URI uri = new AmazonS3URI(uriString);
         S3Object download = S3Helpers.download(region, uri.getBucket(), uri.getKey());
         String json = S3Helpers.readAsString(download);
         SparkJobConfiguration jobConfiguration = ObjectMapperSingleton.getObjectMapper()
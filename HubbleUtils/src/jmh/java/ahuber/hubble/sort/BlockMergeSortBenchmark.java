@@ -0,0 +1,85 @@
+package ahuber.hubble.sort;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cache-aware {@link BlockMergeSortInt} with the two-way {@link MergeSortInt} on large frames of
+ * N<sup>2</sup> random samples in the range [0, 4096], where N = 2<sup><i>i</i></sup>. Besides the time per sort, each
+ * benchmark reports the number of passes it makes over the frame as the {@code passes} counter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class BlockMergeSortBenchmark {
+
+    @Param({"11", "12", "13"})
+    public int i;
+
+    @Param({"4096", "8192", "16384"})
+    public int blockLength;
+
+    @Param({"8", "16"})
+    public int fanIn;
+
+    private int[] frame;
+    private int[] data;
+    private ForkJoinPool pool;
+    private BlockMergeSortInt blockMergeSort;
+
+    /**
+     * Counts the passes over the frame made by each sort.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Passes {
+        public long passes;
+    }
+
+    @Setup(Level.Trial)
+    public void createFrame() {
+        int n = 1 << i;
+        frame = new SplittableRandom(i).ints((long) n * n, 0, 4097).toArray();
+        data = new int[frame.length];
+        pool = new ForkJoinPool();
+        blockMergeSort = new BlockMergeSortInt(blockLength, fanIn);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetData() {
+        System.arraycopy(frame, 0, data, 0, frame.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] blockMergeSortInt(Passes counter) {
+        blockMergeSort.sort(data, pool);
+        counter.passes += blockMergeSort.getPassCount(data.length);
+        return data;
+    }
+
+    @Benchmark
+    public int[] mergeSortInt(Passes counter) {
+        // Using the block length as the threshold makes both sorts start merging from runs of the same length
+        MergeSortInt.sort(data, blockLength, pool);
+        counter.passes += 1 + 32 - Integer.numberOfLeadingZeros((data.length - 1) / blockLength);
+        return data;
+    }
+}
@@ -0,0 +1,73 @@
+package ahuber.hubble.sort;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sorting algorithms on frames of N<sup>2</sup> random samples in the range [0, 4096], where
+ * N = 2<sup><i>i</i></sup>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    @Param({"10", "11", "12", "13"})
+    public int i;
+
+    @Param({"1000"})
+    public int threshold;
+
+    private int[] frame;
+    private int[] data;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void createFrame() {
+        int n = 1 << i;
+        frame = new SplittableRandom(i).ints((long) n * n, 0, 4097).toArray();
+        data = new int[frame.length];
+        pool = new ForkJoinPool();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetData() {
+        System.arraycopy(frame, 0, data, 0, frame.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[] mergeSortInt() {
+        MergeSortInt.sort(data, threshold, pool);
+        return data;
+    }
+
+    @Benchmark
+    public int[] sampleSortInt() {
+        SampleSortInt.sort(data, pool);
+        return data;
+    }
+
+    @Benchmark
+    public int[] arraysParallelSort() {
+        Arrays.parallelSort(data);
+        return data;
+    }
+}
@@ -0,0 +1,64 @@
+package ahuber.hubble.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a greyscale image straight into its {@code byte} array, on one thread and in parallel bands, with
+ * writing it one pixel at a time, on frames of N<sup>2</sup> random samples in the range [0, 4096], where
+ * N = 2<sup><i>i</i></sup>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SatelliteImageWriterBenchmark {
+
+    @Param({"10", "11", "12"})
+    public int i;
+
+    private int[] frame;
+    private ForkJoinPool pool;
+    private ForkJoinPool singleThread;
+
+    @Setup(Level.Trial)
+    public void createFrame() {
+        int n = 1 << i;
+        frame = new SplittableRandom(i).ints((long) n * n, 0, 4097).toArray();
+        pool = new ForkJoinPool();
+        singleThread = new ForkJoinPool(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownPools() {
+        pool.shutdown();
+        singleThread.shutdown();
+    }
+
+    @Benchmark
+    public BufferedImage byPixel() {
+        return SatelliteImageWriter.writeGreyscaleImageByPixel(frame);
+    }
+
+    @Benchmark
+    public BufferedImage directRaster() {
+        return SatelliteImageWriter.writeGreyscaleImage(frame, singleThread);
+    }
+
+    @Benchmark
+    public BufferedImage directRasterInBands() {
+        return SatelliteImageWriter.writeGreyscaleImage(frame, pool);
+    }
+}
@@ -558,6 +558,93 @@ public class AbstractBuffer<T, TBuffer extends AbstractBuffer<T, TBuffer>> imple
 
     // endregion take
 
+    // region runs
+
+    /**
+     * Adds up to {@code count} items to the end of the buffer without going through {@link #add(Object)} for each
+     * item. The free space at the end of the buffer is handed to {@code copier} as at most two contiguous runs of the
+     * underlying {@link ArrayWrapper}, which copies the items into them, e.g., with {@link System#arraycopy}. The
+     * {@link SizeObserver}s are notified once, after all the items were added.
+     *
+     * @param count  The number of items to add.
+     * @param copier The {@link RunCopier} that copies the items into the underlying {@link ArrayWrapper}.
+     * @return The number of items that were added, which is less than {@code count} if the buffer does not have
+     * enough remaining space to accommodate all the items.
+     * @throws NullPointerException If {@code copier} is {@code null}
+     */
+    @SuppressWarnings("WeakerAccess")
+    @WarningSuppressionReason("Making it protected allows child classes to add items in bulk.")
+    protected synchronized int appendRuns(int count, @NotNull RunCopier copier) {
+        Objects.requireNonNull(copier, "'copier' cannot be null.");
+        int length = wrapper.length();
+        int added = Utils.clamp(count, 0, length - size());
+
+        if (added == 0) {
+            return 0;
+        }
+
+        // The first item goes to startIndex if the buffer is empty, or after the current last item otherwise
+        int first = isEmpty() ? startIndex : incrementIndex(endIndex, length);
+        int firstRun = Math.min(added, length - first);
+        copier.copy(0, first, firstRun);
+
+        if (firstRun < added) {
+            copier.copy(firstRun, 0, added - firstRun);
+        }
+
+        endIndex = (first + added - 1) % length;
+        setSize(size() + added);
+        return added;
+    }
+
+    /**
+     * Copies the first {@code n} items of the buffer without going through its {@link #iterator()}. The items are
+     * handed to {@code copier} as at most two contiguous runs of the underlying {@link ArrayWrapper}.
+     *
+     * @param n      The number of items to copy. This value is clamped in the range [0, {@link #size()}]
+     * @param copier The {@link RunCopier} that copies the items out of the underlying {@link ArrayWrapper}.
+     * @return The number of items that were copied.
+     * @throws NullPointerException If {@code copier} is {@code null}
+     */
+    @SuppressWarnings("WeakerAccess")
+    @WarningSuppressionReason("Making it protected allows child classes to copy items in bulk.")
+    protected synchronized int readRuns(int n, @NotNull RunCopier copier) {
+        Objects.requireNonNull(copier, "'copier' cannot be null.");
+        int length = wrapper.length();
+        int copied = Utils.clamp(n, 0, size());
+
+        if (copied == 0) {
+            return 0;
+        }
+
+        int firstRun = Math.min(copied, length - startIndex);
+        copier.copy(0, startIndex, firstRun);
+
+        if (firstRun < copied) {
+            copier.copy(firstRun, 0, copied - firstRun);
+        }
+
+        return copied;
+    }
+
+    /**
+     * Removes the first {@code n} items of the buffer without copying them anywhere, e.g., to make space for newer
+     * items.
+     *
+     * @param n The number of items to remove. This value is clamped in the range [0, {@link #size()}]
+     * @return The number of items that were removed.
+     */
+    @SuppressWarnings("WeakerAccess")
+    @WarningSuppressionReason("Making it protected allows child classes to overwrite the oldest items.")
+    protected synchronized int discardFirst(int n) {
+        int discarded = Utils.clamp(n, 0, size());
+        startIndex = incrementIndex(startIndex, wrapper.length(), discarded);
+        setSize(size() - discarded);
+        return discarded;
+    }
+
+    // endregion runs
+
     /**
      * Clears the buffer of all elements current contained within.
      */
@@ -687,6 +774,23 @@ public class AbstractBuffer<T, TBuffer extends AbstractBuffer<T, TBuffer>> imple
 
     // region Inner classes
 
+    /**
+     * Copies one contiguous run of items between the underlying {@link ArrayWrapper} of a buffer and some other
+     * storage.
+     */
+    @FunctionalInterface
+    protected interface RunCopier {
+
+        /**
+         * Copies one run of items.
+         *
+         * @param offset      The position of the run among all the items that are copied.
+         * @param bufferIndex The index in the underlying {@link ArrayWrapper} at which the run starts.
+         * @param length      The number of items in the run.
+         */
+        void copy(int offset, int bufferIndex, int length);
+    }
+
     private class IndexedIterator implements Iterator<IndexedValue<T>> {
         @NotNull
         private final Object[] array;
@@ -156,6 +156,25 @@ public final class ArrayUtils {
         }
     }
 
+    /**
+     * Determines whether the provided array is sorted in ascending order.
+     *
+     * @param array The array.
+     * @return {@code true} if every element of {@code array} is less than or equal to the element that follows it.
+     * @throws NullPointerException If {@code array} is {@code null}
+     */
+    public static boolean isSorted(@NotNull int[] array) {
+        Objects.requireNonNull(array, "The array cannot be null");
+
+        for (int i = 1; i < array.length; i++) {
+            if (array[i - 1] > array[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Returns a reversed sequential ordered {@link IntStream} from {@code endExclusive} (exclusive) to
      * {@code startInclusive } (inclusive) by an incremental step of 1.
@@ -0,0 +1,396 @@
+package ahuber.hubble.adt;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A ring of {@code int} values that one producer, such as a satellite, publishes to and that any number of consumers
+ * read in full, e.g., the sorter, a monitor of live statistics, and an archiver. Unlike {@link IntBuffer#take(int)},
+ * reading does not remove the values for everyone: each consumer has its own {@link Cursor}, i.e., the sequence
+ * number of the next value it reads, and a value is only overwritten once every consumer has read it. The producer is
+ * therefore held up by the slowest consumer, and never by more than the capacity of the ring.
+ * <p>
+ * Values are numbered from zero in the order in which they are published, and the value with sequence number
+ * <i>s</i> is stored at index <i>s</i> mod capacity. A consumer reads a batch of values either by
+ * {@linkplain Cursor#drain(int[], int, int) draining} them into its own array, which is the only copy that is made, or
+ * by {@linkplain Cursor#read(int, RunReader) reading} them in place. Neither the producer nor the consumers take a
+ * lock unless they have to wait.
+ * <p>
+ * A {@link BroadcastRing} is meant to be published to by one producer at a time, and each {@link Cursor} is meant to
+ * be used by one consumer at a time. A ring without any consumers discards the values that are published to it.
+ */
+public class BroadcastRing {
+    @NotNull private final int[] array;
+    @NotNull private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+    @NotNull private final Object lock = new Object();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private volatile long published;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new {@link BroadcastRing}
+     * @param capacity The number of values that may be published but not yet read by every consumer.
+     * @throws IllegalArgumentException If {@code capacity} is less than one.
+     */
+    public BroadcastRing(int capacity) {
+        if (capacity < 1) {
+            String message = String.format("The capacity cannot be less than one. (capacity: %d)", capacity);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.array = new int[capacity];
+    }
+
+    /**
+     * Gets the number of values that may be published but not yet read by every consumer.
+     * @return The capacity.
+     */
+    public int capacity() {
+        return array.length;
+    }
+
+    /**
+     * Gets the number of values that have been published, which is also the sequence number of the next one.
+     * @return The number of values.
+     */
+    public long getPublishedCount() {
+        return published;
+    }
+
+    /**
+     * Gets the number of consumers that are registered.
+     * @return The number of consumers.
+     */
+    public int getConsumerCount() {
+        return cursors.size();
+    }
+
+    /**
+     * Gets the time that {@link #publish(int[], int, int)} has spent waiting for the slowest consumer.
+     * @return The time in nanoseconds.
+     */
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    /**
+     * Determines whether the producer has {@linkplain #close() closed} this ring.
+     * @return {@code true} if no more values are published.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Registers a new consumer, which reads every value that is published from now on.
+     * @param name The name of the consumer, which identifies it in {@link Cursor#toString()}
+     * @return The {@link Cursor} of the consumer, which should be {@linkplain Cursor#close() closed} once the consumer
+     * stops reading so that it no longer holds up the producer.
+     * @throws NullPointerException If {@code name} is {@code null}
+     */
+    @NotNull
+    public Cursor register(@NotNull String name) {
+        Objects.requireNonNull(name, "'name' cannot be null.");
+
+        // Until the cursor is in the list, the producer does not wait for it and may run any distance ahead, so the
+        // cursor only starts at the sequence number that is read once the producer is bound to see it. In between, it
+        // holds the producer back to the sequence number it was created with.
+        Cursor cursor = new Cursor(name, published);
+        cursors.add(cursor);
+        cursor.sequence = published;
+        signal();
+        return cursor;
+    }
+
+    /**
+     * Publishes as many values of a chunk as every consumer has space for, without waiting.
+     * @param chunk The array that contains the values.
+     * @param offset The index in {@code chunk} of the first value to publish.
+     * @param length The number of values to publish.
+     * @return The number of values that were published, which is less than {@code length} if the slowest consumer is
+     * less than {@code length} values away from reading all of them.
+     * @throws NullPointerException If {@code chunk} is {@code null}
+     * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is negative, or if {@code offset +
+     * length} is greater than the length of {@code chunk}.
+     * @throws IllegalStateException If this ring is closed.
+     */
+    public int offer(@NotNull int[] chunk, int offset, int length) {
+        Objects.requireNonNull(chunk, "'chunk' cannot be null.");
+        IntBuffer.checkRange(chunk, offset, length);
+
+        if (closed) {
+            throw new IllegalStateException("No more values can be published to a closed ring.");
+        }
+
+        long sequence = published;
+        int count = (int) Math.min(length, array.length - (sequence - getMinimumSequence(sequence)));
+
+        if (count <= 0) {
+            return 0;
+        }
+
+        // Copy the values in at most two runs, then publish them all at once
+        int index = (int) (sequence % array.length);
+        int firstRun = Math.min(count, array.length - index);
+        System.arraycopy(chunk, offset, array, index, firstRun);
+        System.arraycopy(chunk, offset + firstRun, array, 0, count - firstRun);
+        published = sequence + count;
+        signal();
+        return count;
+    }
+
+    /**
+     * Publishes all the values of a chunk, waiting for the slowest consumer whenever the ring is full.
+     * @param chunk The array that contains the values.
+     * @param offset The index in {@code chunk} of the first value to publish.
+     * @param length The number of values to publish.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     * @throws NullPointerException If {@code chunk} is {@code null}
+     * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is negative, or if {@code offset +
+     * length} is greater than the length of {@code chunk}.
+     * @throws IllegalStateException If this ring is closed.
+     */
+    public void publish(@NotNull int[] chunk, int offset, int length) throws InterruptedException {
+        int written = 0;
+
+        while (written < length) {
+            int done = offer(chunk, offset + written, length - written);
+            written += done;
+
+            if (done == 0) {
+                long start = System.nanoTime();
+
+                try {
+                    await(() -> published - getMinimumSequence(published) < array.length);
+                } finally {
+                    blockedNanos.addAndGet(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the end of the stream. The consumers still read the values that were published before, after which
+     * {@link Cursor#isDrained()} returns {@code true}
+     */
+    public void close() {
+        closed = true;
+        signal();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d values published to %d consumers, blocked for %,d ms", published, cursors.size(),
+                blockedNanos.get() / 1_000_000);
+    }
+
+    private long getMinimumSequence(long fallback) {
+        long minimum = fallback;
+
+        for (Cursor cursor : cursors) {
+            minimum = Math.min(minimum, cursor.sequence);
+        }
+
+        return minimum;
+    }
+
+    private void await(@NotNull Condition condition) throws InterruptedException {
+        // Announce the wait before checking the condition again, so that a change made in the meantime either is seen
+        // by the check or sees the announcement and signals
+        waiting.incrementAndGet();
+
+        try {
+            synchronized (lock) {
+                while (!condition.isMet()) {
+                    lock.wait();
+                }
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void signal() {
+        if (waiting.get() > 0) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Reads one contiguous run of values in place.
+     */
+    @FunctionalInterface
+    public interface RunReader {
+
+        /**
+         * Reads one run of values. The values must not be modified, and must be copied if they are used after this
+         * method returns, since the producer may then overwrite them.
+         * @param array The array of the ring.
+         * @param offset The index in {@code array} of the first value of the run.
+         * @param length The number of values in the run.
+         */
+        void read(@NotNull int[] array, int offset, int length);
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * The position of one consumer in a {@link BroadcastRing}
+     */
+    public final class Cursor implements AutoCloseable {
+        @NotNull private final String name;
+        private volatile long sequence;
+        private volatile boolean registered = true;
+
+        private Cursor(@NotNull String name, long sequence) {
+            this.name = name;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Gets the name of the consumer.
+         * @return The name.
+         */
+        @NotNull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the sequence number of the next value that this consumer reads, which is also the number of values
+         * published before it that it has read or that were published before it was registered.
+         * @return The sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Gets the number of values that have been published but not yet read by this consumer.
+         * @return The number of values, which is at most the capacity of the ring.
+         */
+        public int available() {
+            return (int) (published - sequence);
+        }
+
+        /**
+         * Determines whether this consumer has read every value that will ever be published.
+         * @return {@code true} if the ring is closed and this consumer has read all of its values.
+         */
+        public boolean isDrained() {
+            // Read 'closed' first, since the last values are published before the ring is closed
+            return closed && available() == 0;
+        }
+
+        /**
+         * Waits until at least {@code n} values are available to this consumer, or until the ring is closed.
+         * @param n The number of values to wait for. This value is clamped in the range [0, capacity]
+         * @return The number of values that are available, which is less than {@code n} only if the ring is closed.
+         * @throws InterruptedException If the current thread is interrupted while waiting.
+         * @throws IllegalStateException If this cursor is closed.
+         */
+        public int await(int n) throws InterruptedException {
+            if (!registered) {
+                throw new IllegalStateException(String.format("The consumer '%s' has been closed.", name));
+            }
+
+            int required = Math.max(0, Math.min(n, array.length));
+            BroadcastRing.this.await(() -> closed || available() >= required);
+            return available();
+        }
+
+        /**
+         * Copies up to {@code length} of the available values into an array and moves past them, without waiting.
+         * @param destination The array to copy the values into.
+         * @param offset The index in {@code destination} at which the first value is copied.
+         * @param length The largest number of values to copy.
+         * @return The number of values that were copied.
+         * @throws NullPointerException If {@code destination} is {@code null}
+         * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is negative, or if {@code offset +
+         * length} is greater than the length of {@code destination}.
+         * @throws IllegalStateException If this cursor is closed.
+         */
+        public int drain(@NotNull int[] destination, int offset, int length) {
+            Objects.requireNonNull(destination, "'destination' cannot be null.");
+            IntBuffer.checkRange(destination, offset, length);
+            return advance(length, (runOffset, index, runLength) ->
+                    System.arraycopy(array, index, destination, offset + runOffset, runLength));
+        }
+
+        /**
+         * Hands up to {@code n} of the available values to a {@link RunReader} in place, as at most two contiguous
+         * runs of the array of the ring, and then moves past them, without waiting.
+         * @param n The largest number of values to read.
+         * @param reader The {@link RunReader} that reads the values.
+         * @return The number of values that were read.
+         * @throws NullPointerException If {@code reader} is {@code null}
+         * @throws IllegalStateException If this cursor is closed.
+         */
+        public int read(int n, @NotNull RunReader reader) {
+            Objects.requireNonNull(reader, "'reader' cannot be null.");
+            return advance(n, (runOffset, index, runLength) -> reader.read(array, index, runLength));
+        }
+
+        /**
+         * Moves past up to {@code n} of the available values without reading them.
+         * @param n The largest number of values to skip.
+         * @return The number of values that were skipped.
+         * @throws IllegalStateException If this cursor is closed.
+         */
+        public int skip(int n) {
+            return advance(n, (runOffset, index, runLength) -> { });
+        }
+
+        /**
+         * Unregisters this consumer, so that it no longer holds up the producer. A closed cursor cannot be read from.
+         */
+        @Override
+        public void close() {
+            registered = false;
+            cursors.remove(this);
+            signal();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %,d values read, %,d behind", name, sequence, available());
+        }
+
+        private int advance(int n, @NotNull AbstractBuffer.RunCopier copier) {
+            if (!registered) {
+                throw new IllegalStateException(String.format("The consumer '%s' has been closed.", name));
+            }
+
+            long start = sequence;
+            int count = Math.max(0, Math.min(n, (int) (published - start)));
+
+            if (count == 0) {
+                return 0;
+            }
+
+            int index = (int) (start % array.length);
+            int firstRun = Math.min(count, array.length - index);
+            copier.copy(0, index, firstRun);
+
+            if (firstRun < count) {
+                copier.copy(firstRun, 0, count - firstRun);
+            }
+
+            // Only now may the producer overwrite the values
+            sequence = start + count;
+            signal();
+            return count;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package ahuber.hubble.adt;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the values of a producer, such as a satellite, to an {@link IntBuffer}, and deals with the values that do not
+ * fit according to an {@link OverflowPolicy}. Besides the policy itself, the writer counts the values that were
+ * written, the values that were lost, and the time spent waiting for space, so that the cost of each policy can be
+ * measured.
+ * <p>
+ * A {@link BufferWriter} is meant to be used by one producer at a time.
+ */
+public class BufferWriter implements SizeObserver<IntBuffer> {
+    @NotNull private final IntBuffer buffer;
+    @NotNull private final OverflowPolicy policy;
+    @NotNull private final SplittableRandom random;
+    @NotNull private final Semaphore semaphore = new Semaphore(1);
+    @NotNull private final int[] single = new int[1];
+    @NotNull private int[] sample = new int[0];
+    private int sampleRate = 1;
+    private int sampledSize;
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    /**
+     * Creates a new {@link BufferWriter} that waits for space in the buffer, i.e., with {@link OverflowPolicy#BLOCK}
+     * @param buffer The {@link IntBuffer} to write to.
+     * @throws NullPointerException If {@code buffer} is {@code null}
+     */
+    public BufferWriter(@NotNull IntBuffer buffer) {
+        this(buffer, OverflowPolicy.BLOCK, null);
+    }
+
+    /**
+     * Creates a new {@link BufferWriter}
+     * @param buffer The {@link IntBuffer} to write to.
+     * @param policy The {@link OverflowPolicy} that deals with values that do not fit.
+     * @param seed The seed of the random choices of {@link OverflowPolicy#SAMPLE}, or {@code null} to make different
+     *             choices on every run.
+     * @throws NullPointerException If {@code buffer} or {@code policy} is {@code null}
+     */
+    public BufferWriter(@NotNull IntBuffer buffer, @NotNull OverflowPolicy policy, @Nullable Long seed) {
+        this.buffer = Objects.requireNonNull(buffer, "'buffer' cannot be null.");
+        this.policy = Objects.requireNonNull(policy, "'policy' cannot be null.");
+        this.random = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+
+        // Register this as an observer of the buffer so that a blocked writer is woken up when space becomes available
+        this.buffer.registerObserver(this);
+    }
+
+    /**
+     * Gets the {@link IntBuffer} that this writer writes to.
+     * @return The {@link IntBuffer}
+     */
+    @NotNull
+    public IntBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Gets the {@link OverflowPolicy} of this writer.
+     * @return The {@link OverflowPolicy}
+     */
+    @NotNull
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Gets the number of values that have been handed to this writer, whether they were added to the buffer or not.
+     * @return The number of values.
+     */
+    public long getOfferedCount() {
+        return offered.get();
+    }
+
+    /**
+     * Gets the number of values that were lost, i.e., values that were discarded before they were added to the buffer
+     * and values in the buffer that were overwritten.
+     * @return The number of values.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the share of the values handed to this writer that were lost.
+     * @return The share in the range [0, 1]
+     */
+    public double getDroppedFraction() {
+        long count = offered.get();
+        return count == 0 ? 0 : (double) dropped.get() / count;
+    }
+
+    /**
+     * Gets the time that {@link #write(int[], int, int)} has spent waiting for space in the buffer.
+     * @return The time in nanoseconds.
+     */
+    public long getBlockedNanos() {
+        return blockedNanos.get();
+    }
+
+    @Override
+    public void sizeChanged(IntBuffer collection) {
+        // Release the semaphore so that a blocked writer is alerted that space may be available in the buffer. A
+        // single permit is enough to wake it up, and more would pile up on every addition.
+        if (semaphore.availablePermits() == 0) {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Writes a value without waiting for space in the buffer.
+     * @param value The value.
+     * @return {@code true} if the writer is done with the value, i.e., if it was added to the buffer or dealt with by
+     * the {@link OverflowPolicy}, or {@code false} if the policy is {@link OverflowPolicy#BLOCK} and the buffer is
+     * full.
+     */
+    public boolean offer(int value) {
+        single[0] = value;
+        return offer(single, 0, 1) == 1;
+    }
+
+    /**
+     * Writes the values of a chunk without waiting for space in the buffer.
+     * @param chunk The array that contains the values.
+     * @param offset The index in {@code chunk} of the first value to write.
+     * @param length The number of values to write.
+     * @return The number of values that the writer is done with, i.e., the number of values that were added to the
+     * buffer or dealt with by the {@link OverflowPolicy}. This is always {@code length} unless the policy is
+     * {@link OverflowPolicy#BLOCK}, in which case the rest of the values are left to the caller.
+     * @throws NullPointerException If {@code chunk} is {@code null}
+     * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is negative, or if {@code offset +
+     * length} is greater than the length of {@code chunk}.
+     */
+    public int offer(@NotNull int[] chunk, int offset, int length) {
+        Objects.requireNonNull(chunk, "'chunk' cannot be null.");
+        IntBuffer.checkRange(chunk, offset, length);
+        int done;
+        int lost = 0;
+
+        switch (policy) {
+            case DROP_OLDEST:
+                lost = buffer.addChunkOverwriting(chunk, offset, length);
+                done = length;
+                break;
+            case DROP_NEWEST:
+                lost = length - buffer.addChunk(chunk, offset, length);
+                done = length;
+                break;
+            case SAMPLE:
+                lost = addSample(chunk, offset, length);
+                done = length;
+                break;
+            default:
+                done = buffer.addChunk(chunk, offset, length);
+                break;
+        }
+
+        offered.addAndGet(done);
+        dropped.addAndGet(lost);
+        return done;
+    }
+
+    /**
+     * Writes a value, waiting for space in the buffer if the {@link OverflowPolicy} is {@link OverflowPolicy#BLOCK}
+     * @param value The value.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     */
+    public void write(int value) throws InterruptedException {
+        single[0] = value;
+        write(single, 0, 1);
+    }
+
+    /**
+     * Writes the values of a chunk, waiting for space in the buffer if the {@link OverflowPolicy} is
+     * {@link OverflowPolicy#BLOCK}
+     * @param chunk The array that contains the values.
+     * @param offset The index in {@code chunk} of the first value to write.
+     * @param length The number of values to write.
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     * @throws NullPointerException If {@code chunk} is {@code null}
+     * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is negative, or if {@code offset +
+     * length} is greater than the length of {@code chunk}.
+     */
+    public void write(@NotNull int[] chunk, int offset, int length) throws InterruptedException {
+        int written = 0;
+
+        while (written < length) {
+            // The semaphore is also released by our own additions, so discard that permit before trying; a value
+            // that was taken out of the buffer in the meantime is then not missed.
+            semaphore.drainPermits();
+            int done = offer(chunk, offset + written, length - written);
+            written += done;
+
+            if (done == 0) {
+                long start = System.nanoTime();
+
+                try {
+                    semaphore.acquire();
+                } finally {
+                    blockedNanos.addAndGet(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %,d of %,d values dropped (%.2f%%), blocked for %,d ms", policy, getDroppedCount(),
+                getOfferedCount(), getDroppedFraction() * 100, blockedNanos.get() / 1_000_000);
+    }
+
+    /**
+     * Adds a sample of the values to the buffer that thins out as the buffer overflows. Each value is kept with a
+     * probability of 1 / {@code sampleRate}. Whenever the buffer is full, every other value in it is evicted, starting
+     * with the first or the second one at random, and the rate is doubled, so that the buffer always holds an evenly
+     * spread sample, in order, of all the values written since the reader last took values out of it. Once the reader
+     * has taken values out, the sample starts over at the full rate.
+     * @return The number of values that were lost, i.e., the values that were not kept and the values that were evicted
+     * from the buffer.
+     */
+    private int addSample(@NotNull int[] chunk, int offset, int length) {
+        if (buffer.size() < sampledSize) {
+            sampleRate = 1;
+        }
+
+        int lost = 0;
+        int index = 0;
+
+        while (index < length) {
+            int free = buffer.capacity() - buffer.size();
+
+            if (free == 0) {
+                int phase = random.nextInt(2);
+                lost += buffer.retainPositions(position -> (position & 1) == phase);
+                sampleRate = Math.min(sampleRate * 2, 1 << 30);
+                continue;
+            }
+
+            int room = Math.min(free, length - index);
+
+            if (sample.length < room) {
+                sample = new int[room];
+            }
+
+            // Choose values at the current rate until the buffer is full or the values run out
+            int chosen = 0;
+
+            while (index < length && chosen < free) {
+                int value = chunk[offset + index++];
+
+                if (sampleRate == 1 || random.nextInt(sampleRate) == 0) {
+                    sample[chosen++] = value;
+                } else {
+                    lost++;
+                }
+            }
+
+            lost += chosen - buffer.addChunk(sample, 0, chosen);
+        }
+
+        sampledSize = buffer.size();
+        return lost;
+    }
+}
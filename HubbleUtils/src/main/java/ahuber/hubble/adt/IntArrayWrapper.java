@@ -13,6 +13,7 @@ import java.lang.reflect.Array;
  */
 public class IntArrayWrapper implements ArrayWrapper<Integer> {
     @NotNull private final int[] array;
+    private final boolean sorted;
 
     /**
      * Creates a new {@link IntArrayWrapper} that wraps an underlying {@code int} array filled with zeroes and that
@@ -32,7 +33,19 @@ public class IntArrayWrapper implements ArrayWrapper<Integer> {
      */
     @Contract(pure = true)
     public IntArrayWrapper(@NotNull int[] array) {
+        this(array, false);
+    }
+
+    /**
+     * Creates a new {@link IntArrayWrapper} that wraps the underlying {@code int} array and records whether it is
+     * known to be sorted.
+     * @param array The {@code int} array.
+     * @param sorted {@code true} if the values of {@code array} are known to be sorted in ascending order.
+     */
+    @Contract(pure = true)
+    public IntArrayWrapper(@NotNull int[] array, boolean sorted) {
         this.array = array;
+        this.sorted = sorted;
     }
 
     /**
@@ -43,6 +56,16 @@ public class IntArrayWrapper implements ArrayWrapper<Integer> {
         return array;
     }
 
+    /**
+     * Determines whether the values of the underlying array were known to be sorted when this
+     * {@link IntArrayWrapper} was created. The values are not checked, and {@code false} only means that nothing is
+     * known about their order.
+     * @return {@code true} if the values were known to be sorted in ascending order.
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
     @Override
     public int length() {
         return array.length;
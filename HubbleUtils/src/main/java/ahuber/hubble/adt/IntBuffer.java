@@ -5,11 +5,13 @@ import ahuber.hubble.utils.Utils;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
+import java.util.function.IntPredicate;
 
 /**
  * A temporary region of memory in which {@code int} data is stored while it is being processed or transferred
  */
 public class IntBuffer extends AbstractBuffer<Integer, IntBuffer> {
+    @NotNull private final int[] array;
 
     /**
      * Creates a new buffer with the specified capacity.
@@ -39,6 +41,7 @@ public class IntBuffer extends AbstractBuffer<Integer, IntBuffer> {
      */
     public IntBuffer(@NotNull IntArrayWrapper wrapper) {
         super(wrapper);
+        this.array = wrapper.getArray();
     }
 
     /**
@@ -72,6 +75,82 @@ public class IntBuffer extends AbstractBuffer<Integer, IntBuffer> {
         return addAll(wrapper, failIfInsufficientSpace);
     }
 
+    /**
+     * Adds as many items of a chunk as there is space for to the end of the buffer with at most two calls to
+     * {@link System#arraycopy}, instead of adding the items one by one. The {@link SizeObserver}s are notified once,
+     * after all the items were added.
+     * @param chunk The array that contains the items.
+     * @param offset The index in {@code chunk} of the first item to add.
+     * @param length The number of items to add.
+     * @return The number of items that were added, which is less than {@code length} if the buffer does not have
+     * enough remaining space to accommodate all the items.
+     * @throws NullPointerException If {@code chunk} is {@code null}
+     * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is negative, or if {@code offset +
+     * length} is greater than the length of {@code chunk}.
+     */
+    public synchronized int addChunk(@NotNull int[] chunk, int offset, int length) {
+        Objects.requireNonNull(chunk, "'chunk' cannot be null.");
+        checkRange(chunk, offset, length);
+        return appendRuns(length, (runOffset, bufferIndex, runLength) ->
+                System.arraycopy(chunk, offset + runOffset, array, bufferIndex, runLength));
+    }
+
+    /**
+     * Adds all the items of a chunk to the end of the buffer, removing as many of the oldest items as needed to make
+     * space for them, so that the buffer works as a ring that always holds the most recent items. If the chunk holds
+     * more items than the capacity of the buffer, only its last items are added. The {@link SizeObserver}s are
+     * notified at most once.
+     * @param chunk The array that contains the items.
+     * @param offset The index in {@code chunk} of the first item to add.
+     * @param length The number of items to add.
+     * @return The number of items that were overwritten or not added, i.e., the number of items that were lost.
+     * @throws NullPointerException If {@code chunk} is {@code null}
+     * @throws IndexOutOfBoundsException If {@code offset} or {@code length} is negative, or if {@code offset +
+     * length} is greater than the length of {@code chunk}.
+     */
+    public synchronized int addChunkOverwriting(@NotNull int[] chunk, int offset, int length) {
+        Objects.requireNonNull(chunk, "'chunk' cannot be null.");
+        checkRange(chunk, offset, length);
+
+        return makeBulkChanges(() -> {
+            // Only the last capacity() items of the chunk fit, whatever else is in the buffer
+            int skipped = Math.max(0, length - capacity());
+            int kept = length - skipped;
+            int overwritten = discardFirst(size() + kept - capacity());
+            appendRuns(kept, (runOffset, bufferIndex, runLength) ->
+                    System.arraycopy(chunk, offset + skipped + runOffset, array, bufferIndex, runLength));
+            return skipped + overwritten;
+        });
+    }
+
+    /**
+     * Removes the items at the positions that {@code keep} rejects, where position 0 is the oldest item, and keeps the
+     * remaining items in order, e.g., to thin out a sample of the items. The {@link SizeObserver}s are notified at most
+     * once.
+     * @param keep A predicate that receives the position of each item and decides whether the item is kept.
+     * @return The number of items that were removed.
+     * @throws NullPointerException If {@code keep} is {@code null}
+     */
+    public synchronized int retainPositions(@NotNull IntPredicate keep) {
+        Objects.requireNonNull(keep, "'keep' cannot be null.");
+        int[] items = toIntArray();
+        int kept = 0;
+
+        for (int position = 0; position < items.length; position++) {
+            if (keep.test(position)) {
+                items[kept++] = items[position];
+            }
+        }
+
+        int retained = kept;
+        return makeBulkChanges(() -> {
+            clear();
+            appendRuns(retained, (runOffset, bufferIndex, runLength) ->
+                    System.arraycopy(items, runOffset, array, bufferIndex, runLength));
+            return items.length - retained;
+        });
+    }
+
     /**
      * Removes all of the items in this buffer that are also provided in the variable parameter list/{@code int}
      * array.
@@ -113,20 +192,10 @@ public class IntBuffer extends AbstractBuffer<Integer, IntBuffer> {
     @SuppressWarnings("WeakerAccess")
     @PublicApi
     public synchronized int[] toIntArray(int n) {
-        n = Utils.clamp(n, 0, size());
-        int[] array = new int[n];
-
-        for (Integer integer : this) {
-            if (n == 0) {
-                break;
-            }
-
-            int value = integer == null ? 0 : integer;
-            array[array.length - n] = value;
-            --n;
-        }
-
-        return array;
+        int[] copy = new int[Utils.clamp(n, 0, size())];
+        readRuns(copy.length, (runOffset, bufferIndex, runLength) ->
+                System.arraycopy(array, bufferIndex, copy, runOffset, runLength));
+        return copy;
     }
 
     /**
@@ -140,4 +209,12 @@ public class IntBuffer extends AbstractBuffer<Integer, IntBuffer> {
             return new IntArrayWrapper(arrayCopy);
         }).getArray();
     }
+
+    static void checkRange(@NotNull int[] chunk, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > chunk.length - length) {
+            String message = String.format("The range is outside of the chunk. (offset: %d, length: %d, " +
+                    "chunk.length: %d)", offset, length, chunk.length);
+            throw new IndexOutOfBoundsException(message);
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package ahuber.hubble.adt;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The ways in which a {@link BufferWriter} deals with values that do not fit in a full {@link IntBuffer}
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Waits until there is space for the values, so that no value is lost but the producer stalls. This is the
+     * default.
+     */
+    @JsonProperty("block")
+    BLOCK,
+
+    /**
+     * Overwrites the oldest values in the buffer, which then works as a true ring that always holds the most recent
+     * values.
+     */
+    @JsonProperty("drop-oldest")
+    DROP_OLDEST,
+
+    /**
+     * Discards the values that do not fit, so the values already in the buffer are kept.
+     */
+    @JsonProperty("drop-newest")
+    DROP_NEWEST,
+
+    /**
+     * Keeps a random sample of the values, in order, that is spread evenly over all the values written since the
+     * reader last took values out of the buffer. Each time the buffer fills up, half of the values in it are evicted
+     * and only half as many of the new values are kept from then on.
+     */
+    @JsonProperty("sample")
+    SAMPLE
+}
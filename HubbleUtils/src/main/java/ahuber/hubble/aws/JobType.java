@@ -0,0 +1,31 @@
+package ahuber.hubble.aws;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The kinds of job that process the data produced by a satellite.
+ */
+public enum JobType {
+
+    /**
+     * Sorts the data and saves it as a greyscale image. This is the default.
+     */
+    @JsonProperty("sort")
+    SORT,
+
+    /**
+     * Summarizes the data with a {@link ahuber.hubble.stats.FrameSummary} (the median, percentiles, minimum, maximum,
+     * and largest values) without sorting it or generating an image.
+     */
+    @JsonProperty("stats-only")
+    STATS_ONLY,
+
+    /**
+     * Saves the same greyscale image as {@link #SORT}, but counts each value with a
+     * {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} instead of sorting the data, and
+     * {@linkplain ahuber.hubble.utils.RunLengthRenderer renders} the image straight from the counts. Only the counts
+     * are handed from one stage to the next, e.g., to the Spark job, instead of all of the data.
+     */
+    @JsonProperty("histogram")
+    HISTOGRAM
+}
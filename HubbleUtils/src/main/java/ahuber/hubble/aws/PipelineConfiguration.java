@@ -0,0 +1,101 @@
+package ahuber.hubble.aws;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A Java object corresponding to the optional {@code pipeline} property of a {@link SatelliteConfiguration}, which
+ * determines the number of threads that work on each stage of the pipeline that sorts, renders, encodes, and uploads
+ * the frames in the AWS Lambda function.
+ */
+@Value
+public class PipelineConfiguration {
+
+    /**
+     * The number of threads of a stage whose thread count is not specified.
+     */
+    public static final int DEFAULT_THREADS = 1;
+
+    /**
+     * The number of frames that may wait in front of a stage when the capacity is not specified.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 2;
+
+    /**
+     * Gets the number of threads that sort the frames.
+     */
+    private final int sortThreads;
+
+    /**
+     * Gets the number of threads that render the sorted frames as greyscale images.
+     */
+    private final int renderThreads;
+
+    /**
+     * Gets the number of threads that encode the images as JPEGs.
+     */
+    private final int encodeThreads;
+
+    /**
+     * Gets the number of threads that upload the JPEGs to Amazon S3.
+     */
+    private final int uploadThreads;
+
+    /**
+     * Gets the number of frames that may wait in front of each stage before the previous stage has to wait.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Creates a new {@link PipelineConfiguration} that uses {@value #DEFAULT_THREADS} thread per stage and queues of
+     * {@value #DEFAULT_QUEUE_CAPACITY} frames.
+     */
+    @Contract(pure = true)
+    public PipelineConfiguration() {
+        this(null, null, null, null, null);
+    }
+
+    /**
+     * Creates a new {@link PipelineConfiguration}
+     * @param sortThreads The number of threads that sort the frames, or {@code null} for {@value #DEFAULT_THREADS}.
+     *                    This is optional in the JSON.
+     * @param renderThreads The number of threads that render the frames, or {@code null} for
+     *                      {@value #DEFAULT_THREADS}. This is optional in the JSON.
+     * @param encodeThreads The number of threads that encode the images, or {@code null} for
+     *                      {@value #DEFAULT_THREADS}. This is optional in the JSON.
+     * @param uploadThreads The number of threads that upload the images, or {@code null} for
+     *                      {@value #DEFAULT_THREADS}. This is optional in the JSON.
+     * @param queueCapacity The number of frames that may wait in front of each stage, or {@code null} for
+     *                      {@value #DEFAULT_QUEUE_CAPACITY}. This is optional in the JSON.
+     * @throws IllegalArgumentException If any of the values is less than 1.
+     */
+    @Contract(pure = true)
+    @JsonCreator
+    public PipelineConfiguration(@JsonProperty("sortThreads") @Nullable Integer sortThreads,
+            @JsonProperty("renderThreads") @Nullable Integer renderThreads,
+            @JsonProperty("encodeThreads") @Nullable Integer encodeThreads,
+            @JsonProperty("uploadThreads") @Nullable Integer uploadThreads,
+            @JsonProperty("queueCapacity") @Nullable Integer queueCapacity) {
+        this.sortThreads = requirePositive("sortThreads", sortThreads, DEFAULT_THREADS);
+        this.renderThreads = requirePositive("renderThreads", renderThreads, DEFAULT_THREADS);
+        this.encodeThreads = requirePositive("encodeThreads", encodeThreads, DEFAULT_THREADS);
+        this.uploadThreads = requirePositive("uploadThreads", uploadThreads, DEFAULT_THREADS);
+        this.queueCapacity = requirePositive("queueCapacity", queueCapacity, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    private static int requirePositive(String name, @Nullable Integer value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        if (value < 1) {
+            String message = String.format("%s cannot be less than 1. (%s: %d)", name, name, value);
+            throw new IllegalArgumentException(message);
+        }
+
+        return value;
+    }
+}
@@ -1,6 +1,9 @@
 package ahuber.hubble.aws;
 
+import ahuber.hubble.utils.GreyscalePngEncoder;
+import ahuber.hubble.utils.ImageFormat;
 import ahuber.hubble.utils.PublicApi;
+import ahuber.hubble.utils.TilePyramid;
 import ahuber.hubble.utils.Utils;
 import ahuber.hubble.utils.WarningSuppressionReason;
 import com.amazonaws.SdkClientException;
@@ -81,6 +84,88 @@ public final class S3Helpers {
         ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
         return upload(inputStream, region, bucketName, s3Key, "image/jpeg");
     }
+
+    /**
+     * Encodes the provided frame as a PNG image with a {@link GreyscalePngEncoder} and uploads it to Amazon S3,
+     * without rendering a {@link BufferedImage} or holding the encoded image in memory.
+     *
+     * @param data     The values of the frame row by row, whose length is a perfect square.
+     * @param location The location in Amazon S3 where the image will be uploaded to.
+     * @return A {@link PutObjectResult} from the S3 SDK containing information about the upload that was just
+     * performed.
+     * @throws NullPointerException If {@code data} or {@code location} is {@code null}
+     * @throws IOException          If the image cannot be written to the temporary file.
+     * @throws SdkClientException   If the image cannot be uploaded to Amazon S3.
+     * @see #uploadImage(int[], ImageFormat, LocalizedS3ObjectId)
+     */
+    public static PutObjectResult uploadPng(@NotNull int[] data, @NotNull LocalizedS3ObjectId location)
+            throws IOException, SdkClientException {
+        return uploadImage(data, ImageFormat.PNG, location);
+    }
+
+    /**
+     * Encodes the provided frame as an image in the provided format and uploads it to Amazon S3. The image is written
+     * to a temporary file first, since the length of an object must be known before it is uploaded, and the file is
+     * deleted afterwards.
+     *
+     * @param data     The values of the frame row by row, whose length is a perfect square.
+     * @param format   The format of the image.
+     * @param location The location in Amazon S3 where the image will be uploaded to, e.g.,
+     *                 {@link #createImageId(String, ImageFormat)}
+     * @return A {@link PutObjectResult} from the S3 SDK containing information about the upload that was just
+     * performed.
+     * @throws NullPointerException If {@code data}, {@code format}, or {@code location} is {@code null}
+     * @throws IOException          If the image cannot be written to the temporary file.
+     * @throws SdkClientException   If the image cannot be uploaded to Amazon S3.
+     */
+    public static PutObjectResult uploadImage(@NotNull int[] data, @NotNull ImageFormat format,
+            @NotNull LocalizedS3ObjectId location) throws IOException, SdkClientException {
+        Objects.requireNonNull(data, "'data' cannot be null.");
+        Objects.requireNonNull(format, "'format' cannot be null.");
+        return uploadImage(outputStream -> format.encode(data, outputStream), format, location);
+    }
+
+    /**
+     * Encodes the image of the sorted frame that the provided histogram counts in the provided format and uploads it
+     * to Amazon S3, without the sorted frame. The image is written to a temporary file first, since the length of an
+     * object must be known before it is uploaded, and the file is deleted afterwards.
+     *
+     * @param histogram The {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @param format    The format of the image.
+     * @param location  The location in Amazon S3 where the image will be uploaded to, e.g.,
+     *                  {@link #createImageId(String, ImageFormat)}
+     * @return A {@link PutObjectResult} from the S3 SDK containing information about the upload that was just
+     * performed.
+     * @throws NullPointerException     If {@code histogram}, {@code format}, or {@code location} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid.
+     * @throws IOException              If the image cannot be written to the temporary file.
+     * @throws SdkClientException       If the image cannot be uploaded to Amazon S3.
+     * @see ImageFormat#encode(long[], OutputStream)
+     */
+    public static PutObjectResult uploadImage(@NotNull long[] histogram, @NotNull ImageFormat format,
+            @NotNull LocalizedS3ObjectId location) throws IOException, SdkClientException {
+        Objects.requireNonNull(histogram, "'histogram' cannot be null.");
+        Objects.requireNonNull(format, "'format' cannot be null.");
+        return uploadImage(outputStream -> format.encode(histogram, outputStream), format, location);
+    }
+
+    private static PutObjectResult uploadImage(@NotNull ImageEncoding encoding, @NotNull ImageFormat format,
+            @NotNull LocalizedS3ObjectId location) throws IOException, SdkClientException {
+        Objects.requireNonNull(location, "'location' cannot be null.");
+        File file = File.createTempFile("frame", "." + format.getExtension());
+
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+                encoding.writeTo(outputStream);
+            }
+
+            return upload(file, location, format.getContentType());
+        } finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
     //endregion
 
     //region uploadJson
@@ -209,6 +294,60 @@ public final class S3Helpers {
         return s3Client.putObject(request);
     }
 
+    /**
+     * Uploads the contents of the provided file to Amazon S3, which reads the file as it uploads it.
+     *
+     * @param file        The file to upload.
+     * @param location    The location in Amazon S3 where the file will be uploaded to.
+     * @param contentType The HTTP Content-Type header indicating the type of content that will be stored in Amazon S3.
+     * @return A {@link PutObjectResult} from the S3 SDK containing information about the upload that was just
+     * performed.
+     * @throws NullPointerException If {@code file} or {@code location} is {@code null}
+     */
+    public static PutObjectResult upload(@NotNull File file, @NotNull LocalizedS3ObjectId location,
+            String contentType) {
+        Objects.requireNonNull(file, "'file' cannot be null.");
+        Objects.requireNonNull(location, "'location' cannot be null.");
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        metadata.addUserMetadata("x-amz-meta-title", location.getKey());
+        PutObjectRequest request = new PutObjectRequest(location.getBucket(), location.getKey(), file)
+                .withMetadata(metadata);
+
+        return getS3Client(location.getRegion()).putObject(request);
+    }
+
+    /**
+     * Creates a {@link TilePyramid.TileSink} that uploads each tile of a {@link TilePyramid}, and its manifest, to
+     * Amazon S3 as its own object under the provided prefix. The objects are uploaded by one {@link AmazonS3} client,
+     * which is safe to use from the several threads that write the tiles.
+     *
+     * @param root The location in Amazon S3 whose key is the prefix of the keys of the tiles, e.g.,
+     *             {@link #createTilePyramidId(String)}
+     * @return The {@link TilePyramid.TileSink}
+     * @throws NullPointerException If {@code root} is {@code null}
+     */
+    @NotNull
+    public static TilePyramid.TileSink createTileSink(@NotNull LocalizedS3ObjectId root) {
+        Objects.requireNonNull(root, "'root' cannot be null.");
+        AmazonS3 s3Client = getS3Client(root.getRegion());
+
+        return (path, bytes, contentType) -> {
+            String key = root.getKey() + path;
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentType(contentType);
+            metadata.setContentLength(bytes.length);
+            metadata.addUserMetadata("x-amz-meta-title", key);
+
+            try {
+                s3Client.putObject(new PutObjectRequest(root.getBucket(), key, new ByteArrayInputStream(bytes),
+                        metadata));
+            } catch (SdkClientException e) {
+                throw new IOException(String.format("The tile \"%s\" could not be uploaded.", key), e);
+            }
+        };
+    }
+
     // endregion upload
 
     // region Download
@@ -416,5 +555,69 @@ public final class S3Helpers {
                 satelliteName));
     }
 
+    /**
+     * Creates and returns a {@link LocalizedS3ObjectId} pointing to where the PNG image for the satellite with the
+     * provided name should be stored, e.g., by {@link #uploadPng(int[], LocalizedS3ObjectId)}
+     * @param satelliteName The name of the satellite.
+     * @return A {@link LocalizedS3ObjectId} pointing to where the PNG image for the satellite with the provided
+     * name should be stored.
+     */
+    @NotNull
+    @Contract("_ -> new")
+    public static LocalizedS3ObjectId createPngImageId(String satelliteName) {
+        return new LocalizedS3ObjectId(Regions.US_EAST_1, "ahuber-satellite-images", String.format("java/%s.png",
+                satelliteName));
+    }
+
+    /**
+     * Creates and returns a {@link LocalizedS3ObjectId} pointing to where the image in the provided format for the
+     * satellite with the provided name should be stored, e.g., by
+     * {@link #uploadImage(int[], ImageFormat, LocalizedS3ObjectId)}
+     * @param satelliteName The name of the satellite.
+     * @param format The format of the image, which determines the extension of the key.
+     * @return A {@link LocalizedS3ObjectId} pointing to where the image should be stored.
+     * @throws NullPointerException If {@code format} is {@code null}
+     */
+    @NotNull
+    @Contract("_, _ -> new")
+    public static LocalizedS3ObjectId createImageId(String satelliteName, @NotNull ImageFormat format) {
+        Objects.requireNonNull(format, "'format' cannot be null.");
+        return new LocalizedS3ObjectId(Regions.US_EAST_1, "ahuber-satellite-images", String.format("java/%s.%s",
+                satelliteName, format.getExtension()));
+    }
+
+    /**
+     * Creates and returns a {@link LocalizedS3ObjectId} whose key is the prefix under which the tiles of the
+     * {@link TilePyramid} for the satellite with the provided name should be stored, e.g., by
+     * {@link #createTileSink(LocalizedS3ObjectId)}
+     * @param satelliteName The name of the satellite.
+     * @return A {@link LocalizedS3ObjectId} whose key is the prefix of the tiles, i.e., {@code java/<name>_tiles/}
+     */
+    @NotNull
+    @Contract("_ -> new")
+    public static LocalizedS3ObjectId createTilePyramidId(String satelliteName) {
+        return new LocalizedS3ObjectId(Regions.US_EAST_1, "ahuber-satellite-images", String.format("java/%s_tiles/",
+                satelliteName));
+    }
+
+    /**
+     * Creates an returns a {@link LocalizedS3ObjectId} pointing to where the {@link ahuber.hubble.stats.FrameSummary}
+     * serialized as JSON for the satellite with the provided name should be stored by a "stats-only" job.
+     * @param satelliteName The name of the satellite.
+     * @return A {@link LocalizedS3ObjectId} pointing to where the {@link ahuber.hubble.stats.FrameSummary} for the
+     * satellite with the provided name should be stored.
+     */
+    @NotNull
+    @Contract("_ -> new")
+    public static LocalizedS3ObjectId createStatisticsId(String satelliteName) {
+        return new LocalizedS3ObjectId(Regions.US_EAST_1, "ahuber-satellite-images", String.format("java/%s.json",
+                satelliteName));
+    }
+
     // endregion Urls
+
+    @FunctionalInterface
+    private interface ImageEncoding {
+        void writeTo(@NotNull OutputStream outputStream) throws IOException;
+    }
 }
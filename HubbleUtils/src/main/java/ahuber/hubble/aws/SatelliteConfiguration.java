@@ -1,14 +1,21 @@
 package ahuber.hubble.aws;
 
+import ahuber.hubble.adt.OverflowPolicy;
+import ahuber.hubble.utils.ExecutionMode;
+import ahuber.hubble.utils.ImageFormat;
 import ahuber.hubble.utils.WarningSuppressionReason;
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import lombok.Value;
 import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * A Java object corresponding to the JSON that is provided as input to the AWS Lambda function.
  */
 @Value
+@JsonDeserialize(builder = SatelliteConfiguration.Builder.class)
 @SuppressWarnings("unused")
 @WarningSuppressionReason("Used in external project.")
 public class SatelliteConfiguration {
@@ -23,13 +30,342 @@ public class SatelliteConfiguration {
     private final int j;
 
     /**
-     * Creates a new {@link SatelliteConfiguration}
+     * Gets the name of the sorting algorithm that is passed on to the {@link SparkJobConfiguration}, or {@code null}
+     * if the default algorithm should be used.
+     */
+    @Nullable private final String algorithm;
+
+    /**
+     * Gets the number of values in each chunk that is sorted while the data is still being collected, or {@code null}
+     * if the data is only sorted once all of it has been collected.
+     */
+    @Nullable private final Integer sortChunkLength;
+
+    /**
+     * Gets the kind of job that processes the data, or {@code null} if the data should be sorted and saved as an
+     * image.
+     */
+    @Nullable private final JobType jobType;
+
+    /**
+     * Gets the number of frames that are produced in streaming mode, or {@code null} if the number of frames is not
+     * limited.
+     */
+    @Nullable private final Integer frameCount;
+
+    /**
+     * Gets the number of seconds after which no more frames are started in streaming mode, or {@code null} if the
+     * duration is not limited.
+     */
+    @Nullable private final Integer durationSeconds;
+
+    /**
+     * Gets the configuration of the pipeline that sorts, renders, encodes, and uploads the frames in the AWS Lambda
+     * function, or {@code null} if the frames are handed to an EMR cluster instead.
+     */
+    @Nullable private final PipelineConfiguration pipeline;
+
+    /**
+     * Gets the kind of thread that runs the satellite, the receiver, and the processor, or {@code null} if they run
+     * on platform threads.
+     */
+    @Nullable private final ExecutionMode executionMode;
+
+    /**
+     * Gets the seed of the random values that the satellite produces, or {@code null} if the values differ on every
+     * run.
+     */
+    @Nullable private final Long seed;
+
+    /**
+     * Gets the path of a recording whose frames are replayed instead of producing random values, or {@code null} if
+     * the satellite produces random values.
+     */
+    @Nullable private final String recording;
+
+    /**
+     * Gets the way in which values that do not fit in a full buffer are dealt with, or {@code null} if the satellite
+     * waits for space.
+     */
+    @Nullable private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Gets the format in which the image of each frame is saved, or {@code null} if it is saved as a JPEG image.
+     */
+    @Nullable private final ImageFormat imageFormat;
+
+    /**
+     * Gets whether the satellite produces its values one at a time with the random delays of the original project,
+     * paced by a timer wheel, or {@code null} if it produces them as fast as it can.
+     */
+    @Nullable private final Boolean paced;
+
+    /**
+     * Gets whether the frames are published to the processor, which requests the next frame only once it has
+     * processed the last one, or {@code null} if the receiver hands each frame over as soon as it has been collected.
+     */
+    @Nullable private final Boolean backpressure;
+
+    /**
+     * Creates a new {@link SatelliteConfiguration} that uses the default sorting algorithm.
      * @param i The <i>i</i> value.
      * @param j The <i>j</i> value.
      */
     @Contract(pure = true)
-    public SatelliteConfiguration(@JsonProperty("i") int i, @JsonProperty("j") int j) {
-        this.i = i;
-        this.j = j;
+    public SatelliteConfiguration(int i, int j) {
+        this(builder(i, j));
+    }
+
+    private SatelliteConfiguration(@NotNull Builder builder) {
+        if (builder.sortChunkLength != null && builder.sortChunkLength < 1) {
+            String message = String.format("The sort chunk length cannot be less than 1. (sortChunkLength: %d)",
+                    builder.sortChunkLength);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (builder.frameCount != null && builder.frameCount < 1) {
+            String message = String.format("The frame count cannot be less than 1. (frameCount: %d)",
+                    builder.frameCount);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (builder.durationSeconds != null && builder.durationSeconds < 1) {
+            String message = String.format("The duration cannot be less than 1 second. (durationSeconds: %d)",
+                    builder.durationSeconds);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.i = builder.i;
+        this.j = builder.j;
+        this.algorithm = builder.algorithm;
+        this.sortChunkLength = builder.sortChunkLength;
+        this.jobType = builder.jobType;
+        this.frameCount = builder.frameCount;
+        this.durationSeconds = builder.durationSeconds;
+        this.pipeline = builder.pipeline;
+        this.executionMode = builder.executionMode;
+        this.seed = builder.seed;
+        this.recording = builder.recording;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.imageFormat = builder.imageFormat;
+        this.paced = builder.paced;
+        this.backpressure = builder.backpressure;
+    }
+
+    /**
+     * Creates a {@link Builder} for a {@link SatelliteConfiguration} with the given <i>i</i> and <i>j</i> values,
+     * whose optional properties are all {@code null} until they are set.
+     * @param i The <i>i</i> value.
+     * @param j The <i>j</i> value.
+     * @return The {@link Builder}
+     */
+    @NotNull
+    public static Builder builder(int i, int j) {
+        return new Builder().i(i).j(j);
+    }
+
+    /**
+     * Builds a {@link SatelliteConfiguration} one property at a time. This is also how the JSON is deserialized, so
+     * every property other than <i>i</i> and <i>j</i> is optional in the JSON and is {@code null} if it is left out.
+     */
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class Builder {
+        private int i;
+        private int j;
+        @Nullable private String algorithm;
+        @Nullable private Integer sortChunkLength;
+        @Nullable private JobType jobType;
+        @Nullable private Integer frameCount;
+        @Nullable private Integer durationSeconds;
+        @Nullable private PipelineConfiguration pipeline;
+        @Nullable private ExecutionMode executionMode;
+        @Nullable private Long seed;
+        @Nullable private String recording;
+        @Nullable private OverflowPolicy overflowPolicy;
+        @Nullable private ImageFormat imageFormat;
+        @Nullable private Boolean paced;
+        @Nullable private Boolean backpressure;
+
+        /**
+         * Sets the <i>i</i> value.
+         * @param i The <i>i</i> value.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder i(int i) {
+            this.i = i;
+            return this;
+        }
+
+        /**
+         * Sets the <i>j</i> value.
+         * @param j The <i>j</i> value.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder j(int j) {
+            this.j = j;
+            return this;
+        }
+
+        /**
+         * Sets the name of the sorting algorithm.
+         * @param algorithm The name of the sorting algorithm, or {@code null} to use the default algorithm.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder algorithm(@Nullable String algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * Sets the number of values in each chunk that is sorted while the data is still being collected.
+         * @param sortChunkLength The number of values in each chunk, or {@code null} to sort the data only once all
+         *                        of it has been collected.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder sortChunkLength(@Nullable Integer sortChunkLength) {
+            this.sortChunkLength = sortChunkLength;
+            return this;
+        }
+
+        /**
+         * Sets the kind of job that processes the data.
+         * @param jobType The kind of job, or {@code null} to sort the data and save it as an image.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder jobType(@Nullable JobType jobType) {
+            this.jobType = jobType;
+            return this;
+        }
+
+        /**
+         * Sets the number of frames to produce. The simulation runs in streaming mode, producing one frame after
+         * another, if either the number of frames or the duration is set.
+         * @param frameCount The number of frames, or {@code null} to leave the number of frames unlimited.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder frameCount(@Nullable Integer frameCount) {
+            this.frameCount = frameCount;
+            return this;
+        }
+
+        /**
+         * Sets the number of seconds after which no more frames are started.
+         * @param durationSeconds The number of seconds, or {@code null} to leave the duration unlimited.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder durationSeconds(@Nullable Integer durationSeconds) {
+            this.durationSeconds = durationSeconds;
+            return this;
+        }
+
+        /**
+         * Sets the configuration of the pipeline that sorts, renders, encodes, and uploads sort jobs in the AWS
+         * Lambda function.
+         * @param pipeline The configuration of the pipeline, or {@code null} to hand sort jobs to an EMR cluster.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder pipeline(@Nullable PipelineConfiguration pipeline) {
+            this.pipeline = pipeline;
+            return this;
+        }
+
+        /**
+         * Sets the kind of thread that runs the satellite, the receiver, and the processor.
+         * @param executionMode The kind of thread, or {@code null} to run them on platform threads.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder executionMode(@Nullable ExecutionMode executionMode) {
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        /**
+         * Sets the seed of the random values that the satellite produces.
+         * @param seed The seed, or {@code null} to produce different values on every run.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder seed(@Nullable Long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets the path of a recording whose frames are replayed instead of producing random values.
+         * @param recording The path of the recording, or {@code null} to produce random values.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder recording(@Nullable String recording) {
+            this.recording = recording;
+            return this;
+        }
+
+        /**
+         * Sets the way in which values that do not fit in a full buffer are dealt with.
+         * @param overflowPolicy The overflow policy, or {@code null} to wait for space.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder overflowPolicy(@Nullable OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Sets the format in which the image of each frame is saved.
+         * @param imageFormat The image format, or {@code null} to save a JPEG image.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder imageFormat(@Nullable ImageFormat imageFormat) {
+            this.imageFormat = imageFormat;
+            return this;
+        }
+
+        /**
+         * Sets whether the satellite produces its values one at a time with the random delays of the original
+         * project.
+         * @param paced {@code true} to pace the values, or {@code null} to produce them as fast as possible.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder paced(@Nullable Boolean paced) {
+            this.paced = paced;
+            return this;
+        }
+
+        /**
+         * Sets whether the frames are published to the processor, which requests the next frame only once it has
+         * processed the last one. The satellite then waits or drops values according to its overflow policy while the
+         * processor falls behind.
+         * @param backpressure {@code true} to publish the frames, or {@code null} to hand each frame to the
+         *                     processor as soon as it has been collected.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder backpressure(@Nullable Boolean backpressure) {
+            this.backpressure = backpressure;
+            return this;
+        }
+
+        /**
+         * Creates the {@link SatelliteConfiguration}
+         * @return The {@link SatelliteConfiguration}
+         * @throws IllegalArgumentException If the sort chunk length, the frame count, or the duration is less than 1.
+         */
+        @NotNull
+        public SatelliteConfiguration build() {
+            return new SatelliteConfiguration(this);
+        }
     }
-}
\ No newline at end of file
+}
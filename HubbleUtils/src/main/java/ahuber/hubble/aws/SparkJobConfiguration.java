@@ -1,9 +1,13 @@
 package ahuber.hubble.aws;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import lombok.AllArgsConstructor;
+import ahuber.hubble.sort.Sorters;
+import ahuber.hubble.utils.ImageFormat;
+import ahuber.hubble.utils.Utils;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import lombok.Value;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Objects;
 
@@ -12,6 +16,7 @@ import java.util.Objects;
  * produced by the AWS Lambda function contained in {@link App}, and output the data in the
  */
 @Value
+@JsonDeserialize(builder = SparkJobConfiguration.Builder.class)
 public class SparkJobConfiguration {
 
     /**
@@ -26,16 +31,183 @@ public class SparkJobConfiguration {
      */
     private int threshold;
 
+    /**
+     * Gets the name of the {@linkplain ahuber.hubble.sort.Sorter sorting algorithm} that sorts
+     * {@linkplain #getData() the data}. See {@link Sorters} for the available names.
+     */
+    @NotNull private String algorithm;
+
+    /**
+     * Gets the kind of job that processes {@linkplain #getData() the data}.
+     */
+    @NotNull private JobType jobType;
+
+    /**
+     * Gets the format in which the image of {@linkplain #getData() the data} is saved.
+     */
+    @NotNull private ImageFormat imageFormat;
+
+    /**
+     * Gets the {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the data that a
+     * {@link JobType#HISTOGRAM} job renders its image from, which is sent in place of {@linkplain #getData() the data}.
+     * If it is {@code null}, the histogram is counted from the data instead.
+     */
+    @Nullable private long[] histogram;
+
     /**
      * An {@code int} array containing the data to be sorted.
      */
     private int[] data;
 
-    public SparkJobConfiguration(@JsonProperty("satelliteName") @NotNull String satelliteName,
-            @JsonProperty("threshold") int threshold, @JsonProperty("data") int...data) {
+    /**
+     * Creates a new {@link SparkJobConfiguration} whose data is sorted using the
+     * {@linkplain Sorters#DEFAULT_ALGORITHM default algorithm}.
+     * @param satelliteName The name of the satellite session that produced the data.
+     * @param threshold The threshold that is passed to the sorting algorithm.
+     * @param data The data to sort.
+     */
+    public SparkJobConfiguration(@NotNull String satelliteName, int threshold, int...data) {
+        this(builder(satelliteName, threshold).data(data));
+    }
+
+    private SparkJobConfiguration(@NotNull Builder builder) {
+        this.satelliteName = Objects.requireNonNull(builder.satelliteName, "'satelliteName' cannot be null.");
+        this.threshold = builder.threshold;
+        this.algorithm = Utils.requireNonNullElse(builder.algorithm, Sorters.DEFAULT_ALGORITHM);
+        this.jobType = Utils.requireNonNullElse(builder.jobType, JobType.SORT);
+        this.imageFormat = Utils.requireNonNullElse(builder.imageFormat, ImageFormat.JPEG);
+        this.histogram = builder.histogram;
+        this.data = Objects.requireNonNull(builder.data, "'data' cannot be null.");
+    }
+
+    /**
+     * Creates a {@link Builder} for a {@link SparkJobConfiguration} of the given satellite session, which has no data
+     * and uses the default of every optional property until they are set.
+     * @param satelliteName The name of the satellite session that produced the data.
+     * @param threshold The threshold that is passed to the sorting algorithm.
+     * @return The {@link Builder}
+     */
+    @NotNull
+    public static Builder builder(@NotNull String satelliteName, int threshold) {
+        return new Builder().satelliteName(satelliteName).threshold(threshold);
+    }
+
+    /**
+     * Creates a {@link Builder} whose properties are those of this {@link SparkJobConfiguration}, e.g., to create a
+     * copy that is sorted with another algorithm.
+     * @return The {@link Builder}
+     */
+    @NotNull
+    public Builder toBuilder() {
+        return builder(satelliteName, threshold)
+                .algorithm(algorithm)
+                .jobType(jobType)
+                .imageFormat(imageFormat)
+                .histogram(histogram)
+                .data(data);
+    }
+
+    /**
+     * Builds a {@link SparkJobConfiguration} one property at a time. This is also how the JSON is deserialized, so
+     * every property other than the name of the satellite session, the threshold, and the data is optional in the
+     * JSON.
+     */
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class Builder {
+        @Nullable private String satelliteName;
+        private int threshold;
+        @Nullable private String algorithm;
+        @Nullable private JobType jobType;
+        @Nullable private ImageFormat imageFormat;
+        @Nullable private long[] histogram;
+        @NotNull private int[] data = new int[0];
+
+        /**
+         * Sets the name of the satellite session that produced the data.
+         * @param satelliteName The name of the satellite session.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder satelliteName(@NotNull String satelliteName) {
+            this.satelliteName = satelliteName;
+            return this;
+        }
+
+        /**
+         * Sets the threshold that is passed to the sorting algorithm.
+         * @param threshold The threshold.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder threshold(int threshold) {
+            this.threshold = threshold;
+            return this;
+        }
+
+        /**
+         * Sets the name of the sorting algorithm.
+         * @param algorithm The name of the sorting algorithm, or {@code null} to use the
+         *                  {@linkplain Sorters#DEFAULT_ALGORITHM default algorithm}.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder algorithm(@Nullable String algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * Sets the kind of job that processes the data.
+         * @param jobType The kind of job, or {@code null} for a {@link JobType#SORT} job.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder jobType(@Nullable JobType jobType) {
+            this.jobType = jobType;
+            return this;
+        }
+
+        /**
+         * Sets the format in which the image of the data is saved.
+         * @param imageFormat The image format, or {@code null} for a {@link ImageFormat#JPEG} image.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder imageFormat(@Nullable ImageFormat imageFormat) {
+            this.imageFormat = imageFormat;
+            return this;
+        }
+
+        /**
+         * Sets the histogram of the data that a {@link JobType#HISTOGRAM} job renders its image from.
+         * @param histogram The histogram, or {@code null} to count it from the data.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder histogram(@Nullable long[] histogram) {
+            this.histogram = histogram;
+            return this;
+        }
+
+        /**
+         * Sets the data to process, which may be left empty if the histogram is set.
+         * @param data The data.
+         * @return This {@link Builder}
+         */
+        @NotNull
+        public Builder data(@NotNull int...data) {
+            this.data = data;
+            return this;
+        }
 
-        this.satelliteName = Objects.requireNonNull(satelliteName, "'satelliteName' cannot be null.");
-        this.threshold = threshold;
-        this.data = Objects.requireNonNull(data, "'data' cannot be null.");
+        /**
+         * Creates the {@link SparkJobConfiguration}
+         * @return The {@link SparkJobConfiguration}
+         * @throws NullPointerException If the name of the satellite session or the data is {@code null}
+         */
+        @NotNull
+        public SparkJobConfiguration build() {
+            return new SparkJobConfiguration(this);
+        }
     }
 }
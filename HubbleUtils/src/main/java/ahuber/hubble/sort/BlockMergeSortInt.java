@@ -0,0 +1,423 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.utils.ForEachAction;
+import ahuber.hubble.utils.PublicApi;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Sorts {@code int} arrays using a cache-aware Merge Sort. The array is divided into blocks that fit in the CPU's
+ * level 1 data cache, each block is sorted in place with {@link Arrays#sort(int[], int, int)}, and the sorted blocks
+ * are then merged {@linkplain #getFanIn() many at a time} instead of two at a time.
+ * <p>
+ * Every level of merges reads and writes the whole array once, so merging {@code k} runs at a time reduces the number
+ * of passes over memory from roughly log<sub>2</sub>(n / block length) to log<sub>k</sub>(n / block length). For a
+ * frame of 2<sup>24</sup> values, 32 KB blocks, and the default fan-in, that is 5 passes instead of 12.
+ */
+public final class BlockMergeSortInt {
+
+    /**
+     * The number of bytes in a block when the size of the level 1 data cache cannot be detected.
+     */
+    public static final int DEFAULT_BLOCK_BYTES = 32 << 10;
+
+    /**
+     * The smallest number of bytes in a detected block.
+     */
+    public static final int MIN_BLOCK_BYTES = 16 << 10;
+
+    /**
+     * The largest number of bytes in a detected block.
+     */
+    public static final int MAX_BLOCK_BYTES = 64 << 10;
+
+    /**
+     * The number of runs that are merged at a time by default.
+     */
+    public static final int DEFAULT_FAN_IN = 16;
+
+    /**
+     * The smallest number of values a task merges when a single merge is split between several tasks.
+     */
+    private static final int MIN_PART_LENGTH = 1 << 15;
+
+    private static final Path CPU_CACHE_DIRECTORY = Paths.get("/sys/devices/system/cpu/cpu0/cache");
+
+    private final int blockLength;
+    private final int fanIn;
+
+    /**
+     * Creates a new {@link BlockMergeSortInt} whose blocks are the size of the level 1 data cache, as determined by
+     * {@link #detectBlockBytes()}, and that merges {@value #DEFAULT_FAN_IN} runs at a time.
+     */
+    @PublicApi
+    public BlockMergeSortInt() {
+        this(detectBlockBytes() / Integer.BYTES, DEFAULT_FAN_IN);
+    }
+
+    /**
+     * Creates a new {@link BlockMergeSortInt}
+     * @param blockLength The number of {@code int} values in each block that is sorted before the merges begin.
+     * @param fanIn The number of runs that are merged at a time.
+     * @throws IllegalArgumentException If {@code blockLength} is less than 1 or {@code fanIn} is less than 2.
+     */
+    @PublicApi
+    public BlockMergeSortInt(int blockLength, int fanIn) {
+        if (blockLength < 1) {
+            String message = String.format("The block length cannot be less than 1. (blockLength: %d)", blockLength);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (fanIn < 2) {
+            String message = String.format("The fan-in cannot be less than 2. (fanIn: %d)", fanIn);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.blockLength = blockLength;
+        this.fanIn = fanIn;
+    }
+
+    /**
+     * Gets the number of {@code int} values in each block that is sorted before the merges begin.
+     * @return The block length.
+     */
+    public int getBlockLength() {
+        return blockLength;
+    }
+
+    /**
+     * Gets the number of runs that are merged at a time.
+     * @return The fan-in.
+     */
+    public int getFanIn() {
+        return fanIn;
+    }
+
+    /**
+     * Gets the number of times an array of the specified length is read and written in full when it is sorted: once
+     * to sort the blocks, once per level of merges, and once more to copy the result back into the array if it ended
+     * up in the buffer.
+     * @param length The length of the array.
+     * @return The number of passes over the array.
+     * @throws IllegalArgumentException If {@code length} is negative.
+     */
+    public int getPassCount(int length) {
+        if (length < 0) {
+            String message = String.format("The length cannot be negative. (length: %d)", length);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (length == 0) {
+            return 0;
+        }
+
+        int levels = getMergeLevels(length);
+        return 1 + levels + (levels % 2);
+    }
+
+    /**
+     * Sorts the provided array on the provided {@link ForkJoinPool}.
+     * @param array The array to sort.
+     * @param pool The {@link ForkJoinPool} that sorts the blocks and merges the runs.
+     * @throws NullPointerException If {@code array} or {@code pool} is {@code null}
+     */
+    public void sort(@NotNull int[] array, @NotNull ForkJoinPool pool) {
+        sort(array, pool, SortControl.none());
+    }
+
+    /**
+     * Sorts the provided array on the provided {@link ForkJoinPool}, stopping early if the {@link SortControl} asks it
+     * to.
+     * @param array The array to sort.
+     * @param pool The {@link ForkJoinPool} that sorts the blocks and merges the runs.
+     * @param control The {@link SortControl} that is checked before each block is sorted and before each level of
+     *                merges, and that receives the fraction of the passes over the array that have completed.
+     * @throws NullPointerException If {@code array}, {@code pool}, or {@code control} is {@code null}
+     * @throws SortCancelledException If the sort was cancelled or its deadline passed before it finished.
+     */
+    public void sort(@NotNull int[] array, @NotNull ForkJoinPool pool, @NotNull SortControl control) {
+        Objects.requireNonNull(array, "The array cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        Objects.requireNonNull(control, "The control cannot be null");
+        int length = array.length;
+        int levels = getMergeLevels(length);
+        control.beginWork((long) length * (1 + levels));
+
+        if (levels == 0) {
+            control.throwIfCancelled();
+            Arrays.sort(array);
+            control.completeWork(length);
+            return;
+        }
+
+        int blocks = (length - 1) / blockLength + 1;
+        // A cancelled sort skips the remaining blocks rather than throwing from one of them, since a throw would return
+        // from the join while other blocks are still being sorted in place
+        pool.submit(new ForEachAction(0, blocks, block -> {
+            if (control.isCancelled()) {
+                return;
+            }
+
+            int start = block * blockLength;
+            int end = Math.min(length, start + blockLength);
+            Arrays.sort(array, start, end);
+            control.completeWork(end - start);
+        })).join();
+
+        int[] source = array;
+        int[] target = new int[length];
+
+        try {
+            for (long runLength = blockLength; runLength < length; runLength *= fanIn) {
+                control.throwIfCancelled();
+                int[] levelSource = source;
+                int[] levelTarget = target;
+                List<Merge> merges = planMerges(source, (int) runLength, pool.getParallelism());
+
+                // The control is only checked between levels. A level that stopped part way would leave the array
+                // holding neither the runs of the previous level nor those of this one.
+                pool.submit(new ForEachAction(0, merges.size(), index -> {
+                    Merge merge = merges.get(index);
+                    merge(levelSource, merge.starts, merge.ends, levelTarget, merge.offset);
+                    control.completeWork(merge.length);
+                })).join();
+
+                source = levelTarget;
+                target = levelSource;
+            }
+        } finally {
+            // The runs of the last complete level are in the buffer when the number of levels completed is odd
+            if (source != array) {
+                System.arraycopy(source, 0, array, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Determines the number of bytes in each block from the size of the level 1 data cache reported by Linux, clamped
+     * between {@value #MIN_BLOCK_BYTES} and {@value #MAX_BLOCK_BYTES} bytes.
+     * @return The number of bytes in a block, or {@value #DEFAULT_BLOCK_BYTES} if the size of the cache cannot be
+     * determined.
+     */
+    public static int detectBlockBytes() {
+        try (DirectoryStream<Path> indices = Files.newDirectoryStream(CPU_CACHE_DIRECTORY, "index*")) {
+            for (Path index : indices) {
+                if (readCacheProperty(index, "level").equals("1") && readCacheProperty(index, "type").equals("Data")) {
+                    long bytes = parseCacheSize(readCacheProperty(index, "size"));
+                    return (int) Math.max(MIN_BLOCK_BYTES, Math.min(MAX_BLOCK_BYTES, bytes));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // The cache directory is only available on Linux
+        }
+
+        return DEFAULT_BLOCK_BYTES;
+    }
+
+    private int getMergeLevels(int length) {
+        int levels = 0;
+
+        for (long runLength = blockLength; runLength < length; runLength *= fanIn) {
+            levels++;
+        }
+
+        return levels;
+    }
+
+    /**
+     * Divides one level of merges into tasks. Each group of {@link #fanIn} runs is merged by a single task, unless
+     * there are too few groups to occupy the pool, in which case the values of the group are divided into ranges using
+     * splitters sampled from its runs, and each range is merged by a separate task.
+     */
+    private List<Merge> planMerges(int[] source, int runLength, int parallelism) {
+        int length = source.length;
+        long groupLength = (long) runLength * fanIn;
+        int groups = (int) ((length - 1) / groupLength + 1);
+        List<Merge> merges = new ArrayList<>();
+
+        for (int group = 0; group < groups; group++) {
+            int start = (int) (group * groupLength);
+            int end = (int) Math.min(length, start + groupLength);
+            int runs = (end - start - 1) / runLength + 1;
+            int[] starts = new int[runs];
+            int[] ends = new int[runs];
+
+            for (int run = 0; run < runs; run++) {
+                starts[run] = start + run * runLength;
+                ends[run] = Math.min(end, starts[run] + runLength);
+            }
+
+            int parts = groups >= parallelism ? 1 :
+                    Math.min((end - start - 1) / MIN_PART_LENGTH + 1, (4 * parallelism - 1) / groups + 1);
+
+            if (parts == 1) {
+                merges.add(new Merge(starts, ends, start, end - start));
+                continue;
+            }
+
+            int[] splitters = sampleSplitters(source, starts, ends, parts);
+            int[] partStarts = starts.clone();
+            int offset = start;
+
+            for (int part = 0; part < parts; part++) {
+                int[] partEnds = part == parts - 1 ? ends : new int[runs];
+                int partLength = 0;
+
+                for (int run = 0; run < runs; run++) {
+                    if (part < parts - 1) {
+                        partEnds[run] = lowerBound(source, partStarts[run], ends[run], splitters[part]);
+                    }
+
+                    partLength += partEnds[run] - partStarts[run];
+                }
+
+                merges.add(new Merge(partStarts, partEnds, offset, partLength));
+                partStarts = partEnds.clone();
+                offset += partLength;
+            }
+        }
+
+        return merges;
+    }
+
+    private static int[] sampleSplitters(int[] source, int[] starts, int[] ends, int parts) {
+        int runs = starts.length;
+        int[] samples = new int[runs * parts];
+
+        for (int run = 0; run < runs; run++) {
+            int runLength = ends[run] - starts[run];
+
+            for (int sample = 0; sample < parts; sample++) {
+                int position = starts[run] + (int) ((long) (sample + 1) * runLength / (parts + 1));
+                samples[run * parts + sample] = source[position];
+            }
+        }
+
+        Arrays.sort(samples);
+        int[] splitters = new int[parts - 1];
+
+        for (int part = 0; part < splitters.length; part++) {
+            splitters[part] = samples[(part + 1) * runs];
+        }
+
+        return splitters;
+    }
+
+    private static int lowerBound(int[] array, int startInclusive, int endExclusive, int value) {
+        int low = startInclusive;
+        int high = endExclusive;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (array[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Merges the sorted runs {@code source[starts[i]..ends[i])} into {@code target}, starting at {@code offset}, using
+     * a binary heap of the runs ordered by their next value.
+     */
+    private static void merge(int[] source, int[] starts, int[] ends, int[] target, int offset) {
+        int[] positions = starts.clone();
+        int[] heap = new int[positions.length];
+        int size = 0;
+
+        for (int run = 0; run < positions.length; run++) {
+            if (positions[run] < ends[run]) {
+                heap[size++] = run;
+            }
+        }
+
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(source, positions, heap, size, i);
+        }
+
+        while (size > 1) {
+            int run = heap[0];
+            target[offset++] = source[positions[run]++];
+
+            if (positions[run] == ends[run]) {
+                heap[0] = heap[--size];
+            }
+
+            siftDown(source, positions, heap, size, 0);
+        }
+
+        if (size == 1) {
+            int run = heap[0];
+            System.arraycopy(source, positions[run], target, offset, ends[run] - positions[run]);
+        }
+    }
+
+    private static void siftDown(int[] source, int[] positions, int[] heap, int size, int index) {
+        int run = heap[index];
+        int value = source[positions[run]];
+
+        while (true) {
+            int child = 2 * index + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && source[positions[heap[child + 1]]] < source[positions[heap[child]]]) {
+                child++;
+            }
+
+            if (source[positions[heap[child]]] >= value) {
+                break;
+            }
+
+            heap[index] = heap[child];
+            index = child;
+        }
+
+        heap[index] = run;
+    }
+
+    private static String readCacheProperty(Path index, String name) throws IOException {
+        return new String(Files.readAllBytes(index.resolve(name)), StandardCharsets.US_ASCII).trim();
+    }
+
+    private static long parseCacheSize(String size) {
+        char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        int shift = unit == 'K' ? 10 : unit == 'M' ? 20 : unit == 'G' ? 30 : 0;
+        String digits = shift == 0 ? size : size.substring(0, size.length() - 1);
+        return Long.parseLong(digits) << shift;
+    }
+
+    /**
+     * The runs, or ranges of runs, that a single task merges.
+     */
+    private static class Merge {
+        private final int[] starts;
+        private final int[] ends;
+        private final int offset;
+        private final int length;
+
+        Merge(int[] starts, int[] ends, int offset, int length) {
+            this.starts = starts;
+            this.ends = ends;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
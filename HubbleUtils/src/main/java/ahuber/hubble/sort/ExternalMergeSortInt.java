@@ -0,0 +1,505 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.utils.PublicApi;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Sorts {@code int} data that does not necessarily fit in memory using an external Merge Sort. The data is read in
+ * chunks that fit within a memory budget, each chunk is sorted in memory using {@link MergeSortInt} and spilled to a
+ * temporary file (a "run"), and the runs are then merged back together using a k-way merge that reads each run
+ * through {@link MappedByteBuffer}s.
+ * <p>
+ * All binary {@code int} data read or written by this class, including the runs, is a sequence of big-endian
+ * {@code int} values, i.e., the same format produced by {@link java.io.DataOutputStream#writeInt(int)}.
+ */
+public final class ExternalMergeSortInt {
+
+    /**
+     * The number of bytes that are written to or read from a {@link FileChannel} at a time.
+     */
+    private static final int IO_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * The largest number of bytes of a run that are mapped into memory at a time.
+     */
+    private static final long MAX_WINDOW_BYTES = 64L << 20;
+
+    private final int threshold;
+    private final long memoryBudgetBytes;
+    @NotNull private final Path tempDirectory;
+
+    /**
+     * Creates a new {@link ExternalMergeSortInt} that may use up to a quarter of the JVM's maximum heap size and that
+     * spills runs to the directory specified by the {@code java.io.tmpdir} system property.
+     * @param threshold The maximum length of a sub-array where the sub-array is sorted using insertion sort without
+     *                  splitting the sub-array into two halves when each chunk is sorted in memory.
+     * @throws IllegalArgumentException If {@code threshold} is less than 2.
+     */
+    @PublicApi
+    public ExternalMergeSortInt(int threshold) {
+        this(threshold, Runtime.getRuntime().maxMemory() / 4, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Creates a new {@link ExternalMergeSortInt}
+     * @param threshold The maximum length of a sub-array where the sub-array is sorted using insertion sort without
+     *                  splitting the sub-array into two halves when each chunk is sorted in memory.
+     * @param memoryBudgetBytes The maximum number of heap bytes used to sort a chunk. Half of the budget holds the
+     *                          chunk itself and the other half is reserved for the merge buffers {@link MergeSortInt}
+     *                          allocates while sorting it.
+     * @param tempDirectory The directory in which runs are spilled. Runs are deleted once they have been merged.
+     * @throws IllegalArgumentException If {@code threshold} is less than 2 or if {@code memoryBudgetBytes} cannot
+     * hold at least two {@code int} values per half.
+     * @throws NullPointerException If {@code tempDirectory} is {@code null}
+     */
+    @PublicApi
+    public ExternalMergeSortInt(int threshold, long memoryBudgetBytes, @NotNull Path tempDirectory) {
+        if (threshold < 2) {
+            String message = String.format("The threshold cannot be less than 2. (threshold: %d)", threshold);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (memoryBudgetBytes < 4L * Integer.BYTES) {
+            String message = String.format("The memory budget is too small. (memoryBudgetBytes: %d)",
+                    memoryBudgetBytes);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.threshold = threshold;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.tempDirectory = Objects.requireNonNull(tempDirectory, "'tempDirectory' cannot be null.");
+    }
+
+    /**
+     * Gets the number of {@code int} values that are sorted in memory at a time.
+     * @return The number of {@code int} values in each run, except possibly the last one.
+     */
+    public int getChunkLength() {
+        return (int) Math.min(Integer.MAX_VALUE - 8, memoryBudgetBytes / 2 / Integer.BYTES);
+    }
+
+    /**
+     * Sorts the provided array. If the array fits in a single chunk, it is sorted in memory using
+     * {@link MergeSortInt}. Otherwise it is spilled to disk in sorted runs that are merged back into the array, which
+     * bounds the additional memory used while sorting to the memory budget.
+     * @param array The array to sort.
+     * @throws IOException If an I/O error occurs while spilling or merging the runs.
+     * @throws NullPointerException If {@code array} is {@code null}
+     */
+    public void sort(@NotNull int[] array) throws IOException {
+        Objects.requireNonNull(array, "The array cannot be null");
+
+        if (array.length <= getChunkLength()) {
+            sortChunk(array, array.length, null);
+            return;
+        }
+
+        int[] position = {0};
+        List<Path> runs = createRuns(chunk -> {
+            int length = Math.min(chunk.length, array.length - position[0]);
+            System.arraycopy(array, position[0], chunk, 0, length);
+            position[0] += length;
+            return length;
+        });
+
+        int[] index = {0};
+        merge(runs, (buffer, length) -> {
+            buffer.get(array, index[0], length);
+            index[0] += length;
+        });
+    }
+
+    /**
+     * Sorts the {@code int} values stored in the input file and writes them to the output file.
+     * @param input The file containing the big-endian {@code int} values to sort.
+     * @param output The file that will contain the sorted big-endian {@code int} values. The file is created if it
+     *               does not exist and is truncated if it does.
+     * @throws IOException If an I/O error occurs, or if the length of {@code input} is not a multiple of
+     * {@link Integer#BYTES}
+     * @throws NullPointerException If {@code input} or {@code output} is {@code null}
+     */
+    public void sort(@NotNull Path input, @NotNull Path output) throws IOException {
+        Objects.requireNonNull(input, "'input' cannot be null.");
+        Objects.requireNonNull(output, "'output' cannot be null.");
+        List<Path> runs;
+
+        try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ)) {
+            if (inputChannel.size() % Integer.BYTES != 0) {
+                String message = String.format("The length of \"%s\" (%d bytes) is not a multiple of %d.", input,
+                        inputChannel.size(), Integer.BYTES);
+                throw new IOException(message);
+            }
+
+            ByteBuffer readBuffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+            runs = createRuns(chunk -> read(inputChannel, readBuffer, chunk));
+        }
+
+        try (FileChannel outputChannel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            sort(runs, outputChannel);
+        }
+    }
+
+    /**
+     * Sorts the {@code int} values produced by the provided iterator and writes them to the provided channel as
+     * big-endian {@code int} values.
+     * @param values An iterator over the values to sort. The iterator is read until it is exhausted.
+     * @param output The channel the sorted values are written to. The channel is not closed by this method.
+     * @throws IOException If an I/O error occurs.
+     * @throws NullPointerException If {@code values} or {@code output} is {@code null}
+     */
+    public void sort(@NotNull PrimitiveIterator.OfInt values, @NotNull WritableByteChannel output) throws IOException {
+        Objects.requireNonNull(values, "'values' cannot be null.");
+        Objects.requireNonNull(output, "'output' cannot be null.");
+
+        List<Path> runs = createRuns(chunk -> {
+            int length = 0;
+
+            while (length < chunk.length && values.hasNext()) {
+                chunk[length++] = values.nextInt();
+            }
+
+            return length;
+        });
+
+        sort(runs, output);
+    }
+
+    private void sort(@NotNull List<Path> runs, @NotNull WritableByteChannel output) throws IOException {
+        ByteBuffer writeBuffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+        IntBuffer writeView = writeBuffer.asIntBuffer();
+
+        merge(runs, (buffer, length) -> {
+            while (length > 0) {
+                int count = Math.min(length, writeView.remaining());
+                writeView.put(buffer.array(), buffer.position(), count);
+                buffer.position(buffer.position() + count);
+                length -= count;
+
+                if (!writeView.hasRemaining()) {
+                    flush(writeView, writeBuffer, output);
+                }
+            }
+        });
+
+        flush(writeView, writeBuffer, output);
+    }
+
+    // region Runs
+
+    /**
+     * Fills chunks using the provided source, sorts each chunk in memory, and spills each sorted chunk to a run.
+     * @param source The source of the chunks.
+     * @return The paths of the runs in the order they were created.
+     * @throws IOException If an I/O error occurs. Any runs created before the error occurred are deleted.
+     */
+    @NotNull
+    private List<Path> createRuns(@NotNull ChunkSource source) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        int[] chunk = new int[getChunkLength()];
+        ByteBuffer writeBuffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+        IntBuffer writeView = writeBuffer.asIntBuffer();
+        ForkJoinPool pool = new ForkJoinPool();
+
+        try {
+            int length;
+
+            while ((length = source.fill(chunk)) > 0) {
+                sortChunk(chunk, length, pool);
+                Path run = Files.createTempFile(tempDirectory, "hubble-run-", ".bin");
+                runs.add(run);
+
+                try (FileChannel channel = FileChannel.open(run, StandardOpenOption.WRITE)) {
+                    for (int offset = 0; offset < length; ) {
+                        int count = Math.min(length - offset, writeView.remaining());
+                        writeView.put(chunk, offset, count);
+                        offset += count;
+                        flush(writeView, writeBuffer, channel);
+                    }
+                }
+            }
+
+            return runs;
+        } catch (IOException | RuntimeException exception) {
+            deleteRuns(runs);
+            throw exception;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sorts the first {@code length} elements of the chunk in memory.
+     */
+    private void sortChunk(@NotNull int[] chunk, int length, ForkJoinPool pool) {
+        if (length < 2) {
+            return;
+        }
+
+        int[] values = length == chunk.length ? chunk : new int[length];
+
+        if (values != chunk) {
+            System.arraycopy(chunk, 0, values, 0, length);
+        }
+
+        int chunkThreshold = Math.min(threshold, length);
+
+        if (pool == null) {
+            MergeSortInt.sort(values, chunkThreshold);
+        } else {
+            MergeSortInt.sort(values, chunkThreshold, pool);
+        }
+
+        if (values != chunk) {
+            System.arraycopy(values, 0, chunk, 0, length);
+        }
+    }
+
+    /**
+     * Performs a k-way merge of the provided runs and deletes them afterwards.
+     * @param runs The runs to merge.
+     * @param sink The sink that receives the merged values in ascending order, one block at a time.
+     * @throws IOException If an I/O error occurs.
+     */
+    private void merge(@NotNull List<Path> runs, @NotNull MergeSink sink) throws IOException {
+        List<RunCursor> cursors = new ArrayList<>(runs.size());
+
+        try {
+            long windowBytes = Math.max(Integer.BYTES, Math.min(MAX_WINDOW_BYTES,
+                    memoryBudgetBytes / Math.max(1, runs.size()) / Integer.BYTES * Integer.BYTES));
+
+            for (Path run : runs) {
+                RunCursor cursor = new RunCursor(FileChannel.open(run, StandardOpenOption.READ), windowBytes);
+                cursors.add(cursor);
+            }
+
+            // A binary min-heap of the cursors that have not been exhausted, ordered by their current values.
+            RunCursor[] heap = cursors.stream().filter(RunCursor::hasCurrent).toArray(RunCursor[]::new);
+            int heapSize = heap.length;
+
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(heap, heapSize, i);
+            }
+
+            IntBuffer block = IntBuffer.allocate(IO_BUFFER_BYTES / Integer.BYTES);
+
+            while (heapSize > 0) {
+                RunCursor smallest = heap[0];
+                block.put(smallest.current());
+
+                if (!block.hasRemaining()) {
+                    drain(block, sink);
+                }
+
+                if (smallest.advance()) {
+                    siftDown(heap, heapSize, 0);
+                } else {
+                    heap[0] = heap[--heapSize];
+                    siftDown(heap, heapSize, 0);
+                }
+            }
+
+            drain(block, sink);
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.close();
+            }
+
+            deleteRuns(runs);
+        }
+    }
+
+    private static void siftDown(@NotNull RunCursor[] heap, int heapSize, int index) {
+        RunCursor cursor = heap[index];
+
+        while (true) {
+            int child = 2 * index + 1;
+
+            if (child >= heapSize) {
+                break;
+            }
+
+            if (child + 1 < heapSize && heap[child + 1].current() < heap[child].current()) {
+                child++;
+            }
+
+            if (cursor.current() <= heap[child].current()) {
+                break;
+            }
+
+            heap[index] = heap[child];
+            index = child;
+        }
+
+        heap[index] = cursor;
+    }
+
+    private static void drain(@NotNull IntBuffer block, @NotNull MergeSink sink) throws IOException {
+        block.flip();
+
+        if (block.hasRemaining()) {
+            sink.accept(block, block.remaining());
+        }
+
+        block.clear();
+    }
+
+    private static void deleteRuns(@NotNull List<Path> runs) throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+    }
+
+    // endregion Runs
+
+    // region Channel I/O
+
+    /**
+     * Reads up to {@code chunk.length} {@code int} values from the channel into the chunk.
+     * @return The number of values read, which is zero once the channel is exhausted.
+     */
+    private static int read(@NotNull FileChannel channel, @NotNull ByteBuffer readBuffer, @NotNull int[] chunk)
+            throws IOException {
+        int length = 0;
+
+        while (length < chunk.length) {
+            readBuffer.clear();
+            long remainingBytes = (long) (chunk.length - length) * Integer.BYTES;
+            readBuffer.limit((int) Math.min(readBuffer.capacity(), remainingBytes));
+
+            if (channel.read(readBuffer) < 0) {
+                break;
+            }
+
+            // Only whole int values are consumed; the bytes of a partially-read value are read again next time.
+            int count = readBuffer.position() / Integer.BYTES;
+            channel.position(channel.position() - readBuffer.position() % Integer.BYTES);
+            readBuffer.flip();
+            readBuffer.asIntBuffer().get(chunk, length, count);
+            length += count;
+        }
+
+        return length;
+    }
+
+    /**
+     * Writes the values that have been put into {@code view} to the channel and clears the view.
+     */
+    private static void flush(@NotNull IntBuffer view, @NotNull ByteBuffer buffer, @NotNull WritableByteChannel channel)
+            throws IOException {
+        buffer.clear();
+        buffer.limit(view.position() * Integer.BYTES);
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        view.clear();
+    }
+
+    // endregion Channel I/O
+
+    // region Inner classes
+
+    /**
+     * Supplies the data to sort one chunk at a time.
+     */
+    @FunctionalInterface
+    private interface ChunkSource {
+        /**
+         * Fills the chunk with the next values to sort.
+         * @param chunk The chunk to fill.
+         * @return The number of values placed at the start of the chunk, or zero if there are no more values.
+         * @throws IOException If an I/O error occurs.
+         */
+        int fill(@NotNull int[] chunk) throws IOException;
+    }
+
+    /**
+     * Receives the merged values.
+     */
+    @FunctionalInterface
+    private interface MergeSink {
+        /**
+         * Consumes the next {@code length} merged values, starting at the buffer's position.
+         * @param buffer A heap {@link IntBuffer} containing the merged values.
+         * @param length The number of values to consume.
+         * @throws IOException If an I/O error occurs.
+         */
+        void accept(@NotNull IntBuffer buffer, int length) throws IOException;
+    }
+
+    /**
+     * Reads a run through a sliding window that is memory-mapped one piece at a time.
+     */
+    private static final class RunCursor implements AutoCloseable {
+        @NotNull private final FileChannel channel;
+        private final long windowBytes;
+        private final long size;
+        private long mappedUntil;
+        private IntBuffer window;
+        private int current;
+        private boolean hasCurrent;
+
+        RunCursor(@NotNull FileChannel channel, long windowBytes) throws IOException {
+            this.channel = channel;
+            this.windowBytes = windowBytes;
+            this.size = channel.size();
+            advance();
+        }
+
+        boolean hasCurrent() {
+            return hasCurrent;
+        }
+
+        int current() {
+            return current;
+        }
+
+        /**
+         * Moves to the next value in the run.
+         * @return {@code false} if the run has been exhausted.
+         */
+        boolean advance() throws IOException {
+            if (window == null || !window.hasRemaining()) {
+                if (mappedUntil >= size) {
+                    hasCurrent = false;
+                    return false;
+                }
+
+                long length = Math.min(windowBytes, size - mappedUntil);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, mappedUntil, length);
+                mappedUntil += length;
+                window = mapped.asIntBuffer();
+            }
+
+            current = window.get();
+            hasCurrent = true;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+
+    // endregion Inner classes
+}
@@ -0,0 +1,303 @@
+package ahuber.hubble.sort;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Sorts {@code int} data while it is still being collected. Each chunk {@linkplain #add(int[]) added} to an
+ * {@link IncrementalSortInt} is sorted on an {@link Executor} as soon as it arrives, so when the last chunk has been
+ * added, only a single k-way merge of the pre-sorted chunks remains to be done by {@link #finish()}.
+ * <p>
+ * An {@link IncrementalSortInt} sorts a single data set and cannot be reused once {@link #finish()} has been called.
+ * If the sort is stopped by its {@link SortControl}, {@link #finish()} throws a {@link SortCancelledException} and
+ * {@link #abandon()} gives back the values that were added, unsorted.
+ */
+public final class IncrementalSortInt {
+
+    /**
+     * The number of values that are merged between checks of the {@link SortControl}.
+     */
+    private static final int MERGE_CHECK_INTERVAL = 1 << 16;
+
+    private final int chunkLength;
+    private final int threshold;
+    @NotNull private final Sorter sorter;
+    @NotNull private final Executor executor;
+    @NotNull private final SortControl control;
+    @NotNull private final List<int[]> chunks = new ArrayList<>();
+    @NotNull private final List<CompletableFuture<int[]>> sortedChunks = new ArrayList<>();
+    private int size;
+    private boolean finished;
+    private volatile boolean sorted;
+
+    /**
+     * Creates a new {@link IncrementalSortInt}
+     * @param chunkLength The preferred number of values in each chunk. Producers should use this to decide how many
+     *                    values to gather before {@linkplain #add(int[]) adding} a chunk.
+     * @param sorter The {@link Sorter} that sorts each chunk.
+     * @param threshold The threshold passed to {@code sorter}. It is reduced to the length of a chunk for chunks that
+     *                  are shorter than it.
+     * @param executor The {@link Executor} on which the chunks are sorted.
+     * @throws IllegalArgumentException If {@code chunkLength} is less than 1.
+     * @throws NullPointerException If {@code sorter} or {@code executor} is {@code null}
+     */
+    public IncrementalSortInt(int chunkLength, @NotNull Sorter sorter, int threshold, @NotNull Executor executor) {
+        this(chunkLength, sorter, threshold, executor, SortControl.none());
+    }
+
+    /**
+     * Creates a new {@link IncrementalSortInt} that can be stopped early through a {@link SortControl}
+     * @param chunkLength The preferred number of values in each chunk. Producers should use this to decide how many
+     *                    values to gather before {@linkplain #add(int[]) adding} a chunk.
+     * @param sorter The {@link Sorter} that sorts each chunk.
+     * @param threshold The threshold passed to {@code sorter}. It is reduced to the length of a chunk for chunks that
+     *                  are shorter than it.
+     * @param executor The {@link Executor} on which the chunks are sorted.
+     * @param control The {@link SortControl} that stops the sort of every chunk and the final merge. Each chunk is
+     *                sorted with a {@linkplain SortControl#fork() fork} of it, so it does not receive any progress.
+     * @throws IllegalArgumentException If {@code chunkLength} is less than 1.
+     * @throws NullPointerException If {@code sorter}, {@code executor}, or {@code control} is {@code null}
+     */
+    public IncrementalSortInt(int chunkLength, @NotNull Sorter sorter, int threshold, @NotNull Executor executor,
+            @NotNull SortControl control) {
+        if (chunkLength < 1) {
+            String message = String.format("The chunk length cannot be less than 1. (chunkLength: %d)", chunkLength);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.chunkLength = chunkLength;
+        this.sorter = Objects.requireNonNull(sorter, "'sorter' cannot be null.");
+        this.threshold = threshold;
+        this.executor = Objects.requireNonNull(executor, "'executor' cannot be null.");
+        this.control = Objects.requireNonNull(control, "'control' cannot be null.");
+    }
+
+    /**
+     * Gets the preferred number of values in each chunk.
+     * @return The preferred number of values in each chunk.
+     */
+    public int getChunkLength() {
+        return chunkLength;
+    }
+
+    /**
+     * Gets the total number of values that have been added so far.
+     * @return The total number of values that have been added so far.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Determines whether {@link #finish()} has returned the sorted values.
+     * @return {@code true} if the values were sorted.
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Adds a chunk of values and starts sorting it in the background. The array is sorted in place, so the caller
+     * must not modify it afterwards.
+     * @param chunk The chunk to add. It may be shorter or longer than the {@linkplain #getChunkLength() preferred
+     *              chunk length}.
+     * @throws NullPointerException If {@code chunk} is {@code null}
+     * @throws IllegalStateException If {@link #finish()} has already been called.
+     */
+    public synchronized void add(@NotNull int[] chunk) {
+        Objects.requireNonNull(chunk, "The chunk cannot be null");
+
+        if (finished) {
+            throw new IllegalStateException("Chunks cannot be added after the sort has finished.");
+        }
+
+        if (chunk.length == 0) {
+            return;
+        }
+
+        size = Math.addExact(size, chunk.length);
+        chunks.add(chunk);
+        sortedChunks.add(CompletableFuture.supplyAsync(() -> {
+            if (chunk.length > 1) {
+                sorter.sort(chunk, Math.max(2, Math.min(threshold, chunk.length)), control.fork());
+            }
+
+            return chunk;
+        }, executor));
+    }
+
+    /**
+     * Waits for every chunk to be sorted and merges the sorted chunks into a single array.
+     * @return An array containing every value that was added, sorted in ascending order.
+     * @throws InterruptedException If the current thread is interrupted while waiting for a chunk to be sorted.
+     * @throws IllegalStateException If {@link #finish()} has already been called.
+     * @throws SortCancelledException If the sort was stopped by its {@link SortControl}
+     * @throws RuntimeException If sorting a chunk failed. The cause is the exception thrown by the {@link Sorter}.
+     */
+    @NotNull
+    public int[] finish() throws InterruptedException {
+        List<CompletableFuture<int[]>> pending;
+        int length;
+
+        synchronized (this) {
+            if (finished) {
+                throw new IllegalStateException("The sort has already finished.");
+            }
+
+            finished = true;
+            pending = new ArrayList<>(sortedChunks);
+            length = size;
+        }
+
+        int[][] sortedArrays = new int[pending.size()][];
+
+        for (int i = 0; i < sortedArrays.length; i++) {
+            try {
+                sortedArrays[i] = pending.get(i).get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SortCancelledException) {
+                    throw (SortCancelledException) e.getCause();
+                }
+
+                throw new RuntimeException("Unable to sort a chunk.", e.getCause());
+            }
+        }
+
+        int[] merged = merge(sortedArrays, length, control);
+        sorted = true;
+        return merged;
+    }
+
+    /**
+     * Stops sorting and gives back every value that was added, in no particular order. This waits for any chunk that
+     * is still being sorted to stop, so it should be preceded by {@linkplain SortControl#cancel() cancelling} the
+     * {@link SortControl} unless its deadline has already passed.
+     * @return An array containing every value that was added.
+     * @throws InterruptedException If the current thread is interrupted while waiting for a chunk to stop.
+     */
+    @NotNull
+    public int[] abandon() throws InterruptedException {
+        List<int[]> added;
+        List<CompletableFuture<int[]>> pending;
+        int length;
+
+        synchronized (this) {
+            finished = true;
+            added = new ArrayList<>(chunks);
+            pending = new ArrayList<>(sortedChunks);
+            length = size;
+        }
+
+        for (CompletableFuture<int[]> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException ignored) {
+                // The chunk still holds its values whether or not it was sorted
+            }
+        }
+
+        int[] values = new int[length];
+        int offset = 0;
+
+        for (int[] chunk : added) {
+            System.arraycopy(chunk, 0, values, offset, chunk.length);
+            offset += chunk.length;
+        }
+
+        return values;
+    }
+
+    /**
+     * Merges arrays that are each sorted in ascending order into a single array sorted in ascending order using a
+     * k-way merge.
+     * @param sortedArrays The arrays, each of which is sorted in ascending order.
+     * @param length The total length of the arrays.
+     * @param control The {@link SortControl} that is checked every {@value #MERGE_CHECK_INTERVAL} values.
+     * @return The merged array.
+     */
+    @NotNull
+    private static int[] merge(@NotNull int[][] sortedArrays, int length, @NotNull SortControl control) {
+        if (sortedArrays.length == 1) {
+            return sortedArrays[0];
+        }
+
+        int[] merged = new int[length];
+
+        // A binary min-heap of the indices of the arrays that have not been exhausted, ordered by the value at the
+        // position each array has been read up to.
+        int[] positions = new int[sortedArrays.length];
+        int[] heap = new int[sortedArrays.length];
+        int heapSize = 0;
+
+        for (int i = 0; i < sortedArrays.length; i++) {
+            if (sortedArrays[i].length > 0) {
+                heap[heapSize++] = i;
+            }
+        }
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, sortedArrays, positions);
+        }
+
+        for (int index = 0; heapSize > 0; index++) {
+            if (index % MERGE_CHECK_INTERVAL == 0) {
+                control.throwIfCancelled();
+            }
+
+            int smallest = heap[0];
+            merged[index] = sortedArrays[smallest][positions[smallest]++];
+
+            if (positions[smallest] == sortedArrays[smallest].length) {
+                heap[0] = heap[--heapSize];
+            }
+
+            siftDown(heap, heapSize, 0, sortedArrays, positions);
+        }
+
+        return merged;
+    }
+
+    private static void siftDown(@NotNull int[] heap, int heapSize, int index, @NotNull int[][] arrays,
+            @NotNull int[] positions) {
+        if (heapSize == 0) {
+            return;
+        }
+
+        int array = heap[index];
+        int value = arrays[array][positions[array]];
+
+        while (true) {
+            int child = 2 * index + 1;
+
+            if (child >= heapSize) {
+                break;
+            }
+
+            int childValue = arrays[heap[child]][positions[heap[child]]];
+
+            if (child + 1 < heapSize) {
+                int rightValue = arrays[heap[child + 1]][positions[heap[child + 1]]];
+
+                if (rightValue < childValue) {
+                    child++;
+                    childValue = rightValue;
+                }
+            }
+
+            if (value <= childValue) {
+                break;
+            }
+
+            heap[index] = heap[child];
+            index = child;
+        }
+
+        heap[index] = array;
+    }
+}
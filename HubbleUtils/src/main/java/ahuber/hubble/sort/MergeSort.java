@@ -8,6 +8,8 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.Comparator;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A class containing methods for sorting generic arrays using Merge Sort.
@@ -15,12 +17,13 @@ import java.util.Objects;
 public final class MergeSort {
 
     /**
-     * Sorts the provided array using a multi-threaded version of Merge Sort.
+     * Sorts the provided array using a multi-threaded version of Merge Sort that runs on the common
+     * {@link ForkJoinPool}.
      * @param array The array to sort.
      * @param threshold The maximum length of a sub-array where the sub-array is sorted using insertion sort without
      *                  splitting the sub-array in two halves.
      * @param <T> The type of data to sort.
-     * @throws InterruptedException If a thread is interrupted.
+     * @throws InterruptedException If the current thread is interrupted before the sort starts.
      * @throws IllegalArgumentException If {@code threshold} is not in the range 2 &le; {@code threshold} &le;
      * {@code array.length}
      * @throws NullPointerException If {@code array} is {@code null}
@@ -30,12 +33,13 @@ public final class MergeSort {
     }
 
     /**
-     * Sorts an array contained within the provided {@link ArrayWrapper} using a multi-threaded version of Merge Sort.
+     * Sorts an array contained within the provided {@link ArrayWrapper} using a multi-threaded version of Merge Sort
+     * that runs on the common {@link ForkJoinPool}.
      * @param wrapper The {@link ArrayWrapper}
      * @param threshold The maximum length of a sub-array where the sub-array is sorted using insertion sort without
      *                  splitting the sub-array into two halves.
      * @param <T> The type of data to sort.
-     * @throws InterruptedException If a thread is interrupted.
+     * @throws InterruptedException If the current thread is interrupted before the sort starts.
      * @throws IllegalArgumentException If {@code threshold} is not in the range 2 &le; {@code threshold} &le;
      * {@link ArrayWrapper#length()}
      * @throws NullPointerException If {@code array} is {@code null}
@@ -59,43 +63,13 @@ public final class MergeSort {
 
     private static <T extends Comparable<T>> void sort(@NotNull ArrayWrapper<T> wrapper, int startInclusive, int endInclusive,
             int threshold) throws InterruptedException {
-
-        int length = ArrayUtils.calculateLength(startInclusive, endInclusive, wrapper.length());
-
-        if (length >= threshold) {
-            try {
-                int middle = startInclusive + length / 2;
-                Thread leftHalfThread = new Thread(() -> {
-                    try {
-                        sort(wrapper, startInclusive, middle, threshold);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-                Thread rightHalfThread = new Thread(() -> {
-                    try {
-                        sort(wrapper, middle + 1, endInclusive, threshold);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-
-                leftHalfThread.start();
-                rightHalfThread.start();
-
-                leftHalfThread.join();
-                rightHalfThread.join();
-            } catch (RuntimeException exception) {
-
-                if (exception.getCause() instanceof InterruptedException) {
-                    throw (InterruptedException) exception.getCause();
-                }
-
-                throw exception;
-            }
+        // The halves used to be sorted on two new threads each, which exhausted the native threads of a JVM that runs
+        // many simulations at once. A ForkJoinPool reuses a fixed number of threads instead.
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
         }
 
-        insertionSort(wrapper, startInclusive, endInclusive);
+        ForkJoinPool.commonPool().invoke(new SortAction<>(wrapper, startInclusive, endInclusive, threshold));
     }
 
     private static <T extends Comparable<T>> void insertionSort(@NotNull ArrayWrapper<T> wrapper, int startInclusive,
@@ -119,4 +93,34 @@ public final class MergeSort {
     private static <T extends Comparable<T>> Comparator<T> getComparator() {
         return Comparator.nullsLast(Comparable::compareTo);
     }
-}
\ No newline at end of file
+
+    /**
+     * Sorts the two halves of a sub-array in parallel before sorting the whole sub-array with insertion sort.
+     */
+    private static class SortAction<T extends Comparable<T>> extends RecursiveAction {
+        @NotNull private final ArrayWrapper<T> wrapper;
+        private final int startInclusive;
+        private final int endInclusive;
+        private final int threshold;
+
+        SortAction(@NotNull ArrayWrapper<T> wrapper, int startInclusive, int endInclusive, int threshold) {
+            this.wrapper = wrapper;
+            this.startInclusive = startInclusive;
+            this.endInclusive = endInclusive;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            int length = ArrayUtils.calculateLength(startInclusive, endInclusive, wrapper.length());
+
+            if (length >= threshold) {
+                int middle = startInclusive + length / 2;
+                invokeAll(new SortAction<>(wrapper, startInclusive, middle, threshold),
+                        new SortAction<>(wrapper, middle + 1, endInclusive, threshold));
+            }
+
+            insertionSort(wrapper, startInclusive, endInclusive);
+        }
+    }
+}
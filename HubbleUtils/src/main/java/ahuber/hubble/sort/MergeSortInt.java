@@ -21,7 +21,69 @@ public final class MergeSortInt {
      * @throws NullPointerException If {@code array} is {@code null}
      */
     public static void sort(@NotNull int[] array, int threshold) {
+        ForkJoinPool pool = new ForkJoinPool();
+
+        try {
+            sort(array, threshold, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sorts the provided array using a multi-threaded version of Merge Sort that runs on the provided
+     * {@link ForkJoinPool}. Unlike {@link #sort(int[], int)}, this method does not create (or shut down) a pool of its
+     * own, which makes it suitable for callers that sort many arrays one after another.
+     * @param array The array to sort.
+     * @param threshold The maximum length of a sub-array where the sub-array is sorted using insertion sort without
+     *                  splitting the sub-array into two halves.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @throws IllegalArgumentException If {@code threshold} is not in the range 2 &le; {@code threshold} &le;
+     * {@code array.length}.
+     * @throws NullPointerException If {@code array} or {@code pool} is {@code null}
+     */
+    public static void sort(@NotNull int[] array, int threshold, @NotNull ForkJoinPool pool) {
+        sort(array, threshold, pool, SortControl.none());
+    }
+
+    /**
+     * Sorts the provided array using a multi-threaded version of Merge Sort that runs on the
+     * {@linkplain ForkJoinPool#commonPool() common pool} and can be stopped early through a {@link SortControl}.
+     * Unlike {@link #sort(int[], int)}, this does not create a pool for each call, so it is suitable for sorting many
+     * small arrays, e.g., the chunks of an {@link IncrementalSortInt}.
+     * @param array The array to sort.
+     * @param threshold The maximum length of a sub-array where the sub-array is sorted using insertion sort without
+     *                  splitting the sub-array into two halves.
+     * @param control The {@link SortControl} that is checked before each sub-array is sorted or merged, and that
+     *                receives the fraction of the elements whose sub-array has been sorted with insertion sort.
+     * @throws IllegalArgumentException If {@code threshold} is not in the range 2 &le; {@code threshold} &le;
+     * {@code array.length}.
+     * @throws NullPointerException If {@code array} or {@code control} is {@code null}
+     * @throws SortCancelledException If the sort was cancelled or its deadline passed before it finished.
+     */
+    public static void sort(@NotNull int[] array, int threshold, @NotNull SortControl control) {
+        sort(array, threshold, ForkJoinPool.commonPool(), control);
+    }
+
+    /**
+     * Sorts the provided array using a multi-threaded version of Merge Sort that runs on the provided
+     * {@link ForkJoinPool} and can be stopped early through a {@link SortControl}.
+     * @param array The array to sort.
+     * @param threshold The maximum length of a sub-array where the sub-array is sorted using insertion sort without
+     *                  splitting the sub-array into two halves.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @param control The {@link SortControl} that is checked before each sub-array is sorted or merged, and that
+     *                receives the fraction of the elements whose sub-array has been sorted with insertion sort.
+     * @throws IllegalArgumentException If {@code threshold} is not in the range 2 &le; {@code threshold} &le;
+     * {@code array.length}.
+     * @throws NullPointerException If {@code array}, {@code pool}, or {@code control} is {@code null}
+     * @throws SortCancelledException If the sort was cancelled or its deadline passed before it finished.
+     */
+    public static void sort(@NotNull int[] array, int threshold, @NotNull ForkJoinPool pool,
+            @NotNull SortControl control) {
         Objects.requireNonNull(array, "The array cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        Objects.requireNonNull(control, "The control cannot be null");
 
         if (threshold > array.length) {
             String message = String.format("threshold is greater than the array length. " +
@@ -29,8 +91,8 @@ public final class MergeSortInt {
             throw new IllegalArgumentException(message);
         }
 
-        ForkJoinPool pool = new ForkJoinPool();
-        MergeSortAction action = new MergeSortAction(array, 0, array.length - 1, threshold);
+        control.beginWork(array.length);
+        MergeSortAction action = new MergeSortAction(array, 0, array.length - 1, threshold, control);
         pool.submit(action).join();
     }
 
@@ -109,27 +171,55 @@ public final class MergeSortInt {
         private final int startInclusive;
         private final int endInclusive;
         private final int threshold;
+        private final SortControl control;
 
-        MergeSortAction(int[] array, int startInclusive, int endInclusive, int threshold) {
+        MergeSortAction(int[] array, int startInclusive, int endInclusive, int threshold, SortControl control) {
             this.array = array;
             this.startInclusive = startInclusive;
             this.endInclusive = endInclusive;
             this.threshold = threshold;
+            this.control = control;
         }
 
         @Override
         protected void compute() {
+            // A merge is never interrupted once it has started, so a cancelled sort leaves the values in the array
+            control.throwIfCancelled();
             int length = ArrayUtils.calculateLength(startInclusive, endInclusive, array.length);
 
             if (length < threshold) {
                 insertionSort(array, startInclusive, endInclusive);
+                control.completeWork(length);
                 return;
             }
 
             int middle = startInclusive + length / 2;
-            MergeSortAction leftAction = new MergeSortAction(array, startInclusive, middle, threshold);
-            MergeSortAction rightAction = new MergeSortAction(array, middle + 1, endInclusive, threshold);
-            invokeAll(leftAction, rightAction);
+            MergeSortAction leftAction = new MergeSortAction(array, startInclusive, middle, threshold, control);
+            MergeSortAction rightAction = new MergeSortAction(array, middle + 1, endInclusive, threshold, control);
+            rightAction.fork();
+            RuntimeException failure = null;
+
+            // invokeAll rethrows as soon as one half fails, while the other half may still be merging into the
+            // array. Both halves are waited for so that the array is quiet once the top-level join throws.
+            try {
+                leftAction.invoke();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            try {
+                rightAction.join();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+
+            control.throwIfCancelled();
             merge(array, startInclusive, middle, endInclusive);
         }
     }
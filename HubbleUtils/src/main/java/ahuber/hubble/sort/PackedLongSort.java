@@ -0,0 +1,417 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.utils.ForEachAction;
+import ahuber.hubble.utils.PublicApi;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class containing methods for sorting {@code int} values together with a payload, such as the index each value
+ * originally had, without creating an object for each value.
+ * <p>
+ * Each value and its payload are packed into a single {@code long}: the value in the high 32 bits, and the payload in
+ * the low 32 bits. Both sorts order the packed {@code long}s by their value alone and are stable, so values that are
+ * equal keep the order their payloads had before the sort. Packing each value with its index in the frame and sorting
+ * the packed {@code long}s therefore produces an argsort, i.e., the permutation that sorts the frame.
+ */
+public final class PackedLongSort {
+
+    /**
+     * Ranges no longer than this are sorted sequentially.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+    /**
+     * Ranges no longer than this are sorted with insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * The smallest number of elements that are counted and scattered by one task during a radix sort pass.
+     */
+    private static final int MIN_BLOCK_LENGTH = 1 << 14;
+
+    /**
+     * The number of bits of the value that are sorted by each radix sort pass.
+     */
+    private static final int RADIX_BITS = 8;
+
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    // region packing
+
+    /**
+     * Packs a value and its payload into a {@code long}.
+     * @param value The value, which the {@code long}s are sorted by.
+     * @param payload The payload, e.g., the index of the value.
+     * @return The packed {@code long}.
+     */
+    @Contract(pure = true)
+    public static long pack(int value, int payload) {
+        return (long) value << 32 | (payload & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Packs each value in the array with its index.
+     * @param values The values.
+     * @return An array where the element at index {@code i} is {@code pack(values[i], i)}
+     * @throws NullPointerException If {@code values} is {@code null}
+     */
+    @NotNull
+    public static long[] pack(@NotNull int[] values) {
+        Objects.requireNonNull(values, "The values cannot be null");
+        long[] packed = new long[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            packed[i] = pack(values[i], i);
+        }
+
+        return packed;
+    }
+
+    /**
+     * Gets the value from a packed {@code long}.
+     * @param packed The packed {@code long}.
+     * @return The value.
+     */
+    @Contract(pure = true)
+    public static int value(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * Gets the payload from a packed {@code long}.
+     * @param packed The packed {@code long}.
+     * @return The payload.
+     */
+    @Contract(pure = true)
+    public static int payload(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Gets the value from each packed {@code long}.
+     * @param packed The packed {@code long}s.
+     * @return An array where the element at index {@code i} is the value of {@code packed[i]}
+     * @throws NullPointerException If {@code packed} is {@code null}
+     */
+    @NotNull
+    public static int[] values(@NotNull long[] packed) {
+        Objects.requireNonNull(packed, "The packed array cannot be null");
+        int[] values = new int[packed.length];
+
+        for (int i = 0; i < packed.length; i++) {
+            values[i] = value(packed[i]);
+        }
+
+        return values;
+    }
+
+    /**
+     * Gets the payload from each packed {@code long}. If the payloads are the original indices of the values and the
+     * packed {@code long}s have been sorted, this is the permutation that sorts the original values.
+     * @param packed The packed {@code long}s.
+     * @return An array where the element at index {@code i} is the payload of {@code packed[i]}
+     * @throws NullPointerException If {@code packed} is {@code null}
+     */
+    @NotNull
+    public static int[] payloads(@NotNull long[] packed) {
+        Objects.requireNonNull(packed, "The packed array cannot be null");
+        int[] payloads = new int[packed.length];
+
+        for (int i = 0; i < packed.length; i++) {
+            payloads[i] = payload(packed[i]);
+        }
+
+        return payloads;
+    }
+
+    /**
+     * Gets the permutation that sorts the provided values in ascending order using a parallel radix sort that runs on
+     * the provided {@link ForkJoinPool}. Equal values are ordered by their index.
+     * @param values The values, which are not modified.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @return An array where the element at index {@code i} is the index in {@code values} of the value that has rank
+     * {@code i}
+     * @throws NullPointerException If {@code values} or {@code pool} is {@code null}
+     */
+    @NotNull
+    @PublicApi
+    public static int[] argsort(@NotNull int[] values, @NotNull ForkJoinPool pool) {
+        long[] packed = pack(values);
+        radixSort(packed, pool);
+        return payloads(packed);
+    }
+
+    // endregion packing
+
+    // region sorting
+
+    /**
+     * Sorts packed {@code long}s by their value using a stable, parallel Merge Sort that runs on the provided
+     * {@link ForkJoinPool}. The merges at the top levels of the recursion are split between tasks as well.
+     * @param packed The packed {@code long}s to sort.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @throws NullPointerException If {@code packed} or {@code pool} is {@code null}
+     */
+    public static void mergeSort(@NotNull long[] packed, @NotNull ForkJoinPool pool) {
+        Objects.requireNonNull(packed, "The packed array cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+
+        if (packed.length <= SEQUENTIAL_THRESHOLD) {
+            mergeSortSequential(packed, new long[packed.length], 0, packed.length, false);
+            return;
+        }
+
+        pool.invoke(new MergeSortAction(packed, new long[packed.length], 0, packed.length, false));
+    }
+
+    /**
+     * Sorts packed {@code long}s by their value using a stable, parallel least-significant-digit Radix Sort that runs
+     * on the provided {@link ForkJoinPool}. Each of the four passes sorts eight bits of the value; a pass is skipped
+     * when every value has the same digit.
+     * @param packed The packed {@code long}s to sort.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @throws NullPointerException If {@code packed} or {@code pool} is {@code null}
+     */
+    public static void radixSort(@NotNull long[] packed, @NotNull ForkJoinPool pool) {
+        Objects.requireNonNull(packed, "The packed array cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        int length = packed.length;
+
+        if (length < 2) {
+            return;
+        }
+
+        int parallelism = pool.getParallelism();
+        int blockLength = Math.max(MIN_BLOCK_LENGTH, (length + parallelism * 4 - 1) / (parallelism * 4));
+        int blockCount = (length + blockLength - 1) / blockLength;
+        long[] source = packed;
+        long[] destination = new long[length];
+
+        for (int shift = 32; shift < 64; shift += RADIX_BITS) {
+            // The value's sign bit is flipped so that negative values sort before positive values
+            int digitShift = shift;
+            long flip = shift + RADIX_BITS == 64 ? 1L << 63 : 0;
+            long[] from = source;
+            long[] to = destination;
+            int[][] counts = new int[blockCount][RADIX];
+
+            // Count the digits in each block
+            pool.invoke(new ForEachAction(0, blockCount, block -> {
+                int[] blockCounts = counts[block];
+                int end = Math.min(length, (block + 1) * blockLength);
+
+                for (int i = block * blockLength; i < end; i++) {
+                    blockCounts[(int) ((from[i] ^ flip) >>> digitShift) & (RADIX - 1)]++;
+                }
+            }));
+
+            // Turn the counts into the offset at which each block writes each digit. Digits are laid out one after
+            // the other, and within a digit the blocks are laid out in order, so each pass is stable.
+            int offset = 0;
+            boolean skip = false;
+
+            for (int digit = 0; digit < RADIX && !skip; digit++) {
+                int digitStart = offset;
+
+                for (int block = 0; block < blockCount; block++) {
+                    int count = counts[block][digit];
+                    counts[block][digit] = offset;
+                    offset += count;
+                }
+
+                skip = offset - digitStart == length;
+            }
+
+            if (skip) {
+                continue;
+            }
+
+            // Scatter each block by digit
+            pool.invoke(new ForEachAction(0, blockCount, block -> {
+                int[] offsets = counts[block];
+                int end = Math.min(length, (block + 1) * blockLength);
+
+                for (int i = block * blockLength; i < end; i++) {
+                    long element = from[i];
+                    to[offsets[(int) ((element ^ flip) >>> digitShift) & (RADIX - 1)]++] = element;
+                }
+            }));
+
+            source = to;
+            destination = from;
+        }
+
+        if (source != packed) {
+            System.arraycopy(source, 0, packed, 0, length);
+        }
+    }
+
+    // endregion sorting
+
+    // region helpers
+
+    /**
+     * Sorts {@code a[from..to)} by value, leaving the result in {@code b} if {@code intoB} is {@code true} and in
+     * {@code a} otherwise.
+     */
+    private static void mergeSortSequential(@NotNull long[] a, @NotNull long[] b, int from, int to, boolean intoB) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(a, from, to);
+
+            if (intoB) {
+                System.arraycopy(a, from, b, from, to - from);
+            }
+
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSortSequential(a, b, from, middle, !intoB);
+        mergeSortSequential(a, b, middle, to, !intoB);
+        long[] source = intoB ? a : b;
+        merge(source, from, middle, source, middle, to, intoB ? b : a, from);
+    }
+
+    private static void insertionSort(@NotNull long[] array, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long element = array[i];
+            int value = value(element);
+            int j = i - 1;
+
+            // Only strictly greater values are moved, which keeps the sort stable
+            while (j >= from && value(array[j]) > value) {
+                array[j + 1] = array[j];
+                j--;
+            }
+
+            array[j + 1] = element;
+        }
+    }
+
+    /**
+     * Merges two runs that are sorted by value into {@code destination}, taking from the left run first when values
+     * are equal.
+     */
+    private static void merge(@NotNull long[] left, int leftFrom, int leftTo, @NotNull long[] right, int rightFrom,
+            int rightTo, @NotNull long[] destination, int destinationFrom) {
+        int i = leftFrom;
+        int j = rightFrom;
+        int k = destinationFrom;
+
+        while (i < leftTo && j < rightTo) {
+            destination[k++] = value(right[j]) < value(left[i]) ? right[j++] : left[i++];
+        }
+
+        System.arraycopy(left, i, destination, k, leftTo - i);
+        System.arraycopy(right, j, destination, k + leftTo - i, rightTo - j);
+    }
+
+    /**
+     * Gets the index of the first element in the range whose value is greater than or equal to ({@code strict} is
+     * {@code false}) or greater than ({@code strict} is {@code true}) the specified value.
+     */
+    private static int search(@NotNull long[] array, int from, int to, int value, boolean strict) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            int middleValue = value(array[middle]);
+
+            if (middleValue < value || strict && middleValue == value) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+
+        return from;
+    }
+
+    // endregion helpers
+
+    private static class MergeSortAction extends RecursiveAction {
+        private final long[] a;
+        private final long[] b;
+        private final int from;
+        private final int to;
+        private final boolean intoB;
+
+        MergeSortAction(long[] a, long[] b, int from, int to, boolean intoB) {
+            this.a = a;
+            this.b = b;
+            this.from = from;
+            this.to = to;
+            this.intoB = intoB;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                mergeSortSequential(a, b, from, to, intoB);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new MergeSortAction(a, b, from, middle, !intoB), new MergeSortAction(a, b, middle, to, !intoB));
+            long[] source = intoB ? a : b;
+            new MergeAction(source, from, middle, middle, to, intoB ? b : a, from).compute();
+        }
+    }
+
+    /**
+     * Merges two sorted runs of the same array, splitting the merge between two tasks while the runs are long. The
+     * split point of the longer run is looked up in the shorter run so that equal values stay in order.
+     */
+    private static class MergeAction extends RecursiveAction {
+        private final long[] source;
+        private final int leftFrom;
+        private final int leftTo;
+        private final int rightFrom;
+        private final int rightTo;
+        private final long[] destination;
+        private final int destinationFrom;
+
+        MergeAction(long[] source, int leftFrom, int leftTo, int rightFrom, int rightTo, long[] destination,
+                int destinationFrom) {
+            this.source = source;
+            this.leftFrom = leftFrom;
+            this.leftTo = leftTo;
+            this.rightFrom = rightFrom;
+            this.rightTo = rightTo;
+            this.destination = destination;
+            this.destinationFrom = destinationFrom;
+        }
+
+        @Override
+        protected void compute() {
+            int leftLength = leftTo - leftFrom;
+            int rightLength = rightTo - rightFrom;
+
+            if (leftLength + rightLength <= SEQUENTIAL_THRESHOLD || leftLength == 0 || rightLength == 0) {
+                merge(source, leftFrom, leftTo, source, rightFrom, rightTo, destination, destinationFrom);
+                return;
+            }
+
+            int leftSplit;
+            int rightSplit;
+
+            if (leftLength >= rightLength) {
+                // Right values equal to the left split value belong after it
+                leftSplit = (leftFrom + leftTo) >>> 1;
+                rightSplit = search(source, rightFrom, rightTo, value(source[leftSplit]), false);
+            } else {
+                // Left values equal to the right split value belong before it
+                rightSplit = (rightFrom + rightTo) >>> 1;
+                leftSplit = search(source, leftFrom, leftTo, value(source[rightSplit]), true);
+            }
+
+            int destinationSplit = destinationFrom + (leftSplit - leftFrom) + (rightSplit - rightFrom);
+            invokeAll(new MergeAction(source, leftFrom, leftSplit, rightFrom, rightSplit, destination, destinationFrom),
+                    new MergeAction(source, leftSplit, leftTo, rightSplit, rightTo, destination, destinationSplit));
+        }
+    }
+}
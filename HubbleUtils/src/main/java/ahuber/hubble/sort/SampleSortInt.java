@@ -0,0 +1,282 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.utils.ForEachAction;
+import ahuber.hubble.utils.PublicApi;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A class containing methods for sorting {@code int} arrays using a parallel Sample Sort.
+ * <p>
+ * Unlike {@link MergeSortInt}, whose merges at the top levels of the recursion run on a single thread, every phase
+ * of Sample Sort runs in parallel: a random sample of the array is sorted to choose splitters that divide the values
+ * into buckets, each block of the array is classified and scattered into its buckets by its own task, and each bucket
+ * is then sorted independently.
+ */
+public final class SampleSortInt {
+
+    /**
+     * Arrays no longer than this are sorted sequentially.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    /**
+     * The smallest number of elements that are classified and scattered by one task.
+     */
+    private static final int MIN_BLOCK_LENGTH = 1 << 14;
+
+    /**
+     * The number of sample elements drawn for each bucket.
+     */
+    private static final int OVERSAMPLING_FACTOR = 32;
+
+    /**
+     * The maximum number of buckets. Bucket indices must fit in a {@code byte}.
+     */
+    private static final int MAX_BUCKETS = 256;
+
+    /**
+     * Sorts the provided array using a parallel Sample Sort on the {@linkplain ForkJoinPool#commonPool() common pool}.
+     * @param array The array to sort.
+     * @throws NullPointerException If {@code array} is {@code null}
+     */
+    @PublicApi
+    public static void sort(@NotNull int[] array) {
+        sort(array, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sorts the provided array using a parallel Sample Sort that runs on the provided {@link ForkJoinPool}. The
+     * number of buckets is chosen from the {@linkplain ForkJoinPool#getParallelism() pool's parallelism}.
+     * @param array The array to sort.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @throws NullPointerException If {@code array} or {@code pool} is {@code null}
+     */
+    public static void sort(@NotNull int[] array, @NotNull ForkJoinPool pool) {
+        sort(array, pool, SortControl.none());
+    }
+
+    /**
+     * Sorts the provided array using a parallel Sample Sort that runs on the provided {@link ForkJoinPool} and can be
+     * stopped early through a {@link SortControl}. The number of buckets is chosen from the
+     * {@linkplain ForkJoinPool#getParallelism() pool's parallelism}.
+     * @param array The array to sort.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @param control The {@link SortControl} that is checked before each block is classified or scattered and
+     *                before each bucket is sorted, and that receives the fraction of the elements whose bucket has
+     *                been sorted.
+     * @throws NullPointerException If {@code array}, {@code pool}, or {@code control} is {@code null}
+     * @throws SortCancelledException If the sort was cancelled or its deadline passed before it finished.
+     */
+    public static void sort(@NotNull int[] array, @NotNull ForkJoinPool pool, @NotNull SortControl control) {
+        Objects.requireNonNull(array, "The array cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        int buckets = Math.min(MAX_BUCKETS, Math.max(2, Integer.highestOneBit(pool.getParallelism() * 4)));
+        sort(array, buckets, pool, control);
+    }
+
+    /**
+     * Sorts the provided array using a parallel Sample Sort with the specified number of buckets that runs on the
+     * provided {@link ForkJoinPool}.
+     * @param array The array to sort.
+     * @param buckets The number of buckets the array is divided into.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @throws IllegalArgumentException If {@code buckets} is not in the range 2 &le; {@code buckets} &le; 256.
+     * @throws NullPointerException If {@code array} or {@code pool} is {@code null}
+     */
+    public static void sort(@NotNull int[] array, int buckets, @NotNull ForkJoinPool pool) {
+        sort(array, buckets, pool, SortControl.none());
+    }
+
+    /**
+     * Sorts the provided array using a parallel Sample Sort with the specified number of buckets that runs on the
+     * provided {@link ForkJoinPool} and can be stopped early through a {@link SortControl}.
+     * @param array The array to sort.
+     * @param buckets The number of buckets the array is divided into.
+     * @param pool The {@link ForkJoinPool} that executes the sort.
+     * @param control The {@link SortControl} that is checked before each block is classified or scattered and
+     *                before each bucket is sorted, and that receives the fraction of the elements whose bucket has
+     *                been sorted.
+     * @throws IllegalArgumentException If {@code buckets} is not in the range 2 &le; {@code buckets} &le; 256.
+     * @throws NullPointerException If {@code array}, {@code pool}, or {@code control} is {@code null}
+     * @throws SortCancelledException If the sort was cancelled or its deadline passed before it finished.
+     */
+    public static void sort(@NotNull int[] array, int buckets, @NotNull ForkJoinPool pool,
+            @NotNull SortControl control) {
+        Objects.requireNonNull(array, "The array cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        Objects.requireNonNull(control, "The control cannot be null");
+
+        if (buckets < 2 || buckets > MAX_BUCKETS) {
+            String message = String.format("The number of buckets must be between 2 and %d. (buckets: %d)",
+                    MAX_BUCKETS, buckets);
+            throw new IllegalArgumentException(message);
+        }
+
+        control.beginWork(array.length);
+        control.throwIfCancelled();
+
+        if (array.length <= SEQUENTIAL_THRESHOLD) {
+            Arrays.sort(array);
+            control.completeWork(array.length);
+            return;
+        }
+
+        int[] splitters = chooseSplitters(array, buckets);
+
+        if (splitters.length == 0) {
+            // Every sampled value was the same, so let a sequential sort deal with the (likely) uniform array.
+            Arrays.sort(array);
+            control.completeWork(array.length);
+            return;
+        }
+
+        pool.invoke(new SampleSortAction(array, splitters, pool.getParallelism(), control));
+    }
+
+    /**
+     * Draws a random sample from the array and selects evenly-spaced, distinct splitters from it. Bucket {@code b}
+     * contains the values {@code v} where {@code splitters[b - 1] <= v < splitters[b]}.
+     */
+    @NotNull
+    private static int[] chooseSplitters(@NotNull int[] array, int buckets) {
+        SplittableRandom random = new SplittableRandom(array.length);
+        int[] sample = new int[buckets * OVERSAMPLING_FACTOR];
+
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = array[random.nextInt(array.length)];
+        }
+
+        Arrays.sort(sample);
+        int[] splitters = new int[buckets - 1];
+        int count = 0;
+
+        for (int i = 1; i < buckets; i++) {
+            int splitter = sample[i * OVERSAMPLING_FACTOR];
+
+            // Duplicate splitters would only produce empty buckets
+            if (count == 0 || splitter != splitters[count - 1]) {
+                splitters[count++] = splitter;
+            }
+        }
+
+        // A splitter equal to the smallest sampled value would leave the first bucket (almost) empty
+        int start = count > 0 && splitters[0] == sample[0] ? 1 : 0;
+        return Arrays.copyOfRange(splitters, start, count);
+    }
+
+    /**
+     * Gets the bucket the value belongs to, i.e., the number of splitters that are less than or equal to it.
+     */
+    private static int classify(@NotNull int[] splitters, int value) {
+        int low = 0;
+        int high = splitters.length;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (splitters[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static class SampleSortAction extends RecursiveAction {
+        private final int[] array;
+        private final int[] splitters;
+        private final int parallelism;
+        private final SortControl control;
+
+        SampleSortAction(int[] array, int[] splitters, int parallelism, SortControl control) {
+            this.array = array;
+            this.splitters = splitters;
+            this.parallelism = parallelism;
+            this.control = control;
+        }
+
+        @Override
+        protected void compute() {
+            int length = array.length;
+            int bucketCount = splitters.length + 1;
+            int blockLength = Math.max(MIN_BLOCK_LENGTH, (length + parallelism * 4 - 1) / (parallelism * 4));
+            int blockCount = (length + blockLength - 1) / blockLength;
+            byte[] bucketOf = new byte[length];
+            int[][] counts = new int[blockCount][bucketCount];
+
+            // Phase 1: classify each element and count the bucket sizes of each block.
+            new ForEachAction(0, blockCount, block -> {
+                control.throwIfCancelled();
+                int[] blockCounts = counts[block];
+                int end = Math.min(length, (block + 1) * blockLength);
+
+                for (int i = block * blockLength; i < end; i++) {
+                    int bucket = classify(splitters, array[i]);
+                    bucketOf[i] = (byte) bucket;
+                    blockCounts[bucket]++;
+                }
+            }).invoke();
+
+            // Phase 2: turn the counts into the offset at which each block writes each bucket. Buckets are laid out
+            // one after the other, and within a bucket the blocks are laid out in order, so the scatter is stable.
+            int[] bucketStarts = new int[bucketCount + 1];
+            int offset = 0;
+
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                bucketStarts[bucket] = offset;
+
+                for (int block = 0; block < blockCount; block++) {
+                    int count = counts[block][bucket];
+                    counts[block][bucket] = offset;
+                    offset += count;
+                }
+            }
+
+            bucketStarts[bucketCount] = length;
+
+            // Phase 3: scatter the elements of each block into their buckets.
+            int[] scattered = new int[length];
+
+            new ForEachAction(0, blockCount, block -> {
+                control.throwIfCancelled();
+                int[] offsets = counts[block];
+                int end = Math.min(length, (block + 1) * blockLength);
+
+                for (int i = block * blockLength; i < end; i++) {
+                    scattered[offsets[bucketOf[i] & 0xFF]++] = array[i];
+                }
+            }).invoke();
+
+            // Phase 4: sort each bucket and copy it back into place. Every bucket is copied back even if the sort is
+            // cancelled, because the array only holds all of its values again once every bucket has been copied.
+            AtomicBoolean unsorted = new AtomicBoolean();
+
+            new ForEachAction(0, bucketCount, bucket -> {
+                int from = bucketStarts[bucket];
+                int to = bucketStarts[bucket + 1];
+
+                if (control.isCancelled()) {
+                    unsorted.set(true);
+                } else {
+                    Arrays.sort(scattered, from, to);
+                    control.completeWork(to - from);
+                }
+
+                System.arraycopy(scattered, from, array, from, to - from);
+            }).invoke();
+
+            if (unsorted.get()) {
+                control.throwIfCancelled();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ahuber.hubble.sort;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Thrown by a sort that stopped early because its {@link SortControl} was {@linkplain SortControl#cancel() cancelled}
+ * or its deadline passed. The array that was being sorted still contains the same values, but in no particular order.
+ */
+public class SortCancelledException extends CancellationException {
+
+    /**
+     * Creates a new {@link SortCancelledException}
+     * @param message The detail message.
+     */
+    public SortCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,164 @@
+package ahuber.hubble.sort;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Lets the caller of a sort stop it early and follow its progress.
+ * <p>
+ * A sort stops when it is {@linkplain #cancel() cancelled} or when its deadline passes. Sorts check their
+ * {@link SortControl} cooperatively, i.e., before each piece of work they hand to a task, and stop by throwing a
+ * {@link SortCancelledException}. Sorts report their progress as the fraction of the elements whose smallest unit of
+ * work (e.g., the leaves of a Merge Sort, or the buckets of a Sample Sort) has been sorted.
+ * <p>
+ * A {@link SortControl} tracks the progress of a single sort and should not be shared between sorts.
+ */
+public final class SortControl {
+    private final long deadlineNanos;
+    @Nullable private final SortControl parent;
+    @Nullable private final DoubleConsumer progressListener;
+    private final AtomicLong completedWork = new AtomicLong();
+    private final AtomicInteger reportedPercent = new AtomicInteger(-1);
+    private volatile long totalWork;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new {@link SortControl} without a deadline or progress listener. The sort only stops early if it is
+     * {@linkplain #cancel() cancelled}.
+     */
+    public SortControl() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a new {@link SortControl}
+     * @param timeout The time from now after which the sort stops, or {@code null} if it has no deadline.
+     * @param progressListener A function that receives the fraction (between 0 and 1) of the sort that has completed
+     *                         each time it increases by at least one percent, or {@code null}. It is invoked on the
+     *                         threads that do the sorting, so it should return quickly.
+     */
+    public SortControl(@Nullable Duration timeout, @Nullable DoubleConsumer progressListener) {
+        long now = System.nanoTime();
+        this.deadlineNanos = timeout == null ? Long.MAX_VALUE : now + Math.max(0, timeout.toNanos());
+        this.parent = null;
+        this.progressListener = progressListener;
+    }
+
+    private SortControl(@NotNull SortControl parent) {
+        this.deadlineNanos = Long.MAX_VALUE;
+        this.parent = parent;
+        this.progressListener = null;
+    }
+
+    /**
+     * Creates a {@link SortControl} for a sort that is part of a larger job, such as one chunk of data. The new
+     * {@link SortControl} stops its sort whenever this one would, but tracks its own progress and does not report it.
+     * @return The new {@link SortControl}
+     */
+    @NotNull
+    public SortControl fork() {
+        return new SortControl(this);
+    }
+
+    /**
+     * Asks the sort to stop as soon as it next checks this {@link SortControl}.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Determines whether the sort should stop, i.e., if it has been {@linkplain #cancel() cancelled} or its deadline
+     * has passed.
+     * @return {@code true} if the sort should stop.
+     */
+    public boolean isCancelled() {
+        return cancelled || parent != null && parent.isCancelled() || isDeadlineExceeded();
+    }
+
+    /**
+     * Determines whether the deadline of the sort has passed.
+     * @return {@code true} if the deadline has passed.
+     */
+    public boolean isDeadlineExceeded() {
+        return deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos >= 0 ||
+                parent != null && parent.isDeadlineExceeded();
+    }
+
+    /**
+     * Throws a {@link SortCancelledException} if the sort should stop.
+     * @throws SortCancelledException If the sort has been {@linkplain #cancel() cancelled} or its deadline has passed.
+     */
+    public void throwIfCancelled() {
+        if (isDeadlineExceeded()) {
+            throw new SortCancelledException("The sort did not finish before its deadline.");
+        }
+
+        if (isCancelled()) {
+            throw new SortCancelledException("The sort was cancelled.");
+        }
+    }
+
+    /**
+     * Called by a sort before it starts to set the amount of work it will {@linkplain #completeWork(long) complete}.
+     * @param totalWork The amount of work, usually the number of elements to sort.
+     */
+    public void beginWork(long totalWork) {
+        this.totalWork = totalWork;
+        completedWork.set(0);
+        reportedPercent.set(-1);
+        reportProgress(0);
+    }
+
+    /**
+     * Called by a sort each time it completes some of its work.
+     * @param work The amount of work that was completed.
+     */
+    public void completeWork(long work) {
+        reportProgress(completedWork.addAndGet(work));
+    }
+
+    /**
+     * Gets the fraction of the sort that has completed.
+     * @return A value between 0 and 1.
+     */
+    public double getProgress() {
+        long total = totalWork;
+        return total <= 0 ? 0 : Math.min(1, (double) completedWork.get() / total);
+    }
+
+    private void reportProgress(long completed) {
+        long total = totalWork;
+
+        if (progressListener == null) {
+            return;
+        }
+
+        int percent = total <= 0 ? 100 : (int) Math.min(100, completed * 100 / total);
+        int reported = reportedPercent.get();
+
+        // Only the thread that moves the percentage forward reports it, so each percentage is reported once
+        while (percent > reported) {
+            if (reportedPercent.compareAndSet(reported, percent)) {
+                progressListener.accept(total <= 0 ? 1 : Math.min(1, (double) completed / total));
+                return;
+            }
+
+            reported = reportedPercent.get();
+        }
+    }
+
+    /**
+     * Gets a {@link SortControl} that never stops a sort and does not report progress.
+     * @return A new {@link SortControl}
+     */
+    @NotNull
+    public static SortControl none() {
+        return new SortControl();
+    }
+}
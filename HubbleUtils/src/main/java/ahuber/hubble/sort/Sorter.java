@@ -0,0 +1,52 @@
+package ahuber.hubble.sort;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An algorithm that sorts {@code int} arrays in ascending order. Implementations are looked up by
+ * {@linkplain #getName() name} through {@link Sorters}, which allows the algorithm to be chosen per job.
+ * <p>
+ * Additional implementations can be made available without changing this project by listing them in a
+ * {@code META-INF/services/ahuber.hubble.sort.Sorter} file on the classpath, as described in
+ * {@link java.util.ServiceLoader}.
+ */
+public interface Sorter {
+
+    /**
+     * Gets the name that identifies this algorithm in a job configuration, e.g., {@code "merge-sort"}
+     * @return The name of this algorithm.
+     */
+    @NotNull
+    String getName();
+
+    /**
+     * Sorts the provided array in ascending order.
+     * @param array The array to sort.
+     * @param threshold The maximum length of a sub-array that is sorted without being subdivided any further.
+     *                  Algorithms that do not subdivide the array in this way ignore this value.
+     * @throws NullPointerException If {@code array} is {@code null}
+     * @throws IllegalArgumentException If {@code threshold} is not valid for this algorithm.
+     */
+    void sort(@NotNull int[] array, int threshold);
+
+    /**
+     * Sorts the provided array in ascending order, stopping early if the {@link SortControl} asks it to.
+     * <p>
+     * The default implementation only checks the {@link SortControl} before the sort starts and reports the sort as
+     * complete once it has finished. Algorithms that can check it while they sort should override this method.
+     * @param array The array to sort.
+     * @param threshold The maximum length of a sub-array that is sorted without being subdivided any further.
+     *                  Algorithms that do not subdivide the array in this way ignore this value.
+     * @param control The {@link SortControl} that can stop the sort and that receives its progress.
+     * @throws NullPointerException If {@code array} or {@code control} is {@code null}
+     * @throws IllegalArgumentException If {@code threshold} is not valid for this algorithm.
+     * @throws SortCancelledException If the sort was cancelled or its deadline passed before it finished. The array
+     * still contains the same values, but in no particular order.
+     */
+    default void sort(@NotNull int[] array, int threshold, @NotNull SortControl control) {
+        control.beginWork(array.length);
+        control.throwIfCancelled();
+        sort(array, threshold);
+        control.completeWork(array.length);
+    }
+}
@@ -0,0 +1,209 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.utils.PublicApi;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A registry of the available {@link Sorter}s, keyed by {@linkplain Sorter#getName() name}.
+ * <p>
+ * The built-in algorithms are always registered. Any {@link Sorter} found by {@link ServiceLoader} is registered
+ * as well, and further algorithms can be {@linkplain #register(Sorter) registered} at run time.
+ */
+public final class Sorters {
+
+    /**
+     * The name of the multi-threaded Merge Sort implemented by {@link MergeSortInt}.
+     */
+    public static final String MERGE_SORT = "merge-sort";
+
+    /**
+     * The name of the parallel Sample Sort implemented by {@link SampleSortInt}.
+     */
+    public static final String SAMPLE_SORT = "sample-sort";
+
+    /**
+     * The name of {@link Arrays#parallelSort(int[])}.
+     */
+    public static final String PARALLEL_SORT = "parallel-sort";
+
+    /**
+     * The name of the external Merge Sort implemented by {@link ExternalMergeSortInt} using its default memory
+     * budget and temporary directory.
+     */
+    public static final String EXTERNAL_MERGE_SORT = "external-merge-sort";
+
+    /**
+     * The name of the cache-aware Merge Sort implemented by {@link BlockMergeSortInt} using blocks the size of the
+     * level 1 data cache. The threshold is ignored.
+     */
+    public static final String BLOCK_MERGE_SORT = "block-merge-sort";
+
+    /**
+     * The name of the algorithm that leaves the array untouched. It is used for data that was already sorted while it
+     * was being collected, e.g., by an {@link IncrementalSortInt}.
+     */
+    public static final String PRESORTED = "presorted";
+
+    /**
+     * The name of the algorithm that is used when none is specified.
+     */
+    public static final String DEFAULT_ALGORITHM = MERGE_SORT;
+
+    private static final Map<String, Sorter> SORTERS = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    static {
+        register(create(MERGE_SORT, (array, threshold, control) ->
+                MergeSortInt.sort(array, threshold, ForkJoinPool.commonPool(), control)));
+        register(create(SAMPLE_SORT,
+                (array, threshold, control) -> SampleSortInt.sort(array, ForkJoinPool.commonPool(), control)));
+        register(create(PARALLEL_SORT, (array, threshold) -> Arrays.parallelSort(array)));
+        register(create(EXTERNAL_MERGE_SORT, (array, threshold) -> {
+            try {
+                new ExternalMergeSortInt(threshold).sort(array);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to sort the array using an external merge sort.", e);
+            }
+        }));
+        BlockMergeSortInt blockMergeSort = new BlockMergeSortInt();
+        register(create(BLOCK_MERGE_SORT,
+                (array, threshold, control) -> blockMergeSort.sort(array, ForkJoinPool.commonPool(), control)));
+        register(create(PRESORTED, (array, threshold) -> { }));
+
+        for (Sorter sorter : ServiceLoader.load(Sorter.class)) {
+            register(sorter);
+        }
+    }
+
+    /**
+     * Registers the provided {@link Sorter}, replacing any {@link Sorter} that was registered with the same name.
+     * @param sorter The {@link Sorter} to register.
+     * @throws NullPointerException If {@code sorter} or its name is {@code null}
+     */
+    @PublicApi
+    public static void register(@NotNull Sorter sorter) {
+        Objects.requireNonNull(sorter, "'sorter' cannot be null.");
+        SORTERS.put(Objects.requireNonNull(sorter.getName(), "The name of the sorter cannot be null."), sorter);
+    }
+
+    /**
+     * Gets the {@link Sorter} with the specified name.
+     * @param name The name of the {@link Sorter}, or {@code null} for the {@linkplain #DEFAULT_ALGORITHM default}.
+     * @return The {@link Sorter}
+     * @throws IllegalArgumentException If no {@link Sorter} is registered with the specified name.
+     */
+    @NotNull
+    public static Sorter get(@Nullable String name) {
+        String key = name == null ? DEFAULT_ALGORITHM : name;
+        Sorter sorter = SORTERS.get(key);
+
+        if (sorter == null) {
+            String message = String.format("No sorting algorithm is registered with the name \"%s\". " +
+                    "Available algorithms: %s", key, getNames());
+            throw new IllegalArgumentException(message);
+        }
+
+        return sorter;
+    }
+
+    /**
+     * Gets the names of all the registered {@link Sorter}s in the order they were registered.
+     * @return The names of the registered {@link Sorter}s.
+     */
+    @NotNull
+    public static List<String> getNames() {
+        synchronized (SORTERS) {
+            return new ArrayList<>(SORTERS.keySet());
+        }
+    }
+
+    /**
+     * Creates a {@link Sorter} with the specified name that sorts using the provided function.
+     * @param name The name of the {@link Sorter}
+     * @param sort A function that receives the array and the threshold, and sorts the array.
+     * @return The {@link Sorter}
+     * @throws NullPointerException If {@code name} or {@code sort} is {@code null}
+     */
+    @NotNull
+    public static Sorter create(@NotNull String name, @NotNull ObjIntConsumer<int[]> sort) {
+        Objects.requireNonNull(name, "'name' cannot be null.");
+        Objects.requireNonNull(sort, "'sort' cannot be null.");
+
+        return new Sorter() {
+            @NotNull
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void sort(@NotNull int[] array, int threshold) {
+                sort.accept(Objects.requireNonNull(array, "The array cannot be null"), threshold);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    /**
+     * Creates a {@link Sorter} with the specified name that sorts using the provided function, which checks the
+     * {@link SortControl} it receives while it sorts.
+     * @param name The name of the {@link Sorter}
+     * @param sort A function that receives the array, the threshold, and the {@link SortControl}, and sorts the array.
+     * @return The {@link Sorter}
+     * @throws NullPointerException If {@code name} or {@code sort} is {@code null}
+     */
+    @NotNull
+    public static Sorter create(@NotNull String name, @NotNull ControlledSortFunction sort) {
+        Objects.requireNonNull(name, "'name' cannot be null.");
+        Objects.requireNonNull(sort, "'sort' cannot be null.");
+
+        return new Sorter() {
+            @NotNull
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public void sort(@NotNull int[] array, int threshold) {
+                sort(array, threshold, SortControl.none());
+            }
+
+            @Override
+            public void sort(@NotNull int[] array, int threshold, @NotNull SortControl control) {
+                sort.sort(Objects.requireNonNull(array, "The array cannot be null"), threshold,
+                        Objects.requireNonNull(control, "The control cannot be null"));
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    /**
+     * A sorting function that checks a {@link SortControl} while it sorts.
+     */
+    @FunctionalInterface
+    public interface ControlledSortFunction {
+
+        /**
+         * Sorts the provided array in ascending order, stopping early if the {@link SortControl} asks it to.
+         * @param array The array to sort.
+         * @param threshold The threshold that is passed to the algorithm.
+         * @param control The {@link SortControl} that can stop the sort and that receives its progress.
+         */
+        void sort(@NotNull int[] array, int threshold, @NotNull SortControl control);
+    }
+}
@@ -0,0 +1,819 @@
+package ahuber.hubble.stats;
+
+import ahuber.hubble.utils.ForEachAction;
+import ahuber.hubble.utils.PublicApi;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * A class containing methods that answer rank queries (the median, percentiles, the minimum and maximum, and the
+ * largest values) about the data in a frame without sorting it.
+ * <p>
+ * Two paths are available. Selection works on any {@code int} data: a parallel introselect partitions the data
+ * around pivots only as far as is needed to place the requested ranks, and many ranks are selected at once by
+ * following each partition into the sides that still contain requested ranks. Histograms only work on the values
+ * a satellite produces, i.e., {@value #MIN_VALUE} to {@value #MAX_VALUE}: a single (parallel) pass counts each value,
+ * after which any number of ranks are answered by a scan of the {@value #HISTOGRAM_LENGTH} counts. Histograms can
+ * also be {@linkplain #add(long[], long[]) added} together, which makes them a natural fit for map/reduce.
+ */
+public final class FrameStatistics {
+
+    /**
+     * The smallest value a satellite produces.
+     */
+    public static final int MIN_VALUE = 0;
+
+    /**
+     * The largest value a satellite produces.
+     */
+    public static final int MAX_VALUE = 4096;
+
+    /**
+     * The length of a histogram, i.e., the number of distinct values a satellite produces.
+     */
+    public static final int HISTOGRAM_LENGTH = MAX_VALUE - MIN_VALUE + 1;
+
+    /**
+     * The number of largest values that are included in a {@link FrameSummary} when none is specified.
+     */
+    public static final int DEFAULT_TOP_K = 10;
+
+    /**
+     * The percentiles that are included in a {@link FrameSummary} when none are specified.
+     */
+    private static final double[] DEFAULT_PERCENTILES = {1, 5, 10, 25, 50, 75, 90, 95, 99};
+
+    /**
+     * Ranges no longer than this are partitioned sequentially.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    /**
+     * The smallest number of elements that are partitioned or counted by one task.
+     */
+    private static final int MIN_BLOCK_LENGTH = 1 << 14;
+
+    /**
+     * Ranges no longer than this are sorted instead of partitioned.
+     */
+    private static final int SORT_THRESHOLD = 16;
+
+    // region selection
+
+    /**
+     * Gets the value that would be at the specified index if the array were sorted in ascending order. The array is
+     * partially reordered: afterwards, every value before {@code rank} is less than or equal to the value at
+     * {@code rank}, and every value after it is greater than or equal to it.
+     * @param array The array.
+     * @param rank The zero-based index of the value in the sorted order.
+     * @return The value with the specified rank.
+     * @throws IllegalArgumentException If {@code rank} is not in the range 0 &le; {@code rank} &lt;
+     * {@code array.length}
+     * @throws NullPointerException If {@code array} is {@code null}
+     */
+    @PublicApi
+    public static int select(@NotNull int[] array, int rank) {
+        Objects.requireNonNull(array, "The array cannot be null");
+        validateRank(rank, array.length);
+        int[] result = new int[1];
+        selectSequential(array, 0, array.length, new int[]{rank}, 0, 1, result, maxDepth(array.length));
+        return result[0];
+    }
+
+    /**
+     * Gets the values that would be at the specified indices if the array were sorted in ascending order using a
+     * parallel introselect that runs on the provided {@link ForkJoinPool}. The array is partially reordered so that
+     * the value at each of the indices is the value that would be there if the array were sorted, with every value
+     * before it less than or equal to it and every value after it greater than or equal to it.
+     * @param array The array.
+     * @param ranks The zero-based indices of the values in the sorted order, in any order.
+     * @param pool The {@link ForkJoinPool} that executes the selection.
+     * @return An array where the value at index {@code i} is the value with rank {@code ranks[i]}.
+     * @throws IllegalArgumentException If a rank is not in the range 0 &le; {@code rank} &lt; {@code array.length}
+     * @throws NullPointerException If {@code array}, {@code ranks}, or {@code pool} is {@code null}
+     */
+    @NotNull
+    public static int[] select(@NotNull int[] array, @NotNull int[] ranks, @NotNull ForkJoinPool pool) {
+        Objects.requireNonNull(array, "The array cannot be null");
+        Objects.requireNonNull(ranks, "The ranks cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+
+        // Sort the ranks, remembering where each one came from, so that each partition can split them in two.
+        long[] order = new long[ranks.length];
+
+        for (int i = 0; i < ranks.length; i++) {
+            validateRank(ranks[i], array.length);
+            order[i] = (long) ranks[i] << 32 | i;
+        }
+
+        Arrays.sort(order);
+        int[] sortedRanks = new int[ranks.length];
+
+        for (int i = 0; i < order.length; i++) {
+            sortedRanks[i] = (int) (order[i] >>> 32);
+        }
+
+        int[] sortedResults = new int[ranks.length];
+
+        if (ranks.length > 0) {
+            int[] scratch = array.length > SEQUENTIAL_THRESHOLD ? new int[array.length] : null;
+            pool.invoke(new SelectAction(array, scratch, 0, array.length, sortedRanks, 0, sortedRanks.length,
+                    sortedResults, maxDepth(array.length), pool.getParallelism()));
+        }
+
+        int[] results = new int[ranks.length];
+
+        for (int i = 0; i < order.length; i++) {
+            results[(int) order[i]] = sortedResults[i];
+        }
+
+        return results;
+    }
+
+    /**
+     * Gets the {@code k} largest values in the array in descending order using a parallel introselect that runs on
+     * the provided {@link ForkJoinPool}. The array is partially reordered so that the {@code k} largest values are at
+     * its end.
+     * @param array The array.
+     * @param k The number of values to get. If the array contains fewer values, all of them are returned.
+     * @param pool The {@link ForkJoinPool} that executes the selection.
+     * @return The {@code k} largest values in descending order.
+     * @throws IllegalArgumentException If {@code k} is negative.
+     * @throws NullPointerException If {@code array} or {@code pool} is {@code null}
+     */
+    @NotNull
+    public static int[] top(@NotNull int[] array, int k, @NotNull ForkJoinPool pool) {
+        Objects.requireNonNull(array, "The array cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        validateK(k);
+        int count = Math.min(k, array.length);
+
+        if (count == 0) {
+            return new int[0];
+        }
+
+        select(array, new int[]{array.length - count}, pool);
+        int[] top = Arrays.copyOfRange(array, array.length - count, array.length);
+        Arrays.sort(top);
+        reverse(top);
+        return top;
+    }
+
+    // endregion selection
+
+    // region histogram
+
+    /**
+     * Counts each value in the array using the {@linkplain ForkJoinPool#commonPool() common pool}.
+     * @param array The array, whose values must be in the range {@value #MIN_VALUE} to {@value #MAX_VALUE}.
+     * @return A histogram of length {@value #HISTOGRAM_LENGTH} where the count at index {@code i} is the number of
+     * times the value {@code MIN_VALUE + i} occurs in the array.
+     * @throws IllegalArgumentException If a value is out of range.
+     * @throws NullPointerException If {@code array} is {@code null}
+     */
+    @NotNull
+    public static long[] histogram(@NotNull int[] array) {
+        return histogram(array, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts each value in the array in a single pass that runs on the provided {@link ForkJoinPool}.
+     * @param array The array, whose values must be in the range {@value #MIN_VALUE} to {@value #MAX_VALUE}.
+     * @param pool The {@link ForkJoinPool} that executes the counting.
+     * @return A histogram of length {@value #HISTOGRAM_LENGTH} where the count at index {@code i} is the number of
+     * times the value {@code MIN_VALUE + i} occurs in the array.
+     * @throws IllegalArgumentException If a value is out of range.
+     * @throws NullPointerException If {@code array} or {@code pool} is {@code null}
+     */
+    @NotNull
+    public static long[] histogram(@NotNull int[] array, @NotNull ForkJoinPool pool) {
+        long[] histogram = tryHistogram(array, pool);
+
+        if (histogram == null) {
+            String message = String.format("The array contains a value outside of the range %d to %d.", MIN_VALUE,
+                    MAX_VALUE);
+            throw new IllegalArgumentException(message);
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Adds the counts of the second histogram to the first.
+     * @param histogram The histogram that is added to.
+     * @param other The histogram whose counts are added.
+     * @return {@code histogram}
+     * @throws IllegalArgumentException If either histogram does not have a length of {@value #HISTOGRAM_LENGTH}
+     * @throws NullPointerException If {@code histogram} or {@code other} is {@code null}
+     */
+    @NotNull
+    @Contract("_, _ -> param1")
+    public static long[] add(@NotNull long[] histogram, @NotNull long[] other) {
+        validateHistogram(histogram);
+        validateHistogram(other);
+
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other[i];
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Gets the number of values counted by the histogram, i.e., the sum of its counts.
+     * @param histogram The histogram.
+     * @return The number of values.
+     * @throws IllegalArgumentException If the histogram does not have a length of {@value #HISTOGRAM_LENGTH}
+     * @throws NullPointerException If {@code histogram} is {@code null}
+     */
+    public static long count(@NotNull long[] histogram) {
+        validateHistogram(histogram);
+        long count = 0;
+
+        for (long binCount : histogram) {
+            count += binCount;
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the value that would be at the specified index if the values counted by the histogram were sorted in
+     * ascending order.
+     * @param histogram The histogram.
+     * @param rank The zero-based index of the value in the sorted order.
+     * @return The value with the specified rank.
+     * @throws IllegalArgumentException If the histogram does not have a length of {@value #HISTOGRAM_LENGTH}, or if
+     * {@code rank} is not less than the number of values counted by the histogram.
+     * @throws NullPointerException If {@code histogram} is {@code null}
+     */
+    @PublicApi
+    public static int select(@NotNull long[] histogram, long rank) {
+        return select(histogram, new long[]{rank})[0];
+    }
+
+    /**
+     * Gets the values that would be at the specified indices if the values counted by the histogram were sorted in
+     * ascending order, using a single scan of the histogram.
+     * @param histogram The histogram.
+     * @param ranks The zero-based indices of the values in the sorted order, in any order.
+     * @return An array where the value at index {@code i} is the value with rank {@code ranks[i]}.
+     * @throws IllegalArgumentException If the histogram does not have a length of {@value #HISTOGRAM_LENGTH}, or if
+     * a rank is not less than the number of values counted by the histogram.
+     * @throws NullPointerException If {@code histogram} or {@code ranks} is {@code null}
+     */
+    @NotNull
+    public static int[] select(@NotNull long[] histogram, @NotNull long[] ranks) {
+        validateHistogram(histogram);
+        Objects.requireNonNull(ranks, "The ranks cannot be null");
+        long count = count(histogram);
+        Integer[] order = new Integer[ranks.length];
+
+        for (int i = 0; i < ranks.length; i++) {
+            validateRank(ranks[i], count);
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (left, right) -> Long.compare(ranks[left], ranks[right]));
+        int[] results = new int[ranks.length];
+        long cumulativeCount = 0;
+        int value = 0;
+
+        for (Integer index : order) {
+            while (cumulativeCount + histogram[value] <= ranks[index]) {
+                cumulativeCount += histogram[value++];
+            }
+
+            results[index] = MIN_VALUE + value;
+        }
+
+        return results;
+    }
+
+    /**
+     * Gets the {@code k} largest values counted by the histogram in descending order.
+     * @param histogram The histogram.
+     * @param k The number of values to get. If the histogram counts fewer values, all of them are returned.
+     * @return The {@code k} largest values in descending order.
+     * @throws IllegalArgumentException If the histogram does not have a length of {@value #HISTOGRAM_LENGTH}, or if
+     * {@code k} is negative.
+     * @throws NullPointerException If {@code histogram} is {@code null}
+     */
+    @NotNull
+    public static int[] top(@NotNull long[] histogram, int k) {
+        validateHistogram(histogram);
+        validateK(k);
+        int[] top = new int[(int) Math.min(k, count(histogram))];
+        int index = 0;
+
+        for (int value = histogram.length - 1; index < top.length; value--) {
+            long copies = Math.min(histogram[value], top.length - index);
+            Arrays.fill(top, index, (int) (index + copies), MIN_VALUE + value);
+            index += copies;
+        }
+
+        return top;
+    }
+
+    // endregion histogram
+
+    // region percentiles
+
+    /**
+     * Gets the zero-based rank of the specified percentile among the specified number of values using the
+     * nearest-rank method.
+     * @param percentile The percentile, in the range 0 to 100.
+     * @param count The number of values.
+     * @return The rank of the percentile.
+     * @throws IllegalArgumentException If {@code percentile} is not in the range 0 to 100, or {@code count} is not
+     * positive.
+     */
+    @Contract(pure = true)
+    public static long rankOf(double percentile, long count) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            String message = String.format("The percentile must be between 0 and 100. (percentile: %s)", percentile);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (count < 1) {
+            String message = String.format("The count must be positive. (count: %d)", count);
+            throw new IllegalArgumentException(message);
+        }
+
+        long rank = (long) Math.ceil(percentile / 100 * count) - 1;
+        return Math.max(0, Math.min(count - 1, rank));
+    }
+
+    /**
+     * Gets the specified percentiles of the array in a single batch. Data within the range {@value #MIN_VALUE} to
+     * {@value #MAX_VALUE} is answered from a histogram; other data is answered by selecting every rank at once from
+     * a copy of the array. The array itself is not modified.
+     * @param array The array.
+     * @param percentiles The percentiles, each in the range 0 to 100.
+     * @param pool The {@link ForkJoinPool} that executes the computation.
+     * @return An array where the value at index {@code i} is the value at percentile {@code percentiles[i]}
+     * @throws IllegalArgumentException If the array is empty or a percentile is not in the range 0 to 100.
+     * @throws NullPointerException If {@code array}, {@code percentiles}, or {@code pool} is {@code null}
+     */
+    @NotNull
+    public static int[] percentiles(@NotNull int[] array, @NotNull double[] percentiles, @NotNull ForkJoinPool pool) {
+        Objects.requireNonNull(array, "The array cannot be null");
+        Objects.requireNonNull(percentiles, "The percentiles cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        long[] ranks = ranksOf(percentiles, array.length);
+        long[] histogram = tryHistogram(array, pool);
+
+        if (histogram != null) {
+            return select(histogram, ranks);
+        }
+
+        int[] intRanks = new int[ranks.length];
+
+        for (int i = 0; i < ranks.length; i++) {
+            intRanks[i] = (int) ranks[i];
+        }
+
+        return select(array.clone(), intRanks, pool);
+    }
+
+    // endregion percentiles
+
+    // region summarize
+
+    /**
+     * Summarizes the data in a frame using the default percentiles and number of largest values. The array is not
+     * modified.
+     * @param frame The data in the frame.
+     * @param pool The {@link ForkJoinPool} that executes the computation.
+     * @return The {@link FrameSummary}
+     * @throws IllegalArgumentException If the frame is empty.
+     * @throws NullPointerException If {@code frame} or {@code pool} is {@code null}
+     * @see #summarize(int[], double[], int, ForkJoinPool)
+     */
+    @NotNull
+    public static FrameSummary summarize(@NotNull int[] frame, @NotNull ForkJoinPool pool) {
+        return summarize(frame, DEFAULT_PERCENTILES, DEFAULT_TOP_K, pool);
+    }
+
+    /**
+     * Summarizes the data in a frame. Data within the range {@value #MIN_VALUE} to {@value #MAX_VALUE} is summarized
+     * from a histogram; other data is summarized by selecting every rank at once from a copy of the array. The array
+     * itself is not modified.
+     * @param frame The data in the frame.
+     * @param percentiles The percentiles to include, each in the range 0 to 100.
+     * @param topK The number of largest values to include.
+     * @param pool The {@link ForkJoinPool} that executes the computation.
+     * @return The {@link FrameSummary}
+     * @throws IllegalArgumentException If the frame is empty, a percentile is not in the range 0 to 100, or
+     * {@code topK} is negative.
+     * @throws NullPointerException If {@code frame}, {@code percentiles}, or {@code pool} is {@code null}
+     */
+    @NotNull
+    public static FrameSummary summarize(@NotNull int[] frame, @NotNull double[] percentiles, int topK,
+            @NotNull ForkJoinPool pool) {
+        Objects.requireNonNull(frame, "The frame cannot be null");
+        Objects.requireNonNull(percentiles, "The percentiles cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        validateK(topK);
+        long[] percentileRanks = ranksOf(percentiles, frame.length);
+        long[] histogram = tryHistogram(frame, pool);
+
+        if (histogram != null) {
+            return summarize(histogram, percentiles, topK);
+        }
+
+        // Select the minimum, maximum, median, and percentiles in one batch, then the largest values.
+        int count = frame.length;
+        int[] ranks = new int[percentileRanks.length + 3];
+        ranks[0] = 0;
+        ranks[1] = count - 1;
+        ranks[2] = (int) rankOf(50, count);
+
+        for (int i = 0; i < percentileRanks.length; i++) {
+            ranks[i + 3] = (int) percentileRanks[i];
+        }
+
+        int[] copy = frame.clone();
+        int[] values = select(copy, ranks, pool);
+        int[] top = top(copy, topK, pool);
+        long sum = pool.submit(() -> Arrays.stream(frame).parallel().asLongStream().sum()).join();
+
+        return new FrameSummary(count, values[0], values[1], (double) sum / count, values[2], percentiles.clone(),
+                Arrays.copyOfRange(values, 3, values.length), top);
+    }
+
+    /**
+     * Summarizes the values counted by a histogram using the default percentiles and number of largest values.
+     * @param histogram The histogram.
+     * @return The {@link FrameSummary}
+     * @throws IllegalArgumentException If the histogram does not have a length of {@value #HISTOGRAM_LENGTH} or
+     * does not count any values.
+     * @throws NullPointerException If {@code histogram} is {@code null}
+     * @see #summarize(long[], double[], int)
+     */
+    @NotNull
+    public static FrameSummary summarize(@NotNull long[] histogram) {
+        return summarize(histogram, DEFAULT_PERCENTILES, DEFAULT_TOP_K);
+    }
+
+    /**
+     * Summarizes the values counted by a histogram.
+     * @param histogram The histogram.
+     * @param percentiles The percentiles to include, each in the range 0 to 100.
+     * @param topK The number of largest values to include.
+     * @return The {@link FrameSummary}
+     * @throws IllegalArgumentException If the histogram does not have a length of {@value #HISTOGRAM_LENGTH} or
+     * does not count any values, a percentile is not in the range 0 to 100, or {@code topK} is negative.
+     * @throws NullPointerException If {@code histogram} or {@code percentiles} is {@code null}
+     */
+    @NotNull
+    public static FrameSummary summarize(@NotNull long[] histogram, @NotNull double[] percentiles, int topK) {
+        validateHistogram(histogram);
+        Objects.requireNonNull(percentiles, "The percentiles cannot be null");
+        validateK(topK);
+        long count = count(histogram);
+        long[] percentileRanks = ranksOf(percentiles, count);
+        long[] ranks = new long[percentileRanks.length + 3];
+        ranks[0] = 0;
+        ranks[1] = count - 1;
+        ranks[2] = rankOf(50, count);
+        System.arraycopy(percentileRanks, 0, ranks, 3, percentileRanks.length);
+        int[] values = select(histogram, ranks);
+        long sum = 0;
+
+        for (int i = 0; i < histogram.length; i++) {
+            sum += histogram[i] * (MIN_VALUE + i);
+        }
+
+        return new FrameSummary(count, values[0], values[1], (double) sum / count, values[2], percentiles.clone(),
+                Arrays.copyOfRange(values, 3, values.length), top(histogram, topK));
+    }
+
+    // endregion summarize
+
+    // region helpers
+
+    @NotNull
+    private static long[] ranksOf(@NotNull double[] percentiles, long count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Percentiles cannot be computed for an empty frame.");
+        }
+
+        long[] ranks = new long[percentiles.length];
+
+        for (int i = 0; i < percentiles.length; i++) {
+            ranks[i] = rankOf(percentiles[i], count);
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Counts each value in the array, or returns {@code null} if a value is outside of the range of a histogram.
+     */
+    @Nullable
+    private static long[] tryHistogram(@NotNull int[] array, @NotNull ForkJoinPool pool) {
+        Objects.requireNonNull(array, "The array cannot be null");
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        int parallelism = pool.getParallelism();
+        int blockLength = Math.max(MIN_BLOCK_LENGTH, (array.length + parallelism * 4 - 1) / (parallelism * 4));
+        int blockCount = Math.max(1, (array.length + blockLength - 1) / blockLength);
+        int[][] counts = new int[blockCount][];
+        boolean[] outOfRange = new boolean[blockCount];
+
+        IntConsumer countBlock = block -> {
+            int[] blockCounts = new int[HISTOGRAM_LENGTH];
+            int end = Math.min(array.length, (block + 1) * blockLength);
+
+            for (int i = block * blockLength; i < end; i++) {
+                int index = array[i] - MIN_VALUE;
+
+                if (index < 0 || index >= HISTOGRAM_LENGTH) {
+                    outOfRange[block] = true;
+                    return;
+                }
+
+                blockCounts[index]++;
+            }
+
+            counts[block] = blockCounts;
+        };
+
+        if (blockCount == 1) {
+            countBlock.accept(0);
+        } else {
+            pool.invoke(new ForEachAction(0, blockCount, countBlock));
+        }
+
+        long[] histogram = new long[HISTOGRAM_LENGTH];
+
+        for (int block = 0; block < blockCount; block++) {
+            if (outOfRange[block]) {
+                return null;
+            }
+
+            for (int i = 0; i < HISTOGRAM_LENGTH; i++) {
+                histogram[i] += counts[block][i];
+            }
+        }
+
+        return histogram;
+    }
+
+    private static void validateHistogram(@NotNull long[] histogram) {
+        Objects.requireNonNull(histogram, "The histogram cannot be null");
+
+        if (histogram.length != HISTOGRAM_LENGTH) {
+            String message = String.format("The histogram must have a length of %d. (length: %d)", HISTOGRAM_LENGTH,
+                    histogram.length);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static void validateRank(long rank, long count) {
+        if (rank < 0 || rank >= count) {
+            String message = String.format("The rank must be in the range [0, %d). (rank: %d)", count, rank);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static void validateK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException(String.format("k cannot be negative. (k: %d)", k));
+        }
+    }
+
+    /**
+     * Gets the number of partitioning rounds after which introselect gives up on partitioning and sorts what is left.
+     */
+    private static int maxDepth(int length) {
+        return 2 * (32 - Integer.numberOfLeadingZeros(Math.max(1, length)));
+    }
+
+    private static void reverse(@NotNull int[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            swap(array, i, j);
+        }
+    }
+
+    private static void swap(@NotNull int[] array, int i, int j) {
+        int temp = array[i];
+        array[i] = array[j];
+        array[j] = temp;
+    }
+
+    /**
+     * Chooses a pivot from the range: the median of three values for short ranges, and the median of the medians of
+     * three groups of three (Tukey's ninther) for longer ranges.
+     */
+    private static int choosePivot(@NotNull int[] array, int from, int to) {
+        int length = to - from;
+        int middle = (from + to) >>> 1;
+
+        if (length < 1024) {
+            return median(array[from], array[middle], array[to - 1]);
+        }
+
+        int step = length / 8;
+        return median(median(array[from], array[from + step], array[from + 2 * step]),
+                median(array[middle - step], array[middle], array[middle + step]),
+                median(array[to - 1 - 2 * step], array[to - 1 - step], array[to - 1]));
+    }
+
+    @Contract(pure = true)
+    private static int median(int a, int b, int c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /**
+     * Gets the index of the first rank in the range that is greater than or equal to the specified index.
+     */
+    private static int lowerBound(@NotNull int[] ranks, int from, int to, int index) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+
+            if (ranks[middle] < index) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+
+        return from;
+    }
+
+    /**
+     * Selects the sorted ranks {@code ranks[ranksFrom..ranksTo)} from {@code array[from..to)} using introselect with
+     * a three-way partition, storing the value of {@code ranks[i]} in {@code results[i]}.
+     */
+    private static void selectSequential(@NotNull int[] array, int from, int to, @NotNull int[] ranks, int ranksFrom,
+            int ranksTo, @NotNull int[] results, int depth) {
+        while (ranksFrom < ranksTo) {
+            if (to - from <= SORT_THRESHOLD || depth-- == 0) {
+                Arrays.sort(array, from, to);
+
+                for (int i = ranksFrom; i < ranksTo; i++) {
+                    results[i] = array[ranks[i]];
+                }
+
+                return;
+            }
+
+            // Partition into [from, lessEnd) < pivot, [lessEnd, greaterStart) == pivot, [greaterStart, to) > pivot
+            int pivot = choosePivot(array, from, to);
+            int lessEnd = from;
+            int greaterStart = to;
+            int i = from;
+
+            while (i < greaterStart) {
+                int value = array[i];
+
+                if (value < pivot) {
+                    swap(array, lessEnd++, i++);
+                } else if (value > pivot) {
+                    swap(array, i, --greaterStart);
+                } else {
+                    i++;
+                }
+            }
+
+            int equalRanksFrom = lowerBound(ranks, ranksFrom, ranksTo, lessEnd);
+            int greaterRanksFrom = lowerBound(ranks, equalRanksFrom, ranksTo, greaterStart);
+            Arrays.fill(results, equalRanksFrom, greaterRanksFrom, pivot);
+
+            // Recurse into the side with fewer ranks and loop on the other
+            if (equalRanksFrom - ranksFrom < ranksTo - greaterRanksFrom) {
+                selectSequential(array, from, lessEnd, ranks, ranksFrom, equalRanksFrom, results, depth);
+                from = greaterStart;
+                ranksFrom = greaterRanksFrom;
+            } else {
+                selectSequential(array, greaterStart, to, ranks, greaterRanksFrom, ranksTo, results, depth);
+                to = lessEnd;
+                ranksTo = equalRanksFrom;
+            }
+        }
+    }
+
+    // endregion helpers
+
+    /**
+     * Selects sorted ranks from a range of an array. Long ranges are partitioned in parallel (each block of the range
+     * is counted and scattered into a scratch array by its own task), and the two sides of a partition that both
+     * contain requested ranks are handled by their own tasks.
+     */
+    private static class SelectAction extends RecursiveAction {
+        private final int[] array;
+        private final int[] scratch;
+        private final int from;
+        private final int to;
+        private final int[] ranks;
+        private final int ranksFrom;
+        private final int ranksTo;
+        private final int[] results;
+        private final int depth;
+        private final int parallelism;
+
+        SelectAction(int[] array, int[] scratch, int from, int to, int[] ranks, int ranksFrom, int ranksTo,
+                int[] results, int depth, int parallelism) {
+            this.array = array;
+            this.scratch = scratch;
+            this.from = from;
+            this.to = to;
+            this.ranks = ranks;
+            this.ranksFrom = ranksFrom;
+            this.ranksTo = ranksTo;
+            this.results = results;
+            this.depth = depth;
+            this.parallelism = parallelism;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD || depth == 0) {
+                selectSequential(array, from, to, ranks, ranksFrom, ranksTo, results, depth);
+                return;
+            }
+
+            int pivot = choosePivot(array, from, to);
+            int[] bounds = partition(pivot);
+            int lessEnd = bounds[0];
+            int greaterStart = bounds[1];
+            int equalRanksFrom = lowerBound(ranks, ranksFrom, ranksTo, lessEnd);
+            int greaterRanksFrom = lowerBound(ranks, equalRanksFrom, ranksTo, greaterStart);
+            Arrays.fill(results, equalRanksFrom, greaterRanksFrom, pivot);
+            SelectAction less = ranksFrom < equalRanksFrom ? new SelectAction(array, scratch, from, lessEnd, ranks,
+                    ranksFrom, equalRanksFrom, results, depth - 1, parallelism) : null;
+            SelectAction greater = greaterRanksFrom < ranksTo ? new SelectAction(array, scratch, greaterStart, to,
+                    ranks, greaterRanksFrom, ranksTo, results, depth - 1, parallelism) : null;
+
+            if (less != null && greater != null) {
+                invokeAll(less, greater);
+            } else if (less != null) {
+                less.compute();
+            } else if (greater != null) {
+                greater.compute();
+            }
+        }
+
+        /**
+         * Partitions the range around the pivot and returns the end of the values that are less than the pivot and
+         * the start of the values that are greater than it.
+         */
+        @NotNull
+        private int[] partition(int pivot) {
+            int length = to - from;
+            int blockLength = Math.max(MIN_BLOCK_LENGTH, (length + parallelism * 4 - 1) / (parallelism * 4));
+            int blockCount = (length + blockLength - 1) / blockLength;
+            int[][] offsets = new int[blockCount][3];
+
+            // Count the values that are less than, equal to, and greater than the pivot in each block.
+            new ForEachAction(0, blockCount, block -> {
+                int[] blockCounts = offsets[block];
+                int end = Math.min(to, from + (block + 1) * blockLength);
+
+                for (int i = from + block * blockLength; i < end; i++) {
+                    blockCounts[Integer.signum(Integer.compare(array[i], pivot)) + 1]++;
+                }
+            }).invoke();
+
+            // Turn the counts into the offset at which each block writes each of the three parts.
+            int offset = from;
+            int[] starts = new int[3];
+
+            for (int part = 0; part < 3; part++) {
+                starts[part] = offset;
+
+                for (int block = 0; block < blockCount; block++) {
+                    int count = offsets[block][part];
+                    offsets[block][part] = offset;
+                    offset += count;
+                }
+            }
+
+            // Scatter each block into the scratch array, then copy the range back.
+            new ForEachAction(0, blockCount, block -> {
+                int[] blockOffsets = offsets[block];
+                int end = Math.min(to, from + (block + 1) * blockLength);
+
+                for (int i = from + block * blockLength; i < end; i++) {
+                    int value = array[i];
+                    scratch[blockOffsets[Integer.signum(Integer.compare(value, pivot)) + 1]++] = value;
+                }
+            }).invoke();
+
+            new ForEachAction(0, blockCount, block -> {
+                int start = from + block * blockLength;
+                System.arraycopy(scratch, start, array, start, Math.min(to, start + blockLength) - start);
+            }).invoke();
+
+            return new int[]{starts[1], starts[2]};
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ahuber.hubble.stats;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * The answers to the rank queries that are made about a frame by a "stats-only" job. This is uploaded to Amazon S3 as
+ * JSON in place of an image.
+ * @see FrameStatistics
+ */
+@Value
+public class FrameSummary {
+
+    /**
+     * Gets the number of values in the frame.
+     */
+    private long count;
+
+    /**
+     * Gets the smallest value in the frame.
+     */
+    private int min;
+
+    /**
+     * Gets the largest value in the frame.
+     */
+    private int max;
+
+    /**
+     * Gets the arithmetic mean of the values in the frame.
+     */
+    private double mean;
+
+    /**
+     * Gets the median (the 50th percentile) of the values in the frame.
+     */
+    private int median;
+
+    /**
+     * Gets the percentiles that were computed, each in the range 0 to 100.
+     */
+    @NotNull private double[] percentiles;
+
+    /**
+     * Gets the value at each of {@linkplain #getPercentiles() the percentiles}, in the same order.
+     */
+    @NotNull private int[] percentileValues;
+
+    /**
+     * Gets the largest values in the frame in descending order.
+     */
+    @NotNull private int[] top;
+
+    /**
+     * Creates a new {@link FrameSummary}
+     * @param count The number of values in the frame.
+     * @param min The smallest value in the frame.
+     * @param max The largest value in the frame.
+     * @param mean The arithmetic mean of the values in the frame.
+     * @param median The median of the values in the frame.
+     * @param percentiles The percentiles that were computed.
+     * @param percentileValues The value at each of the percentiles.
+     * @param top The largest values in the frame in descending order.
+     * @throws IllegalArgumentException If {@code percentiles} and {@code percentileValues} differ in length.
+     * @throws NullPointerException If {@code percentiles}, {@code percentileValues}, or {@code top} is {@code null}
+     */
+    @JsonCreator
+    public FrameSummary(@JsonProperty("count") long count, @JsonProperty("min") int min,
+            @JsonProperty("max") int max, @JsonProperty("mean") double mean, @JsonProperty("median") int median,
+            @JsonProperty("percentiles") @NotNull double[] percentiles,
+            @JsonProperty("percentileValues") @NotNull int[] percentileValues, @JsonProperty("top") @NotNull int[] top) {
+        this.percentiles = Objects.requireNonNull(percentiles, "'percentiles' cannot be null.");
+        this.percentileValues = Objects.requireNonNull(percentileValues, "'percentileValues' cannot be null.");
+        this.top = Objects.requireNonNull(top, "'top' cannot be null.");
+
+        if (percentiles.length != percentileValues.length) {
+            String message = String.format("There must be one value for each percentile. (percentiles: %d, " +
+                    "values: %d)", percentiles.length, percentileValues.length);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.median = median;
+    }
+}
@@ -0,0 +1,259 @@
+package ahuber.hubble.utils;
+
+import ahuber.hubble.sort.Sorters;
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides how a frame is processed so that it is finished before the deadline of the AWS Lambda function, i.e.,
+ * before {@code Context.getRemainingTimeInMillis()} runs out, instead of timing out without any output.
+ * <p>
+ * The planner estimates the cost of each stage from the number of values in the frame (<i>N</i><sup>2</sup>) and
+ * the threshold (<i>T</i>) with a {@link ThroughputModel}. If the frame would not be finished in time with the
+ * requested sorting algorithm, the planner falls back on the following strategies in turn, and picks the first one
+ * that finishes in time:
+ * <ol>
+ *     <li>Sorting with the fastest of the {@linkplain #DEFAULT_CANDIDATES candidate algorithms}, which produces the
+ *     same image.</li>
+ *     <li>Also rendering a downscaled image, which reduces the cost of rendering, encoding, and uploading by the
+ *     square of the scale, up to a scale of {@value #MAX_SCALE}.</li>
+ *     <li>Handing the frame to an EMR cluster, which only needs the values to be uploaded.</li>
+ * </ol>
+ * A planner without a deadline always keeps the requested algorithm.
+ */
+public final class DeadlinePlanner {
+
+    /**
+     * The largest factor by which an image is downscaled before the frame is handed to an EMR cluster instead.
+     */
+    public static final int MAX_SCALE = 8;
+
+    /**
+     * The sorting algorithms that the planner switches to when the requested one is too slow. The external Merge Sort
+     * is left out because it writes to disk.
+     */
+    public static final List<String> DEFAULT_CANDIDATES = Collections.unmodifiableList(Arrays.asList(
+            Sorters.MERGE_SORT, Sorters.SAMPLE_SORT, Sorters.PARALLEL_SORT, Sorters.BLOCK_MERGE_SORT));
+
+    @NotNull private final ThroughputModel model;
+    @NotNull private final LongSupplier nanoTime;
+    @NotNull private final List<String> candidates;
+    private final long deadlineNanos;
+    private final long marginNanos;
+    private final boolean hasDeadline;
+
+    /**
+     * Creates a new {@link DeadlinePlanner} that switches to the {@linkplain #DEFAULT_CANDIDATES default candidates}
+     * @param model The {@link ThroughputModel} that estimates the cost of each stage.
+     * @param remaining The time from now until the deadline, e.g., {@code Context.getRemainingTimeInMillis()}, or
+     *                  {@code null} if there is no deadline.
+     * @param margin The time before the deadline that is kept back, e.g., to hand the frame to an EMR cluster after
+     *               all.
+     * @throws NullPointerException If {@code model} or {@code margin} is {@code null}
+     */
+    public DeadlinePlanner(@NotNull ThroughputModel model, @Nullable Duration remaining, @NotNull Duration margin) {
+        this(model, remaining, margin, DEFAULT_CANDIDATES, System::nanoTime);
+    }
+
+    /**
+     * Creates a new {@link DeadlinePlanner}
+     * @param model The {@link ThroughputModel} that estimates the cost of each stage.
+     * @param remaining The time from now until the deadline, or {@code null} if there is no deadline.
+     * @param margin The time before the deadline that is kept back, e.g., to hand the frame to an EMR cluster after
+     *               all.
+     * @param candidates The names of the sorting algorithms that the planner may switch to.
+     * @param nanoTime A function that returns the current value of a monotonic time source in nanoseconds, such as
+     *                 {@link System#nanoTime()}
+     * @throws NullPointerException If {@code model}, {@code margin}, {@code candidates}, or {@code nanoTime} is
+     * {@code null}
+     */
+    public DeadlinePlanner(@NotNull ThroughputModel model, @Nullable Duration remaining, @NotNull Duration margin,
+            @NotNull Collection<String> candidates, @NotNull LongSupplier nanoTime) {
+        this.model = Objects.requireNonNull(model, "'model' cannot be null.");
+        this.nanoTime = Objects.requireNonNull(nanoTime, "'nanoTime' cannot be null.");
+        this.candidates = new ArrayList<>(Objects.requireNonNull(candidates, "'candidates' cannot be null."));
+        this.marginNanos = Objects.requireNonNull(margin, "'margin' cannot be null.").toNanos();
+        this.hasDeadline = remaining != null;
+        this.deadlineNanos = remaining == null ? 0 : nanoTime.getAsLong() + remaining.toNanos();
+    }
+
+    /**
+     * Gets the {@link ThroughputModel} that estimates the cost of each stage, to which the stages should
+     * {@linkplain ThroughputModel#record(ThroughputModel.Stage, long, long) record} how long they took.
+     * @return The {@link ThroughputModel}
+     */
+    @NotNull
+    public ThroughputModel getModel() {
+        return model;
+    }
+
+    /**
+     * Gets the time that is left until the deadline, less the margin.
+     * @return The time left, which is negative once the margin has been reached, or {@code null} if there is no
+     * deadline.
+     */
+    @Nullable
+    public Duration getAvailable() {
+        return hasDeadline ? Duration.ofNanos(availableNanos()) : null;
+    }
+
+    /**
+     * Gets the time that is left until the deadline itself, including the margin.
+     * @return The time left, which is negative once the deadline has passed, or {@code null} if there is no deadline.
+     */
+    @Nullable
+    public Duration getRemaining() {
+        return hasDeadline ? Duration.ofNanos(availableNanos() + marginNanos) : null;
+    }
+
+    /**
+     * Plans a frame that has yet to be collected, e.g., before the simulation starts.
+     * @param algorithm The name of the requested sorting algorithm.
+     * @param values The number of values in the frame.
+     * @param threshold The threshold that is passed to the sorting algorithm.
+     * @return The {@link Plan}
+     * @throws NullPointerException If {@code algorithm} is {@code null}
+     */
+    @NotNull
+    public Plan planRun(@NotNull String algorithm, long values, int threshold) {
+        return plan(algorithm, values, threshold, 0, model.estimateNanos(ThroughputModel.Stage.COLLECT, values));
+    }
+
+    /**
+     * Plans a frame that has been collected, e.g., once it is handed to the pipeline.
+     * @param algorithm The name of the requested sorting algorithm.
+     * @param values The number of values in the frame.
+     * @param threshold The threshold that is passed to the sorting algorithm.
+     * @param framesAhead The number of frames that are still being processed ahead of this one, which hold up this
+     *                    frame in the slowest stage.
+     * @return The {@link Plan}
+     * @throws NullPointerException If {@code algorithm} is {@code null}
+     */
+    @NotNull
+    public Plan planFrame(@NotNull String algorithm, long values, int threshold, int framesAhead) {
+        return plan(algorithm, values, threshold, Math.max(0, framesAhead), 0);
+    }
+
+    @NotNull
+    private Plan plan(@NotNull String algorithm, long values, int threshold, int framesAhead, long collectNanos) {
+        Objects.requireNonNull(algorithm, "'algorithm' cannot be null.");
+        long available = hasDeadline ? availableNanos() : Long.MAX_VALUE;
+        Plan requested = estimate(algorithm, values, threshold, 1, framesAhead, collectNanos, available);
+
+        if (requested.isOnTime()) {
+            return requested;
+        }
+
+        // Sort with the fastest algorithm, which still produces the same image
+        String fastest = algorithm;
+
+        for (String candidate : candidates) {
+            if (model.estimateSortNanos(candidate, values, threshold) <
+                    model.estimateSortNanos(fastest, values, threshold)) {
+                fastest = candidate;
+            }
+        }
+
+        // Then downscale the image as far as it takes, as long as the scale divides its width
+        long width = (long) Math.sqrt(values);
+        int largestScale = 1;
+
+        for (int scale = 1; scale <= MAX_SCALE && width % scale == 0; scale *= 2) {
+            Plan plan = estimate(fastest, values, threshold, scale, framesAhead, collectNanos, available);
+            largestScale = scale;
+
+            if (plan.isOnTime()) {
+                return plan;
+            }
+        }
+
+        // Otherwise only upload the values, and let an EMR cluster sort them. The fastest way of processing the frame
+        // in the AWS Lambda function is kept for when it cannot be handed off.
+        long handOffNanos = collectNanos + model.estimateNanos(ThroughputModel.Stage.HAND_OFF, values);
+        return new Plan(fastest, largestScale, true, handOffNanos, available);
+    }
+
+    @NotNull
+    private Plan estimate(@NotNull String algorithm, long values, int threshold, int scale, int framesAhead,
+            long collectNanos, long available) {
+        long pixels = values / ((long) scale * scale);
+        long[] stageNanos = {
+                model.estimateSortNanos(algorithm, values, threshold),
+                model.estimateNanos(ThroughputModel.Stage.RENDER, scale == 1 ? values : values + pixels),
+                model.estimateNanos(ThroughputModel.Stage.ENCODE, pixels),
+                model.estimateUploadNanos(pixels)
+        };
+
+        // The stages work on different frames at the same time, so each frame ahead holds this one up by the time
+        // of the slowest stage
+        long total = collectNanos + Arrays.stream(stageNanos).sum() +
+                framesAhead * Arrays.stream(stageNanos).max().orElse(0);
+        return new Plan(algorithm, scale, false, total, available);
+    }
+
+    private long availableNanos() {
+        return deadlineNanos - nanoTime.getAsLong() - marginNanos;
+    }
+
+    /**
+     * The way in which a frame is processed according to a {@link DeadlinePlanner}
+     */
+    @Value
+    public static class Plan {
+
+        /**
+         * Gets the name of the sorting algorithm. If the frame is handed off, this is the fastest algorithm, which
+         * sorts the frame if it cannot be handed off after all.
+         */
+        @NotNull private final String algorithm;
+
+        /**
+         * Gets the factor by which the image is downscaled, which is 1 if it is not downscaled. If the frame is handed
+         * off, this is the largest scale that was considered.
+         */
+        private final int scale;
+
+        /**
+         * Gets whether the frame is handed to an EMR cluster instead of being processed in the AWS Lambda function.
+         */
+        private final boolean handOff;
+
+        /**
+         * Gets the estimated time it takes to process the frame in nanoseconds.
+         */
+        private final long estimatedNanos;
+
+        /**
+         * Gets the time that was available to process the frame in nanoseconds, which is {@link Long#MAX_VALUE} if
+         * there is no deadline.
+         */
+        private final long availableNanos;
+
+        /**
+         * Determines whether the frame is estimated to be finished before the deadline.
+         * @return {@code true} if the frame is estimated to be finished in time.
+         */
+        public boolean isOnTime() {
+            return estimatedNanos <= availableNanos;
+        }
+
+        @Override
+        public String toString() {
+            String available = availableNanos == Long.MAX_VALUE ? "no deadline" :
+                    String.format("%,d ms available", availableNanos / 1_000_000);
+            String strategy = handOff ? "hand off to EMR" : scale == 1 ? algorithm :
+                    String.format("%s, downscaled %dx", algorithm, scale);
+            return String.format("%s (estimated %,d ms, %s)", strategy, estimatedNanos / 1_000_000, available);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ahuber.hubble.utils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The kinds of thread that run the blocking roles of a simulation, i.e., the satellite, the receiver, and the
+ * processor, which spend most of their time waiting on a buffer, a queue, or Amazon Web Services.
+ * <p>
+ * CPU-bound work such as sorting is not affected by the execution mode; it stays on a
+ * {@link java.util.concurrent.ForkJoinPool}, where the number of threads matches the number of processors.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Runs each role on its own platform thread, i.e., an operating system thread. This is the default.
+     */
+    @JsonProperty("platform")
+    PLATFORM,
+
+    /**
+     * Runs each role on a virtual thread, which does not hold on to an operating system thread while it is blocked,
+     * so that thousands of simulations can run in the same JVM. Virtual threads require Java 21 or later (see
+     * {@link #isSupported()}).
+     */
+    @JsonProperty("virtual")
+    VIRTUAL;
+
+    /**
+     * Checks whether threads of this kind can be created in the running JVM.
+     * @return {@code true} if threads of this kind can be created, {@code false} otherwise.
+     */
+    @Contract(pure = true)
+    public boolean isSupported() {
+        return this == PLATFORM || VirtualThreads.UNSTARTED != null;
+    }
+
+    /**
+     * Creates a new thread of this kind that has not been started yet.
+     * @param task The task that the thread runs.
+     * @param name The name of the thread.
+     * @return The thread.
+     * @throws NullPointerException If {@code task} or {@code name} is {@code null}
+     * @throws UnsupportedOperationException If threads of this kind cannot be created in the running JVM.
+     */
+    @NotNull
+    public Thread newThread(@NotNull Runnable task, @NotNull String name) {
+        Objects.requireNonNull(task, "'task' cannot be null.");
+        Objects.requireNonNull(name, "'name' cannot be null.");
+        Thread thread = this == PLATFORM ? new Thread(task) : VirtualThreads.unstarted(task);
+        thread.setName(name);
+        return thread;
+    }
+
+    /**
+     * Creates a {@link ThreadFactory} that creates threads of this kind, which are named after {@code name} followed
+     * by a number, e.g., {@code name-1}, {@code name-2}, and so on.
+     * @param name The name of the threads.
+     * @return The {@link ThreadFactory}
+     * @throws NullPointerException If {@code name} is {@code null}
+     * @throws UnsupportedOperationException If threads of this kind cannot be created in the running JVM.
+     */
+    @NotNull
+    public ThreadFactory newThreadFactory(@NotNull String name) {
+        Objects.requireNonNull(name, "'name' cannot be null.");
+        requireSupported();
+        AtomicInteger count = new AtomicInteger();
+        return task -> newThread(task, String.format("%s-%d", name, count.incrementAndGet()));
+    }
+
+    /**
+     * Creates an {@link Executor} that runs each task on a new thread of this kind, named as described in
+     * {@link #newThreadFactory(String)}. Since the threads are never reused, the {@link Executor} does not need to be
+     * shut down.
+     * @param name The name of the threads.
+     * @return The {@link Executor}
+     * @throws NullPointerException If {@code name} is {@code null}
+     * @throws UnsupportedOperationException If threads of this kind cannot be created in the running JVM.
+     */
+    @NotNull
+    public Executor newExecutor(@NotNull String name) {
+        ThreadFactory factory = newThreadFactory(name);
+        return task -> factory.newThread(Objects.requireNonNull(task, "'task' cannot be null.")).start();
+    }
+
+    /**
+     * Returns this execution mode if it is {@linkplain #isSupported() supported}, or {@link #PLATFORM} otherwise.
+     * @return The execution mode to use in the running JVM.
+     */
+    @NotNull
+    @Contract(pure = true)
+    public ExecutionMode orPlatform() {
+        return isSupported() ? this : PLATFORM;
+    }
+
+    private void requireSupported() {
+        if (!isSupported()) {
+            String message = String.format("%s threads require Java 21 or later. (java.version: %s)", this,
+                    System.getProperty("java.version"));
+            throw new UnsupportedOperationException(message);
+        }
+    }
+
+    /**
+     * Creates virtual threads through reflection, since this project is compiled for Java 8.
+     */
+    private static final class VirtualThreads {
+
+        /**
+         * {@code Thread.Builder.unstarted(Runnable)}, or {@code null} if virtual threads are not available.
+         */
+        @Nullable private static final Method UNSTARTED;
+
+        /**
+         * {@code Thread.ofVirtual()}, or {@code null} if virtual threads are not available.
+         */
+        @Nullable private static final Method OF_VIRTUAL;
+
+        static {
+            Method ofVirtual = null;
+            Method unstarted = null;
+
+            try {
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+            } catch (ReflectiveOperationException | LinkageError ignored) {
+                // Virtual threads are not available in this JVM
+                ofVirtual = null;
+                unstarted = null;
+            }
+
+            OF_VIRTUAL = ofVirtual;
+            UNSTARTED = unstarted;
+        }
+
+        @NotNull
+        static Thread unstarted(@NotNull Runnable task) {
+            if (OF_VIRTUAL == null || UNSTARTED == null) {
+                VIRTUAL.requireSupported();
+            }
+
+            try {
+                // A builder is not thread-safe, so each thread gets its own
+                Object builder = OF_VIRTUAL.invoke(null);
+                return (Thread) UNSTARTED.invoke(builder, task);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+
+                throw new IllegalStateException("Unable to create a virtual thread.", cause);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to create a virtual thread.", e);
+            }
+        }
+    }
+}
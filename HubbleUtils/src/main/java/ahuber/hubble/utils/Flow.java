@@ -0,0 +1,88 @@
+package ahuber.hubble.utils;
+
+/**
+ * The interfaces of a stream in which the subscriber signals how many items it is ready for, i.e., a stream with
+ * backpressure. They have the same names and methods as the interfaces in {@code java.util.concurrent.Flow}, which
+ * only exists as of Java 9, while the project targets Java 8; code that uses them moves to the JDK by replacing the
+ * import.
+ * <p>
+ * The signals follow the same rules as those of {@code java.util.concurrent.Flow}: a {@link Subscriber} receives
+ * {@link Subscriber#onSubscribe(Subscription)} first, then at most as many {@link Subscriber#onNext(Object)} signals
+ * as it has {@linkplain Subscription#request(long) requested}, and finally at most one of
+ * {@link Subscriber#onComplete()} and {@link Subscriber#onError(Throwable)}. The signals to a {@link Subscriber}
+ * never overlap, although they may come from different threads.
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * A producer of items that a {@link Subscriber} receives.
+     * @param <T> The type of item.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        /**
+         * Adds a {@link Subscriber}, which receives {@link Subscriber#onSubscribe(Subscription)} and then the items
+         * it requests. If the {@link Subscriber} cannot be added, e.g., because the publisher only supports one, it
+         * receives {@link Subscriber#onError(Throwable)} instead of any items.
+         * @param subscriber The {@link Subscriber}
+         * @throws NullPointerException If {@code subscriber} is {@code null}
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of the items of a {@link Publisher}
+     * @param <T> The type of item.
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Invoked before any other signal. The {@link Subscriber} receives no items until it
+         * {@linkplain Subscription#request(long) requests} them.
+         * @param subscription The {@link Subscription} through which items are requested.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Invoked with the next item, as long as the {@link Subscriber} has requested more items than it has received.
+         * @param item The item.
+         */
+        void onNext(T item);
+
+        /**
+         * Invoked when the {@link Publisher} or the {@link Subscription} fails, after which no more signals are
+         * received.
+         * @param throwable The cause of the failure.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Invoked once every item has been received, after which no more signals are received.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The link between a {@link Publisher} and one {@link Subscriber}
+     */
+    public interface Subscription {
+
+        /**
+         * Adds {@code n} items to the number of items that the {@link Subscriber} is ready to receive. The demand
+         * adds up, and is unlimited once it reaches {@link Long#MAX_VALUE}
+         * @param n The number of items. If it is not positive, the {@link Subscriber} receives
+         *          {@link Subscriber#onError(Throwable)} with an {@link IllegalArgumentException}
+         */
+        void request(long n);
+
+        /**
+         * Stops the {@link Publisher} from sending any more items to the {@link Subscriber}, although a few that are
+         * already on their way may still be received.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,46 @@
+package ahuber.hubble.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Executes an action for each index in a range, splitting the range in halves until each task handles a single
+ * index. An empty range does nothing.
+ */
+public class ForEachAction extends RecursiveAction {
+    private final int startInclusive;
+    private final int endExclusive;
+    @NotNull private final IntConsumer action;
+
+    /**
+     * Creates a new {@link ForEachAction}
+     * @param startInclusive The first index.
+     * @param endExclusive The index after the last index.
+     * @param action The action that is executed for each index.
+     * @throws NullPointerException If {@code action} is {@code null}
+     */
+    public ForEachAction(int startInclusive, int endExclusive, @NotNull IntConsumer action) {
+        this.startInclusive = startInclusive;
+        this.endExclusive = endExclusive;
+        this.action = Objects.requireNonNull(action, "'action' cannot be null.");
+    }
+
+    @Override
+    protected void compute() {
+        if (endExclusive - startInclusive <= 0) {
+            return;
+        }
+
+        if (endExclusive - startInclusive == 1) {
+            action.accept(startInclusive);
+            return;
+        }
+
+        int middle = (startInclusive + endExclusive) >>> 1;
+        invokeAll(new ForEachAction(startInclusive, middle, action),
+                new ForEachAction(middle, endExclusive, action));
+    }
+}
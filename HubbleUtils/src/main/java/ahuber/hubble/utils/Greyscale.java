@@ -0,0 +1,66 @@
+package ahuber.hubble.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Normalizes the values a satellite produces into shades of grey by looking them up in tables of the
+ * {@value #LOOKUP_LENGTH} values, i.e., 0 to 4096. Unlike {@link SatelliteImageWriter}, this does not depend on AWT,
+ * so the encoders that write an image straight from the values do not load it.
+ */
+final class Greyscale {
+
+    /**
+     * The length of the tables that normalize each value a satellite produces, i.e., 0 to 4096.
+     */
+    static final int LOOKUP_LENGTH = 4097;
+
+    private static final byte[] BYTES = createByteTable();
+    private static final short[] SHORTS = createShortTable();
+
+    private Greyscale() {
+    }
+
+    /**
+     * Normalizes a value into an 8-bit shade of grey. Values outside of the range 0 to 4096 are normalized with
+     * {@link Utils#normalize(int)} instead.
+     * @param value The value.
+     * @return The shade of grey, which is the low byte of the normalized value, like in a raster.
+     */
+    static byte toByte(int value) {
+        return value >= 0 && value < LOOKUP_LENGTH ? BYTES[value] : (byte) Utils.normalize(value);
+    }
+
+    /**
+     * Normalizes a value into a 16-bit shade of grey, which spreads the values 0 to 4096 over the whole range of 0
+     * to 65535 without merging any of them. Values outside of the range 0 to 4096 are clamped to it.
+     * @param value The value.
+     * @return The shade of grey as an unsigned {@code short}
+     */
+    static short toShort(int value) {
+        return SHORTS[Math.max(0, Math.min(LOOKUP_LENGTH - 1, value))];
+    }
+
+    @NotNull
+    private static byte[] createByteTable() {
+        byte[] table = new byte[LOOKUP_LENGTH];
+
+        for (int value = 0; value < LOOKUP_LENGTH; value++) {
+            table[value] = (byte) Utils.normalize(value);
+        }
+
+        return table;
+    }
+
+    @NotNull
+    private static short[] createShortTable() {
+        short[] table = new short[LOOKUP_LENGTH];
+        int max = LOOKUP_LENGTH - 1;
+
+        // Round to the nearest shade, so that 0 and 4096 become black and white
+        for (int value = 0; value < LOOKUP_LENGTH; value++) {
+            table[value] = (short) ((value * 65535L + max / 2) / max);
+        }
+
+        return table;
+    }
+}
@@ -0,0 +1,140 @@
+package ahuber.hubble.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Encodes a frame as a binary PGM image ("P5") one row at a time, straight from its values. Unlike a JPEG or an 8-bit
+ * PNG image, a PGM image stores the values themselves, two bytes each with {@value #MAX_VALUE} as the value of white,
+ * so it keeps all of the precision of the frame, and since it is not compressed, encoding it is little more than
+ * copying the values. This makes it the fastest format to write, at the cost of two bytes per value.
+ */
+public class GreyscalePgmEncoder {
+
+    /**
+     * The content type of a PGM image, e.g., for uploading it to Amazon S3.
+     */
+    public static final String CONTENT_TYPE = "image/x-portable-graymap";
+
+    /**
+     * The value of white, i.e., the largest value a satellite produces. Smaller and larger values are clamped to the
+     * range 0 to {@value #MAX_VALUE}
+     */
+    public static final int MAX_VALUE = Greyscale.LOOKUP_LENGTH - 1;
+
+    /**
+     * Encodes a square frame as a PGM image.
+     * @param data The values of the frame row by row, whose length is a perfect square.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is flushed but not closed.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code data} or {@code outputStream} is {@code null}
+     * @throws IllegalArgumentException If {@code data} is empty.
+     */
+    public long encode(@NotNull int[] data, @NotNull OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(data, "'data' cannot be null.");
+        return encode(IntBuffer.wrap(data), (int) Math.sqrt(data.length), outputStream);
+    }
+
+    /**
+     * Encodes the square image of the sorted frame that a histogram counts as a PGM image, writing each run of equal
+     * values straight from its count instead of from the sorted frame.
+     * @param histogram The {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is flushed but not closed.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code histogram} or {@code outputStream} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link RunLengthRenderer#getLength(long[])},
+     * or counts no values.
+     */
+    public long encode(@NotNull long[] histogram, @NotNull OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+        int width = RunLengthRenderer.getLength(histogram);
+
+        if (width < 1) {
+            throw new IllegalArgumentException("The histogram must count at least one value.");
+        }
+
+        byte[] header = String.format("P5\n%d %d\n%d\n", width, width, MAX_VALUE).getBytes(StandardCharsets.US_ASCII);
+        outputStream.write(header);
+
+        byte[] row = new byte[width * 2];
+        int x = 0;
+        int y = 0;
+
+        for (int value = 0; value < histogram.length && y < width; value++) {
+            byte high = (byte) (value >>> 8);
+            byte low = (byte) value;
+
+            // A run can span several rows, each of which is written as soon as it is full
+            for (long remaining = histogram[value]; remaining > 0 && y < width; ) {
+                int end = (int) Math.min(width, x + remaining);
+                remaining -= end - x;
+
+                for (; x < end; x++) {
+                    row[2 * x] = high;
+                    row[2 * x + 1] = low;
+                }
+
+                if (x == width) {
+                    outputStream.write(row);
+                    x = 0;
+                    y++;
+                }
+            }
+        }
+
+        outputStream.flush();
+        return header.length + (long) width * row.length;
+    }
+
+    /**
+     * Encodes a frame as a PGM image.
+     * @param frame The values of the frame row by row, from its position to its limit. Its position is not changed.
+     * @param width The number of values in each row. Values after the last full row are left out.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is flushed but not closed.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code frame} or {@code outputStream} is {@code null}
+     * @throws IllegalArgumentException If {@code width} is less than one or greater than the number of values.
+     */
+    public long encode(@NotNull IntBuffer frame, int width, @NotNull OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(frame, "'frame' cannot be null.");
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+
+        if (width < 1 || width > frame.remaining()) {
+            String message = String.format("The width must be in the range [1, number of values]. (width: %d, " +
+                    "values: %d)", width, frame.remaining());
+            throw new IllegalArgumentException(message);
+        }
+
+        int height = frame.remaining() / width;
+        byte[] header = String.format("P5\n%d %d\n%d\n", width, height, MAX_VALUE).getBytes(StandardCharsets.US_ASCII);
+        outputStream.write(header);
+
+        IntBuffer source = frame.duplicate();
+        int[] values = new int[width];
+        byte[] row = new byte[width * 2];
+
+        for (int y = 0; y < height; y++) {
+            source.get(values);
+
+            // A value greater than 255 takes two bytes, the most significant byte first
+            for (int x = 0; x < width; x++) {
+                int value = Math.max(0, Math.min(MAX_VALUE, values[x]));
+                row[2 * x] = (byte) (value >>> 8);
+                row[2 * x + 1] = (byte) value;
+            }
+
+            outputStream.write(row);
+        }
+
+        outputStream.flush();
+        return header.length + (long) height * row.length;
+    }
+}
@@ -0,0 +1,545 @@
+package ahuber.hubble.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes a frame as an 8-bit or 16-bit greyscale PNG image one row at a time, straight from its values, without
+ * rendering a {@link java.awt.image.BufferedImage} or holding the encoded image in memory. Besides the
+ * {@link Deflater}, the encoder only needs one row of values and one chunk of encoded bytes at a time, so its memory
+ * stays the same whatever the size of the frame, e.g., a frame of 8192 x 8192 values, whose image alone would take
+ * 64 MB. Nor does it load AWT, which takes a noticeable share of the cold start of an AWS Lambda function.
+ * <p>
+ * The 8-bit values are normalized in the same way as by {@link SatelliteImageWriter}, so the image has the same pixels
+ * as one that it writes. The 16-bit values keep every one of the values 0 to 4096 apart, so the image loses none of
+ * the precision of the frame. Each row is filtered with the PNG "Sub" filter, which turns the slowly rising values of
+ * a sorted frame into runs of small differences that compress well.
+ * <p>
+ * Given a {@link ForkJoinPool}, the encoder filters and compresses bands of rows in parallel instead, each with its own
+ * {@link Deflater}, and writes the compressed bands in order as they are finished. Each band but the last ends on a
+ * byte boundary with {@link Deflater#SYNC_FLUSH}, so the bands join into one stream of image data. This takes one band
+ * per thread, and a few more that wait to be written, rather than one row.
+ */
+public class GreyscalePngEncoder {
+
+    /**
+     * The content type of a PNG image, e.g., for uploading it to Amazon S3.
+     */
+    public static final String CONTENT_TYPE = "image/png";
+
+    /**
+     * The largest number of compressed bytes that are written in one chunk of image data.
+     */
+    private static final int CHUNK_LENGTH = 1 << 16;
+
+    /**
+     * The smallest number of filtered bytes that are compressed by one task. Since each band is compressed on its
+     * own, a smaller band would compress worse.
+     */
+    private static final int MIN_BAND_BYTES = 1 << 18;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] HEADER = "IHDR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DATA = "IDAT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "IEND".getBytes(StandardCharsets.US_ASCII);
+    private static final byte FILTER_SUB = 1;
+    private static final byte COLOR_TYPE_GREYSCALE = 0;
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9C};
+
+    private final int level;
+    private final int bitDepth;
+
+    /**
+     * Creates a new {@link GreyscalePngEncoder} that favors speed over size, i.e., that compresses with
+     * {@link Deflater#BEST_SPEED}
+     */
+    public GreyscalePngEncoder() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Creates a new {@link GreyscalePngEncoder}
+     * @param level The compression level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION},
+     *              or {@link Deflater#DEFAULT_COMPRESSION}
+     * @throws IllegalArgumentException If {@code level} is not a valid compression level.
+     */
+    public GreyscalePngEncoder(int level) {
+        this(level, 8);
+    }
+
+    /**
+     * Creates a new {@link GreyscalePngEncoder}
+     * @param level The compression level, from {@link Deflater#NO_COMPRESSION} to {@link Deflater#BEST_COMPRESSION},
+     *              or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param bitDepth The number of bits of each pixel, either 8, or 16 to keep the precision of the values.
+     * @throws IllegalArgumentException If {@code level} is not a valid compression level, or if {@code bitDepth} is
+     * neither 8 nor 16.
+     */
+    public GreyscalePngEncoder(int level, int bitDepth) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            String message = String.format("The compression level must be in the range [-1, 9]. (level: %d)", level);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (bitDepth != 8 && bitDepth != 16) {
+            String message = String.format("The bit depth must be either 8 or 16. (bitDepth: %d)", bitDepth);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.level = level;
+        this.bitDepth = bitDepth;
+    }
+
+    /**
+     * Gets the number of bits of each pixel.
+     * @return The bit depth, either 8 or 16.
+     */
+    public int getBitDepth() {
+        return bitDepth;
+    }
+
+    /**
+     * Encodes a square frame as a PNG image.
+     * @param data The values of the frame row by row, whose length is a perfect square.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is flushed but not closed.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code data} or {@code outputStream} is {@code null}
+     * @throws IllegalArgumentException If {@code data} is empty.
+     */
+    public long encode(@NotNull int[] data, @NotNull OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(data, "'data' cannot be null.");
+        return encode(IntBuffer.wrap(data), (int) Math.sqrt(data.length), outputStream);
+    }
+
+    /**
+     * Encodes a square frame as a PNG image, filtering and compressing bands of rows in parallel.
+     * @param data The values of the frame row by row, whose length is a perfect square.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is flushed but not closed.
+     * @param pool The {@link ForkJoinPool} that filters and compresses the bands.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code data}, {@code outputStream}, or {@code pool} is {@code null}
+     * @throws IllegalArgumentException If {@code data} is empty.
+     */
+    public long encode(@NotNull int[] data, @NotNull OutputStream outputStream, @NotNull ForkJoinPool pool)
+            throws IOException {
+        Objects.requireNonNull(data, "'data' cannot be null.");
+        return encode(IntBuffer.wrap(data), (int) Math.sqrt(data.length), outputStream, pool);
+    }
+
+    /**
+     * Encodes a frame as a PNG image.
+     * @param frame The values of the frame row by row, from its position to its limit, e.g., a direct buffer that holds
+     *              a frame off the heap. Its position is not changed.
+     * @param width The number of values in each row. Values after the last full row are left out.
+     * @param channel The {@link WritableByteChannel} that the image is written to. It is not closed.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code frame} or {@code channel} is {@code null}
+     * @throws IllegalArgumentException If {@code width} is less than one or greater than the number of values.
+     */
+    public long encode(@NotNull IntBuffer frame, int width, @NotNull WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(channel, "'channel' cannot be null.");
+        return encode(frame, width, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Encodes a frame as a PNG image.
+     * @param frame The values of the frame row by row, from its position to its limit, e.g., a direct buffer that holds
+     *              a frame off the heap. Its position is not changed.
+     * @param width The number of values in each row. Values after the last full row are left out.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is flushed but not closed.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code frame} or {@code outputStream} is {@code null}
+     * @throws IllegalArgumentException If {@code width} is less than one or greater than the number of values.
+     */
+    public long encode(@NotNull IntBuffer frame, int width, @NotNull OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(frame, "'frame' cannot be null.");
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+        int height = getHeight(frame, width);
+        IntBuffer source = frame.duplicate();
+        int[] values = new int[width];
+
+        return encode(width, height, bitDepth, outputStream, row -> {
+            source.get(values);
+            normalizeRow(values, row);
+        });
+    }
+
+    /**
+     * Encodes a frame as a PNG image, filtering and compressing bands of rows in parallel.
+     * @param frame The values of the frame row by row, from its position to its limit, e.g., a direct buffer that holds
+     *              a frame off the heap. Its position is not changed, and it must not change until this returns.
+     * @param width The number of values in each row. Values after the last full row are left out.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is flushed but not closed.
+     * @param pool The {@link ForkJoinPool} that filters and compresses the bands.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code frame}, {@code outputStream}, or {@code pool} is {@code null}
+     * @throws IllegalArgumentException If {@code width} is less than one or greater than the number of values.
+     */
+    public long encode(@NotNull IntBuffer frame, int width, @NotNull OutputStream outputStream,
+            @NotNull ForkJoinPool pool) throws IOException {
+        Objects.requireNonNull(frame, "'frame' cannot be null.");
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+        Objects.requireNonNull(pool, "'pool' cannot be null.");
+        int height = getHeight(frame, width);
+        int rowLength = 1 + width * bitDepth / 8;
+        int bandRows = Math.max(1, MIN_BAND_BYTES / rowLength);
+        int bands = (height + bandRows - 1) / bandRows;
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ChunkWriter writer = writeHeader(width, height, bitDepth, outputStream);
+        Deque<ForkJoinTask<Band>> pending = new ArrayDeque<>();
+        writer.write(ZLIB_HEADER, ZLIB_HEADER.length);
+        long checksum = 1;
+
+        try {
+            for (int next = 0, written = 0; written < bands; written++) {
+                // Keep a few bands ahead of the one that is written next, so that every thread has work to do
+                for (; next < bands && pending.size() < window; next++) {
+                    int fromRow = next * bandRows;
+                    int toRow = Math.min(height, fromRow + bandRows);
+                    boolean last = next == bands - 1;
+                    pending.add(pool.submit(() -> compressBand(frame, width, fromRow, toRow, last)));
+                }
+
+                Band band = pending.remove().join();
+                writer.write(band.bytes, band.length);
+                checksum = combineAdler32(checksum, band.checksum, band.filteredLength);
+            }
+        } finally {
+            pending.forEach(task -> task.cancel(false));
+        }
+
+        byte[] trailer = new byte[4];
+        writeInt(trailer, 0, (int) checksum);
+        writer.write(trailer, trailer.length);
+        writer.flushData();
+        writer.writeChunk(END, new byte[0], 0);
+        outputStream.flush();
+        return writer.written;
+    }
+
+    /**
+     * Encodes a block of pixels that have already been normalized as a PNG image, e.g., one tile of a larger image.
+     * @param pixels The shades of grey of the pixels row by row, like in the raster of a
+     *               {@link java.awt.image.BufferedImage#TYPE_BYTE_GRAY} image.
+     * @param offset The index of the top left pixel of the block.
+     * @param stride The number of pixels from the start of one row of the block to the start of the next.
+     * @param width The number of pixels in each row of the block.
+     * @param height The number of rows in the block.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is flushed but not closed.
+     * @return The number of bytes that were written.
+     * @throws IOException If the image cannot be written.
+     * @throws NullPointerException If {@code pixels} or {@code outputStream} is {@code null}
+     * @throws IllegalArgumentException If {@code width} or {@code height} is less than one, if {@code width} is
+     * greater than {@code stride}, or if the block does not fit in {@code pixels}
+     * @throws IllegalStateException If the encoder writes 16-bit images, since the pixels only have 8 bits.
+     */
+    public long encode(@NotNull byte[] pixels, int offset, int stride, int width, int height,
+            @NotNull OutputStream outputStream) throws IOException {
+        Objects.requireNonNull(pixels, "'pixels' cannot be null.");
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+
+        if (bitDepth != 8) {
+            throw new IllegalStateException("Only an 8-bit encoder encodes pixels that have already been normalized.");
+        }
+
+        if (width < 1 || height < 1 || width > stride || offset < 0
+                || offset + (long) (height - 1) * stride + width > pixels.length) {
+            String message = String.format("The block does not fit in the pixels. (offset: %d, stride: %d, " +
+                    "width: %d, height: %d, pixels: %d)", offset, stride, width, height, pixels.length);
+            throw new IllegalArgumentException(message);
+        }
+
+        int[] start = {offset};
+
+        return encode(width, height, 8, outputStream, row -> {
+            System.arraycopy(pixels, start[0], row, 1, width);
+            start[0] += stride;
+        });
+    }
+
+    private long encode(int width, int height, int bitDepth, @NotNull OutputStream outputStream,
+            @NotNull RowReader reader) throws IOException {
+        ChunkWriter writer = writeHeader(width, height, bitDepth, outputStream);
+        byte[] row = new byte[1 + width * bitDepth / 8];
+        Deflater deflater = new Deflater(level);
+
+        try {
+            for (int y = 0; y < height; y++) {
+                reader.read(row);
+                filter(row, bitDepth / 8);
+                deflater.setInput(row);
+
+                while (!deflater.needsInput()) {
+                    writer.deflate(deflater);
+                }
+            }
+
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                writer.deflate(deflater);
+            }
+
+            writer.flushData();
+        } finally {
+            deflater.end();
+        }
+
+        writer.writeChunk(END, new byte[0], 0);
+        outputStream.flush();
+        return writer.written;
+    }
+
+    @NotNull
+    private Band compressBand(@NotNull IntBuffer frame, int width, int fromRow, int toRow, boolean last) {
+        int rowLength = 1 + width * bitDepth / 8;
+        byte[] filtered = new byte[(toRow - fromRow) * rowLength];
+        byte[] row = new byte[rowLength];
+        int[] values = new int[width];
+        IntBuffer source = frame.duplicate();
+        source.position(frame.position() + fromRow * width);
+
+        for (int offset = 0; offset < filtered.length; offset += rowLength) {
+            source.get(values);
+            normalizeRow(values, row);
+            filter(row, bitDepth / 8);
+            System.arraycopy(row, 0, filtered, offset, rowLength);
+        }
+
+        Adler32 adler32 = new Adler32();
+        adler32.update(filtered, 0, filtered.length);
+
+        // Each band is raw deflate data, so that the bands can be joined behind a single zlib header
+        Deflater deflater = new Deflater(level, true);
+        byte[] bytes = new byte[filtered.length / 2 + 64];
+        int length = 0;
+
+        try {
+            deflater.setInput(filtered);
+
+            if (last) {
+                deflater.finish();
+            }
+
+            while (true) {
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+
+                int space = bytes.length - length;
+                int deflated = last ? deflater.deflate(bytes, length, space)
+                        : deflater.deflate(bytes, length, space, Deflater.SYNC_FLUSH);
+                length += deflated;
+
+                // A flush is complete once it leaves room in the output, and the last band once it is finished
+                if (last ? deflater.finished() : deflated < space) {
+                    break;
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+
+        return new Band(bytes, length, adler32.getValue(), filtered.length);
+    }
+
+    private void normalizeRow(@NotNull int[] values, @NotNull byte[] row) {
+        if (bitDepth == 8) {
+            for (int x = 0; x < values.length; x++) {
+                row[x + 1] = Greyscale.toByte(values[x]);
+            }
+        } else {
+            // 16-bit samples are stored with the most significant byte first
+            for (int x = 0; x < values.length; x++) {
+                short grey = Greyscale.toShort(values[x]);
+                row[2 * x + 1] = (byte) (grey >>> 8);
+                row[2 * x + 2] = (byte) grey;
+            }
+        }
+    }
+
+    private static void filter(@NotNull byte[] row, int bytesPerPixel) {
+        row[0] = FILTER_SUB;
+
+        // The Sub filter stores the difference from the same byte of the pixel to the left, modulo 256. Going from
+        // right to left filters the row in place, since each byte is only subtracted from the one to its right.
+        for (int x = row.length - 1; x > bytesPerPixel; x--) {
+            row[x] -= row[x - bytesPerPixel];
+        }
+    }
+
+    private static int getHeight(@NotNull IntBuffer frame, int width) {
+        if (width < 1 || width > frame.remaining()) {
+            String message = String.format("The width must be in the range [1, number of values]. (width: %d, " +
+                    "values: %d)", width, frame.remaining());
+            throw new IllegalArgumentException(message);
+        }
+
+        return frame.remaining() / width;
+    }
+
+    @NotNull
+    private static ChunkWriter writeHeader(int width, int height, int bitDepth, @NotNull OutputStream outputStream)
+            throws IOException {
+        ChunkWriter writer = new ChunkWriter(outputStream);
+        outputStream.write(SIGNATURE);
+        writer.written += SIGNATURE.length;
+
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = (byte) bitDepth;
+        header[9] = COLOR_TYPE_GREYSCALE;
+        writer.writeChunk(HEADER, header, header.length);
+        return writer;
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two runs of bytes into the checksum of the second run appended to the
+     * first, in the same way as {@code adler32_combine()} in zlib.
+     */
+    private static long combineAdler32(long first, long second, long secondLength) {
+        final long base = 65521;
+        long remainder = secondLength % base;
+        long sum1 = first & 0xFFFF;
+        long sum2 = remainder * sum1 % base;
+        sum1 += (second & 0xFFFF) + base - 1;
+        sum2 += ((first >>> 16) & 0xFFFF) + ((second >>> 16) & 0xFFFF) + base - remainder;
+
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+
+        if (sum2 >= base << 1) {
+            sum2 -= base << 1;
+        }
+
+        if (sum2 >= base) {
+            sum2 -= base;
+        }
+
+        return sum1 | sum2 << 16;
+    }
+
+    private static void writeInt(@NotNull byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Reads the shades of grey of the next row of an image.
+     */
+    @FunctionalInterface
+    private interface RowReader {
+
+        /**
+         * Reads the next row.
+         * @param row The row to read into, whose first byte is left for the filter type, followed by one byte per
+         *            pixel.
+         */
+        void read(@NotNull byte[] row);
+    }
+
+    /**
+     * Writes the chunks of a PNG image, and collects the compressed image data into chunks of at most
+     * {@value #CHUNK_LENGTH} bytes.
+     */
+    private static class ChunkWriter {
+        @NotNull private final OutputStream outputStream;
+        @NotNull private final byte[] data = new byte[CHUNK_LENGTH];
+        @NotNull private final byte[] lengthAndCrc = new byte[4];
+        @NotNull private final CRC32 crc = new CRC32();
+        private int dataLength;
+        private long written;
+
+        ChunkWriter(@NotNull OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        void deflate(@NotNull Deflater deflater) throws IOException {
+            dataLength += deflater.deflate(data, dataLength, data.length - dataLength);
+
+            if (dataLength == data.length) {
+                flushData();
+            }
+        }
+
+        void write(@NotNull byte[] bytes, int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                int copied = Math.min(length - offset, data.length - dataLength);
+                System.arraycopy(bytes, offset, data, dataLength, copied);
+                dataLength += copied;
+                offset += copied;
+
+                if (dataLength == data.length) {
+                    flushData();
+                }
+            }
+        }
+
+        void flushData() throws IOException {
+            if (dataLength > 0) {
+                writeChunk(DATA, data, dataLength);
+                dataLength = 0;
+            }
+        }
+
+        void writeChunk(@NotNull byte[] type, @NotNull byte[] bytes, int length) throws IOException {
+            writeInt(lengthAndCrc, 0, length);
+            outputStream.write(lengthAndCrc);
+            outputStream.write(type);
+            outputStream.write(bytes, 0, length);
+
+            // The CRC covers the type and the data, but not the length
+            crc.reset();
+            crc.update(type);
+            crc.update(bytes, 0, length);
+            writeInt(lengthAndCrc, 0, (int) crc.getValue());
+            outputStream.write(lengthAndCrc);
+            written += 12 + length;
+        }
+    }
+
+    /**
+     * A band of rows that has been filtered and compressed on its own.
+     */
+    private static class Band {
+        @NotNull private final byte[] bytes;
+        private final int length;
+        private final long checksum;
+        private final long filteredLength;
+
+        Band(@NotNull byte[] bytes, int length, long checksum, long filteredLength) {
+            this.bytes = bytes;
+            this.length = length;
+            this.checksum = checksum;
+            this.filteredLength = filteredLength;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package ahuber.hubble.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link PacingClock} that runs tasks in real time with a hashed timer wheel, so that a single thread keeps track
+ * of the delays of thousands of tasks, e.g., the samples of thousands of paced satellites.
+ * <p>
+ * The wheel is a ring of buckets, one for each tick. A task is put in the bucket of the tick in which it becomes due,
+ * along with the number of times that the wheel has to go round before then, so scheduling a task and checking the
+ * tasks of a tick take constant time however many tasks there are. In exchange, a task runs up to one tick late.
+ * The tasks run on an {@link Executor} with a few threads, or on the thread of the wheel itself if they are short. A
+ * task that fails is logged and does not stop the wheel.
+ */
+public class HashedTimerWheel implements PacingClock, AutoCloseable {
+
+    /**
+     * The default duration of a tick.
+     */
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(1);
+
+    /**
+     * The default number of buckets, which covers half a second with the default tick without going round.
+     */
+    public static final int DEFAULT_BUCKETS = 512;
+
+    private final long tickNanos;
+    private final int mask;
+    @NotNull private final Queue<Timeout>[] buckets;
+    @NotNull private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    @Nullable private final Executor executor;
+    @NotNull private final Logger logger;
+    @NotNull private final Thread thread;
+    private final long startNanos;
+    private final AtomicLong pending = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Creates a new {@link HashedTimerWheel} with {@link #DEFAULT_TICK} and {@link #DEFAULT_BUCKETS} that runs the
+     * tasks on its own thread, and starts it.
+     */
+    public HashedTimerWheel() {
+        this(DEFAULT_TICK, DEFAULT_BUCKETS, null);
+    }
+
+    /**
+     * Creates a new {@link HashedTimerWheel} and starts it.
+     * @param tick The duration of a tick, i.e., the precision of the delays.
+     * @param buckets The number of buckets in the wheel, which is rounded up to a power of two. Delays that are longer
+     *                than a full turn of the wheel are supported, but cost a check on every turn.
+     * @param executor The {@link Executor} that runs the tasks, or {@code null} to run them on the thread of the
+     *                 wheel.
+     * @throws NullPointerException If {@code tick} is {@code null}
+     * @throws IllegalArgumentException If {@code tick} is not positive, or if {@code buckets} is less than 1 or
+     * greater than 2<sup>30</sup>.
+     */
+    public HashedTimerWheel(@NotNull Duration tick, int buckets, @Nullable Executor executor) {
+        this(tick, buckets, executor, Utils.getLogger(null));
+    }
+
+    /**
+     * Creates a new {@link HashedTimerWheel} that logs the tasks that fail, and starts it.
+     * @param tick The duration of a tick, i.e., the precision of the delays.
+     * @param buckets The number of buckets in the wheel, which is rounded up to a power of two. Delays that are longer
+     *                than a full turn of the wheel are supported, but cost a check on every turn.
+     * @param executor The {@link Executor} that runs the tasks, or {@code null} to run them on the thread of the
+     *                 wheel.
+     * @param logger The {@link Logger} that the tasks that fail or are rejected by {@code executor} are logged to.
+     * @throws NullPointerException If {@code tick} or {@code logger} is {@code null}
+     * @throws IllegalArgumentException If {@code tick} is not positive, or if {@code buckets} is less than 1 or
+     * greater than 2<sup>30</sup>.
+     */
+    public HashedTimerWheel(@NotNull Duration tick, int buckets, @Nullable Executor executor,
+            @NotNull Logger logger) {
+        Objects.requireNonNull(tick, "'tick' cannot be null.");
+
+        if (tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException(String.format("The tick must be positive. (tick: %s)", tick));
+        }
+
+        if (buckets < 1 || buckets > 1 << 30) {
+            String message = String.format("The number of buckets must be in the range [1, 2^30]. (buckets: %d)",
+                    buckets);
+            throw new IllegalArgumentException(message);
+        }
+
+        int length = Integer.highestOneBit(buckets) == buckets ? buckets : Integer.highestOneBit(buckets) << 1;
+        this.tickNanos = tick.toNanos();
+        this.mask = length - 1;
+
+        // A generic array cannot be created, and the raw array only ever holds the queues created below
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Queue<Timeout>[] ring = new Queue[length];
+        this.buckets = ring;
+
+        for (int index = 0; index < length; index++) {
+            this.buckets[index] = new ArrayDeque<>();
+        }
+
+        this.executor = executor;
+        this.logger = Objects.requireNonNull(logger, "'logger' cannot be null.");
+        this.startNanos = System.nanoTime();
+        this.thread = new Thread(this::run, "Timer wheel");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void schedule(long delayNanos, @NotNull Runnable task) {
+        Objects.requireNonNull(task, "'task' cannot be null.");
+
+        if (closed) {
+            throw new IllegalStateException("The timer wheel has been closed.");
+        }
+
+        pending.incrementAndGet();
+        scheduled.add(new Timeout(System.nanoTime() + Math.max(0, delayNanos), task));
+    }
+
+    /**
+     * Gets the number of tasks that have been scheduled but have not run yet.
+     * @return The number of tasks.
+     */
+    public long getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the wheel and waits for its thread to finish. Tasks that have not run yet never run. If the current thread
+     * is interrupted while waiting, it stops waiting and its interrupt flag is set again.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long tick = 0;
+
+        while (!closed) {
+            // Wait for the end of the current tick. Sleeping may end early or late, so check the time again.
+            long tickEnd = startNanos + (tick + 1) * tickNanos;
+            long remaining;
+
+            while ((remaining = tickEnd - System.nanoTime()) > 0 && !closed) {
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            if (closed) {
+                break;
+            }
+
+            transferScheduled(tick);
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferScheduled(long tick) {
+        Timeout timeout;
+
+        while ((timeout = scheduled.poll()) != null) {
+            // The tick in which the task becomes due, which is the current tick if it is already due. A bucket is
+            // checked at the end of its tick, so the task never runs early.
+            long dueTick = Math.max(tick, (timeout.dueNanos - startNanos) / tickNanos);
+            timeout.rounds = (dueTick - tick) / buckets.length;
+            buckets[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(@NotNull Queue<Timeout> bucket) {
+        Iterator<Timeout> iterator = bucket.iterator();
+
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                continue;
+            }
+
+            iterator.remove();
+            pending.decrementAndGet();
+            runTask(timeout.task);
+        }
+    }
+
+    private void runTask(@NotNull Runnable task) {
+        try {
+            if (executor == null) {
+                task.run();
+            } else {
+                executor.execute(task);
+            }
+        } catch (RuntimeException e) {
+            // A task that fails or is rejected by the executor does not stop the wheel or the other tasks
+            logger.logError("A task of the timer wheel failed.", e);
+        }
+    }
+
+    private static class Timeout {
+        private final long dueNanos;
+        @NotNull private final Runnable task;
+        private long rounds;
+
+        private Timeout(long dueNanos, @NotNull Runnable task) {
+            this.dueNanos = dueNanos;
+            this.task = task;
+        }
+    }
+}
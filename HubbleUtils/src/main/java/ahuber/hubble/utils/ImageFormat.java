@@ -0,0 +1,197 @@
+package ahuber.hubble.utils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * The formats in which the image of a sorted frame is saved. Only {@link #JPEG} renders the frame into a
+ * {@link java.awt.image.BufferedImage} and encodes it with {@link javax.imageio.ImageIO}; the other formats are
+ * written straight from the values, without loading AWT.
+ */
+public enum ImageFormat {
+
+    /**
+     * An 8-bit JPEG image, which is small but lossy. This is the default.
+     */
+    @JsonProperty("jpeg")
+    JPEG("jpg", "image/jpeg"),
+
+    /**
+     * An 8-bit PNG image, which has the same pixels as the JPEG image would before compression.
+     * @see GreyscalePngEncoder
+     */
+    @JsonProperty("png")
+    PNG("png", GreyscalePngEncoder.CONTENT_TYPE),
+
+    /**
+     * A 16-bit PNG image, which keeps every value of the frame apart.
+     * @see GreyscalePngEncoder
+     */
+    @JsonProperty("png-16")
+    PNG_16("png", GreyscalePngEncoder.CONTENT_TYPE),
+
+    /**
+     * An uncompressed binary PGM image of the values themselves, which is the fastest to write.
+     * @see GreyscalePgmEncoder
+     */
+    @JsonProperty("pgm")
+    PGM("pgm", GreyscalePgmEncoder.CONTENT_TYPE);
+
+    /**
+     * Frames of at least this many values, i.e., frames where i &ge; 11, are also uploaded as a {@link TilePyramid},
+     * so that a viewer only fetches the tiles it displays instead of the whole image.
+     */
+    public static final int TILED_IMAGE_VALUES = 1 << 22;
+
+    /**
+     * Frames of at least this many values, i.e., frames where i &ge; 13, are encoded as a PNG image row by row
+     * instead of being rendered into a {@link java.awt.image.BufferedImage} and encoded as a JPEG image in memory,
+     * even if a JPEG image was requested.
+     * @see #forValues(long)
+     */
+    public static final int STREAMING_IMAGE_VALUES = 1 << 26;
+
+    @NotNull private final String extension;
+    @NotNull private final String contentType;
+
+    ImageFormat(@NotNull String extension, @NotNull String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Gets the extension of the name of an image in this format.
+     * @return The extension, without the dot.
+     */
+    @NotNull
+    @Contract(pure = true)
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Gets the content type of an image in this format, e.g., for uploading it to Amazon S3.
+     * @return The content type.
+     */
+    @NotNull
+    @Contract(pure = true)
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Gets the format that a frame of the provided number of values is actually written in when this format was
+     * requested. A {@link #JPEG} image of at least {@value #STREAMING_IMAGE_VALUES} values is written as a
+     * {@link #PNG} image instead, which is streamed, so that neither the image nor its encoded bytes have to fit in
+     * memory.
+     * @param values The number of values in the frame.
+     * @return The format to write the image in.
+     */
+    @NotNull
+    @Contract(pure = true)
+    public ImageFormat forValues(long values) {
+        return this == JPEG && values >= STREAMING_IMAGE_VALUES ? PNG : this;
+    }
+
+    /**
+     * Encodes a square frame as an image in this format using the {@linkplain ForkJoinPool#commonPool() common pool}
+     * @param data The values of the frame row by row, whose length is a perfect square.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is not closed.
+     * @throws IOException If the image cannot be encoded or written.
+     * @throws NullPointerException If {@code data} or {@code outputStream} is {@code null}
+     */
+    public void encode(@NotNull int[] data, @NotNull OutputStream outputStream) throws IOException {
+        encode(data, outputStream, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Encodes a square frame as an image in this format.
+     * @param data The values of the frame row by row, whose length is a perfect square.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is not closed.
+     * @param pool The {@link ForkJoinPool} that renders a JPEG image or compresses a PNG image in parallel.
+     * @throws IOException If the image cannot be encoded or written.
+     * @throws NullPointerException If {@code data}, {@code outputStream}, or {@code pool} is {@code null}
+     */
+    public void encode(@NotNull int[] data, @NotNull OutputStream outputStream, @NotNull ForkJoinPool pool)
+            throws IOException {
+        Objects.requireNonNull(data, "'data' cannot be null.");
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+        Objects.requireNonNull(pool, "'pool' cannot be null.");
+
+        switch (this) {
+            case JPEG:
+                SatelliteImageWriter.writeJpegImage(data, outputStream, pool);
+                break;
+            case PNG:
+                new GreyscalePngEncoder().encode(data, outputStream, pool);
+                break;
+            case PNG_16:
+                new GreyscalePngEncoder(Deflater.BEST_SPEED, 16).encode(data, outputStream, pool);
+                break;
+            case PGM:
+                new GreyscalePgmEncoder().encode(data, outputStream);
+                break;
+            default:
+                throw new AssertionError(this);
+        }
+    }
+
+    /**
+     * Encodes the square image of the sorted frame that a histogram counts as an image in this format using the
+     * {@linkplain ForkJoinPool#commonPool() common pool}
+     * @param histogram The {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is not closed.
+     * @throws IOException If the image cannot be encoded or written.
+     * @throws NullPointerException If {@code histogram} or {@code outputStream} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link RunLengthRenderer#getLength(long[])}
+     */
+    public void encode(@NotNull long[] histogram, @NotNull OutputStream outputStream) throws IOException {
+        encode(histogram, outputStream, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Encodes the square image of the sorted frame that a histogram counts as an image in this format. The 8-bit
+     * formats are {@linkplain RunLengthRenderer#render(long[]) rendered} and a PGM image is written straight from the
+     * counts; only a 16-bit PNG image {@linkplain RunLengthRenderer#expand(long[]) expands} them into the sorted
+     * values, since it is compressed from the values themselves.
+     * @param histogram The {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @param outputStream The {@link OutputStream} that the image is written to. It is not closed.
+     * @param pool The {@link ForkJoinPool} that compresses a 16-bit PNG image in parallel.
+     * @throws IOException If the image cannot be encoded or written.
+     * @throws NullPointerException If {@code histogram}, {@code outputStream}, or {@code pool} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link RunLengthRenderer#getLength(long[])}
+     */
+    public void encode(@NotNull long[] histogram, @NotNull OutputStream outputStream, @NotNull ForkJoinPool pool)
+            throws IOException {
+        Objects.requireNonNull(histogram, "'histogram' cannot be null.");
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+        Objects.requireNonNull(pool, "'pool' cannot be null.");
+
+        switch (this) {
+            case JPEG:
+                SatelliteImageWriter.writeJpegImage(histogram, outputStream);
+                break;
+            case PNG:
+                int length = RunLengthRenderer.getLength(histogram);
+                new GreyscalePngEncoder().encode(RunLengthRenderer.render(histogram), 0, length, length, length,
+                        outputStream);
+                break;
+            case PNG_16:
+                new GreyscalePngEncoder(Deflater.BEST_SPEED, 16).encode(RunLengthRenderer.expand(histogram),
+                        outputStream, pool);
+                break;
+            case PGM:
+                new GreyscalePgmEncoder().encode(histogram, outputStream);
+                break;
+            default:
+                throw new AssertionError(this);
+        }
+    }
+}
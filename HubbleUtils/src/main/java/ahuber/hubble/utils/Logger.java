@@ -1,7 +1,11 @@
 package ahuber.hubble.utils;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
 /**
  * Represents an object that can log text.
  */
@@ -39,4 +43,16 @@ public interface Logger {
     default void logLine(String format, Object...args) {
         logLine(String.format(format, args));
     }
+
+    /**
+     * Logs the provided message followed by the stack trace of the provided {@link Throwable}, e.g., for an error
+     * that is handled by carrying on rather than by throwing it.
+     * @param message The message.
+     * @param throwable The {@link Throwable}
+     */
+    default void logError(@Nullable String message, @NotNull Throwable throwable) {
+        StringWriter stackTrace = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(stackTrace, true));
+        logLine(Utils.requireNonNullElse(message, "") + "\n" + stackTrace.toString().trim());
+    }
 }
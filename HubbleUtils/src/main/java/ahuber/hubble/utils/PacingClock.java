@@ -0,0 +1,30 @@
+package ahuber.hubble.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A clock that tells the time and runs tasks after a delay, which paces work such as the samples of a satellite.
+ * <p>
+ * A {@link HashedTimerWheel} paces the tasks in real time, and a {@link VirtualClock} runs them as fast as possible
+ * while keeping track of the time that would have passed.
+ */
+public interface PacingClock {
+
+    /**
+     * Gets the current time of this clock, which only has a meaning relative to other times of the same clock, like
+     * {@link System#nanoTime()}
+     * @return The current time in nanoseconds.
+     */
+    long nanoTime();
+
+    /**
+     * Runs a task once the provided delay has passed on this clock. The task may run on another thread, and tasks
+     * that are due at the same time may run in any order.
+     * @param delayNanos The number of nanoseconds after which the task runs. A delay that is zero or negative runs
+     *                   the task as soon as possible.
+     * @param task The task.
+     * @throws NullPointerException If {@code task} is {@code null}
+     * @throws IllegalStateException If this clock has been shut down.
+     */
+    void schedule(long delayNanos, @NotNull Runnable task);
+}
@@ -0,0 +1,119 @@
+package ahuber.hubble.utils;
+
+import ahuber.hubble.stats.FrameStatistics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Renders the image of a sorted frame straight from its {@linkplain FrameStatistics#histogram(int[]) histogram}.
+ * <p>
+ * Once a frame is sorted, its image is nothing but runs of equal values: first every 0, then every 1, and so on up to
+ * 4096. The {@value FrameStatistics#HISTOGRAM_LENGTH} counts of the histogram therefore describe the image completely,
+ * and each run is drawn with a single {@link Arrays#fill(byte[], int, int, byte)}, so the sorted frame never has to be
+ * materialized, let alone sent from one stage to the next. As with a sorted frame, the image is the largest square
+ * that the values fill, and the largest values are left out if they do not fill a whole square.
+ */
+public final class RunLengthRenderer {
+
+    private RunLengthRenderer() {
+    }
+
+    /**
+     * Gets the width and height of the square image of the frame that a histogram counts.
+     * @param histogram The histogram.
+     * @return The width and height, i.e., the square root of the number of values, rounded down.
+     * @throws NullPointerException If {@code histogram} is {@code null}
+     * @throws IllegalArgumentException If the histogram does not have a length of
+     * {@value FrameStatistics#HISTOGRAM_LENGTH}, if a count is negative, or if the image would have more than
+     * {@link Integer#MAX_VALUE} pixels.
+     */
+    public static int getLength(@NotNull long[] histogram) {
+        long count = FrameStatistics.count(histogram);
+
+        for (int value = 0; value < histogram.length; value++) {
+            if (histogram[value] < 0) {
+                String message = String.format("The counts cannot be negative. (value: %d, count: %d)", value,
+                        histogram[value]);
+                throw new IllegalArgumentException(message);
+            }
+        }
+
+        int length = (int) Math.sqrt(count);
+
+        if ((long) length * length > Integer.MAX_VALUE) {
+            String message = String.format("The image would have too many pixels. (width: %d, height: %d)", length,
+                    length);
+            throw new IllegalArgumentException(message);
+        }
+
+        return length;
+    }
+
+    /**
+     * Renders the greyscale pixels of the square image of the frame that a histogram counts.
+     * @param histogram The histogram.
+     * @return The pixels row by row, with the same shades of grey as {@link SatelliteImageWriter} writes for the
+     * sorted frame.
+     * @throws NullPointerException If {@code histogram} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link #getLength(long[])}
+     */
+    @NotNull
+    public static byte[] render(@NotNull long[] histogram) {
+        int length = getLength(histogram);
+        byte[] pixels = new byte[length * length];
+        render(histogram, pixels);
+        return pixels;
+    }
+
+    /**
+     * Renders the greyscale pixels of the frame that a histogram counts into an existing raster, e.g., the
+     * {@code byte} array behind a {@link java.awt.image.BufferedImage#TYPE_BYTE_GRAY} image.
+     * @param histogram The histogram.
+     * @param pixels The raster, which is filled from the start, run by run, until it is full or the values run out.
+     * Any pixels after the last value are left untouched.
+     * @throws NullPointerException If {@code histogram} or {@code pixels} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link #getLength(long[])}
+     */
+    public static void render(@NotNull long[] histogram, @NotNull byte[] pixels) {
+        Objects.requireNonNull(pixels, "'pixels' cannot be null.");
+        getLength(histogram);
+        int end = 0;
+
+        for (int value = 0; value < FrameStatistics.HISTOGRAM_LENGTH && end < pixels.length; value++) {
+            int start = end;
+            end = runEnd(histogram, value, start, pixels.length);
+            Arrays.fill(pixels, start, end, Greyscale.toByte(FrameStatistics.MIN_VALUE + value));
+        }
+    }
+
+    /**
+     * Expands a histogram into the values of the square frame it counts, in ascending order. This is only needed by
+     * the encoders that take the values themselves, e.g., for a 16-bit image; an 8-bit image is
+     * {@linkplain #render(long[]) rendered} without it.
+     * @param histogram The histogram.
+     * @return The sorted values that fill the square image.
+     * @throws NullPointerException If {@code histogram} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link #getLength(long[])}
+     */
+    @NotNull
+    public static int[] expand(@NotNull long[] histogram) {
+        int length = getLength(histogram);
+        int[] values = new int[length * length];
+        int end = 0;
+
+        for (int value = 0; value < FrameStatistics.HISTOGRAM_LENGTH && end < values.length; value++) {
+            int start = end;
+            end = runEnd(histogram, value, start, values.length);
+            Arrays.fill(values, start, end, FrameStatistics.MIN_VALUE + value);
+        }
+
+        return values;
+    }
+
+    private static int runEnd(@NotNull long[] histogram, int value, int start, int limit) {
+        // The run of a value is cut short where the image ends
+        return (int) Math.min(limit, start + histogram[value]);
+    }
+}
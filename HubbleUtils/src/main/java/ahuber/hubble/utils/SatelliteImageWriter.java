@@ -2,26 +2,150 @@ package ahuber.hubble.utils;
 
 import org.jetbrains.annotations.NotNull;
 
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A class containing utility functions for normalizing {@code int} data and writing it as an image.
+ * <p>
+ * The image is written straight into the {@code byte} array behind a {@link BufferedImage#TYPE_BYTE_GRAY} image.
+ * Each value is normalized by looking it up in a table of the values a satellite produces, and large images are
+ * written in bands of rows on a {@link ForkJoinPool}.
  */
 public final class SatelliteImageWriter {
+
     /**
-     * Normalizes the provided {@code int} array into a {@code byte} array, and writes the resulting bytes into a
-     * square greyscale image. This is an O(n) operation.
-     * @param data The {@code byte} array.
+     * The smallest number of pixels that are written by one task.
+     */
+    private static final int MIN_BAND_PIXELS = 1 << 16;
+
+    /**
+     * Normalizes the provided {@code int} array and writes it into a square greyscale image, using the
+     * {@linkplain ForkJoinPool#commonPool() common pool} for large images. This is an O(n) operation.
+     * @param data The {@code int} array.
      * @return A {@link BufferedImage} representing the square greyscale image generated using the data in the input
      * {@code int} array.
      * @throws NullPointerException If the {@code int} array was {@code null}
-     * @see Utils#normalize(int[])
+     * @see Utils#normalize(int)
      */
     @NotNull
     @PublicApi
     public static BufferedImage writeGreyscaleImage(int[] data) {
+        return writeGreyscaleImage(data, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Normalizes the provided {@code int} array and writes it into a square greyscale image. Large images are written
+     * in bands of rows on the provided {@link ForkJoinPool}. This is an O(n) operation.
+     * @param data The {@code int} array.
+     * @param pool The {@link ForkJoinPool} that writes the bands of a large image.
+     * @return A {@link BufferedImage} representing the square greyscale image generated using the data in the input
+     * {@code int} array.
+     * @throws NullPointerException If the {@code int} array or {@code pool} was {@code null}
+     * @see Utils#normalize(int)
+     */
+    @NotNull
+    public static BufferedImage writeGreyscaleImage(int[] data, @NotNull ForkJoinPool pool) {
+        Objects.requireNonNull(data, String.format("array \"%s\" cannot be null.", "data"));
+        Objects.requireNonNull(pool, "'pool' cannot be null.");
+        int length = (int) Math.sqrt(data.length);
+        BufferedImage image = new BufferedImage(length, length, BufferedImage.TYPE_BYTE_GRAY);
+
+        if (length == 0) {
+            return image;
+        }
+
+        // A new greyscale image stores its pixels row by row in one byte array, without any padding
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int parallelism = pool.getParallelism();
+        int bandRows = Math.max(1, Math.max(MIN_BAND_PIXELS / length,
+                (length + parallelism * 4 - 1) / (parallelism * 4)));
+
+        if (bandRows >= length) {
+            writeRows(data, pixels, length, 0, length);
+        } else {
+            int bands = (length + bandRows - 1) / bandRows;
+            pool.invoke(new ForEachAction(0, bands, band -> writeRows(data, pixels, length, band * bandRows,
+                    Math.min(length, (band + 1) * bandRows))));
+        }
+
+        return image;
+    }
+
+    /**
+     * Writes the square greyscale image of the sorted frame that the provided histogram counts, filling each run of
+     * equal values with a single {@link java.util.Arrays#fill(byte[], int, int, byte)} instead of normalizing one
+     * value at a time. This produces the same image as sorting the frame and passing it to
+     * {@link #writeGreyscaleImage(int[])}, without the sorted frame.
+     * @param histogram The {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @return A {@link BufferedImage} representing the square greyscale image of the sorted frame.
+     * @throws NullPointerException If {@code histogram} was {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link RunLengthRenderer#getLength(long[])}
+     */
+    @NotNull
+    public static BufferedImage writeGreyscaleImage(@NotNull long[] histogram) {
+        int length = RunLengthRenderer.getLength(histogram);
+        BufferedImage image = new BufferedImage(length, length, BufferedImage.TYPE_BYTE_GRAY);
+        RunLengthRenderer.render(histogram, ((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        return image;
+    }
+
+    /**
+     * Normalizes the provided {@code int} array, writes it into a square greyscale image, and encodes the image as a
+     * JPEG image.
+     * @param data The {@code int} array.
+     * @param outputStream The {@link OutputStream} that the JPEG image is written to. It is not closed.
+     * @param pool The {@link ForkJoinPool} that writes the bands of a large image.
+     * @throws IOException If the image cannot be encoded or written.
+     * @throws NullPointerException If the {@code int} array, {@code outputStream}, or {@code pool} was {@code null}
+     * @see #writeGreyscaleImage(int[], ForkJoinPool)
+     */
+    public static void writeJpegImage(int[] data, @NotNull OutputStream outputStream, @NotNull ForkJoinPool pool)
+            throws IOException {
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+
+        if (!ImageIO.write(writeGreyscaleImage(data, pool), "jpg", outputStream)) {
+            throw new IOException("No JPEG writer is available.");
+        }
+    }
+
+    /**
+     * Writes the square greyscale image of the sorted frame that the provided histogram counts, and encodes the
+     * image as a JPEG image.
+     * @param histogram The {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @param outputStream The {@link OutputStream} that the JPEG image is written to. It is not closed.
+     * @throws IOException If the image cannot be encoded or written.
+     * @throws NullPointerException If {@code histogram} or {@code outputStream} was {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link RunLengthRenderer#getLength(long[])}
+     * @see #writeGreyscaleImage(long[])
+     */
+    public static void writeJpegImage(@NotNull long[] histogram, @NotNull OutputStream outputStream)
+            throws IOException {
+        Objects.requireNonNull(outputStream, "'outputStream' cannot be null.");
+
+        if (!ImageIO.write(writeGreyscaleImage(histogram), "jpg", outputStream)) {
+            throw new IOException("No JPEG writer is available.");
+        }
+    }
+
+    /**
+     * Normalizes the provided {@code int} array into a new array, and writes the result into a square greyscale image
+     * one pixel at a time. This was the only way of writing an image before the image was written straight into its
+     * {@code byte} array, and is kept as a reference to compare with, e.g., in benchmarks.
+     * @param data The {@code int} array.
+     * @return A {@link BufferedImage} representing the square greyscale image generated using the data in the input
+     * {@code int} array.
+     * @throws NullPointerException If the {@code int} array was {@code null}
+     * @see Utils#normalize(int[])
+     */
+    @NotNull
+    public static BufferedImage writeGreyscaleImageByPixel(int[] data) {
         Objects.requireNonNull(data, String.format("array \"%s\" cannot be null.", "data"));
         data = Utils.normalize(data);
         int length = (int) Math.sqrt(data.length);
@@ -37,4 +161,73 @@ public final class SatelliteImageWriter {
 
         return image;
     }
+
+    /**
+     * Writes the provided {@code int} array as a square greyscale image that is downscaled by the provided factor,
+     * i.e., each pixel is the average of a square of {@code scale} by {@code scale} values. This takes less time than
+     * writing the full image, and produces a much smaller image to encode and upload.
+     * @param data The {@code int} array, whose length is a perfect square.
+     * @param scale The factor by which the width and height of the image are reduced, which divides the width of the
+     *              full image.
+     * @return A {@link BufferedImage} representing the downscaled greyscale image.
+     * @throws NullPointerException If the {@code int} array was {@code null}
+     * @throws IllegalArgumentException If {@code scale} is less than 1 or does not divide the width of the full image.
+     * @see #downscale(int[], int)
+     */
+    @NotNull
+    public static BufferedImage writeGreyscaleImage(int[] data, int scale) {
+        return writeGreyscaleImage(scale == 1 ? data : downscale(data, scale));
+    }
+
+    /**
+     * Downscales the provided {@code int} array, which holds a square image row by row, by the provided factor. Each
+     * value of the result is the average of a square of {@code scale} by {@code scale} values. This is an O(n)
+     * operation.
+     * @param data The {@code int} array, whose length is a perfect square.
+     * @param scale The factor by which the width and height of the image are reduced, which divides the width of the
+     *              image.
+     * @return A new {@code int} array that holds the downscaled image row by row.
+     * @throws NullPointerException If the {@code int} array was {@code null}
+     * @throws IllegalArgumentException If {@code scale} is less than 1 or does not divide the width of the image.
+     */
+    @NotNull
+    public static int[] downscale(int[] data, int scale) {
+        Objects.requireNonNull(data, String.format("array \"%s\" cannot be null.", "data"));
+        int length = (int) Math.sqrt(data.length);
+
+        if (scale < 1 || length % scale != 0) {
+            String message = String.format("The scale must be positive and divide the width of the image. " +
+                    "(scale: %d, width: %d)", scale, length);
+            throw new IllegalArgumentException(message);
+        }
+
+        int scaledLength = length / scale;
+        int[] sums = new int[scaledLength * scaledLength];
+
+        // Add up each row of values into the row of the downscaled image it belongs to
+        for (int row = 0; row < length; row++) {
+            int scaledRow = row / scale * scaledLength;
+            int index = row * length;
+
+            for (int column = 0; column < length; column++) {
+                sums[scaledRow + column / scale] += data[index++];
+            }
+        }
+
+        int area = scale * scale;
+
+        for (int index = 0; index < sums.length; index++) {
+            sums[index] /= area;
+        }
+
+        return sums;
+    }
+
+    private static void writeRows(@NotNull int[] data, @NotNull byte[] pixels, int length, int fromRow, int toRow) {
+        int end = toRow * length;
+
+        for (int index = fromRow * length; index < end; index++) {
+            pixels[index] = Greyscale.toByte(data[index]);
+        }
+    }
 }
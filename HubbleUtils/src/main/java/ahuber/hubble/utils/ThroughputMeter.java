@@ -0,0 +1,105 @@
+package ahuber.hubble.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures the sustained throughput of a stream of frames, i.e., the number of frames and samples that have been
+ * processed per second since the {@link ThroughputMeter} was created.
+ */
+public final class ThroughputMeter {
+    @NotNull private final LongSupplier nanoTime;
+    private final long startNanos;
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong samples = new AtomicLong();
+
+    /**
+     * Creates a new {@link ThroughputMeter} that starts measuring now.
+     */
+    public ThroughputMeter() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * Creates a new {@link ThroughputMeter} that starts measuring now, according to the provided time source.
+     * @param nanoTime A function that returns the current value of a monotonic time source in nanoseconds, such as
+     *                 {@link System#nanoTime()}
+     * @throws NullPointerException If {@code nanoTime} is {@code null}
+     */
+    public ThroughputMeter(@NotNull LongSupplier nanoTime) {
+        this.nanoTime = Objects.requireNonNull(nanoTime, "'nanoTime' cannot be null.");
+        this.startNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Records that a frame has been processed.
+     * @param frameSamples The number of samples in the frame.
+     * @throws IllegalArgumentException If {@code frameSamples} is negative.
+     */
+    public void record(long frameSamples) {
+        if (frameSamples < 0) {
+            String message = String.format("The number of samples cannot be negative. (frameSamples: %d)",
+                    frameSamples);
+            throw new IllegalArgumentException(message);
+        }
+
+        samples.addAndGet(frameSamples);
+        frames.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of frames that have been processed.
+     * @return The number of frames.
+     */
+    public long getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * Gets the number of samples in the frames that have been processed.
+     * @return The number of samples.
+     */
+    public long getSamples() {
+        return samples.get();
+    }
+
+    /**
+     * Gets the time since the {@link ThroughputMeter} was created.
+     * @return The elapsed time.
+     */
+    @NotNull
+    public Duration getElapsed() {
+        return Duration.ofNanos(nanoTime.getAsLong() - startNanos);
+    }
+
+    /**
+     * Gets the average number of frames that have been processed per second.
+     * @return The number of frames per second, or 0 if no time has elapsed.
+     */
+    public double getFramesPerSecond() {
+        return perSecond(getFrames());
+    }
+
+    /**
+     * Gets the average number of samples that have been processed per second.
+     * @return The number of samples per second, or 0 if no time has elapsed.
+     */
+    public double getSamplesPerSecond() {
+        return perSecond(getSamples());
+    }
+
+    private double perSecond(long count) {
+        long elapsedNanos = nanoTime.getAsLong() - startNanos;
+        return elapsedNanos <= 0 ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d frames (%,d samples) in %.3f s: %.2f frames/s, %,.0f samples/s", getFrames(),
+                getSamples(), getElapsed().toNanos() / 1e9, getFramesPerSecond(), getSamplesPerSecond());
+    }
+}
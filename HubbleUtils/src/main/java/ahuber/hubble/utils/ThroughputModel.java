@@ -0,0 +1,339 @@
+package ahuber.hubble.utils;
+
+import ahuber.hubble.sort.Sorter;
+import ahuber.hubble.sort.Sorters;
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates how long each stage of processing a frame takes from the throughput of the stage, so that a
+ * {@link DeadlinePlanner} can tell whether a frame can be processed before the AWS Lambda function times out.
+ * <p>
+ * The throughput of each stage starts out at a conservative default, can be
+ * {@linkplain #calibrate(int, int, Collection) calibrated} by processing a small sample of data on the current
+ * machine, and is refined with the time that each stage actually took whenever it is
+ * {@linkplain #record(Stage, long, long) recorded}. The throughput of a sort is kept for each algorithm and is
+ * measured in units of work rather than values, since sorting <i>n</i> values takes <i>n</i> log <i>n</i> time (see
+ * {@link #getSortWork(String, long, int)}).
+ * <p>
+ * A {@link ThroughputModel} is thread-safe, so the simulations that share a JVM can share one as well.
+ */
+public final class ThroughputModel {
+
+    /**
+     * The stages of processing a frame whose cost is estimated.
+     */
+    public enum Stage {
+
+        /**
+         * Collecting the values of the frame from the satellite. The throughput is in values per second.
+         */
+        COLLECT,
+
+        /**
+         * Rendering the values as a greyscale image. The throughput is in values per second.
+         */
+        RENDER,
+
+        /**
+         * Encoding the image as a JPEG. The throughput is in pixels per second.
+         */
+        ENCODE,
+
+        /**
+         * Uploading the JPEG to Amazon S3. The throughput is in bytes per second, and the size of a JPEG is estimated
+         * from its number of pixels with the {@linkplain #getBytesPerPixel() bytes per pixel} of the recent JPEGs.
+         */
+        UPLOAD,
+
+        /**
+         * Uploading the values to Amazon S3 as JSON and launching an EMR cluster to process them. The throughput is in
+         * values per second.
+         */
+        HAND_OFF
+    }
+
+    /**
+     * The throughput of a sort whose algorithm has not been measured, in units of work per second.
+     */
+    public static final double DEFAULT_SORT_THROUGHPUT = 40e6;
+
+    /**
+     * The names of the algorithms that sort each sub-array of up to <i>T</i> values with an insertion sort, which
+     * takes <i>O(n T)</i> time on top of merging the sub-arrays.
+     */
+    private static final Set<String> THRESHOLD_ALGORITHMS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(Sorters.MERGE_SORT, Sorters.EXTERNAL_MERGE_SORT)));
+
+    /**
+     * The weight of a new measurement against the throughput that is already known.
+     */
+    private static final double SMOOTHING = 0.5;
+
+    /**
+     * The shortest measurement that is recorded; shorter ones say more about the timer than about the stage.
+     */
+    private static final long MIN_MEASUREMENT_NANOS = 1_000_000;
+
+    private static final long CALIBRATION_SEED = 0x48554246;
+
+    /**
+     * The number of times each stage is measured during a calibration, after one run that warms it up. The fastest
+     * run is kept, since the slower ones were held up by the JIT compiler or the garbage collector.
+     */
+    private static final int CALIBRATION_RUNS = 3;
+
+    private static final double DEFAULT_BYTES_PER_PIXEL = 0.25;
+
+    @NotNull private final Map<Stage, Double> throughputs = new ConcurrentHashMap<>();
+    @NotNull private final Map<String, Double> sortThroughputs = new ConcurrentHashMap<>();
+    private volatile double bytesPerPixel = DEFAULT_BYTES_PER_PIXEL;
+
+    /**
+     * Creates a new {@link ThroughputModel} with the default throughput of each stage, which is on the slow side of a
+     * small AWS Lambda function.
+     */
+    public ThroughputModel() {
+        Map<Stage, Double> defaults = new EnumMap<>(Stage.class);
+        defaults.put(Stage.COLLECT, 20e6);
+        defaults.put(Stage.RENDER, 20e6);
+        defaults.put(Stage.ENCODE, 10e6);
+        defaults.put(Stage.UPLOAD, 10e6);
+        defaults.put(Stage.HAND_OFF, 5e6);
+        throughputs.putAll(defaults);
+    }
+
+    /**
+     * Gets the throughput of a stage.
+     * @param stage The stage.
+     * @return The throughput in values, pixels, or bytes per second, depending on the stage.
+     * @throws NullPointerException If {@code stage} is {@code null}
+     */
+    public double getThroughput(@NotNull Stage stage) {
+        return throughputs.get(Objects.requireNonNull(stage, "'stage' cannot be null."));
+    }
+
+    /**
+     * Gets the average number of bytes in a JPEG for each of its pixels.
+     * @return The number of bytes per pixel.
+     */
+    public double getBytesPerPixel() {
+        return bytesPerPixel;
+    }
+
+    /**
+     * Gets the throughput of a sorting algorithm.
+     * @param algorithm The name of the algorithm.
+     * @return The throughput in units of work per second, or {@link #DEFAULT_SORT_THROUGHPUT} if the algorithm has
+     * not been measured.
+     * @throws NullPointerException If {@code algorithm} is {@code null}
+     */
+    public double getSortThroughput(@NotNull String algorithm) {
+        Objects.requireNonNull(algorithm, "'algorithm' cannot be null.");
+        return sortThroughputs.getOrDefault(algorithm, DEFAULT_SORT_THROUGHPUT);
+    }
+
+    /**
+     * Estimates how long a stage takes.
+     * @param stage The stage.
+     * @param values The number of values (or pixels) that the stage processes.
+     * @return The estimated time in nanoseconds.
+     * @throws NullPointerException If {@code stage} is {@code null}
+     */
+    public long estimateNanos(@NotNull Stage stage, long values) {
+        return (long) (values / getThroughput(stage) * 1e9);
+    }
+
+    /**
+     * Estimates how long it takes to upload a JPEG.
+     * @param pixels The number of pixels in the JPEG.
+     * @return The estimated time in nanoseconds.
+     */
+    public long estimateUploadNanos(long pixels) {
+        return estimateNanos(Stage.UPLOAD, (long) (pixels * bytesPerPixel));
+    }
+
+    /**
+     * Estimates how long a sort takes.
+     * @param algorithm The name of the algorithm.
+     * @param values The number of values to sort.
+     * @param threshold The threshold that is passed to the algorithm.
+     * @return The estimated time in nanoseconds.
+     * @throws NullPointerException If {@code algorithm} is {@code null}
+     */
+    public long estimateSortNanos(@NotNull String algorithm, long values, int threshold) {
+        return (long) (getSortWork(algorithm, values, threshold) / getSortThroughput(algorithm) * 1e9);
+    }
+
+    /**
+     * Records how long a stage actually took, which moves the throughput of the stage towards the measured one.
+     * @param stage The stage.
+     * @param values The number of values (or pixels) that the stage processed.
+     * @param nanos The time that the stage took in nanoseconds.
+     * @throws NullPointerException If {@code stage} is {@code null}
+     */
+    public void record(@NotNull Stage stage, long values, long nanos) {
+        Objects.requireNonNull(stage, "'stage' cannot be null.");
+
+        if (values > 0 && nanos >= MIN_MEASUREMENT_NANOS) {
+            throughputs.merge(stage, values / (nanos / 1e9), ThroughputModel::blend);
+        }
+    }
+
+    /**
+     * Records how long it took to encode a JPEG and how large it is, which also moves the
+     * {@linkplain #getBytesPerPixel() bytes per pixel} towards those of the JPEG.
+     * @param pixels The number of pixels in the JPEG.
+     * @param bytes The number of bytes in the JPEG.
+     * @param nanos The time that encoding took in nanoseconds.
+     */
+    public synchronized void recordEncoding(long pixels, long bytes, long nanos) {
+        record(Stage.ENCODE, pixels, nanos);
+
+        if (pixels > 0) {
+            bytesPerPixel = blend(bytesPerPixel, (double) bytes / pixels);
+        }
+    }
+
+    /**
+     * Records how long a sort actually took, which moves the throughput of the algorithm towards the measured one.
+     * @param algorithm The name of the algorithm.
+     * @param values The number of values that were sorted.
+     * @param threshold The threshold that was passed to the algorithm.
+     * @param nanos The time that the sort took in nanoseconds.
+     * @throws NullPointerException If {@code algorithm} is {@code null}
+     */
+    public void recordSort(@NotNull String algorithm, long values, int threshold, long nanos) {
+        Objects.requireNonNull(algorithm, "'algorithm' cannot be null.");
+        double work = getSortWork(algorithm, values, threshold);
+
+        if (work > 0 && nanos >= MIN_MEASUREMENT_NANOS) {
+            sortThroughputs.merge(algorithm, work / (nanos / 1e9), ThroughputModel::blend);
+        }
+    }
+
+    /**
+     * Measures the throughput of the sorting algorithms, rendering, and encoding on a sample of random values, and
+     * replaces the throughput that is known for each of them, as well as the bytes per pixel of a JPEG. Collecting
+     * and uploading cannot be measured without a satellite and Amazon S3, so they are only refined by
+     * {@linkplain #record(Stage, long, long) recording}.
+     * @param sampleLength The number of values in the sample, e.g., 2<sup>16</sup>, which is rounded down to a
+     *                     perfect square.
+     * @param threshold The threshold that is passed to the sorting algorithms.
+     * @param algorithms The names of the sorting algorithms to measure.
+     * @throws NullPointerException If {@code algorithms} is {@code null}
+     * @throws IllegalArgumentException If {@code sampleLength} is less than 4.
+     */
+    public void calibrate(int sampleLength, int threshold, @NotNull Collection<String> algorithms) {
+        Objects.requireNonNull(algorithms, "'algorithms' cannot be null.");
+
+        if (sampleLength < 4) {
+            String message = String.format("The sample length cannot be less than 4. (sampleLength: %d)",
+                    sampleLength);
+            throw new IllegalArgumentException(message);
+        }
+
+        int side = (int) Math.sqrt(sampleLength);
+        int length = side * side;
+        int sampleThreshold = Math.max(2, Math.min(threshold, length));
+        int[] sample = new SplittableRandom(CALIBRATION_SEED).ints(length, 0, 4097).toArray();
+        int[] sorted = sample.clone();
+        Arrays.sort(sorted);
+
+        for (String algorithm : algorithms) {
+            Sorter sorter = Sorters.get(algorithm);
+            int[] copy = new int[length];
+            long nanos = measureNanos(() -> System.arraycopy(sample, 0, copy, 0, length),
+                    () -> sorter.sort(copy, sampleThreshold));
+            sortThroughputs.put(algorithm, getSortWork(algorithm, length, sampleThreshold) / (nanos / 1e9));
+        }
+
+        BufferedImage image = SatelliteImageWriter.writeGreyscaleImage(sorted);
+        long renderNanos = measureNanos(() -> { }, () -> SatelliteImageWriter.writeGreyscaleImage(sorted));
+        throughputs.put(Stage.RENDER, length / (renderNanos / 1e9));
+
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        long encodeNanos = measureNanos(jpeg::reset, () -> {
+            try {
+                ImageIO.write(image, "jpg", jpeg);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to encode the sample image as a JPEG.", e);
+            }
+        });
+        throughputs.put(Stage.ENCODE, length / (encodeNanos / 1e9));
+        bytesPerPixel = (double) jpeg.size() / length;
+    }
+
+    /**
+     * Gets the amount of work it takes to sort the provided number of values, which is <i>n</i> log<sub>2</sub>
+     * <i>n</i> for most algorithms. An algorithm that sorts each sub-array of up to <i>T</i> values with an insertion
+     * sort merges <i>n</i> log<sub>2</sub>(<i>n</i> / <i>T</i>) values and moves about <i>n T</i> / 4 values in its
+     * insertion sorts instead, so it slows down as the threshold grows.
+     * @param algorithm The name of the algorithm.
+     * @param values The number of values to sort.
+     * @param threshold The threshold that is passed to the algorithm.
+     * @return The amount of work.
+     * @throws NullPointerException If {@code algorithm} is {@code null}
+     */
+    public static double getSortWork(@NotNull String algorithm, long values, int threshold) {
+        Objects.requireNonNull(algorithm, "'algorithm' cannot be null.");
+
+        if (values < 2 || algorithm.equals(Sorters.PRESORTED)) {
+            return 0;
+        }
+
+        if (!THRESHOLD_ALGORITHMS.contains(algorithm)) {
+            return values * log2(values);
+        }
+
+        long leaf = Math.max(2, Math.min(threshold, values));
+        return values * log2(Math.max(2, values / leaf)) + values * leaf / 4.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThroughputModel(%s, sort=%s, bytesPerPixel=%.3f)", new EnumMap<>(throughputs),
+                sortThroughputs, bytesPerPixel);
+    }
+
+    private static long measureNanos(@NotNull Runnable setUp, @NotNull Runnable run) {
+        long fastest = Long.MAX_VALUE;
+
+        for (int index = 0; index <= CALIBRATION_RUNS; index++) {
+            setUp.run();
+            long start = System.nanoTime();
+            run.run();
+            long nanos = Math.max(1, System.nanoTime() - start);
+
+            // The first run only warms the stage up
+            if (index > 0) {
+                fastest = Math.min(fastest, nanos);
+            }
+        }
+
+        return fastest;
+    }
+
+    private static double blend(double known, double measured) {
+        return known + SMOOTHING * (measured - known);
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
@@ -0,0 +1,408 @@
+package ahuber.hubble.utils;
+
+import com.amazonaws.jmespath.ObjectMapperSingleton;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * A multi-resolution pyramid of {@value #TILE_SIZE} by {@value #TILE_SIZE} tiles of a frame, which lets a viewer in a
+ * browser fetch only the tiles of the level and the part of the frame that it displays, instead of one huge image.
+ * Level 0 holds the frame at full resolution, and each level after it is downsampled by 2 in both directions, down to
+ * the first level that fits in one tile. Each tile is a PNG image whose pixels are normalized in the same way as by
+ * {@link SatelliteImageWriter}, and the tiles at the right and bottom edges of a level are smaller if the level does
+ * not divide into whole tiles.
+ * <p>
+ * The tiles are written to a {@link TileSink} as {@code <level>/<column>_<row>.png}, followed by a manifest,
+ * {@value #MANIFEST_PATH}, which is this class serialized as JSON. The manifest is written last, so a viewer that
+ * finds it can fetch any of the tiles. Both the levels and the tiles are generated in parallel on a
+ * {@link ForkJoinPool}, and the tiles of one level are written while the next level is downsampled.
+ */
+@Value
+public class TilePyramid {
+
+    /**
+     * The width and height of each tile, except the ones at the right and bottom edges of a level.
+     */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * The path of the manifest of a tile pyramid in its {@link TileSink}
+     */
+    public static final String MANIFEST_PATH = "manifest.json";
+
+    /**
+     * The content type of the manifest, e.g., for uploading it to Amazon S3.
+     */
+    public static final String MANIFEST_CONTENT_TYPE = "application/json";
+
+    /**
+     * The smallest number of pixels that are written by one task when a level is generated.
+     */
+    private static final int MIN_BAND_PIXELS = 1 << 16;
+
+    /**
+     * Gets the width of the frame in pixels, i.e., the width of level 0.
+     */
+    private int width;
+
+    /**
+     * Gets the height of the frame in pixels, i.e., the height of level 0.
+     */
+    private int height;
+
+    /**
+     * Gets the width and height of each tile, i.e., {@value #TILE_SIZE}
+     */
+    private int tileSize;
+
+    /**
+     * Gets the number of levels, the last of which fits in one tile.
+     */
+    private int levels;
+
+    /**
+     * Creates a new {@link TilePyramid}, which describes the tiles that have been written for a frame.
+     * @param width The width of the frame in pixels.
+     * @param height The height of the frame in pixels.
+     * @param tileSize The width and height of each tile.
+     * @param levels The number of levels.
+     * @throws IllegalArgumentException If {@code width}, {@code height}, {@code tileSize}, or {@code levels} is less
+     * than one.
+     */
+    @JsonCreator
+    public TilePyramid(@JsonProperty("width") int width, @JsonProperty("height") int height,
+            @JsonProperty("tileSize") int tileSize, @JsonProperty("levels") int levels) {
+        if (width < 1 || height < 1 || tileSize < 1 || levels < 1) {
+            String message = String.format("The width, height, tile size, and number of levels must be positive. " +
+                    "(width: %d, height: %d, tileSize: %d, levels: %d)", width, height, tileSize, levels);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.levels = levels;
+    }
+
+    /**
+     * Gets the width of a level in pixels.
+     * @param level The level, where 0 is the full resolution.
+     * @return The width, which is that of the level before it divided by 2 and rounded up.
+     */
+    public int getWidth(int level) {
+        return scale(width, level);
+    }
+
+    /**
+     * Gets the height of a level in pixels.
+     * @param level The level, where 0 is the full resolution.
+     * @return The height, which is that of the level before it divided by 2 and rounded up.
+     */
+    public int getHeight(int level) {
+        return scale(height, level);
+    }
+
+    /**
+     * Gets the number of columns of tiles in a level.
+     * @param level The level, where 0 is the full resolution.
+     * @return The number of columns.
+     */
+    public int getColumns(int level) {
+        return (getWidth(level) + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Gets the number of rows of tiles in a level.
+     * @param level The level, where 0 is the full resolution.
+     * @return The number of rows.
+     */
+    public int getRows(int level) {
+        return (getHeight(level) + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Gets the total number of tiles in every level.
+     * @return The number of tiles.
+     */
+    @JsonIgnore
+    public int getTileCount() {
+        int count = 0;
+
+        for (int level = 0; level < levels; level++) {
+            count += getColumns(level) * getRows(level);
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the path of a tile in the {@link TileSink} it is written to.
+     * @param level The level, where 0 is the full resolution.
+     * @param column The column of the tile, where 0 is the left edge of the level.
+     * @param row The row of the tile, where 0 is the top edge of the level.
+     * @return The path, i.e., {@code <level>/<column>_<row>.png}
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static String getTilePath(int level, int column, int row) {
+        return String.format("%d/%d_%d.png", level, column, row);
+    }
+
+    /**
+     * Generates the tile pyramid of a square frame using the {@linkplain ForkJoinPool#commonPool() common pool}
+     * @param data The values of the frame row by row, whose length is a perfect square.
+     * @param sink The {@link TileSink} that the tiles and the manifest are written to.
+     * @return The {@link TilePyramid} that was written as the manifest.
+     * @throws IOException If a tile or the manifest cannot be written.
+     * @throws NullPointerException If {@code data} or {@code sink} is {@code null}
+     * @throws IllegalArgumentException If {@code data} is empty.
+     */
+    @NotNull
+    public static TilePyramid write(@NotNull int[] data, @NotNull TileSink sink) throws IOException {
+        return write(data, sink, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates the tile pyramid of a square frame. The tiles are written in parallel, so {@code sink} must be safe
+     * to use from several threads at once.
+     * @param data The values of the frame row by row, whose length is a perfect square.
+     * @param sink The {@link TileSink} that the tiles and the manifest are written to.
+     * @param pool The {@link ForkJoinPool} that generates the levels and writes the tiles.
+     * @return The {@link TilePyramid} that was written as the manifest.
+     * @throws IOException If a tile or the manifest cannot be written.
+     * @throws NullPointerException If {@code data}, {@code sink}, or {@code pool} is {@code null}
+     * @throws IllegalArgumentException If {@code data} is empty.
+     */
+    @NotNull
+    public static TilePyramid write(@NotNull int[] data, @NotNull TileSink sink, @NotNull ForkJoinPool pool)
+            throws IOException {
+        Objects.requireNonNull(data, "'data' cannot be null.");
+        Objects.requireNonNull(sink, "'sink' cannot be null.");
+        Objects.requireNonNull(pool, "'pool' cannot be null.");
+        int length = validateLength((int) Math.sqrt(data.length));
+        byte[] frame = new byte[length * length];
+        invoke(pool, length, length, (fromRow, toRow) -> {
+            for (int index = fromRow * length; index < toRow * length; index++) {
+                frame[index] = Greyscale.toByte(data[index]);
+            }
+        });
+
+        return write(frame, length, sink, pool);
+    }
+
+    /**
+     * Generates the tile pyramid of the sorted frame that a histogram counts using the
+     * {@linkplain ForkJoinPool#commonPool() common pool}
+     * @param histogram The {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @param sink The {@link TileSink} that the tiles and the manifest are written to.
+     * @return The {@link TilePyramid} that was written as the manifest.
+     * @throws IOException If a tile or the manifest cannot be written.
+     * @throws NullPointerException If {@code histogram} or {@code sink} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link RunLengthRenderer#getLength(long[])},
+     * or counts no values.
+     */
+    @NotNull
+    public static TilePyramid write(@NotNull long[] histogram, @NotNull TileSink sink) throws IOException {
+        return write(histogram, sink, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates the tile pyramid of the sorted frame that a histogram counts. The full resolution is
+     * {@linkplain RunLengthRenderer rendered from the counts}, so the sorted frame is never needed. The tiles are
+     * written in parallel, so {@code sink} must be safe to use from several threads at once.
+     * @param histogram The {@linkplain ahuber.hubble.stats.FrameStatistics#histogram(int[]) histogram} of the frame.
+     * @param sink The {@link TileSink} that the tiles and the manifest are written to.
+     * @param pool The {@link ForkJoinPool} that generates the levels and writes the tiles.
+     * @return The {@link TilePyramid} that was written as the manifest.
+     * @throws IOException If a tile or the manifest cannot be written.
+     * @throws NullPointerException If {@code histogram}, {@code sink}, or {@code pool} is {@code null}
+     * @throws IllegalArgumentException If the histogram is not valid, see {@link RunLengthRenderer#getLength(long[])},
+     * or counts no values.
+     */
+    @NotNull
+    public static TilePyramid write(@NotNull long[] histogram, @NotNull TileSink sink, @NotNull ForkJoinPool pool)
+            throws IOException {
+        Objects.requireNonNull(sink, "'sink' cannot be null.");
+        Objects.requireNonNull(pool, "'pool' cannot be null.");
+        int length = validateLength(RunLengthRenderer.getLength(histogram));
+        return write(RunLengthRenderer.render(histogram), length, sink, pool);
+    }
+
+    @NotNull
+    private static TilePyramid write(@NotNull byte[] frame, int length, @NotNull TileSink sink,
+            @NotNull ForkJoinPool pool) throws IOException {
+        int levels = 1;
+
+        while (scale(length, levels - 1) > TILE_SIZE) {
+            levels++;
+        }
+
+        TilePyramid pyramid = new TilePyramid(length, length, TILE_SIZE, levels);
+        List<ForkJoinTask<Void>> writes = new ArrayList<>();
+
+        try {
+            byte[] pixels = frame;
+
+            for (int level = 0; level < levels; level++) {
+                pixels = level == 0 ? pixels : pyramid.downscale(pixels, level, pool);
+                int tiles = pyramid.getColumns(level) * pyramid.getRows(level);
+                writes.add(pool.submit(new ForEachAction(0, tiles, pyramid.tileWriter(pixels, level, sink))));
+            }
+
+            for (ForkJoinTask<Void> write : writes) {
+                write.join();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            // Do not leave tiles being written after returning, e.g., after an earlier level has failed
+            writes.forEach(write -> write.cancel(false));
+        }
+
+        sink.write(MANIFEST_PATH, ObjectMapperSingleton.getObjectMapper().writeValueAsBytes(pyramid),
+                MANIFEST_CONTENT_TYPE);
+        return pyramid;
+    }
+
+    /**
+     * Creates a {@link TileSink} that writes each tile to a file under a directory, creating the subdirectory of each
+     * level as needed.
+     * @param directory The directory.
+     * @return The {@link TileSink}
+     * @throws NullPointerException If {@code directory} is {@code null}
+     */
+    @NotNull
+    @Contract(pure = true)
+    public static TileSink toDirectory(@NotNull Path directory) {
+        Objects.requireNonNull(directory, "'directory' cannot be null.");
+
+        return (path, bytes, contentType) -> {
+            Path file = directory.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.write(file, bytes);
+        };
+    }
+
+    private static int validateLength(int length) {
+        if (length == 0) {
+            throw new IllegalArgumentException("A tile pyramid needs at least one pixel.");
+        }
+
+        return length;
+    }
+
+    private static int scale(int length, int level) {
+        // Dividing by 2 and rounding up once per level is the same as dividing by 2^level and rounding up
+        return (int) ((length + (1L << level) - 1) >> level);
+    }
+
+    /**
+     * Downscales the previous level into a new level, each of whose pixels is the average of the square of up to 2
+     * by 2 pixels of the previous level it covers.
+     */
+    @NotNull
+    private byte[] downscale(@NotNull byte[] previous, int level, @NotNull ForkJoinPool pool) {
+        int previousWidth = getWidth(level - 1);
+        int previousHeight = getHeight(level - 1);
+        int levelWidth = getWidth(level);
+        byte[] pixels = new byte[levelWidth * getHeight(level)];
+
+        invoke(pool, levelWidth, getHeight(level), (fromRow, toRow) -> {
+            for (int row = fromRow; row < toRow; row++) {
+                int top = 2 * row * previousWidth;
+                int bottom = 2 * row + 1 < previousHeight ? top + previousWidth : top;
+
+                for (int column = 0; column < levelWidth; column++) {
+                    int left = 2 * column;
+                    int right = left + 1 < previousWidth ? left + 1 : left;
+                    int sum = (previous[top + left] & 0xFF) + (previous[top + right] & 0xFF)
+                            + (previous[bottom + left] & 0xFF) + (previous[bottom + right] & 0xFF);
+                    pixels[row * levelWidth + column] = (byte) ((sum + 2) >> 2);
+                }
+            }
+        });
+
+        return pixels;
+    }
+
+    @NotNull
+    private IntConsumer tileWriter(@NotNull byte[] pixels, int level, @NotNull TileSink sink) {
+        int levelWidth = getWidth(level);
+        int levelHeight = getHeight(level);
+        int columns = getColumns(level);
+        GreyscalePngEncoder encoder = new GreyscalePngEncoder();
+
+        return tile -> {
+            int column = tile % columns;
+            int row = tile / columns;
+            int x = column * tileSize;
+            int y = row * tileSize;
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+            try {
+                encoder.encode(pixels, y * levelWidth + x, levelWidth, Math.min(tileSize, levelWidth - x),
+                        Math.min(tileSize, levelHeight - y), outputStream);
+                sink.write(getTilePath(level, column, row), outputStream.toByteArray(),
+                        GreyscalePngEncoder.CONTENT_TYPE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static void invoke(@NotNull ForkJoinPool pool, int width, int height, @NotNull BandTask task) {
+        int parallelism = pool.getParallelism();
+        int bandRows = Math.max(1, Math.max(MIN_BAND_PIXELS / width,
+                (height + parallelism * 4 - 1) / (parallelism * 4)));
+
+        if (bandRows >= height) {
+            task.run(0, height);
+        } else {
+            int bands = (height + bandRows - 1) / bandRows;
+            pool.invoke(new ForEachAction(0, bands,
+                    band -> task.run(band * bandRows, Math.min(height, (band + 1) * bandRows))));
+        }
+    }
+
+    /**
+     * A destination for the tiles and the manifest of a {@link TilePyramid}, e.g., a directory or a prefix of keys
+     * in an Amazon S3 bucket.
+     */
+    @FunctionalInterface
+    public interface TileSink {
+
+        /**
+         * Writes a tile or the manifest.
+         * @param path The path of the tile or the manifest relative to the root of the pyramid, e.g.,
+         *             {@code 2/0_1.png} or {@value #MANIFEST_PATH}
+         * @param bytes The encoded tile or manifest.
+         * @param contentType The content type of {@code bytes}
+         * @throws IOException If the tile or the manifest cannot be written.
+         */
+        void write(@NotNull String path, @NotNull byte[] bytes, @NotNull String contentType) throws IOException;
+    }
+
+    /**
+     * Processes a band of rows.
+     */
+    @FunctionalInterface
+    private interface BandTask {
+        void run(int fromRow, int toRow);
+    }
+}
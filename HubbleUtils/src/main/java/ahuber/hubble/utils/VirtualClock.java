@@ -0,0 +1,154 @@
+package ahuber.hubble.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A {@link PacingClock} whose time only moves when it is advanced, which runs the tasks that are due in the meantime
+ * on the advancing thread, in the order of their due time. Advancing the clock takes as long as running the tasks,
+ * so paced simulations run at CPU speed while the clock still tells how much time they would have taken.
+ * <p>
+ * The time of the clock starts at zero. Tasks may be scheduled from any thread.
+ */
+public class VirtualClock implements PacingClock {
+    @NotNull private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+
+    @Override
+    public synchronized long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public synchronized void schedule(long delayNanos, @NotNull Runnable task) {
+        Objects.requireNonNull(task, "'task' cannot be null.");
+        events.add(new Event(now + Math.max(0, delayNanos), sequence++, task));
+    }
+
+    /**
+     * Gets the number of tasks that have been scheduled but have not run yet.
+     * @return The number of tasks.
+     */
+    public synchronized int getPendingCount() {
+        return events.size();
+    }
+
+    /**
+     * Advances the clock to the due time of the next task, if it is not due yet, and runs it.
+     * @return {@code true} if a task was run, {@code false} if no task was scheduled.
+     */
+    public boolean runNext() {
+        return runNext(Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs tasks, advancing the clock as needed, until no more tasks are scheduled.
+     * @return The number of tasks that were run.
+     */
+    public long runUntilIdle() {
+        long count = 0;
+
+        while (runNext()) {
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Runs tasks, advancing the clock as needed, until the provided condition holds or no more tasks are scheduled.
+     * The condition is checked before each task.
+     * @param condition The condition.
+     * @return {@code true} if the condition holds, {@code false} if no more tasks are scheduled and it does not hold.
+     * @throws NullPointerException If {@code condition} is {@code null}
+     */
+    public boolean runUntil(@NotNull BooleanSupplier condition) {
+        Objects.requireNonNull(condition, "'condition' cannot be null.");
+
+        while (!condition.getAsBoolean()) {
+            if (!runNext()) {
+                return condition.getAsBoolean();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Advances the clock by the provided amount of time and runs the tasks that become due in the meantime.
+     * @param duration The amount of time.
+     * @return The number of tasks that were run.
+     * @throws NullPointerException If {@code duration} is {@code null}
+     * @throws IllegalArgumentException If {@code duration} is negative.
+     */
+    public long advance(@NotNull Duration duration) {
+        Objects.requireNonNull(duration, "'duration' cannot be null.");
+
+        if (duration.isNegative()) {
+            String message = String.format("The clock cannot be advanced by a negative duration. (duration: %s)",
+                    duration);
+            throw new IllegalArgumentException(message);
+        }
+
+        long target;
+
+        synchronized (this) {
+            target = now + duration.toNanos();
+        }
+
+        long count = 0;
+
+        while (runNext(target)) {
+            count++;
+        }
+
+        synchronized (this) {
+            now = Math.max(now, target);
+        }
+
+        return count;
+    }
+
+    private boolean runNext(long limit) {
+        Event event;
+
+        synchronized (this) {
+            event = events.peek();
+
+            if (event == null || event.dueNanos > limit) {
+                return false;
+            }
+
+            events.poll();
+            now = Math.max(now, event.dueNanos);
+        }
+
+        // Run the task outside of the lock, so that it can schedule more tasks or be observed from other threads
+        event.task.run();
+        return true;
+    }
+
+    private static class Event implements Comparable<Event> {
+        private final long dueNanos;
+        private final long sequence;
+        @NotNull private final Runnable task;
+
+        private Event(long dueNanos, long sequence, @NotNull Runnable task) {
+            this.dueNanos = dueNanos;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(@NotNull Event other) {
+            // Tasks that are due at the same time run in the order in which they were scheduled
+            int comparison = Long.compare(dueNanos, other.dueNanos);
+            return comparison != 0 ? comparison : Long.compare(sequence, other.sequence);
+        }
+    }
+}
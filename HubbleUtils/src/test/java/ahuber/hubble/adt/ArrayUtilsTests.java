@@ -78,6 +78,13 @@ public class ArrayUtilsTests {
         Assert.assertArrayEquals(expectedRevRangeClosedArray, actualRevRangeClosedArray);
     }
 
+    @Test
+    public void testIsSorted() {
+        Assert.assertTrue(ArrayUtils.isSorted(new int[0]));
+        Assert.assertTrue(ArrayUtils.isSorted(new int[]{1, 1, 2, 3}));
+        Assert.assertFalse(ArrayUtils.isSorted(new int[]{1, 3, 2}));
+    }
+
     @Test
     public void testCombine() {
         int[] array1 = IntStream.range(0, 10).toArray();
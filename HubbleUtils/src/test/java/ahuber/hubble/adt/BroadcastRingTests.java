@@ -0,0 +1,153 @@
+package ahuber.hubble.adt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+public class BroadcastRingTests {
+    private static final int CAPACITY = 10;
+
+    @Test
+    public void testBroadcast() throws InterruptedException {
+        BroadcastRing ring = new BroadcastRing(CAPACITY);
+        int[] chunk = IntStream.range(0, CAPACITY * 2).toArray();
+
+        // Without consumers, the values are discarded and the producer never waits
+        ring.publish(chunk, 0, chunk.length);
+        Assert.assertEquals(CAPACITY * 2, ring.getPublishedCount());
+        Assert.assertEquals(0, ring.getBlockedNanos());
+        BroadcastRing.Cursor sorter = ring.register("sorter");
+        BroadcastRing.Cursor monitor = ring.register("monitor");
+        Assert.assertEquals(CAPACITY * 2, sorter.getSequence());
+        Assert.assertEquals(0, sorter.available());
+
+        // Every consumer reads every value, and reading does not take the values from the other consumers
+        Assert.assertEquals(7, ring.offer(chunk, 0, 7));
+        int[] sorted = new int[CAPACITY];
+        Assert.assertEquals(7, sorter.drain(sorted, 0, sorted.length));
+        Assert.assertArrayEquals(IntStream.range(0, 7).toArray(), IntStream.of(sorted).limit(7).toArray());
+        Assert.assertEquals(0, sorter.available());
+        Assert.assertEquals(7, monitor.available());
+
+        // The slowest consumer holds up the producer
+        Assert.assertEquals(CAPACITY - 7, ring.offer(chunk, 7, 8));
+        Assert.assertEquals(0, ring.offer(chunk, CAPACITY, 1));
+        Assert.assertEquals(CAPACITY - 7, sorter.available());
+
+        // Values that wrap around the end of the array are read in place in two runs
+        List<Integer> runs = new ArrayList<>();
+        Assert.assertEquals(5, monitor.skip(5));
+        Assert.assertEquals(3, ring.offer(chunk, CAPACITY, 3));
+        Assert.assertEquals(8, monitor.read(CAPACITY, (array, offset, length) -> {
+            runs.add(length);
+            IntStream.range(offset, offset + length).forEach(index -> Assert.assertTrue(array[index] >= 5));
+        }));
+        Assert.assertEquals(2, runs.size());
+        Assert.assertEquals(8, runs.stream().mapToInt(Integer::intValue).sum());
+
+        // The values published so far are in the ring in order, and a closed consumer no longer holds up the producer
+        int[] rest = new int[CAPACITY];
+        Assert.assertEquals(6, sorter.drain(rest, 0, rest.length));
+        Assert.assertArrayEquals(new int[] {7, 8, 9, 10, 11, 12}, IntStream.of(rest).limit(6).toArray());
+        monitor.close();
+        Assert.assertEquals(1, ring.getConsumerCount());
+        Assert.assertEquals(CAPACITY, ring.offer(chunk, 0, CAPACITY));
+
+        try {
+            monitor.skip(1);
+            Assert.fail("A closed cursor cannot be read from.");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testClose() throws InterruptedException {
+        BroadcastRing ring = new BroadcastRing(CAPACITY);
+        BroadcastRing.Cursor cursor = ring.register("archiver");
+        ring.offer(new int[] {1, 2, 3}, 0, 3);
+        ring.close();
+
+        // The values published before the ring was closed are still read
+        Assert.assertFalse(cursor.isDrained());
+        Assert.assertEquals(3, cursor.await(CAPACITY));
+        Assert.assertEquals(3, cursor.skip(CAPACITY));
+        Assert.assertTrue(cursor.isDrained());
+
+        try {
+            ring.offer(new int[1], 0, 1);
+            Assert.fail("No more values can be published to a closed ring.");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testConcurrentConsumers() throws InterruptedException {
+        int count = 200_000;
+        BroadcastRing ring = new BroadcastRing(1 << 10);
+        long expected = (long) count * (count - 1) / 2;
+        List<Thread> threads = new ArrayList<>();
+        List<AtomicLong> sums = new ArrayList<>();
+        CountDownLatch finished = new CountDownLatch(3);
+
+        // Consumers of different speeds each see every value exactly once and in order
+        for (int consumer = 0; consumer < 3; consumer++) {
+            BroadcastRing.Cursor cursor = ring.register("consumer " + consumer);
+            int batch = 1 + consumer * 100;
+            AtomicLong sum = new AtomicLong();
+            sums.add(sum);
+            threads.add(new Thread(() -> {
+                int[] values = new int[batch];
+                long next = 0;
+
+                try {
+                    while (cursor.await(1) > 0) {
+                        int read = cursor.drain(values, 0, batch);
+
+                        for (int index = 0; index < read; index++) {
+                            Assert.assertEquals(next++, values[index]);
+                            sum.addAndGet(values[index]);
+                        }
+                    }
+
+                    finished.countDown();
+                } catch (InterruptedException ignored) {
+                    // Exit because this thread was interrupted
+                } finally {
+                    cursor.close();
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        int[] chunk = new int[333];
+
+        for (int value = 0; value < count; value += chunk.length) {
+            int length = Math.min(chunk.length, count - value);
+
+            for (int index = 0; index < length; index++) {
+                chunk[index] = value + index;
+            }
+
+            ring.publish(chunk, 0, length);
+        }
+
+        ring.close();
+        Assert.assertTrue(finished.await(30, TimeUnit.SECONDS));
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        sums.forEach(sum -> Assert.assertEquals(expected, sum.get()));
+        Assert.assertEquals(count, ring.getPublishedCount());
+        Assert.assertEquals(0, ring.getConsumerCount());
+    }
+}
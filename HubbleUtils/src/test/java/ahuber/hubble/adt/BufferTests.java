@@ -308,4 +308,62 @@ public class BufferTests implements SizeObserver<Buffer<Integer>> {
         Assert.assertEquals(CAPACITY, buffer.size());
         Assert.assertEquals(buffer.size(), size.get());
     }
+
+    @Test
+    public void testAddChunk() {
+        AtomicInteger calls = new AtomicInteger();
+        IntBuffer buffer = new IntBuffer(new IntArrayWrapper(new int[CAPACITY]));
+        buffer.registerObserver(collection -> calls.incrementAndGet());
+        int[] chunk = IntStream.range(0, CAPACITY * 2).toArray();
+
+        // Only as many items as there is space for are added, and the observers are notified once
+        Assert.assertEquals(CAPACITY, buffer.addChunk(chunk, 0, chunk.length));
+        Assert.assertEquals(1, calls.get());
+        Assert.assertArrayEquals(IntStream.range(0, CAPACITY).toArray(), buffer.toIntArray());
+        Assert.assertEquals(0, buffer.addChunk(chunk, 0, 1));
+        Assert.assertEquals(1, calls.get());
+
+        // Items added after a take wrap around the end of the underlying array
+        int[] expectedFirstPart = IntStream.range(0, CAPACITY - 3).toArray();
+        Assert.assertArrayEquals(expectedFirstPart, buffer.take(CAPACITY - 3));
+        Assert.assertEquals(CAPACITY - 3, buffer.addChunk(chunk, CAPACITY, CAPACITY));
+        Assert.assertEquals(3, calls.get());
+        int[] expected = IntStream.range(CAPACITY - 3, CAPACITY * 2 - 3).toArray();
+        Assert.assertArrayEquals(expected, buffer.toIntArray());
+        Assert.assertArrayEquals(Arrays.copyOf(expected, 4), buffer.toIntArray(4));
+        Assert.assertArrayEquals(Arrays.copyOf(expected, CAPACITY - 1), buffer.take(CAPACITY));
+
+        // An emptied buffer starts over wherever its first item is
+        buffer.clear();
+        Assert.assertEquals(2, buffer.addChunk(chunk, 5, 2));
+        Assert.assertArrayEquals(new int[] {5, 6}, buffer.toIntArray());
+
+        try {
+            buffer.addChunk(chunk, chunk.length - 1, 2);
+            Assert.fail("The range is outside of the chunk.");
+        } catch (IndexOutOfBoundsException expectedException) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testRetainPositions() {
+        AtomicInteger calls = new AtomicInteger();
+        IntBuffer buffer = new IntBuffer(new IntArrayWrapper(new int[CAPACITY]));
+        int[] chunk = IntStream.range(0, CAPACITY).toArray();
+        buffer.addChunk(chunk, 0, chunk.length);
+        buffer.take(3);
+        buffer.addChunk(chunk, 0, 2);
+        buffer.registerObserver(collection -> calls.incrementAndGet());
+
+        // The items that are kept stay in order, even where they wrap around the end of the underlying array
+        int[] expected = IntStream.concat(IntStream.range(3, CAPACITY), IntStream.range(0, 2))
+                .filter(value -> value % 2 == 1)
+                .toArray();
+        Assert.assertEquals(CAPACITY - 1 - expected.length, buffer.retainPositions(position -> position % 2 == 0));
+        Assert.assertArrayEquals(expected, buffer.toIntArray());
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(0, buffer.retainPositions(position -> true));
+        Assert.assertEquals(1, calls.get());
+    }
 }
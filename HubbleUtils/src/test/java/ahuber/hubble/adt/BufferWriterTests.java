@@ -0,0 +1,138 @@
+package ahuber.hubble.adt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+public class BufferWriterTests {
+    private static final int CAPACITY = 10;
+
+    @Test
+    public void testBlock() throws InterruptedException {
+        IntBuffer buffer = new IntBuffer(CAPACITY);
+        BufferWriter writer = new BufferWriter(buffer);
+        int[] chunk = IntStream.range(0, CAPACITY * 2).toArray();
+
+        // Offering never waits, so only the values that fit are accepted and nothing is lost
+        Assert.assertEquals(CAPACITY, writer.offer(chunk, 0, chunk.length));
+        Assert.assertFalse(writer.offer(-1));
+        Assert.assertEquals(CAPACITY, writer.getOfferedCount());
+        Assert.assertEquals(0, writer.getDroppedCount());
+
+        // Writing waits until there is space for all the values
+        CountDownLatch written = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                writer.write(chunk, CAPACITY, 5);
+                written.countDown();
+            } catch (InterruptedException ignored) {
+                // Exit because this thread was interrupted
+            }
+        });
+        thread.start();
+        Assert.assertFalse(written.await(50, TimeUnit.MILLISECONDS));
+        Assert.assertArrayEquals(IntStream.range(0, CAPACITY - 1).toArray(), buffer.take(CAPACITY));
+        Assert.assertTrue(written.await(5, TimeUnit.SECONDS));
+        thread.join();
+
+        Assert.assertArrayEquals(IntStream.range(CAPACITY - 1, CAPACITY + 5).toArray(), buffer.toIntArray());
+        Assert.assertEquals(CAPACITY + 5, writer.getOfferedCount());
+        Assert.assertEquals(0, writer.getDroppedCount());
+        Assert.assertTrue(writer.getBlockedNanos() > 0);
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        IntBuffer buffer = new IntBuffer(CAPACITY);
+        BufferWriter writer = new BufferWriter(buffer, OverflowPolicy.DROP_OLDEST, null);
+        int[] chunk = IntStream.range(0, CAPACITY * 3).toArray();
+
+        // The buffer keeps the most recent values, in order, even when they wrap around the end of the array
+        writer.write(chunk, 0, 7);
+        Assert.assertArrayEquals(new int[] {0, 1, 2}, buffer.take(3));
+        writer.write(chunk, 7, 8);
+        Assert.assertArrayEquals(IntStream.range(5, 15).toArray(), buffer.toIntArray());
+        Assert.assertEquals(15, writer.getOfferedCount());
+        Assert.assertEquals(2, writer.getDroppedCount());
+
+        // A chunk that is longer than the buffer only leaves its last values
+        Assert.assertTrue(writer.offer(-1));
+        writer.write(chunk, 0, chunk.length);
+        Assert.assertArrayEquals(IntStream.range(CAPACITY * 2, CAPACITY * 3).toArray(), buffer.toIntArray());
+        Assert.assertEquals(46, writer.getOfferedCount());
+        Assert.assertEquals(33, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        IntBuffer buffer = new IntBuffer(CAPACITY);
+        BufferWriter writer = new BufferWriter(buffer, OverflowPolicy.DROP_NEWEST, null);
+        int[] chunk = IntStream.range(0, CAPACITY * 2).toArray();
+
+        writer.write(chunk, 0, chunk.length);
+        Assert.assertTrue(writer.offer(-1));
+        Assert.assertArrayEquals(IntStream.range(0, CAPACITY).toArray(), buffer.toIntArray());
+        Assert.assertEquals(CAPACITY * 2 + 1, writer.getOfferedCount());
+        Assert.assertEquals(CAPACITY + 1, writer.getDroppedCount());
+        Assert.assertEquals((double) (CAPACITY + 1) / (CAPACITY * 2 + 1), writer.getDroppedFraction(), 1e-9);
+        Assert.assertEquals(0, writer.getBlockedNanos());
+    }
+
+    @Test
+    public void testSample() throws InterruptedException {
+        IntBuffer buffer = new IntBuffer(CAPACITY);
+        BufferWriter writer = new BufferWriter(buffer, OverflowPolicy.SAMPLE, 7L);
+        int[] chunk = IntStream.range(0, 1000).toArray();
+        writer.write(chunk, 0, 3);
+        writer.write(chunk, 3, chunk.length - 3);
+
+        // The sample keeps at least half of the buffer filled, keeps the values in order, and is spread over the
+        // whole chunk rather than its start
+        int[] values = buffer.toIntArray();
+        Assert.assertTrue(values.length >= CAPACITY / 2 && values.length <= CAPACITY);
+        Assert.assertTrue(IntStream.range(1, values.length).allMatch(index -> values[index - 1] < values[index]));
+        Assert.assertTrue(values[values.length - 1] > chunk.length / 2);
+        Assert.assertEquals(chunk.length, writer.getOfferedCount());
+        Assert.assertEquals(chunk.length - values.length, writer.getDroppedCount());
+
+        // The same seed chooses the same sample
+        IntBuffer other = new IntBuffer(CAPACITY);
+        BufferWriter otherWriter = new BufferWriter(other, OverflowPolicy.SAMPLE, 7L);
+        otherWriter.write(chunk, 0, 3);
+        otherWriter.write(chunk, 3, chunk.length - 3);
+        Assert.assertArrayEquals(values, other.toIntArray());
+    }
+
+    @Test
+    public void testSampleFullBuffer() {
+        // Chunks that arrive once the buffer is full replace values that are already in it
+        int chunkCount = 10;
+        int chunkLength = 50;
+        IntBuffer buffer = new IntBuffer(100);
+        BufferWriter writer = new BufferWriter(buffer, OverflowPolicy.SAMPLE, 11L);
+
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int[] values = new int[chunkLength];
+            Arrays.fill(values, chunk);
+            Assert.assertEquals(chunkLength, writer.offer(values, 0, chunkLength));
+        }
+
+        int[] counts = new int[chunkCount];
+        int[] values = buffer.toIntArray();
+        Arrays.stream(values).forEach(value -> counts[value]++);
+        Assert.assertTrue(Arrays.toString(counts), Arrays.stream(counts).allMatch(count -> count > 0));
+        Assert.assertTrue(IntStream.range(1, values.length).allMatch(index -> values[index - 1] <= values[index]));
+        Assert.assertEquals(chunkCount * chunkLength - values.length, writer.getDroppedCount());
+
+        // Once the reader has taken values out, the sample starts over and keeps every value that fits
+        buffer.take(buffer.size());
+        int free = buffer.capacity() - buffer.size();
+        int[] fresh = IntStream.range(0, free).map(index -> -1).toArray();
+        writer.offer(fresh, 0, free);
+        Assert.assertTrue(buffer.isFull());
+    }
+}
@@ -0,0 +1,125 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.testing.TestingUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BlockMergeSortTests {
+    private final Random random = new Random();
+
+    @Test
+    public void testSort() {
+        BlockMergeSortInt sort = new BlockMergeSortInt(64, 4);
+
+        for (int length : new int[]{0, 1, 63, 64, 65, 256, 1000, 4097, 10_000}) {
+            assertSorted(sort, random.ints(length).toArray(), ForkJoinPool.commonPool());
+            assertSorted(sort, random.ints(length, 0, 3).toArray(), ForkJoinPool.commonPool());
+        }
+
+        int[] descending = new int[5000];
+        Arrays.setAll(descending, i -> descending.length - i);
+        assertSorted(sort, descending, ForkJoinPool.commonPool());
+    }
+
+    @Test
+    public void testSplitMerges() {
+        // Fewer groups than threads, so each merge of the last level is split between several tasks
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            BlockMergeSortInt sort = new BlockMergeSortInt(1024, 16);
+            assertSorted(sort, random.ints(1 << 18).toArray(), pool);
+            assertSorted(sort, random.ints(1 << 18, 0, 4097).toArray(), pool);
+            assertSorted(sort, new int[1 << 18], pool);
+
+            int[] ascending = new int[(1 << 18) + 17];
+            Arrays.setAll(ascending, i -> i);
+            assertSorted(sort, ascending, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPassCount() {
+        BlockMergeSortInt sort = new BlockMergeSortInt(1024, 16);
+        Assert.assertEquals(0, sort.getPassCount(0));
+        Assert.assertEquals(1, sort.getPassCount(1024));
+        Assert.assertEquals(3, sort.getPassCount(1025));
+        Assert.assertEquals(3, sort.getPassCount(1 << 18));
+        Assert.assertEquals(5, sort.getPassCount(1 << 24));
+        Assert.assertEquals(11, new BlockMergeSortInt(1024, 2).getPassCount(1 << 20));
+    }
+
+    @Test
+    public void testCancelledSortKeepsValues() {
+        int[] array = random.ints(10_000).toArray();
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        SortControl control = new SortControl();
+        control.cancel();
+
+        TestingUtilities.assertExceptionThrown(
+                () -> new BlockMergeSortInt(64, 4).sort(array, ForkJoinPool.commonPool(), control),
+                SortCancelledException.class);
+        Arrays.sort(array);
+        Assert.assertArrayEquals(expected, array);
+    }
+
+    @Test
+    public void testCancelDuringLevel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            // 4096 blocks make six levels of merges, the second, fourth and sixth of which write into the array
+            BlockMergeSortInt sort = new BlockMergeSortInt(64, 4);
+
+            for (double cancelAt : new double[] {0.1, 0.2, 0.35, 0.5, 0.65, 0.8}) {
+                int[] array = random.ints(1 << 18).toArray();
+                int[] expected = array.clone();
+                Arrays.sort(expected);
+                SortControl[] control = new SortControl[1];
+                control[0] = new SortControl(null, fraction -> {
+                    if (fraction >= cancelAt) {
+                        control[0].cancel();
+                    }
+                });
+
+                TestingUtilities.assertExceptionThrown(() -> sort.sort(array, pool, control[0]),
+                        SortCancelledException.class);
+                Arrays.sort(array);
+                Assert.assertArrayEquals(expected, array);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDetectBlockBytes() {
+        int bytes = BlockMergeSortInt.detectBlockBytes();
+        Assert.assertTrue(bytes >= BlockMergeSortInt.MIN_BLOCK_BYTES && bytes <= BlockMergeSortInt.MAX_BLOCK_BYTES);
+        Assert.assertEquals(bytes / Integer.BYTES, new BlockMergeSortInt().getBlockLength());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        TestingUtilities.assertExceptionThrown(() -> new BlockMergeSortInt(0, 16), IllegalArgumentException.class);
+        TestingUtilities.assertExceptionThrown(() -> new BlockMergeSortInt(64, 1), IllegalArgumentException.class);
+        TestingUtilities.assertExceptionThrown(() -> new BlockMergeSortInt(64, 4).getPassCount(-1),
+                IllegalArgumentException.class);
+    }
+
+    private static void assertSorted(BlockMergeSortInt sort, int[] array, ForkJoinPool pool) {
+        int[] expected = array.clone();
+        Arrays.sort(expected);
+        SortControl control = new SortControl();
+        sort.sort(array, pool, control);
+        Assert.assertArrayEquals(expected, array);
+        Assert.assertEquals(array.length == 0 ? 0 : 1, control.getProgress(), 0);
+    }
+}
@@ -0,0 +1,109 @@
+package ahuber.hubble.sort;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class ExternalMergeSortTests {
+
+    // 64 ints per chunk, so the arrays below are spilled to several runs.
+    private static final long MEMORY_BUDGET = 64 * 2 * Integer.BYTES;
+
+    private final Random random = new Random();
+
+    @Test
+    public void testSortArray() throws IOException {
+        Path directory = Files.createTempDirectory("hubble-external-sort");
+
+        try {
+            int[] actual = random.ints(1000, 0, 4097).toArray();
+            int[] expected = actual.clone();
+            Arrays.sort(expected);
+            new ExternalMergeSortInt(10, MEMORY_BUDGET, directory).sort(actual);
+            Assert.assertArrayEquals(expected, actual);
+            Assert.assertEquals(0, countFiles(directory));
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testSortFile() throws IOException {
+        Path directory = Files.createTempDirectory("hubble-external-sort");
+        Path input = directory.resolve("input.bin");
+        Path output = directory.resolve("output.bin");
+
+        try {
+            int[] values = random.ints(777).toArray();
+            write(input, values);
+            new ExternalMergeSortInt(10, MEMORY_BUDGET, directory).sort(input, output);
+            Arrays.sort(values);
+            Assert.assertArrayEquals(values, read(output, values.length));
+            Assert.assertEquals(2, countFiles(directory));
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testSortIterator() throws IOException {
+        Path directory = Files.createTempDirectory("hubble-external-sort");
+        Path output = directory.resolve("output.bin");
+
+        try {
+            int[] values = random.ints(500, 0, 10).toArray();
+
+            try (OutputStream stream = Files.newOutputStream(output)) {
+                new ExternalMergeSortInt(10, MEMORY_BUDGET, directory)
+                        .sort(Arrays.stream(values).iterator(), Channels.newChannel(stream));
+            }
+
+            Arrays.sort(values);
+            Assert.assertArrayEquals(values, read(output, values.length));
+        } finally {
+            Files.deleteIfExists(output);
+            Files.delete(directory);
+        }
+    }
+
+    private static void write(Path path, int[] values) throws IOException {
+        try (DataOutputStream stream = new DataOutputStream(Files.newOutputStream(path))) {
+            for (int value : values) {
+                stream.writeInt(value);
+            }
+        }
+    }
+
+    private static int[] read(Path path, int length) throws IOException {
+        Assert.assertEquals((long) length * Integer.BYTES, Files.size(path));
+        int[] values = new int[length];
+
+        try (InputStream inputStream = Files.newInputStream(path);
+             DataInputStream stream = new DataInputStream(inputStream)) {
+            for (int i = 0; i < length; i++) {
+                values[i] = stream.readInt();
+            }
+        }
+
+        return values;
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.testing.TestingUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class IncrementalSortTests {
+    private final Random random = new Random();
+
+    @Test
+    public void testSortChunks() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            int[] values = random.ints(10_000, 0, 4097).toArray();
+            IncrementalSortInt incrementalSort = new IncrementalSortInt(1000, Sorters.get(null), 10, executor);
+
+            // Chunks of differing lengths, including an empty one and one of a single value
+            int[] lengths = {1000, 1000, 0, 1, 2999, 5000};
+            int offset = 0;
+
+            for (int length : lengths) {
+                incrementalSort.add(Arrays.copyOfRange(values, offset, offset + length));
+                offset += length;
+            }
+
+            Assert.assertEquals(values.length, incrementalSort.size());
+            Arrays.sort(values);
+            Assert.assertArrayEquals(values, incrementalSort.finish());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFinishWithoutChunks() throws InterruptedException {
+        IncrementalSortInt incrementalSort = new IncrementalSortInt(10, Sorters.get(null), 10, Runnable::run);
+        Assert.assertArrayEquals(new int[0], incrementalSort.finish());
+    }
+
+    @Test
+    public void testAddAfterFinish() throws InterruptedException {
+        IncrementalSortInt incrementalSort = new IncrementalSortInt(10, Sorters.get(null), 10, Runnable::run);
+        incrementalSort.finish();
+        TestingUtilities.assertExceptionThrown(() -> incrementalSort.add(new int[]{1}), IllegalStateException.class);
+    }
+}
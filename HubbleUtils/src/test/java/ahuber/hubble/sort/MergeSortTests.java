@@ -1,9 +1,13 @@
 package ahuber.hubble.sort;
 
 import ahuber.hubble.adt.ArrayUtils;
+import ahuber.hubble.testing.TestingUtilities;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
 public class MergeSortTests {
@@ -23,4 +27,33 @@ public class MergeSortTests {
         MergeSortInt.sort(actual, 10);
         Assert.assertArrayEquals(expected, actual);
     }
+
+    @Test
+    public void testCancelDuringSortKeepsValues() {
+        Random random = new Random();
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (double cancelAt : new double[] {0.1, 0.3, 0.5, 0.7, 0.9}) {
+                int[] actual = random.ints(1 << 18).toArray();
+                int[] expected = actual.clone();
+                Arrays.sort(expected);
+                SortControl[] control = new SortControl[1];
+                control[0] = new SortControl(null, fraction -> {
+                    if (fraction >= cancelAt) {
+                        control[0].cancel();
+                    }
+                });
+
+                // Every merge that was running when the sort was cancelled has finished by the time it throws, so
+                // the array holds a permutation of its values rather than a half-copied merge
+                TestingUtilities.assertExceptionThrown(() -> MergeSortInt.sort(actual, 64, pool, control[0]),
+                        SortCancelledException.class);
+                Arrays.sort(actual);
+                Assert.assertArrayEquals(expected, actual);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
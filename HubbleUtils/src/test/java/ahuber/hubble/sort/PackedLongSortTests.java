@@ -0,0 +1,73 @@
+package ahuber.hubble.sort;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class PackedLongSortTests {
+    private final Random random = new Random();
+
+    @Test
+    public void testPacking() {
+        long packed = PackedLongSort.pack(-5, Integer.MAX_VALUE);
+        Assert.assertEquals(-5, PackedLongSort.value(packed));
+        Assert.assertEquals(Integer.MAX_VALUE, PackedLongSort.payload(packed));
+
+        int[] values = {3, -1, 4};
+        long[] packedValues = PackedLongSort.pack(values);
+        Assert.assertArrayEquals(values, PackedLongSort.values(packedValues));
+        Assert.assertArrayEquals(new int[]{0, 1, 2}, PackedLongSort.payloads(packedValues));
+    }
+
+    @Test
+    public void testSorts() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (int length : new int[]{0, 1, 31, 1000, 1 << 17}) {
+                assertSorted(random.ints(length, 0, 4097).toArray(), pool);
+                assertSorted(random.ints(length).toArray(), pool);
+                assertSorted(random.ints(length, -2, 2).toArray(), pool);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testArgsort() {
+        int[] values = random.ints(100_000, 0, 4097).toArray();
+        int[] permutation = PackedLongSort.argsort(values, ForkJoinPool.commonPool());
+        int[] expected = IntStream.range(0, values.length).boxed()
+                .sorted(Comparator.comparingInt(i -> values[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        Assert.assertArrayEquals(expected, permutation);
+    }
+
+    private static void assertSorted(int[] values, ForkJoinPool pool) {
+        // Payloads are deliberately not in ascending order, so that stability is checked against the input order
+        long[] packed = new long[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            packed[i] = PackedLongSort.pack(values[i], values.length - i);
+        }
+
+        Long[] boxed = Arrays.stream(packed).boxed().toArray(Long[]::new);
+        Arrays.sort(boxed, Comparator.comparingInt(PackedLongSort::value));
+        long[] expected = Arrays.stream(boxed).mapToLong(Long::longValue).toArray();
+
+        long[] merged = packed.clone();
+        PackedLongSort.mergeSort(merged, pool);
+        Assert.assertArrayEquals(expected, merged);
+
+        long[] radix = packed.clone();
+        PackedLongSort.radixSort(radix, pool);
+        Assert.assertArrayEquals(expected, radix);
+    }
+}
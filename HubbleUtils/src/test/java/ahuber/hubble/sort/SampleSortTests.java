@@ -0,0 +1,44 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.adt.ArrayUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class SampleSortTests {
+    private final Random random = new Random();
+
+    @Test
+    public void testSampleSortSmall() {
+        int[] actual = ArrayUtils.revRange(0, 100).toArray();
+        int[] expected = IntStream.range(0, 100).toArray();
+        SampleSortInt.sort(actual);
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testSampleSortLarge() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            assertSorted(random.ints(1 << 18, 0, 4097).toArray(), pool);
+            assertSorted(random.ints(1 << 18).toArray(), pool);
+            assertSorted(ArrayUtils.revRange(0, 1 << 18).toArray(), pool);
+            assertSorted(random.ints(1 << 18, 0, 3).toArray(), pool);
+            assertSorted(new int[1 << 18], pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertSorted(int[] actual, ForkJoinPool pool) {
+        int[] expected = actual.clone();
+        Arrays.sort(expected);
+        SampleSortInt.sort(actual, pool);
+        Assert.assertArrayEquals(expected, actual);
+    }
+}
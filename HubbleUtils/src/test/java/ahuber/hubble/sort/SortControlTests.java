@@ -0,0 +1,106 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.testing.TestingUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class SortControlTests {
+    private final Random random = new Random();
+
+    @Test
+    public void testProgress() {
+        List<Double> progress = Collections.synchronizedList(new ArrayList<>());
+        int[] actual = random.ints(100_000, 0, 4097).toArray();
+        int[] expected = actual.clone();
+        Arrays.sort(expected);
+        MergeSortInt.sort(actual, 100, ForkJoinPool.commonPool(), new SortControl(null, progress::add));
+
+        Assert.assertArrayEquals(expected, actual);
+        Assert.assertEquals(0, progress.get(0), 0);
+        Assert.assertEquals(1, progress.get(progress.size() - 1), 0);
+        Assert.assertTrue(progress.size() <= 101);
+    }
+
+    @Test
+    public void testCancelledSortKeepsValues() {
+        for (String name : Arrays.asList(Sorters.MERGE_SORT, Sorters.SAMPLE_SORT, Sorters.PARALLEL_SORT)) {
+            int[] actual = random.ints(1 << 17, 0, 4097).toArray();
+            int[] expected = actual.clone();
+            Arrays.sort(expected);
+            SortControl control = new SortControl();
+            control.cancel();
+
+            TestingUtilities.assertExceptionThrown(() -> Sorters.get(name).sort(actual, 100, control),
+                    SortCancelledException.class);
+            Arrays.sort(actual);
+            Assert.assertArrayEquals(name, expected, actual);
+        }
+    }
+
+    @Test
+    public void testCancelDuringSort() {
+        int[] actual = random.ints(1 << 17, 0, 4097).toArray();
+        int[] expected = actual.clone();
+        Arrays.sort(expected);
+        SortControl[] control = new SortControl[1];
+        control[0] = new SortControl(null, fraction -> {
+            if (fraction >= 0.5) {
+                control[0].cancel();
+            }
+        });
+
+        TestingUtilities.assertExceptionThrown(() -> MergeSortInt.sort(actual, 100, control[0]),
+                SortCancelledException.class);
+        Assert.assertTrue(control[0].getProgress() < 1);
+        Arrays.sort(actual);
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testDeadline() throws InterruptedException {
+        SortControl control = new SortControl(Duration.ZERO, null);
+        Assert.assertTrue(control.isDeadlineExceeded());
+        Assert.assertTrue(control.fork().isCancelled());
+        TestingUtilities.assertExceptionThrown(() -> SampleSortInt.sort(new int[1 << 17], ForkJoinPool.commonPool(),
+                control), SortCancelledException.class);
+
+        SortControl unlimited = new SortControl(Duration.ofDays(1), null);
+        Assert.assertFalse(unlimited.isCancelled());
+        SortControl fork = unlimited.fork();
+        unlimited.cancel();
+        Assert.assertTrue(fork.isCancelled());
+    }
+
+    @Test
+    public void testAbandonIncrementalSort() throws InterruptedException {
+        SortControl control = new SortControl();
+        IncrementalSortInt incrementalSort = new IncrementalSortInt(100, Sorters.get(null), 10, Runnable::run,
+                control);
+        int[] values = random.ints(1000, 0, 4097).toArray();
+        incrementalSort.add(Arrays.copyOfRange(values, 0, 500));
+        control.cancel();
+        incrementalSort.add(Arrays.copyOfRange(values, 500, 1000));
+
+        TestingUtilities.assertExceptionThrown(() -> {
+            try {
+                incrementalSort.finish();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, SortCancelledException.class);
+
+        Assert.assertFalse(incrementalSort.isSorted());
+        int[] abandoned = incrementalSort.abandon();
+        Arrays.sort(abandoned);
+        Arrays.sort(values);
+        Assert.assertArrayEquals(values, abandoned);
+    }
+}
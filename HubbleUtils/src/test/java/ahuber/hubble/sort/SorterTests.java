@@ -0,0 +1,59 @@
+package ahuber.hubble.sort;
+
+import ahuber.hubble.testing.TestingUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SorterTests {
+    private final Random random = new Random();
+
+    @Test
+    public void testRegisteredSorters() {
+        Assert.assertTrue(Sorters.getNames().containsAll(Arrays.asList(Sorters.MERGE_SORT, Sorters.SAMPLE_SORT,
+                Sorters.PARALLEL_SORT, Sorters.EXTERNAL_MERGE_SORT)));
+
+        for (String name : Sorters.getNames()) {
+            Sorter sorter = Sorters.get(name);
+            Assert.assertEquals(name, sorter.getName());
+
+            if (name.equals(Sorters.PRESORTED)) {
+                continue;
+            }
+
+            int[] actual = random.ints(10_000, 0, 4097).toArray();
+            int[] expected = actual.clone();
+            Arrays.sort(expected);
+            sorter.sort(actual, 100);
+            Assert.assertArrayEquals(name, expected, actual);
+        }
+    }
+
+    @Test
+    public void testPresortedSorter() {
+        int[] actual = random.ints(100).toArray();
+        int[] expected = actual.clone();
+        Sorters.get(Sorters.PRESORTED).sort(actual, 10);
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testDefaultSorter() {
+        Assert.assertEquals(Sorters.DEFAULT_ALGORITHM, Sorters.get(null).getName());
+    }
+
+    @Test
+    public void testUnknownSorter() {
+        TestingUtilities.assertExceptionThrown(() -> Sorters.get("bogo-sort"), IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testRegister() {
+        Sorters.register(Sorters.create("arrays-sort", (array, threshold) -> Arrays.sort(array)));
+        int[] actual = {3, 1, 2};
+        Sorters.get("arrays-sort").sort(actual, 2);
+        Assert.assertArrayEquals(new int[]{1, 2, 3}, actual);
+    }
+}
@@ -0,0 +1,131 @@
+package ahuber.hubble.stats;
+
+import ahuber.hubble.testing.TestingUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class FrameStatisticsTests {
+    private static final double[] PERCENTILES = {0, 1, 25, 50, 75, 99.9, 100};
+
+    private final Random random = new Random();
+
+    @Test
+    public void testSelect() {
+        int[] array = random.ints(1000).toArray();
+        int[] sorted = array.clone();
+        Arrays.sort(sorted);
+
+        for (int rank : new int[]{0, 1, 499, 500, 998, 999}) {
+            int[] copy = array.clone();
+            Assert.assertEquals(sorted[rank], FrameStatistics.select(copy, rank));
+            assertPartitioned(copy, rank);
+        }
+    }
+
+    @Test
+    public void testParallelSelect() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            assertSelected(random.ints(1 << 18).toArray(), pool);
+            assertSelected(random.ints(1 << 18, 0, 3).toArray(), pool);
+            assertSelected(new int[1 << 18], pool);
+
+            int[] ascending = new int[1 << 18];
+            Arrays.setAll(ascending, i -> i);
+            assertSelected(ascending, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testTop() {
+        int[] array = random.ints(100_000).toArray();
+        int[] sorted = array.clone();
+        Arrays.sort(sorted);
+        int[] top = FrameStatistics.top(array, 10, ForkJoinPool.commonPool());
+
+        for (int i = 0; i < top.length; i++) {
+            Assert.assertEquals(sorted[sorted.length - 1 - i], top[i]);
+        }
+
+        Assert.assertEquals(3, FrameStatistics.top(new int[]{1, 2, 3}, 10, ForkJoinPool.commonPool()).length);
+    }
+
+    @Test
+    public void testHistogramMatchesSelection() {
+        int[] frame = random.ints(100_000, FrameStatistics.MIN_VALUE, FrameStatistics.MAX_VALUE + 1).toArray();
+        int[] sorted = frame.clone();
+        Arrays.sort(sorted);
+        long[] histogram = FrameStatistics.histogram(frame);
+        Assert.assertEquals(frame.length, Arrays.stream(histogram).sum());
+
+        int[] values = FrameStatistics.percentiles(frame, PERCENTILES, ForkJoinPool.commonPool());
+
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            long rank = FrameStatistics.rankOf(PERCENTILES[i], frame.length);
+            Assert.assertEquals(sorted[(int) rank], values[i]);
+            Assert.assertEquals(sorted[(int) rank], FrameStatistics.select(histogram, rank));
+        }
+    }
+
+    @Test
+    public void testSummarize() {
+        int[] frame = random.ints(50_000, FrameStatistics.MIN_VALUE, FrameStatistics.MAX_VALUE + 1).toArray();
+
+        // Shifting the frame out of the histogram's range forces the selection path
+        int[] shifted = Arrays.stream(frame).map(value -> value - 10_000).toArray();
+        FrameSummary summary = FrameStatistics.summarize(frame, PERCENTILES, 5, ForkJoinPool.commonPool());
+        FrameSummary shiftedSummary = FrameStatistics.summarize(shifted, PERCENTILES, 5, ForkJoinPool.commonPool());
+
+        Assert.assertEquals(frame.length, summary.getCount());
+        Assert.assertEquals(Arrays.stream(frame).min().getAsInt(), summary.getMin());
+        Assert.assertEquals(Arrays.stream(frame).max().getAsInt(), summary.getMax());
+        Assert.assertEquals(Arrays.stream(frame).average().getAsDouble(), summary.getMean(), 1e-9);
+
+        Assert.assertEquals(summary.getCount(), shiftedSummary.getCount());
+        Assert.assertEquals(summary.getMin() - 10_000, shiftedSummary.getMin());
+        Assert.assertEquals(summary.getMax() - 10_000, shiftedSummary.getMax());
+        Assert.assertEquals(summary.getMean() - 10_000, shiftedSummary.getMean(), 1e-9);
+        Assert.assertEquals(summary.getMedian() - 10_000, shiftedSummary.getMedian());
+        Assert.assertArrayEquals(Arrays.stream(summary.getPercentileValues()).map(value -> value - 10_000).toArray(),
+                shiftedSummary.getPercentileValues());
+        Assert.assertArrayEquals(Arrays.stream(summary.getTop()).map(value -> value - 10_000).toArray(),
+                shiftedSummary.getTop());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        TestingUtilities.assertExceptionThrown(() -> FrameStatistics.histogram(new int[]{4097}),
+                IllegalArgumentException.class);
+        TestingUtilities.assertExceptionThrown(() -> FrameStatistics.select(new int[]{1, 2}, 2),
+                IllegalArgumentException.class);
+        TestingUtilities.assertExceptionThrown(() -> FrameStatistics.rankOf(100.5, 10),
+                IllegalArgumentException.class);
+        TestingUtilities.assertExceptionThrown(() -> FrameStatistics.summarize(new int[0], ForkJoinPool.commonPool()),
+                IllegalArgumentException.class);
+    }
+
+    private void assertSelected(int[] array, ForkJoinPool pool) {
+        int[] sorted = array.clone();
+        Arrays.sort(sorted);
+        int[] ranks = {array.length - 1, 0, array.length / 2, 12345, 12345, 200_000};
+        int[] values = FrameStatistics.select(array, ranks, pool);
+
+        for (int i = 0; i < ranks.length; i++) {
+            Assert.assertEquals(sorted[ranks[i]], values[i]);
+            assertPartitioned(array, ranks[i]);
+        }
+    }
+
+    private static void assertPartitioned(int[] array, int rank) {
+        for (int i = 0; i < array.length; i++) {
+            Assert.assertTrue(i < rank ? array[i] <= array[rank] : array[i] >= array[rank]);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ahuber.hubble.utils;
+
+import ahuber.hubble.sort.Sorters;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DeadlinePlannerTests {
+
+    // A frame of 2048 x 2048 values, which a Merge Sort with this threshold sorts in about 27 seconds with the default
+    // throughput, and any other algorithm in about 2 seconds
+    private static final long VALUES = 1 << 22;
+    private static final int THRESHOLD = 1000;
+
+    @Test
+    public void testNoDeadline() {
+        DeadlinePlanner planner = new DeadlinePlanner(new ThroughputModel(), null, Duration.ZERO);
+        DeadlinePlanner.Plan plan = planner.planRun(Sorters.MERGE_SORT, VALUES, THRESHOLD);
+        Assert.assertEquals(Sorters.MERGE_SORT, plan.getAlgorithm());
+        Assert.assertEquals(1, plan.getScale());
+        Assert.assertFalse(plan.isHandOff());
+        Assert.assertTrue(plan.isOnTime());
+        Assert.assertNull(planner.getAvailable());
+        Assert.assertNull(planner.getRemaining());
+    }
+
+    @Test
+    public void testStrategies() {
+        ThroughputModel model = new ThroughputModel();
+
+        // Enough time for the requested algorithm
+        DeadlinePlanner.Plan plan = createPlanner(model, 60, new AtomicLong())
+                .planFrame(Sorters.MERGE_SORT, VALUES, THRESHOLD, 0);
+        Assert.assertEquals(Sorters.MERGE_SORT, plan.getAlgorithm());
+        Assert.assertEquals(1, plan.getScale());
+
+        // A faster algorithm produces the same image in time
+        plan = createPlanner(model, 10, new AtomicLong()).planFrame(Sorters.MERGE_SORT, VALUES, THRESHOLD, 0);
+        Assert.assertEquals(Sorters.SAMPLE_SORT, plan.getAlgorithm());
+        Assert.assertEquals(1, plan.getScale());
+        Assert.assertFalse(plan.isHandOff());
+        Assert.assertTrue(plan.isOnTime());
+
+        // Only a downscaled image can be rendered, encoded, and uploaded in time
+        plan = createPlanner(model, 2.8, new AtomicLong()).planFrame(Sorters.MERGE_SORT, VALUES, THRESHOLD, 0);
+        Assert.assertEquals(Sorters.SAMPLE_SORT, plan.getAlgorithm());
+        Assert.assertEquals(2, plan.getScale());
+        Assert.assertTrue(plan.isOnTime());
+
+        // Not even the fastest algorithm sorts the frame in time
+        plan = createPlanner(model, 1, new AtomicLong()).planFrame(Sorters.MERGE_SORT, VALUES, THRESHOLD, 0);
+        Assert.assertTrue(plan.isHandOff());
+        Assert.assertEquals(Sorters.SAMPLE_SORT, plan.getAlgorithm());
+        Assert.assertEquals(DeadlinePlanner.MAX_SCALE, plan.getScale());
+    }
+
+    @Test
+    public void testDeadlineApproaches() {
+        ThroughputModel model = new ThroughputModel();
+        AtomicLong now = new AtomicLong();
+        DeadlinePlanner planner = createPlanner(model, 10, now);
+        Assert.assertFalse(planner.planFrame(Sorters.SAMPLE_SORT, VALUES, THRESHOLD, 0).isHandOff());
+
+        // The frames ahead of this one hold it up in the sort, which is the slowest stage
+        Assert.assertTrue(planner.planFrame(Sorters.SAMPLE_SORT, VALUES, THRESHOLD, 4).isHandOff());
+
+        // Collecting the frame takes time as well
+        DeadlinePlanner.Plan run = planner.planRun(Sorters.SAMPLE_SORT, VALUES, THRESHOLD);
+        DeadlinePlanner.Plan frame = planner.planFrame(Sorters.SAMPLE_SORT, VALUES, THRESHOLD, 0);
+        Assert.assertEquals(model.estimateNanos(ThroughputModel.Stage.COLLECT, VALUES),
+                run.getEstimatedNanos() - frame.getEstimatedNanos());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(8));
+        Assert.assertEquals(Duration.ofSeconds(2), planner.getAvailable());
+        Assert.assertEquals(Duration.ofSeconds(2), planner.getRemaining());
+        Assert.assertTrue(planner.planFrame(Sorters.SAMPLE_SORT, VALUES, THRESHOLD, 0).isHandOff());
+    }
+
+    @Test
+    public void testRecord() {
+        ThroughputModel model = new ThroughputModel();
+        double render = model.getThroughput(ThroughputModel.Stage.RENDER);
+
+        // A measurement moves the throughput halfway towards the measured one
+        model.record(ThroughputModel.Stage.RENDER, (long) (render * 3), TimeUnit.SECONDS.toNanos(1));
+        Assert.assertEquals(render * 2, model.getThroughput(ThroughputModel.Stage.RENDER), 1);
+
+        // Measurements that are too short to mean anything are ignored
+        model.record(ThroughputModel.Stage.RENDER, 1_000_000, 10);
+        Assert.assertEquals(render * 2, model.getThroughput(ThroughputModel.Stage.RENDER), 1);
+
+        // A faster sort changes the algorithm that the planner picks
+        long nanos = TimeUnit.SECONDS.toNanos(1);
+        model.recordSort(Sorters.PARALLEL_SORT, VALUES, THRESHOLD, nanos);
+        Assert.assertTrue(model.estimateSortNanos(Sorters.PARALLEL_SORT, VALUES, THRESHOLD) <
+                model.estimateSortNanos(Sorters.SAMPLE_SORT, VALUES, THRESHOLD));
+        Assert.assertEquals(Sorters.PARALLEL_SORT, createPlanner(model, 10, new AtomicLong())
+                .planFrame(Sorters.MERGE_SORT, VALUES, THRESHOLD, 0).getAlgorithm());
+
+        double bytesPerPixel = model.getBytesPerPixel();
+        model.recordEncoding(1000, (long) (1000 * bytesPerPixel * 3), nanos);
+        Assert.assertEquals(bytesPerPixel * 2, model.getBytesPerPixel(), 1e-9);
+    }
+
+    @Test
+    public void testSortWork() {
+        Assert.assertEquals(0, ThroughputModel.getSortWork(Sorters.PRESORTED, VALUES, THRESHOLD), 0);
+        Assert.assertEquals(VALUES * 22.0, ThroughputModel.getSortWork(Sorters.SAMPLE_SORT, VALUES, THRESHOLD), 1e-6);
+
+        // The insertion sorts of a Merge Sort take longer as the threshold grows
+        Assert.assertTrue(ThroughputModel.getSortWork(Sorters.MERGE_SORT, VALUES, 10) <
+                ThroughputModel.getSortWork(Sorters.MERGE_SORT, VALUES, THRESHOLD));
+    }
+
+    @Test
+    public void testCalibrate() {
+        ThroughputModel model = new ThroughputModel();
+        model.calibrate(1 << 12, 10, DeadlinePlanner.DEFAULT_CANDIDATES);
+
+        for (String algorithm : DeadlinePlanner.DEFAULT_CANDIDATES) {
+            Assert.assertTrue(model.getSortThroughput(algorithm) != ThroughputModel.DEFAULT_SORT_THROUGHPUT);
+            Assert.assertTrue(model.getSortThroughput(algorithm) > 0);
+        }
+
+        Assert.assertTrue(model.getThroughput(ThroughputModel.Stage.RENDER) > 0);
+        Assert.assertTrue(model.getThroughput(ThroughputModel.Stage.ENCODE) > 0);
+        Assert.assertTrue(model.getBytesPerPixel() > 0);
+    }
+
+    private static DeadlinePlanner createPlanner(ThroughputModel model, double seconds, AtomicLong now) {
+        return new DeadlinePlanner(model, Duration.ofMillis((long) (seconds * 1000)), Duration.ZERO,
+                DeadlinePlanner.DEFAULT_CANDIDATES, now::get);
+    }
+}
@@ -0,0 +1,57 @@
+package ahuber.hubble.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ExecutionModeTests {
+
+    @Test
+    public void testPlatformThreads() throws InterruptedException {
+        Assert.assertTrue(ExecutionMode.PLATFORM.isSupported());
+        AtomicReference<String> name = new AtomicReference<>();
+        Thread thread = ExecutionMode.PLATFORM.newThread(() -> name.set(Thread.currentThread().getName()), "Role");
+        Assert.assertFalse(thread.isAlive());
+
+        thread.start();
+        thread.join();
+        Assert.assertEquals("Role", name.get());
+    }
+
+    @Test
+    public void testExecutor() throws InterruptedException {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            ExecutionMode supported = mode.orPlatform();
+            Assert.assertTrue(supported.isSupported());
+
+            Executor executor = supported.newExecutor("Simulation");
+            CountDownLatch latch = new CountDownLatch(100);
+
+            for (int i = 0; i < 100; i++) {
+                executor.execute(latch::countDown);
+            }
+
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testUnsupportedVirtualThreads() {
+        if (ExecutionMode.VIRTUAL.isSupported()) {
+            return;
+        }
+
+        Assert.assertEquals(ExecutionMode.PLATFORM, ExecutionMode.VIRTUAL.orPlatform());
+
+        try {
+            ExecutionMode.VIRTUAL.newThread(() -> { }, "Role");
+            Assert.fail("Virtual threads should not be available before Java 21.");
+        } catch (UnsupportedOperationException expected) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ahuber.hubble.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class ForEachActionTests {
+
+    @Test
+    public void testForEach() {
+        AtomicIntegerArray visits = new AtomicIntegerArray(100);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            pool.invoke(new ForEachAction(0, visits.length(), visits::incrementAndGet));
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int index = 0; index < visits.length(); index++) {
+            Assert.assertEquals(1, visits.get(index));
+        }
+    }
+
+    @Test
+    public void testEmptyRange() {
+        // An empty range used to be split forever
+        new ForEachAction(5, 5, index -> Assert.fail("An empty range has no indices.")).invoke();
+    }
+}
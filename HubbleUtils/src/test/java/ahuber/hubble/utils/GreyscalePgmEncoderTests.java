@@ -0,0 +1,78 @@
+package ahuber.hubble.utils;
+
+import ahuber.hubble.stats.FrameStatistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class GreyscalePgmEncoderTests {
+
+    @Test
+    public void testEncode() throws IOException {
+        int[] data = new SplittableRandom(10).ints(20 * 20, 0, 4097).toArray();
+        data[0] = -5;
+        data[1] = 5000;
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long written = new GreyscalePgmEncoder().encode(data, outputStream);
+        byte[] bytes = outputStream.toByteArray();
+        Assert.assertEquals(bytes.length, written);
+
+        // The header gives the width, the height, and the value of white, and is followed by two bytes per value
+        byte[] header = "P5\n20 20\n4096\n".getBytes(StandardCharsets.US_ASCII);
+        Assert.assertEquals(header.length + data.length * 2, bytes.length);
+
+        for (int index = 0; index < header.length; index++) {
+            Assert.assertEquals(header[index], bytes[index]);
+        }
+
+        // The values are stored as they are, except for the ones outside of the range 0 to 4096
+        for (int index = 0; index < data.length; index++) {
+            int offset = header.length + 2 * index;
+            int value = (bytes[offset] & 0xFF) << 8 | bytes[offset + 1] & 0xFF;
+            Assert.assertEquals(Math.max(0, Math.min(GreyscalePgmEncoder.MAX_VALUE, data[index])), value);
+        }
+    }
+
+    @Test
+    public void testEncodeHistogram() throws IOException {
+        // Runs that span several rows are written as if the sorted values had been encoded
+        int[] data = new SplittableRandom(12).ints(30 * 30, 0, 4097).toArray();
+        long[] histogram = FrameStatistics.histogram(data);
+        Arrays.sort(data);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new GreyscalePgmEncoder().encode(data, expected);
+        Assert.assertEquals(expected.size(), new GreyscalePgmEncoder().encode(histogram, actual));
+        Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+        try {
+            new GreyscalePgmEncoder().encode(new long[FrameStatistics.HISTOGRAM_LENGTH], actual);
+            Assert.fail("An image needs at least one value.");
+        } catch (IllegalArgumentException expectedException) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testEncodeRows() throws IOException {
+        // Values after the last full row are left out
+        IntBuffer frame = IntBuffer.wrap(new int[] {1, 2, 3, 4, 5, 6, 7});
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new GreyscalePgmEncoder().encode(frame, 3, outputStream);
+        Assert.assertEquals(0, frame.position());
+        Assert.assertEquals("P5\n3 2\n4096\n".length() + 12, outputStream.size());
+
+        try {
+            new GreyscalePgmEncoder().encode(frame, 0, outputStream);
+            Assert.fail("A row needs at least one value.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+}
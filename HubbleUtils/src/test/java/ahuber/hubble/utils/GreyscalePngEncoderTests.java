@@ -0,0 +1,137 @@
+package ahuber.hubble.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+public class GreyscalePngEncoderTests {
+
+    @Test
+    public void testEncode() throws IOException {
+        int[] data = new SplittableRandom(3).ints(64 * 64, 0, 4097).toArray();
+        Arrays.sort(data);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long written = new GreyscalePngEncoder().encode(data, outputStream);
+        Assert.assertEquals(outputStream.size(), written);
+
+        // The image has the same pixels as the one that SatelliteImageWriter renders
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertSamePixels(SatelliteImageWriter.writeGreyscaleImage(data), image);
+    }
+
+    @Test
+    public void testEncodeOffHeap() throws IOException {
+        // A direct buffer of 3 rows of 5 values, and one value that does not fill a row
+        int[] values = new SplittableRandom(4).ints(16, 0, 4097).toArray();
+        IntBuffer frame = ByteBuffer.allocateDirect(values.length * Integer.BYTES).asIntBuffer();
+        frame.put(values).flip();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new GreyscalePngEncoder(Deflater.BEST_COMPRESSION).encode(frame, 5, Channels.newChannel(outputStream));
+        Assert.assertEquals(0, frame.position());
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        Assert.assertEquals(5, image.getWidth());
+        Assert.assertEquals(3, image.getHeight());
+
+        for (int index = 0; index < 15; index++) {
+            Assert.assertEquals(Utils.normalize(values[index]), image.getRaster().getSample(index % 5, index / 5, 0));
+        }
+    }
+
+    @Test
+    public void testEncodeInChunks() throws IOException {
+        // Without compression, random values take several chunks of image data
+        int[] data = new SplittableRandom(5).ints(512 * 512, -10, 5000).toArray();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long written = new GreyscalePngEncoder(Deflater.NO_COMPRESSION).encode(data, outputStream);
+        Assert.assertTrue(written > 4 * (1 << 16));
+        Assert.assertEquals(outputStream.size(), written);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertSamePixels(SatelliteImageWriter.writeGreyscaleImageByPixel(data), image);
+    }
+
+    @Test
+    public void testEncodeInParallel() throws IOException {
+        // Enough rows for several bands, each of which is compressed on its own
+        int[] data = new SplittableRandom(8).ints(1500 * 1500, 0, 4097).toArray();
+        Arrays.sort(data, 0, data.length / 2);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long written = new GreyscalePngEncoder().encode(data, outputStream, pool);
+        Assert.assertEquals(outputStream.size(), written);
+
+        // The image data is a valid zlib stream, including its checksum, so it decodes to the same pixels
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertSamePixels(SatelliteImageWriter.writeGreyscaleImage(data), image);
+
+        ByteArrayOutputStream wide = new ByteArrayOutputStream();
+        new GreyscalePngEncoder(Deflater.DEFAULT_COMPRESSION, 16).encode(data, wide, pool);
+        assertSamePixels(read16(new GreyscalePngEncoder(Deflater.DEFAULT_COMPRESSION, 16), data),
+                ImageIO.read(new ByteArrayInputStream(wide.toByteArray())));
+        pool.shutdown();
+    }
+
+    @Test
+    public void testEncode16Bit() throws IOException {
+        int[] data = new SplittableRandom(9).ints(32 * 32, 0, 4097).toArray();
+        data[0] = 0;
+        data[1] = 4096;
+        data[2] = 5000;
+        BufferedImage image = read16(new GreyscalePngEncoder(Deflater.BEST_SPEED, 16), data);
+        Assert.assertEquals(16, image.getColorModel().getComponentSize(0));
+        Assert.assertEquals(0, image.getRaster().getSample(0, 0, 0));
+        Assert.assertEquals(65535, image.getRaster().getSample(1, 0, 0));
+        Assert.assertEquals(65535, image.getRaster().getSample(2, 0, 0));
+
+        // Every one of the values 0 to 4096 keeps its own shade of grey, in the same order
+        for (int index = 3; index < data.length; index++) {
+            int expected = (int) Math.round(data[index] * 65535.0 / 4096.0);
+            Assert.assertEquals(expected, image.getRaster().getSample(index % 32, index / 32, 0));
+        }
+
+        try {
+            new GreyscalePngEncoder(Deflater.BEST_SPEED, 12);
+            Assert.fail("A PNG image is either 8-bit or 16-bit.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testEncodeEmpty() throws IOException {
+        try {
+            new GreyscalePngEncoder().encode(new int[0], new ByteArrayOutputStream());
+            Assert.fail("An image needs at least one pixel.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static BufferedImage read16(GreyscalePngEncoder encoder, int[] data) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encoder.encode(data, outputStream);
+        return ImageIO.read(new ByteArrayInputStream(outputStream.toByteArray()));
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        Assert.assertEquals(width, actual.getWidth());
+        Assert.assertEquals(height, actual.getHeight());
+        Assert.assertArrayEquals(expected.getRaster().getPixels(0, 0, width, height, (int[]) null),
+                actual.getRaster().getPixels(0, 0, width, height, (int[]) null));
+    }
+}
@@ -0,0 +1,113 @@
+package ahuber.hubble.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PacingClockTests {
+
+    @Test
+    public void testVirtualClockOrder() {
+        VirtualClock clock = new VirtualClock();
+        List<String> order = new ArrayList<>();
+        clock.schedule(300, () -> order.add("c"));
+        clock.schedule(100, () -> order.add("a"));
+        clock.schedule(200, () -> {
+            order.add("b");
+
+            // A task that is scheduled by a task is delayed relative to the time at which that task ran
+            clock.schedule(50, () -> order.add("b+50@" + clock.nanoTime()));
+        });
+        clock.schedule(300, () -> order.add("d"));
+
+        Assert.assertEquals(0, clock.nanoTime());
+        Assert.assertEquals(5, clock.runUntilIdle());
+        Assert.assertEquals(Arrays.asList("a", "b", "b+50@250", "c", "d"), order);
+        Assert.assertEquals(300, clock.nanoTime());
+        Assert.assertEquals(0, clock.getPendingCount());
+        Assert.assertFalse(clock.runNext());
+    }
+
+    @Test
+    public void testVirtualClockAdvance() {
+        VirtualClock clock = new VirtualClock();
+        AtomicLong runs = new AtomicLong();
+        Runnable[] task = new Runnable[1];
+        task[0] = () -> {
+            runs.incrementAndGet();
+            clock.schedule(TimeUnit.MILLISECONDS.toNanos(10), task[0]);
+        };
+        clock.schedule(TimeUnit.MILLISECONDS.toNanos(10), task[0]);
+
+        // A day of simulated time runs at CPU speed
+        Assert.assertEquals(8_640_000, clock.advance(Duration.ofDays(1)));
+        Assert.assertEquals(Duration.ofDays(1).toNanos(), clock.nanoTime());
+        Assert.assertEquals(1, clock.getPendingCount());
+
+        Assert.assertTrue(clock.runUntil(() -> runs.get() == 8_640_005));
+        Assert.assertEquals(Duration.ofDays(1).plusMillis(50).toNanos(), clock.nanoTime());
+
+        try {
+            clock.advance(Duration.ofMillis(-1));
+            Assert.fail("The clock cannot go back.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testTimerWheel() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        int taskCount = 2000;
+        CountDownLatch finished = new CountDownLatch(taskCount);
+        AtomicLong early = new AtomicLong();
+
+        // Use a small wheel, so that some of the delays need more than one turn
+        try (HashedTimerWheel wheel = new HashedTimerWheel(Duration.ofMillis(1), 16, executor)) {
+            for (int i = 0; i < taskCount; i++) {
+                long delay = TimeUnit.MILLISECONDS.toNanos(i % 50);
+                long due = wheel.nanoTime() + delay;
+                wheel.schedule(delay, () -> {
+                    if (wheel.nanoTime() < due) {
+                        early.incrementAndGet();
+                    }
+
+                    finished.countDown();
+                });
+            }
+
+            Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, early.get());
+            Assert.assertEquals(0, wheel.getPendingCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testClosedTimerWheel() {
+        HashedTimerWheel wheel = new HashedTimerWheel();
+        wheel.close();
+
+        try {
+            wheel.schedule(0, () -> { });
+            Assert.fail("A closed timer wheel should not accept tasks.");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        // Closing a wheel on an interrupted thread keeps the thread interrupted
+        Thread.currentThread().interrupt();
+        new HashedTimerWheel().close();
+        Assert.assertTrue(Thread.interrupted());
+    }
+}
@@ -0,0 +1,100 @@
+package ahuber.hubble.utils;
+
+import ahuber.hubble.stats.FrameStatistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class RunLengthRendererTests {
+
+    @Test
+    public void testRender() {
+        // The image drawn from the counts is the image of the sorted frame
+        int[] data = new SplittableRandom(11).ints(300 * 300, 0, 4097).toArray();
+        long[] histogram = FrameStatistics.histogram(data);
+        Arrays.sort(data);
+        byte[] expected = pixels(SatelliteImageWriter.writeGreyscaleImage(data));
+        Assert.assertArrayEquals(expected, RunLengthRenderer.render(histogram));
+
+        BufferedImage image = SatelliteImageWriter.writeGreyscaleImage(histogram);
+        Assert.assertEquals(300, image.getWidth());
+        Assert.assertArrayEquals(expected, pixels(image));
+        Assert.assertArrayEquals(data, RunLengthRenderer.expand(histogram));
+    }
+
+    @Test
+    public void testRenderPartialSquare() throws IOException {
+        // The largest values are left out if they do not fill a whole square, just like with a sorted frame
+        long[] histogram = new long[FrameStatistics.HISTOGRAM_LENGTH];
+        histogram[0] = 5;
+        histogram[2048] = 4;
+        histogram[4096] = 3;
+        Assert.assertEquals(3, RunLengthRenderer.getLength(histogram));
+        int[] sorted = {0, 0, 0, 0, 0, 2048, 2048, 2048, 2048};
+        Assert.assertArrayEquals(sorted, RunLengthRenderer.expand(histogram));
+
+        // Each lossless format encodes the same image from the counts as from the sorted values
+
+        for (ImageFormat format : new ImageFormat[] {ImageFormat.PNG, ImageFormat.PNG_16, ImageFormat.PGM}) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            format.encode(sorted, expected);
+            format.encode(histogram, actual);
+
+            if (format == ImageFormat.PGM) {
+                Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+                continue;
+            }
+
+            // The PNG images may be compressed differently, but have the same pixels
+            Raster expectedRaster = ImageIO.read(new ByteArrayInputStream(expected.toByteArray())).getRaster();
+            Raster actualRaster = ImageIO.read(new ByteArrayInputStream(actual.toByteArray())).getRaster();
+            Assert.assertArrayEquals(format.toString(), expectedRaster.getPixels(0, 0, 3, 3, (int[]) null),
+                    actualRaster.getPixels(0, 0, 3, 3, (int[]) null));
+        }
+    }
+
+    @Test
+    public void testInvalidHistogram() {
+        try {
+            RunLengthRenderer.render(new long[10]);
+            Assert.fail("A histogram must have a count for each value.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        long[] histogram = new long[FrameStatistics.HISTOGRAM_LENGTH];
+        histogram[0] = 10;
+        histogram[1] = -1;
+
+        try {
+            RunLengthRenderer.render(histogram);
+            Assert.fail("A count cannot be negative.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+
+        histogram[1] = Integer.MAX_VALUE;
+        histogram[2] = Integer.MAX_VALUE;
+
+        try {
+            RunLengthRenderer.render(histogram);
+            Assert.fail("The pixels of the image must fit in an array.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,76 @@
+package ahuber.hubble.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class SatelliteImageWriterTests {
+
+    @Test
+    public void testWriteGreyscaleImage() {
+        int[] data = IntStream.range(0, 16).map(value -> value * 256).toArray();
+        BufferedImage image = SatelliteImageWriter.writeGreyscaleImage(data);
+        Assert.assertEquals(4, image.getWidth());
+        Assert.assertEquals(4, image.getHeight());
+
+        // The values are written row by row
+        for (int index = 0; index < data.length; index++) {
+            int pixel = image.getRaster().getSample(index % 4, index / 4, 0);
+            Assert.assertEquals(Utils.normalize(data[index]), pixel);
+        }
+    }
+
+    @Test
+    public void testWriteGreyscaleImageInBands() {
+        // Large enough to be written in several bands, with a few values outside of the range a satellite produces
+        int length = 1 << 10;
+        int[] data = new SplittableRandom(1).ints((long) length * length, 0, 4097).toArray();
+        data[0] = -1;
+        data[1] = 4097;
+        data[data.length - 1] = 100_000;
+        BufferedImage expected = SatelliteImageWriter.writeGreyscaleImageByPixel(data);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ForkJoinPool single = new ForkJoinPool(1);
+
+        try {
+            for (BufferedImage image : new BufferedImage[] {SatelliteImageWriter.writeGreyscaleImage(data),
+                    SatelliteImageWriter.writeGreyscaleImage(data, pool),
+                    SatelliteImageWriter.writeGreyscaleImage(data, single)}) {
+                Assert.assertEquals(BufferedImage.TYPE_BYTE_GRAY, image.getType());
+                Assert.assertArrayEquals(expected.getRaster().getPixels(0, 0, length, length, (int[]) null),
+                        image.getRaster().getPixels(0, 0, length, length, (int[]) null));
+            }
+        } finally {
+            pool.shutdown();
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testDownscale() {
+        int[] data = {
+                0, 2, 4, 6,
+                8, 10, 12, 14,
+                16, 18, 20, 22,
+                24, 26, 28, 30
+        };
+        Assert.assertArrayEquals(new int[] {5, 9, 21, 25}, SatelliteImageWriter.downscale(data, 2));
+        Assert.assertArrayEquals(new int[] {15}, SatelliteImageWriter.downscale(data, 4));
+        Assert.assertArrayEquals(data, SatelliteImageWriter.downscale(data, 1));
+
+        BufferedImage image = SatelliteImageWriter.writeGreyscaleImage(IntStream.range(0, 64).toArray(), 4);
+        Assert.assertEquals(2, image.getWidth());
+        Assert.assertEquals(2, image.getHeight());
+
+        try {
+            SatelliteImageWriter.downscale(data, 3);
+            Assert.fail("A scale of 3 does not divide a width of 4.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package ahuber.hubble.utils;
 
+import ahuber.hubble.adt.OverflowPolicy;
+import ahuber.hubble.aws.JobType;
+import ahuber.hubble.aws.PipelineConfiguration;
 import ahuber.hubble.aws.SatelliteConfiguration;
 import ahuber.hubble.aws.SparkJobConfiguration;
+import ahuber.hubble.sort.Sorters;
+import ahuber.hubble.stats.FrameStatistics;
+import ahuber.hubble.stats.FrameSummary;
 import com.amazonaws.jmespath.ObjectMapperSingleton;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 public class SerializationTest {
     @Test
@@ -26,4 +33,209 @@ public class SerializationTest {
                 .readValue(json, SparkJobConfiguration.class);
         Assert.assertEquals(deserialized, original);
     }
+
+    @Test
+    public void testSparkJobConfigurationAlgorithmSerialization() throws IOException {
+        SparkJobConfiguration original = SparkJobConfiguration.builder("Satellite Name", 1)
+                .algorithm(Sorters.SAMPLE_SORT)
+                .data(2, 3)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        SparkJobConfiguration deserialized = ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SparkJobConfiguration.class);
+        Assert.assertEquals(deserialized, original);
+        Assert.assertEquals(Sorters.SAMPLE_SORT, deserialized.getAlgorithm());
+    }
+
+    @Test
+    public void testJobTypeSerialization() throws IOException {
+        SparkJobConfiguration original = SparkJobConfiguration.builder("Satellite Name", 1)
+                .jobType(JobType.STATS_ONLY)
+                .data(2)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        Assert.assertTrue(json.contains("\"stats-only\""));
+        Assert.assertEquals(original, ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SparkJobConfiguration.class));
+
+        SatelliteConfiguration satelliteConfiguration = ObjectMapperSingleton.getObjectMapper()
+                .readValue("{\"i\": 8, \"j\": 1, \"jobType\": \"stats-only\"}", SatelliteConfiguration.class);
+        Assert.assertEquals(JobType.STATS_ONLY, satelliteConfiguration.getJobType());
+    }
+
+    @Test
+    public void testHistogramSerialization() throws IOException {
+        long[] histogram = new long[4097];
+        histogram[7] = 4;
+        SparkJobConfiguration original = SparkJobConfiguration.builder("Satellite Name", 1)
+                .jobType(JobType.HISTOGRAM)
+                .imageFormat(ImageFormat.PGM)
+                .histogram(histogram)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        Assert.assertTrue(json.contains("\"histogram\""));
+        SparkJobConfiguration deserialized = ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SparkJobConfiguration.class);
+        Assert.assertEquals(original, deserialized);
+        Assert.assertArrayEquals(histogram, deserialized.getHistogram());
+        Assert.assertEquals(0, deserialized.getData().length);
+
+        // Without the counts, a histogram job counts the data itself
+        Assert.assertNull(SparkJobConfiguration.builder("Satellite Name", 1)
+                .jobType(JobType.HISTOGRAM)
+                .data(2)
+                .build()
+                .getHistogram());
+    }
+
+    @Test
+    public void testStreamingSerialization() throws IOException {
+        SatelliteConfiguration original = SatelliteConfiguration.builder(8, 1)
+                .frameCount(100)
+                .durationSeconds(60)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        SatelliteConfiguration deserialized = ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SatelliteConfiguration.class);
+        Assert.assertEquals(original, deserialized);
+        Assert.assertEquals(Integer.valueOf(100), deserialized.getFrameCount());
+        Assert.assertEquals(Integer.valueOf(60), deserialized.getDurationSeconds());
+    }
+
+    @Test
+    public void testPipelineSerialization() throws IOException {
+        SatelliteConfiguration original = SatelliteConfiguration.builder(8, 1)
+                .pipeline(new PipelineConfiguration(2, null, 3, null, 4))
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        Assert.assertEquals(original, ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SatelliteConfiguration.class));
+
+        String pipelineJson = "{\"i\": 8, \"j\": 1, \"pipeline\": {\"encodeThreads\": 2}}";
+        PipelineConfiguration pipeline = ObjectMapperSingleton.getObjectMapper()
+                .readValue(pipelineJson, SatelliteConfiguration.class)
+                .getPipeline();
+        Assert.assertNotNull(pipeline);
+        Assert.assertEquals(PipelineConfiguration.DEFAULT_THREADS, pipeline.getSortThreads());
+        Assert.assertEquals(2, pipeline.getEncodeThreads());
+        Assert.assertEquals(PipelineConfiguration.DEFAULT_QUEUE_CAPACITY, pipeline.getQueueCapacity());
+    }
+
+    @Test
+    public void testExecutionModeSerialization() throws IOException {
+        SatelliteConfiguration original = SatelliteConfiguration.builder(8, 1)
+                .executionMode(ExecutionMode.VIRTUAL)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        Assert.assertTrue(json.contains("\"virtual\""));
+        Assert.assertEquals(original, ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SatelliteConfiguration.class));
+    }
+
+    @Test
+    public void testReplaySerialization() throws IOException {
+        SatelliteConfiguration original = SatelliteConfiguration.builder(8, 1)
+                .seed(42L)
+                .recording("frames.bin")
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        SatelliteConfiguration deserialized = ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SatelliteConfiguration.class);
+        Assert.assertEquals(original, deserialized);
+        Assert.assertEquals(Long.valueOf(42), deserialized.getSeed());
+        Assert.assertEquals("frames.bin", deserialized.getRecording());
+    }
+
+    @Test
+    public void testOverflowPolicySerialization() throws IOException {
+        SatelliteConfiguration original = SatelliteConfiguration.builder(8, 1)
+                .overflowPolicy(OverflowPolicy.DROP_OLDEST)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        Assert.assertTrue(json.contains("\"drop-oldest\""));
+        Assert.assertEquals(original, ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SatelliteConfiguration.class));
+    }
+
+    @Test
+    public void testImageFormatSerialization() throws IOException {
+        SatelliteConfiguration original = SatelliteConfiguration.builder(8, 1)
+                .imageFormat(ImageFormat.PNG_16)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        Assert.assertTrue(json.contains("\"png-16\""));
+        Assert.assertEquals(original, ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SatelliteConfiguration.class));
+
+        SparkJobConfiguration job = SparkJobConfiguration.builder("Satellite Name", 1)
+                .imageFormat(ImageFormat.PGM)
+                .data(2)
+                .build();
+        String jobJson = ObjectMapperSingleton.getObjectMapper().writeValueAsString(job);
+        Assert.assertTrue(jobJson.contains("\"pgm\""));
+        Assert.assertEquals(job, ObjectMapperSingleton.getObjectMapper()
+                .readValue(jobJson, SparkJobConfiguration.class));
+    }
+
+    @Test
+    public void testPacedSerialization() throws IOException {
+        SatelliteConfiguration original = SatelliteConfiguration.builder(8, 1)
+                .paced(true)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        Assert.assertEquals(original, ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SatelliteConfiguration.class));
+        Assert.assertNull(new SatelliteConfiguration(8, 1).getPaced());
+    }
+
+    @Test
+    public void testBackpressureSerialization() throws IOException {
+        SatelliteConfiguration original = SatelliteConfiguration.builder(8, 1)
+                .backpressure(true)
+                .build();
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        Assert.assertEquals(original, ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SatelliteConfiguration.class));
+        Assert.assertNull(new SatelliteConfiguration(8, 1).getBackpressure());
+    }
+
+    @Test
+    public void testFrameSummarySerialization() throws IOException {
+        FrameSummary original = FrameStatistics.summarize(new int[]{5, 1, 4, 2, 3}, ForkJoinPool.commonPool());
+        String json = ObjectMapperSingleton.getObjectMapper().writeValueAsString(original);
+        FrameSummary deserialized = ObjectMapperSingleton.getObjectMapper().readValue(json, FrameSummary.class);
+        Assert.assertEquals(original, deserialized);
+    }
+
+    @Test
+    public void testDefaultAlgorithmDeserialization() throws IOException {
+        String json = "{\"satelliteName\": \"My Satellite\", \"threshold\": 200, \"data\": [1, 2, 3]}";
+        SparkJobConfiguration deserialized = ObjectMapperSingleton.getObjectMapper()
+                .readValue(json, SparkJobConfiguration.class);
+        Assert.assertEquals(Sorters.DEFAULT_ALGORITHM, deserialized.getAlgorithm());
+        Assert.assertEquals(JobType.SORT, deserialized.getJobType());
+        Assert.assertEquals(ImageFormat.JPEG, deserialized.getImageFormat());
+
+        SatelliteConfiguration satelliteConfiguration = ObjectMapperSingleton.getObjectMapper()
+                .readValue("{\"i\": 8, \"j\": 1}", SatelliteConfiguration.class);
+        Assert.assertEquals(new SatelliteConfiguration(8, 1), satelliteConfiguration);
+    }
+
+    @Test
+    public void testBuilder() {
+        SparkJobConfiguration job = SparkJobConfiguration.builder("Satellite Name", 1).data(2, 3).build();
+        Assert.assertEquals(new SparkJobConfiguration("Satellite Name", 1, 2, 3), job);
+        Assert.assertEquals(job, job.toBuilder().build());
+
+        SparkJobConfiguration switched = job.toBuilder().algorithm(Sorters.SAMPLE_SORT).build();
+        Assert.assertEquals(Sorters.SAMPLE_SORT, switched.getAlgorithm());
+        Assert.assertArrayEquals(job.getData(), switched.getData());
+
+        try {
+            SatelliteConfiguration.builder(8, 1).frameCount(0).build();
+            Assert.fail("The frame count cannot be less than 1.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package ahuber.hubble.utils;
+
+import ahuber.hubble.testing.TestingUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ThroughputMeterTests {
+
+    @Test
+    public void testThroughput() {
+        AtomicLong now = new AtomicLong(1_000);
+        ThroughputMeter meter = new ThroughputMeter(now::get);
+        Assert.assertEquals(0, meter.getFramesPerSecond(), 0);
+
+        meter.record(1 << 20);
+        meter.record(1 << 20);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(4));
+
+        Assert.assertEquals(2, meter.getFrames());
+        Assert.assertEquals(2 << 20, meter.getSamples());
+        Assert.assertEquals(Duration.ofSeconds(4), meter.getElapsed());
+        Assert.assertEquals(0.5, meter.getFramesPerSecond(), 1e-9);
+        Assert.assertEquals((2 << 20) / 4.0, meter.getSamplesPerSecond(), 1e-9);
+        Assert.assertTrue(meter.toString().contains("0.50 frames/s"));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        TestingUtilities.assertExceptionThrown(() -> new ThroughputMeter().record(-1), IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,115 @@
+package ahuber.hubble.utils;
+
+import com.amazonaws.jmespath.ObjectMapperSingleton;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+public class TilePyramidTests {
+
+    @Test
+    public void testWrite() throws IOException {
+        // 600 pixels take three levels, of 3 x 3, 2 x 2, and 1 tile, where the tiles at the edges are smaller
+        int length = 600;
+        int[] data = new SplittableRandom(6).ints(length * length, 0, 4097).toArray();
+        Map<String, byte[]> files = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        TilePyramid pyramid = TilePyramid.write(data, (path, bytes, contentType) -> files.put(path, bytes), pool);
+        pool.shutdown();
+        Assert.assertEquals(3, pyramid.getLevels());
+        Assert.assertEquals(150, pyramid.getWidth(2));
+        Assert.assertEquals(14, pyramid.getTileCount());
+        Assert.assertEquals(pyramid.getTileCount() + 1, files.size());
+
+        // The manifest describes the pyramid
+        TilePyramid manifest = ObjectMapperSingleton.getObjectMapper().readValue(files.get(TilePyramid.MANIFEST_PATH),
+                TilePyramid.class);
+        Assert.assertEquals(pyramid, manifest);
+
+        // The full resolution tiles have the same pixels as the image that SatelliteImageWriter writes
+        BufferedImage expected = SatelliteImageWriter.writeGreyscaleImage(data);
+        BufferedImage corner = read(files.get(TilePyramid.getTilePath(0, 2, 2)));
+        Assert.assertEquals(length - 512, corner.getWidth());
+        Assert.assertEquals(length - 512, corner.getHeight());
+
+        for (int y = 0; y < corner.getHeight(); y++) {
+            for (int x = 0; x < corner.getWidth(); x++) {
+                Assert.assertEquals(expected.getRaster().getSample(512 + x, 512 + y, 0),
+                        corner.getRaster().getSample(x, y, 0));
+            }
+        }
+
+        // Each pixel of the next level is the rounded average of the 2 x 2 pixels it covers
+        BufferedImage full = read(files.get(TilePyramid.getTilePath(0, 0, 0)));
+        BufferedImage half = read(files.get(TilePyramid.getTilePath(1, 0, 0)));
+        Assert.assertEquals(TilePyramid.TILE_SIZE, half.getWidth());
+
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                int sum = full.getRaster().getSample(2 * x, 2 * y, 0) + full.getRaster().getSample(2 * x + 1, 2 * y, 0)
+                        + full.getRaster().getSample(2 * x, 2 * y + 1, 0)
+                        + full.getRaster().getSample(2 * x + 1, 2 * y + 1, 0);
+                Assert.assertEquals((sum + 2) / 4, half.getRaster().getSample(x, y, 0));
+            }
+        }
+
+        Assert.assertEquals(150, read(files.get(TilePyramid.getTilePath(2, 0, 0))).getWidth());
+    }
+
+    @Test
+    public void testWriteToDirectory() throws IOException {
+        // A frame that fits in one tile has a single level
+        Path directory = Files.createTempDirectory("hubble-tile-pyramid");
+        Path manifest = directory.resolve(TilePyramid.MANIFEST_PATH);
+        Path tile = directory.resolve("0/0_0.png");
+        int[] data = new SplittableRandom(7).ints(100 * 100, 0, 4097).toArray();
+
+        try {
+            TilePyramid pyramid = TilePyramid.write(data, TilePyramid.toDirectory(directory));
+            Assert.assertEquals(1, pyramid.getLevels());
+            Assert.assertTrue(Files.exists(manifest));
+            Assert.assertEquals(100, read(Files.readAllBytes(tile)).getWidth());
+        } finally {
+            Files.deleteIfExists(manifest);
+            Files.deleteIfExists(tile);
+            Files.deleteIfExists(tile.getParent());
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testWriteFailure() throws IOException {
+        int[] data = new int[512 * 512];
+
+        try {
+            TilePyramid.write(data, (path, bytes, contentType) -> {
+                throw new IOException("The sink is full.");
+            });
+            Assert.fail("The failure of the sink should be thrown.");
+        } catch (IOException expected) {
+            // Expected
+        }
+
+        try {
+            TilePyramid.write(new int[0], (path, bytes, contentType) -> { });
+            Assert.fail("A tile pyramid needs at least one pixel.");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    private static BufferedImage read(byte[] bytes) throws IOException {
+        Assert.assertNotNull(bytes);
+        return ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+}